@@ -1,33 +1,100 @@
 package com.salesforce.functions.proxy;
 
+import com.salesforce.functions.proxy.config.ProxyConfig;
+import com.salesforce.functions.proxy.service.FunctionHttpClientService;
+import com.salesforce.functions.proxy.service.SalesforceHttpClientService;
+import com.salesforce.functions.proxy.util.VirtualThreads;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.web.embedded.netty.NettyReactiveWebServerFactory;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
 import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.task.support.TaskExecutorAdapter;
 import org.springframework.scheduling.annotation.EnableAsync;
 import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.web.client.RestTemplate;
 
 import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadPoolExecutor;
 
 @SpringBootApplication
 @EnableAsync
 public class ProxyApplication {
 	public static void main(String[] args) {
+		// Register before startup: signing key is parsed on startup and may be PKCS#1
+		java.security.Security.addProvider(new org.bouncycastle.jce.provider.BouncyCastleProvider());
+
 		SpringApplication.run(ProxyApplication.class, args);
+	}
+	// Calls Salesforce APIs over per-org domain, HTTP/2 connections
+	@Bean
+	@Primary
+	public RestTemplate getRestTemplate(SalesforceHttpClientService salesforceHttpClientService) {
+		return salesforceHttpClientService.getRestTemplate();
+	}
 
-		java.security.Security.addProvider(new org.bouncycastle.jce.provider.BouncyCastleProvider());
+	// Invokes the function over pooled keep-alive connections
+	@Bean
+	public RestTemplate functionRestTemplate(FunctionHttpClientService functionHttpClientService) {
+		return functionHttpClientService.getRestTemplate();
 	}
+
+	// Tomcat, also on the classpath, is otherwise preferred in reactive mode
 	@Bean
-	public RestTemplate getRestTemplate() {
-		return new RestTemplate();
+	@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+	public NettyReactiveWebServerFactory nettyReactiveWebServerFactory() {
+		return new NettyReactiveWebServerFactory();
 	}
 
+	// Tomcat's request threads are otherwise a fixed pool of platform threads
 	@Bean
-	public Executor asyncExecutor() {
+	@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+	public TomcatProtocolHandlerCustomizer<?> virtualThreadsProtocolHandlerCustomizer(ProxyConfig proxyConfig) {
+		return protocolHandler -> {
+			if (VirtualThreads.isEnabled(proxyConfig)) {
+				protocolHandler.setExecutor(VirtualThreads.newThreadPerTaskExecutor("http-nio-virtual-"));
+			}
+		};
+	}
+
+	@Bean
+	public Executor asyncExecutor(ProxyConfig proxyConfig) {
+		if (VirtualThreads.isEnabled(proxyConfig)) {
+			return new TaskExecutorAdapter(VirtualThreads.newThreadPerTaskExecutor("AsyncFunctionInvoker-"));
+		}
+
 		ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
-		// If needed, configure CorePoolSize, MaxPoolSize, QueueCapacity, etc.
+		// Async function invocations don't hold a thread while the function runs; threads only handle function
+		// responses, handing them off to be saved to Salesforce.  Each async invocation in flight queues at most one
+		// response, so the queue doesn't fill; should it regardless, the invocation fails rather than its response being
+		// handled on the function client's I/O thread.
+		executor.setCorePoolSize(proxyConfig.getAsyncWriteBackThreads());
+		executor.setMaxPoolSize(proxyConfig.getAsyncWriteBackThreads());
+		executor.setQueueCapacity(proxyConfig.getAsyncMaxConcurrentInvocations());
+		executor.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
 		executor.setThreadNamePrefix("AsyncFunctionInvoker-");
 		executor.initialize();
 		return executor;
 	}
+
+	@Bean
+	public Executor asyncWriteBackExecutor(ProxyConfig proxyConfig) {
+		if (VirtualThreads.isEnabled(proxyConfig)) {
+			return new TaskExecutorAdapter(VirtualThreads.newThreadPerTaskExecutor("AsyncResponseWriter-"));
+		}
+
+		ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+		// Saves batches of function responses to Salesforce.  Batches hold responses of async invocations in flight or of
+		// a window of replayed dead letters, so are bounded by twice the max concurrent invocations; should the queue
+		// fill regardless, the batch's saves are retried rather than run on the caller, eg the batch scheduler.
+		executor.setCorePoolSize(proxyConfig.getAsyncWriteBackThreads());
+		executor.setMaxPoolSize(proxyConfig.getAsyncWriteBackThreads());
+		executor.setQueueCapacity(2 * proxyConfig.getAsyncMaxConcurrentInvocations());
+		executor.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
+		executor.setThreadNamePrefix("AsyncResponseWriter-");
+		executor.initialize();
+		return executor;
+	}
 }
@@ -4,8 +4,11 @@ import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.stereotype.Component;
 import org.springframework.validation.annotation.Validated;
 
+import javax.validation.constraints.DecimalMax;
+import javax.validation.constraints.DecimalMin;
 import javax.validation.constraints.Min;
 import javax.validation.constraints.NotBlank;
+import javax.validation.constraints.Pattern;
 
 @Component
 @Validated
@@ -39,6 +42,79 @@ public class ProxyConfig {
     private String oauth2TokenUri;
     @NotBlank
     private String activateSessionPermSetUri;
+    @NotBlank
+    private String oauth2IntrospectUri;
+    private String consumerSecret;
+    private boolean tokenCacheEnabled;
+    @Min(1)
+    private int tokenCacheMaxSize;
+    @Min(1)
+    private long tokenCacheTtlSeconds;
+    @Min(0)
+    private long tokenCacheExpirySkewSeconds;
+    private boolean tokenIntrospectionEnabled;
+    private boolean tokenRefreshEnabled;
+    @DecimalMin("0.1")
+    @DecimalMax("1.0")
+    private double tokenRefreshLifetimeFraction;
+    @Min(1)
+    private long tokenRefreshIntervalSeconds;
+    @Min(1)
+    private long tokenRefreshIdleSeconds;
+    @Min(1)
+    private int tokenRefreshPoolSize;
+    private boolean callerValidationCacheEnabled;
+    @Min(1)
+    private int callerValidationCacheMaxSize;
+    @Min(1)
+    private long callerValidationCacheTtlSeconds;
+    @Min(0)
+    private long callerValidationCacheNegativeTtlSeconds;
+    @Pattern(regexp = "userinfo|signature")
+    private String callerValidationMode;
+    private String encodedCallerCertificate;
+    @Min(1)
+    private long requestAssertionMaxAgeSeconds;
+    @Min(1)
+    private int requestAssertionReplayCacheMaxSize;
+    private boolean permSetActivationCacheEnabled;
+    private boolean requestHandlerParallelEnabled;
+    @Min(1)
+    private int requestHandlerPoolSize;
+    private boolean virtualThreadsEnabled;
+    private int functionClientMaxConnections;
+    private int functionClientConnectTimeoutMs;
+    private int functionClientReadTimeoutMs;
+    private int functionClientIdleTimeoutSeconds;
+    private String orgDomainUrl;
+    private boolean salesforceClientHttp2Enabled;
+    private int salesforceClientConnectTimeoutMs;
+    private int salesforceClientReadTimeoutMs;
+    private boolean syncStreamingEnabled;
+    private int streamingBufferSize;
+    private int streamingBufferPoolSize;
+    private boolean embeddedFunctionEnabled;
+    private int functionWorkers;
+    private int functionWorkerMemoryMb;
+    private int functionStartupTimeoutMs;
+    private int functionRestartMaxBackoffMs;
+    private boolean functionStandbyEnabled;
+    private int functionStandbyWarmupRequests;
+    private String adminToken;
+    private int functionDrainTimeoutMs;
+    private int asyncQueueCapacity;
+    private int asyncMaxConcurrentInvocations;
+    private int asyncWriteBackThreads;
+    private int asyncRetryAfterSeconds;
+    private String asyncWalDir;
+    private int asyncWalSegmentSizeMb;
+    private int asyncWriteBackBatchSize;
+    private int asyncWriteBackBatchDelayMs;
+    private int asyncWriteBackMaxAttempts;
+    private int asyncWriteBackRetryBaseDelayMs;
+    private int asyncWriteBackRetryMaxDelayMs;
+    private int asyncWriteBackRetryBudgetPerMinute;
+    private String asyncWriteBackDeadLetterFile;
 
     public String getJavaHome() {
         return javaHome != null ? javaHome : System.getProperty("java.home");
@@ -160,4 +236,460 @@ public class ProxyConfig {
     public void setActivateSessionPermSetUri(String activateSessionPermSetUri) {
         this.activateSessionPermSetUri = activateSessionPermSetUri;
     }
+
+    public String getOauth2IntrospectUri() {
+        return oauth2IntrospectUri;
+    }
+
+    public void setOauth2IntrospectUri(String oauth2IntrospectUri) {
+        this.oauth2IntrospectUri = oauth2IntrospectUri;
+    }
+
+    public String getConsumerSecret() {
+        return consumerSecret;
+    }
+
+    public void setConsumerSecret(String consumerSecret) {
+        this.consumerSecret = consumerSecret;
+    }
+
+    public boolean isTokenCacheEnabled() {
+        return tokenCacheEnabled;
+    }
+
+    public void setTokenCacheEnabled(boolean tokenCacheEnabled) {
+        this.tokenCacheEnabled = tokenCacheEnabled;
+    }
+
+    public int getTokenCacheMaxSize() {
+        return tokenCacheMaxSize;
+    }
+
+    public void setTokenCacheMaxSize(int tokenCacheMaxSize) {
+        this.tokenCacheMaxSize = tokenCacheMaxSize;
+    }
+
+    public long getTokenCacheTtlSeconds() {
+        return tokenCacheTtlSeconds;
+    }
+
+    public void setTokenCacheTtlSeconds(long tokenCacheTtlSeconds) {
+        this.tokenCacheTtlSeconds = tokenCacheTtlSeconds;
+    }
+
+    public long getTokenCacheExpirySkewSeconds() {
+        return tokenCacheExpirySkewSeconds;
+    }
+
+    public void setTokenCacheExpirySkewSeconds(long tokenCacheExpirySkewSeconds) {
+        this.tokenCacheExpirySkewSeconds = tokenCacheExpirySkewSeconds;
+    }
+
+    public boolean isTokenIntrospectionEnabled() {
+        return tokenIntrospectionEnabled;
+    }
+
+    public void setTokenIntrospectionEnabled(boolean tokenIntrospectionEnabled) {
+        this.tokenIntrospectionEnabled = tokenIntrospectionEnabled;
+    }
+
+    public boolean isTokenRefreshEnabled() {
+        return tokenRefreshEnabled;
+    }
+
+    public void setTokenRefreshEnabled(boolean tokenRefreshEnabled) {
+        this.tokenRefreshEnabled = tokenRefreshEnabled;
+    }
+
+    public double getTokenRefreshLifetimeFraction() {
+        return tokenRefreshLifetimeFraction;
+    }
+
+    public void setTokenRefreshLifetimeFraction(double tokenRefreshLifetimeFraction) {
+        this.tokenRefreshLifetimeFraction = tokenRefreshLifetimeFraction;
+    }
+
+    public long getTokenRefreshIntervalSeconds() {
+        return tokenRefreshIntervalSeconds;
+    }
+
+    public void setTokenRefreshIntervalSeconds(long tokenRefreshIntervalSeconds) {
+        this.tokenRefreshIntervalSeconds = tokenRefreshIntervalSeconds;
+    }
+
+    public long getTokenRefreshIdleSeconds() {
+        return tokenRefreshIdleSeconds;
+    }
+
+    public void setTokenRefreshIdleSeconds(long tokenRefreshIdleSeconds) {
+        this.tokenRefreshIdleSeconds = tokenRefreshIdleSeconds;
+    }
+
+    public int getTokenRefreshPoolSize() {
+        return tokenRefreshPoolSize;
+    }
+
+    public void setTokenRefreshPoolSize(int tokenRefreshPoolSize) {
+        this.tokenRefreshPoolSize = tokenRefreshPoolSize;
+    }
+
+    public boolean isCallerValidationCacheEnabled() {
+        return callerValidationCacheEnabled;
+    }
+
+    public void setCallerValidationCacheEnabled(boolean callerValidationCacheEnabled) {
+        this.callerValidationCacheEnabled = callerValidationCacheEnabled;
+    }
+
+    public int getCallerValidationCacheMaxSize() {
+        return callerValidationCacheMaxSize;
+    }
+
+    public void setCallerValidationCacheMaxSize(int callerValidationCacheMaxSize) {
+        this.callerValidationCacheMaxSize = callerValidationCacheMaxSize;
+    }
+
+    public long getCallerValidationCacheTtlSeconds() {
+        return callerValidationCacheTtlSeconds;
+    }
+
+    public void setCallerValidationCacheTtlSeconds(long callerValidationCacheTtlSeconds) {
+        this.callerValidationCacheTtlSeconds = callerValidationCacheTtlSeconds;
+    }
+
+    public long getCallerValidationCacheNegativeTtlSeconds() {
+        return callerValidationCacheNegativeTtlSeconds;
+    }
+
+    public void setCallerValidationCacheNegativeTtlSeconds(long callerValidationCacheNegativeTtlSeconds) {
+        this.callerValidationCacheNegativeTtlSeconds = callerValidationCacheNegativeTtlSeconds;
+    }
+
+    public String getCallerValidationMode() {
+        return callerValidationMode;
+    }
+
+    public void setCallerValidationMode(String callerValidationMode) {
+        this.callerValidationMode = callerValidationMode;
+    }
+
+    public String getEncodedCallerCertificate() {
+        return encodedCallerCertificate;
+    }
+
+    public void setEncodedCallerCertificate(String encodedCallerCertificate) {
+        this.encodedCallerCertificate = encodedCallerCertificate;
+    }
+
+    public long getRequestAssertionMaxAgeSeconds() {
+        return requestAssertionMaxAgeSeconds;
+    }
+
+    public void setRequestAssertionMaxAgeSeconds(long requestAssertionMaxAgeSeconds) {
+        this.requestAssertionMaxAgeSeconds = requestAssertionMaxAgeSeconds;
+    }
+
+    public int getRequestAssertionReplayCacheMaxSize() {
+        return requestAssertionReplayCacheMaxSize;
+    }
+
+    public void setRequestAssertionReplayCacheMaxSize(int requestAssertionReplayCacheMaxSize) {
+        this.requestAssertionReplayCacheMaxSize = requestAssertionReplayCacheMaxSize;
+    }
+
+    public boolean isPermSetActivationCacheEnabled() {
+        return permSetActivationCacheEnabled;
+    }
+
+    public void setPermSetActivationCacheEnabled(boolean permSetActivationCacheEnabled) {
+        this.permSetActivationCacheEnabled = permSetActivationCacheEnabled;
+    }
+
+    public boolean isRequestHandlerParallelEnabled() {
+        return requestHandlerParallelEnabled;
+    }
+
+    public void setRequestHandlerParallelEnabled(boolean requestHandlerParallelEnabled) {
+        this.requestHandlerParallelEnabled = requestHandlerParallelEnabled;
+    }
+
+    public int getRequestHandlerPoolSize() {
+        return requestHandlerPoolSize;
+    }
+
+    public void setRequestHandlerPoolSize(int requestHandlerPoolSize) {
+        this.requestHandlerPoolSize = requestHandlerPoolSize;
+    }
+
+    public boolean isVirtualThreadsEnabled() {
+        return virtualThreadsEnabled;
+    }
+
+    public void setVirtualThreadsEnabled(boolean virtualThreadsEnabled) {
+        this.virtualThreadsEnabled = virtualThreadsEnabled;
+    }
+
+    public int getFunctionClientMaxConnections() {
+        return functionClientMaxConnections;
+    }
+
+    public void setFunctionClientMaxConnections(int functionClientMaxConnections) {
+        this.functionClientMaxConnections = functionClientMaxConnections;
+    }
+
+    public int getFunctionClientConnectTimeoutMs() {
+        return functionClientConnectTimeoutMs;
+    }
+
+    public void setFunctionClientConnectTimeoutMs(int functionClientConnectTimeoutMs) {
+        this.functionClientConnectTimeoutMs = functionClientConnectTimeoutMs;
+    }
+
+    public int getFunctionClientReadTimeoutMs() {
+        return functionClientReadTimeoutMs;
+    }
+
+    public void setFunctionClientReadTimeoutMs(int functionClientReadTimeoutMs) {
+        this.functionClientReadTimeoutMs = functionClientReadTimeoutMs;
+    }
+
+    public int getFunctionClientIdleTimeoutSeconds() {
+        return functionClientIdleTimeoutSeconds;
+    }
+
+    public void setFunctionClientIdleTimeoutSeconds(int functionClientIdleTimeoutSeconds) {
+        this.functionClientIdleTimeoutSeconds = functionClientIdleTimeoutSeconds;
+    }
+
+    public String getOrgDomainUrl() {
+        return orgDomainUrl;
+    }
+
+    public void setOrgDomainUrl(String orgDomainUrl) {
+        this.orgDomainUrl = orgDomainUrl;
+    }
+
+    public boolean isSalesforceClientHttp2Enabled() {
+        return salesforceClientHttp2Enabled;
+    }
+
+    public void setSalesforceClientHttp2Enabled(boolean salesforceClientHttp2Enabled) {
+        this.salesforceClientHttp2Enabled = salesforceClientHttp2Enabled;
+    }
+
+    public int getSalesforceClientConnectTimeoutMs() {
+        return salesforceClientConnectTimeoutMs;
+    }
+
+    public void setSalesforceClientConnectTimeoutMs(int salesforceClientConnectTimeoutMs) {
+        this.salesforceClientConnectTimeoutMs = salesforceClientConnectTimeoutMs;
+    }
+
+    public int getSalesforceClientReadTimeoutMs() {
+        return salesforceClientReadTimeoutMs;
+    }
+
+    public void setSalesforceClientReadTimeoutMs(int salesforceClientReadTimeoutMs) {
+        this.salesforceClientReadTimeoutMs = salesforceClientReadTimeoutMs;
+    }
+
+    public boolean isSyncStreamingEnabled() {
+        return syncStreamingEnabled;
+    }
+
+    public void setSyncStreamingEnabled(boolean syncStreamingEnabled) {
+        this.syncStreamingEnabled = syncStreamingEnabled;
+    }
+
+    public int getStreamingBufferSize() {
+        return streamingBufferSize;
+    }
+
+    public void setStreamingBufferSize(int streamingBufferSize) {
+        this.streamingBufferSize = streamingBufferSize;
+    }
+
+    public int getStreamingBufferPoolSize() {
+        return streamingBufferPoolSize;
+    }
+
+    public void setStreamingBufferPoolSize(int streamingBufferPoolSize) {
+        this.streamingBufferPoolSize = streamingBufferPoolSize;
+    }
+
+    public boolean isEmbeddedFunctionEnabled() {
+        return embeddedFunctionEnabled;
+    }
+
+    public void setEmbeddedFunctionEnabled(boolean embeddedFunctionEnabled) {
+        this.embeddedFunctionEnabled = embeddedFunctionEnabled;
+    }
+
+    public int getFunctionWorkers() {
+        return functionWorkers;
+    }
+
+    public void setFunctionWorkers(int functionWorkers) {
+        this.functionWorkers = functionWorkers;
+    }
+
+    public int getFunctionWorkerMemoryMb() {
+        return functionWorkerMemoryMb;
+    }
+
+    public void setFunctionWorkerMemoryMb(int functionWorkerMemoryMb) {
+        this.functionWorkerMemoryMb = functionWorkerMemoryMb;
+    }
+
+    public int getFunctionStartupTimeoutMs() {
+        return functionStartupTimeoutMs;
+    }
+
+    public void setFunctionStartupTimeoutMs(int functionStartupTimeoutMs) {
+        this.functionStartupTimeoutMs = functionStartupTimeoutMs;
+    }
+
+    public int getFunctionRestartMaxBackoffMs() {
+        return functionRestartMaxBackoffMs;
+    }
+
+    public void setFunctionRestartMaxBackoffMs(int functionRestartMaxBackoffMs) {
+        this.functionRestartMaxBackoffMs = functionRestartMaxBackoffMs;
+    }
+
+    public boolean isFunctionStandbyEnabled() {
+        return functionStandbyEnabled;
+    }
+
+    public void setFunctionStandbyEnabled(boolean functionStandbyEnabled) {
+        this.functionStandbyEnabled = functionStandbyEnabled;
+    }
+
+    public int getFunctionStandbyWarmupRequests() {
+        return functionStandbyWarmupRequests;
+    }
+
+    public void setFunctionStandbyWarmupRequests(int functionStandbyWarmupRequests) {
+        this.functionStandbyWarmupRequests = functionStandbyWarmupRequests;
+    }
+
+    public String getAdminToken() {
+        return adminToken;
+    }
+
+    public void setAdminToken(String adminToken) {
+        this.adminToken = adminToken;
+    }
+
+    public int getFunctionDrainTimeoutMs() {
+        return functionDrainTimeoutMs;
+    }
+
+    public void setFunctionDrainTimeoutMs(int functionDrainTimeoutMs) {
+        this.functionDrainTimeoutMs = functionDrainTimeoutMs;
+    }
+
+    public int getAsyncQueueCapacity() {
+        return asyncQueueCapacity;
+    }
+
+    public void setAsyncQueueCapacity(int asyncQueueCapacity) {
+        this.asyncQueueCapacity = asyncQueueCapacity;
+    }
+
+    public int getAsyncMaxConcurrentInvocations() {
+        return asyncMaxConcurrentInvocations;
+    }
+
+    public void setAsyncMaxConcurrentInvocations(int asyncMaxConcurrentInvocations) {
+        this.asyncMaxConcurrentInvocations = asyncMaxConcurrentInvocations;
+    }
+
+    public int getAsyncWriteBackThreads() {
+        return asyncWriteBackThreads;
+    }
+
+    public void setAsyncWriteBackThreads(int asyncWriteBackThreads) {
+        this.asyncWriteBackThreads = asyncWriteBackThreads;
+    }
+
+    public int getAsyncRetryAfterSeconds() {
+        return asyncRetryAfterSeconds;
+    }
+
+    public void setAsyncRetryAfterSeconds(int asyncRetryAfterSeconds) {
+        this.asyncRetryAfterSeconds = asyncRetryAfterSeconds;
+    }
+
+    public String getAsyncWalDir() {
+        return asyncWalDir;
+    }
+
+    public void setAsyncWalDir(String asyncWalDir) {
+        this.asyncWalDir = asyncWalDir;
+    }
+
+    public int getAsyncWalSegmentSizeMb() {
+        return asyncWalSegmentSizeMb;
+    }
+
+    public void setAsyncWalSegmentSizeMb(int asyncWalSegmentSizeMb) {
+        this.asyncWalSegmentSizeMb = asyncWalSegmentSizeMb;
+    }
+
+    public int getAsyncWriteBackBatchSize() {
+        return asyncWriteBackBatchSize;
+    }
+
+    public void setAsyncWriteBackBatchSize(int asyncWriteBackBatchSize) {
+        this.asyncWriteBackBatchSize = asyncWriteBackBatchSize;
+    }
+
+    public int getAsyncWriteBackBatchDelayMs() {
+        return asyncWriteBackBatchDelayMs;
+    }
+
+    public void setAsyncWriteBackBatchDelayMs(int asyncWriteBackBatchDelayMs) {
+        this.asyncWriteBackBatchDelayMs = asyncWriteBackBatchDelayMs;
+    }
+
+    public int getAsyncWriteBackMaxAttempts() {
+        return asyncWriteBackMaxAttempts;
+    }
+
+    public void setAsyncWriteBackMaxAttempts(int asyncWriteBackMaxAttempts) {
+        this.asyncWriteBackMaxAttempts = asyncWriteBackMaxAttempts;
+    }
+
+    public int getAsyncWriteBackRetryBaseDelayMs() {
+        return asyncWriteBackRetryBaseDelayMs;
+    }
+
+    public void setAsyncWriteBackRetryBaseDelayMs(int asyncWriteBackRetryBaseDelayMs) {
+        this.asyncWriteBackRetryBaseDelayMs = asyncWriteBackRetryBaseDelayMs;
+    }
+
+    public int getAsyncWriteBackRetryMaxDelayMs() {
+        return asyncWriteBackRetryMaxDelayMs;
+    }
+
+    public void setAsyncWriteBackRetryMaxDelayMs(int asyncWriteBackRetryMaxDelayMs) {
+        this.asyncWriteBackRetryMaxDelayMs = asyncWriteBackRetryMaxDelayMs;
+    }
+
+    public int getAsyncWriteBackRetryBudgetPerMinute() {
+        return asyncWriteBackRetryBudgetPerMinute;
+    }
+
+    public void setAsyncWriteBackRetryBudgetPerMinute(int asyncWriteBackRetryBudgetPerMinute) {
+        this.asyncWriteBackRetryBudgetPerMinute = asyncWriteBackRetryBudgetPerMinute;
+    }
+
+    public String getAsyncWriteBackDeadLetterFile() {
+        return asyncWriteBackDeadLetterFile;
+    }
+
+    public void setAsyncWriteBackDeadLetterFile(String asyncWriteBackDeadLetterFile) {
+        this.asyncWriteBackDeadLetterFile = asyncWriteBackDeadLetterFile;
+    }
 }
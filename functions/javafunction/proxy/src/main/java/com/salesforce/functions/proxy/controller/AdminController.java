@@ -0,0 +1,138 @@
+package com.salesforce.functions.proxy.controller;
+
+import com.salesforce.functions.proxy.config.ProxyConfig;
+import com.salesforce.functions.proxy.service.AsyncResponseRetryService;
+import com.salesforce.functions.proxy.service.StartFunctionService;
+import com.salesforce.functions.proxy.util.Utils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Admin operations, in servlet and reactive modes.  Requests require "Authorization: Bearer <token>" header to match
+ * ADMIN_TOKEN env/config var; admin routes are disabled if ADMIN_TOKEN isn't set.
+ */
+@RestController
+public class AdminController {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(AdminController.class);
+
+    private static final String BEARER_PREFIX = "Bearer ";
+
+    @Autowired
+    StartFunctionService startFunctionService;
+
+    @Autowired
+    AsyncResponseRetryService asyncResponseRetryService;
+
+    @Autowired
+    Utils utils;
+
+    @Autowired
+    ProxyConfig proxyConfig;
+
+    /**
+     * Restart the function from the function directory, eg after updating the function, w/o dropping in-flight
+     * requests.
+     *
+     * @param headers
+     * @return
+     */
+    @PostMapping("/admin/function/redeploy")
+    public CompletableFuture<ResponseEntity<String>> redeployFunction(@RequestHeader HttpHeaders headers) {
+        String requestId = "redeploy-" + System.currentTimeMillis();
+        utils.info(LOGGER, requestId, "Received /admin/function/redeploy request");
+
+        ResponseEntity<String> errorResponse = authorize(headers);
+        if (errorResponse != null) {
+            return CompletableFuture.completedFuture(errorResponse);
+        }
+
+        long startMs = System.currentTimeMillis();
+        return startFunctionService.redeploy()
+                .handle((ignored, ex) -> {
+                    if (ex != null) {
+                        return toErrorResponse(requestId, ex);
+                    }
+
+                    String msg = "Redeployed function in " + (System.currentTimeMillis() - startMs) + "ms";
+                    utils.info(LOGGER, requestId, msg);
+                    return ResponseEntity.ok(msg);
+                });
+    }
+
+    /**
+     * Retry saving /async function responses that failed to save to AsyncFunctionInvocationRequest__c, eg after
+     * granting the function's user access.
+     *
+     * @param headers
+     * @return
+     */
+    @PostMapping("/admin/async/deadletters/replay")
+    public CompletableFuture<ResponseEntity<String>> replayDeadLetters(@RequestHeader HttpHeaders headers) {
+        String requestId = "replay-" + System.currentTimeMillis();
+        utils.info(LOGGER, requestId, "Received /admin/async/deadletters/replay request");
+
+        ResponseEntity<String> errorResponse = authorize(headers);
+        if (errorResponse != null) {
+            return CompletableFuture.completedFuture(errorResponse);
+        }
+
+        CompletableFuture<AsyncResponseRetryService.ReplayResult> replayed;
+        try {
+            replayed = asyncResponseRetryService.replayDeadLetters();
+        } catch (Exception ex) {
+            replayed = CompletableFuture.failedFuture(ex);
+        }
+
+        return replayed.handle((result, ex) -> {
+            if (ex != null) {
+                return toErrorResponse(requestId, ex);
+            }
+
+            String msg = "Replayed " + result.getReplayed() + " dead-lettered function response(s): " +
+                    result.getSaved() + " saved, " + (result.getReplayed() - result.getSaved()) + " failed";
+            utils.info(LOGGER, requestId, msg);
+            return ResponseEntity.ok(msg);
+        });
+    }
+
+    private ResponseEntity<String> toErrorResponse(String requestId, Throwable ex) {
+        Throwable cause = ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex;
+        utils.error(LOGGER, requestId, cause.getMessage());
+        int status = cause instanceof IllegalStateException ? 409
+                : cause instanceof UnsupportedOperationException ? 400 : 503;
+        return ResponseEntity
+                .status(status)
+                .body(cause.getMessage());
+    }
+
+    private ResponseEntity<String> authorize(HttpHeaders headers) {
+        if (utils.isBlank(proxyConfig.getAdminToken())) {
+            return ResponseEntity.status(404).build();
+        }
+
+        String authorization = headers.getFirst(HttpHeaders.AUTHORIZATION);
+        String token = authorization != null && authorization.startsWith(BEARER_PREFIX)
+                ? authorization.substring(BEARER_PREFIX.length()) : "";
+        // Constant-time comparison so that the token can't be guessed from response times
+        if (!MessageDigest.isEqual(token.getBytes(StandardCharsets.UTF_8),
+                                   proxyConfig.getAdminToken().getBytes(StandardCharsets.UTF_8))) {
+            return ResponseEntity
+                    .status(401)
+                    .body("Unauthorized request");
+        }
+
+        return null;
+    }
+}
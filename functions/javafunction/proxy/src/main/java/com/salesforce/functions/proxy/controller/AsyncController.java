@@ -1,21 +1,24 @@
 package com.salesforce.functions.proxy.controller;
 
-import com.salesforce.functions.proxy.handler.request.RequestHandler;
+import com.salesforce.functions.proxy.config.ProxyConfig;
+import com.salesforce.functions.proxy.handler.request.RequestHandlerPipeline;
 import com.salesforce.functions.proxy.handler.response.AsyncFunctionResponseHandler;
 import com.salesforce.functions.proxy.model.FunctionRequestContext;
-import com.salesforce.functions.proxy.service.InvokeFunctionService;
+import com.salesforce.functions.proxy.service.AsyncInvocationQueueService;
 import com.salesforce.functions.proxy.util.InvalidRequestException;
 import com.salesforce.functions.proxy.util.Utils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
 import org.springframework.http.*;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
-import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 /**
  * This controller handles async requests disconnecting from the client before managing function invocation.
@@ -26,6 +29,7 @@ import java.util.List;
  *     given Permission Sets on the function's token, if applicable.
  */
 @RestController
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
 public class AsyncController {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(SyncController.class);
@@ -34,51 +38,63 @@ public class AsyncController {
     Utils utils;
 
     @Autowired
-    List<RequestHandler> handlers;
+    RequestHandlerPipeline requestHandlerPipeline;
 
     @Autowired
-    InvokeFunctionService invokeFunctionService;
+    AsyncInvocationQueueService asyncInvocationQueueService;
+
+    @Autowired
+    ProxyConfig proxyConfig;
 
     @Autowired
     AsyncFunctionResponseHandler asyncFunctionResponseHandler;
 
     @RequestMapping("/async/**")
-    public ResponseEntity<String> handleRequest(@RequestBody(required = false) String body,
-                                                @RequestHeader HttpHeaders headers,
-                                                HttpMethod method) {
+    public CompletableFuture<ResponseEntity<String>> handleRequest(@RequestBody(required = false) String body,
+                                                                  @RequestHeader HttpHeaders headers,
+                                                                  HttpMethod method) {
         LOGGER.info("Received /async request");
 
+        // Request thread is released while handlers run
         FunctionRequestContext functionRequestContext = new FunctionRequestContext(headers, method);
-        try {
-            for (RequestHandler handler : handlers) {
-                String requestId = functionRequestContext.getRequestId();
-                String handlerName = handler.getClass().getSimpleName();
-                utils.debug(LOGGER, requestId, "Invoking handler " + handlerName + "...");
-                long startMs = System.currentTimeMillis();
-
-                handler.handle(functionRequestContext);
-
-                utils.debug(LOGGER,
-                            functionRequestContext.getRequestId(),
-                            "Invoked handler " + handlerName + " in " + (System.currentTimeMillis() - startMs) + "ms");
-            }
-        } catch (InvalidRequestException ex) {
-            utils.error(LOGGER, functionRequestContext.getRequestId(), ex.getMessage());
-            return ResponseEntity
-                    .status(ex.getStatusCode())
-                    .body(ex.getMessage());
-        } catch (Exception ex) {
-            utils.error(LOGGER, functionRequestContext.getRequestId(), ex.getMessage());
+        return requestHandlerPipeline.handleAsync(functionRequestContext)
+                .handle((ignored, ex) -> {
+                    if (ex != null) {
+                        return toErrorResponse(functionRequestContext, ex);
+                    }
+
+                    // TODO: Validate AsyncFunctionInvocationRequest__c access and existence
+
+                    // Async'ly invoke function, unless overloaded
+                    try {
+                        if (!asyncInvocationQueueService.offer(functionRequestContext, body, asyncFunctionResponseHandler)) {
+                            return ResponseEntity
+                                    .status(HttpStatus.TOO_MANY_REQUESTS)
+                                    .header(HttpHeaders.RETRY_AFTER, String.valueOf(proxyConfig.getAsyncRetryAfterSeconds()))
+                                    .body("Too many async requests; retry later");
+                        }
+                    } catch (RuntimeException offerEx) {
+                        return toErrorResponse(functionRequestContext, offerEx);
+                    }
+
+                    return ResponseEntity.status(HttpStatus.CREATED).build();
+                });
+    }
+
+    private ResponseEntity<String> toErrorResponse(FunctionRequestContext functionRequestContext, Throwable ex) {
+        if (ex instanceof CompletionException && ex.getCause() != null) {
+            ex = ex.getCause();
+        }
+
+        utils.error(LOGGER, functionRequestContext.getRequestId(), ex.getMessage());
+        if (ex instanceof InvalidRequestException) {
             return ResponseEntity
-                    .status(503)
+                    .status(((InvalidRequestException) ex).getStatusCode())
                     .body(ex.getMessage());
         }
 
-        // TODO: Validate AsyncFunctionInvocationRequest__c access and existence
-
-        // Async'ly invoke function
-        invokeFunctionService.asyncInvokeFunction(functionRequestContext, body, asyncFunctionResponseHandler);
-
-        return ResponseEntity.status(HttpStatus.CREATED).build();
+        return ResponseEntity
+                .status(503)
+                .body(ex.getMessage());
     }
 }
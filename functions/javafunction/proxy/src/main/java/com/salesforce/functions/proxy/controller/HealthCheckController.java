@@ -10,6 +10,7 @@ import com.salesforce.functions.proxy.util.Utils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
 import org.springframework.http.HttpStatus;
@@ -27,6 +28,7 @@ import static com.salesforce.functions.proxy.util.Constants.HEADER_HEALTH_CHECK;
  * This controller returns the health of the function.  Requests require "x-org-id-18" header to match env/config var.
  */
 @RestController
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
 public class HealthCheckController {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(HealthCheckController.class);
@@ -101,6 +103,7 @@ public class HealthCheckController {
 
         try {
             startFunctionService.start();
+            startFunctionService.awaitReady();
         } catch (Exception ex) {
             utils.error(LOGGER, requestId, "Unable to restart function: " + ex.getMessage());
             return ResponseEntity
@@ -108,8 +111,6 @@ public class HealthCheckController {
                     .body(ex.getMessage());
         }
 
-        // Give function time to restart
-        Thread.sleep(3000);
         utils.info(LOGGER, requestId, "Retrying function /healthcheck...");
         return invokeFunctionService.invokeFunction("healthcheck", functionRequestContext, body);
     }
@@ -0,0 +1,102 @@
+package com.salesforce.functions.proxy.controller;
+
+import com.salesforce.functions.proxy.config.ProxyConfig;
+import com.salesforce.functions.proxy.handler.request.RequestHandlerPipeline;
+import com.salesforce.functions.proxy.handler.response.AsyncFunctionResponseHandler;
+import com.salesforce.functions.proxy.model.FunctionRequestContext;
+import com.salesforce.functions.proxy.service.AsyncInvocationQueueService;
+import com.salesforce.functions.proxy.util.InvalidRequestException;
+import com.salesforce.functions.proxy.util.Utils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Reactive mode counterpart of AsyncController: handles async requests disconnecting from the client before
+ * managing function invocation.
+ */
+@RestController
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveAsyncController {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ReactiveAsyncController.class);
+
+    @Autowired
+    Utils utils;
+
+    @Autowired
+    RequestHandlerPipeline requestHandlerPipeline;
+
+    @Autowired
+    AsyncInvocationQueueService asyncInvocationQueueService;
+
+    @Autowired
+    ProxyConfig proxyConfig;
+
+    @Autowired
+    AsyncFunctionResponseHandler asyncFunctionResponseHandler;
+
+    @RequestMapping("/async/**")
+    public Mono<ResponseEntity<String>> handleRequest(ServerHttpRequest request) {
+        LOGGER.info("Received /async request");
+
+        // Request headers are read-only; handlers enrich function's headers
+        HttpHeaders headers = new HttpHeaders();
+        headers.addAll(request.getHeaders());
+        FunctionRequestContext functionRequestContext = new FunctionRequestContext(headers, request.getMethod());
+        return Mono.fromCompletionStage(() -> requestHandlerPipeline.handleAsync(functionRequestContext))
+                // Sequential handlers block the subscribing thread, so keep them off the event loop
+                .subscribeOn(Schedulers.boundedElastic())
+                .then(readBody(request))
+                // Accepting may wait on the async invocation log's sync to disk
+                .publishOn(Schedulers.boundedElastic())
+                .map(payload -> {
+                    // TODO: Validate AsyncFunctionInvocationRequest__c access and existence
+
+                    // Async'ly invoke function, unless overloaded
+                    if (!asyncInvocationQueueService.offer(functionRequestContext, payload, asyncFunctionResponseHandler)) {
+                        return ResponseEntity
+                                .status(HttpStatus.TOO_MANY_REQUESTS)
+                                .header(HttpHeaders.RETRY_AFTER, String.valueOf(proxyConfig.getAsyncRetryAfterSeconds()))
+                                .<String>body("Too many async requests; retry later");
+                    }
+
+                    return ResponseEntity.status(HttpStatus.CREATED).<String>build();
+                })
+                .onErrorResume(ex -> Mono.just(toErrorResponse(functionRequestContext, ex)));
+    }
+
+    private ResponseEntity<String> toErrorResponse(FunctionRequestContext functionRequestContext, Throwable ex) {
+        if (ex instanceof CompletionException && ex.getCause() != null) {
+            ex = ex.getCause();
+        }
+
+        utils.error(LOGGER, functionRequestContext.getRequestId(), ex.getMessage());
+        return ResponseEntity
+                .status(ex instanceof InvalidRequestException ? ((InvalidRequestException) ex).getStatusCode() : 503)
+                .body(ex.getMessage());
+    }
+
+    private Mono<String> readBody(ServerHttpRequest request) {
+        return DataBufferUtils.join(request.getBody())
+                .map(dataBuffer -> {
+                    String body = dataBuffer.toString(StandardCharsets.UTF_8);
+                    DataBufferUtils.release(dataBuffer);
+                    return body;
+                })
+                .defaultIfEmpty("");
+    }
+}
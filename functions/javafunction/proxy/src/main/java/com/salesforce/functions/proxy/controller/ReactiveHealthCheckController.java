@@ -0,0 +1,140 @@
+package com.salesforce.functions.proxy.controller;
+
+import com.google.common.collect.Lists;
+import com.salesforce.functions.proxy.config.ProxyConfig;
+import com.salesforce.functions.proxy.model.FunctionRequestContext;
+import com.salesforce.functions.proxy.service.ReactiveInvokeFunctionService;
+import com.salesforce.functions.proxy.service.StartFunctionService;
+import com.salesforce.functions.proxy.util.Constants;
+import com.salesforce.functions.proxy.util.Utils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.nio.charset.StandardCharsets;
+
+import static com.salesforce.functions.proxy.util.Constants.HEADER_HEALTH_CHECK;
+
+/**
+ * Reactive mode counterpart of HealthCheckController: returns the health of the function, restarting the function
+ * if unhealthy.  Requests require "x-org-id-18" header to match env/config var.
+ */
+@RestController
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveHealthCheckController {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ReactiveHealthCheckController.class);
+
+    @Autowired
+    ReactiveInvokeFunctionService reactiveInvokeFunctionService;
+
+    @Autowired
+    StartFunctionService startFunctionService;
+
+    @Autowired
+    Utils utils;
+
+    @Autowired
+    ProxyConfig proxyConfig;
+
+    @RequestMapping("/healthcheck/**")
+    public Mono<ResponseEntity<String>> handleRequest(ServerHttpRequest request) {
+        String requestId = "healthcheck-" + System.currentTimeMillis();
+        utils.info(LOGGER, requestId, "Received /healthcheck request");
+
+        String orgId18 = request.getHeaders().getFirst(Constants.HEADER_ORG_ID_18);
+        if (utils.isBlank(orgId18) || !orgId18.equals(proxyConfig.getOrgId18())) {
+            return Mono.just(ResponseEntity
+                    .status(410)
+                    .body("Unauthorized request"));
+        }
+
+        // Pass on check to function
+        HttpHeaders headers = new HttpHeaders();
+        headers.addAll(request.getHeaders());
+        headers.put(HEADER_HEALTH_CHECK, Lists.newArrayList("true"));
+        FunctionRequestContext functionRequestContext = new FunctionRequestContext(headers, HttpMethod.POST);
+        functionRequestContext.setRequestId(requestId);
+
+        return readBody(request.getBody())
+                .flatMap(payload -> invokeFunction(functionRequestContext, payload)
+                        .onErrorResume(ex -> {
+                            utils.warn(LOGGER, requestId, "Received /healthcheck exception: " + ex.getMessage());
+                            return restartFunction(functionRequestContext, payload);
+                        })
+                        .flatMap(responseEntity -> {
+                            if (responseEntity.getStatusCode() == HttpStatus.OK) {
+                                return Mono.just(responseEntity);
+                            }
+
+                            utils.warn(LOGGER, requestId, "Received /healthcheck function response [" +
+                                    responseEntity.getStatusCodeValue() + "]: " + responseEntity.getBody());
+                            return restartFunction(functionRequestContext, payload);
+                        }))
+                .onErrorResume(ex -> {
+                    String msg = "Function restart exception: " + ex.getMessage();
+                    utils.error(LOGGER, requestId, msg);
+                    return Mono.just(ResponseEntity
+                            .status(503)
+                            .body(msg));
+                });
+    }
+
+    public Mono<ResponseEntity<String>> restartFunction(FunctionRequestContext functionRequestContext, String body) {
+        String requestId = functionRequestContext.getRequestId();
+        utils.info(LOGGER, requestId, "Attempting to restart function...");
+
+        // Starting the function process and waiting for it to be ready blocks
+        return Mono.fromCallable(() -> {
+                    startFunctionService.start();
+                    startFunctionService.awaitReady();
+                    return Boolean.TRUE;
+                })
+                .subscribeOn(Schedulers.boundedElastic())
+                .then(Mono.<ResponseEntity<String>>empty())
+                .onErrorResume(ex -> {
+                    utils.error(LOGGER, requestId, "Unable to restart function: " + ex.getMessage());
+                    return Mono.just(ResponseEntity
+                            .status(503)
+                            .body(ex.getMessage()));
+                })
+                .switchIfEmpty(Mono.defer(() -> {
+                    utils.info(LOGGER, requestId, "Retrying function /healthcheck...");
+                    return invokeFunction(functionRequestContext, body);
+                }));
+    }
+
+    private Mono<ResponseEntity<String>> invokeFunction(FunctionRequestContext functionRequestContext, String body) {
+        Flux<DataBuffer> bodyBuffers = Flux.just(DefaultDataBufferFactory.sharedInstance.wrap(body.getBytes(StandardCharsets.UTF_8)));
+        return reactiveInvokeFunctionService.invokeFunction("healthcheck", functionRequestContext, bodyBuffers)
+                .flatMap(responseEntity -> readBody(responseEntity.getBody())
+                        .map(responseBody -> ResponseEntity
+                                .status(responseEntity.getStatusCode())
+                                .headers(responseEntity.getHeaders())
+                                .body(responseBody)));
+    }
+
+    private Mono<String> readBody(Flux<DataBuffer> body) {
+        return DataBufferUtils.join(body)
+                .map(dataBuffer -> {
+                    String bodyStr = dataBuffer.toString(StandardCharsets.UTF_8);
+                    DataBufferUtils.release(dataBuffer);
+                    return bodyStr;
+                })
+                .defaultIfEmpty("");
+    }
+}
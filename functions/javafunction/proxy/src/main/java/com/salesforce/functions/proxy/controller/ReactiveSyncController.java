@@ -0,0 +1,85 @@
+package com.salesforce.functions.proxy.controller;
+
+import com.salesforce.functions.proxy.handler.request.RequestHandlerPipeline;
+import com.salesforce.functions.proxy.model.FunctionRequestContext;
+import com.salesforce.functions.proxy.service.ReactiveInvokeFunctionService;
+import com.salesforce.functions.proxy.util.InvalidRequestException;
+import com.salesforce.functions.proxy.util.Utils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Reactive mode counterpart of SyncController: forwards /sync function invocation requests to function, streaming
+ * request and response bodies.
+ */
+@RestController
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveSyncController {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ReactiveSyncController.class);
+    private static final MediaType TEXT_PLAIN_UTF8 = new MediaType(MediaType.TEXT_PLAIN, StandardCharsets.UTF_8);
+
+    @Autowired
+    RequestHandlerPipeline requestHandlerPipeline;
+
+    @Autowired
+    ReactiveInvokeFunctionService reactiveInvokeFunctionService;
+
+    @Autowired
+    Utils utils;
+
+    @Value("${spring.mvc.async.request-timeout}")
+    Duration requestTimeout;
+
+    @RequestMapping("/sync/**")
+    public Mono<ResponseEntity<Flux<DataBuffer>>> handleRequest(ServerHttpRequest request) {
+        LOGGER.info("Received /sync request");
+
+        // Request headers are read-only; handlers enrich function's headers
+        HttpHeaders headers = new HttpHeaders();
+        headers.addAll(request.getHeaders());
+        FunctionRequestContext functionRequestContext = new FunctionRequestContext(headers, request.getMethod());
+        return Mono.fromCompletionStage(() -> requestHandlerPipeline.handleAsync(functionRequestContext))
+                // Sequential handlers block the subscribing thread, so keep them off the event loop
+                .subscribeOn(Schedulers.boundedElastic())
+                .then(Mono.<ResponseEntity<Flux<DataBuffer>>>empty())
+                .onErrorResume(ex -> Mono.just(toErrorResponse(functionRequestContext, ex)))
+                .switchIfEmpty(Mono.defer(() ->
+                        reactiveInvokeFunctionService.invokeFunction("sync", functionRequestContext, request.getBody())))
+                .timeout(requestTimeout)
+                .onErrorResume(TimeoutException.class, ex -> Mono.just(toErrorResponse(functionRequestContext, ex)));
+    }
+
+    private ResponseEntity<Flux<DataBuffer>> toErrorResponse(FunctionRequestContext functionRequestContext, Throwable ex) {
+        if (ex instanceof CompletionException && ex.getCause() != null) {
+            ex = ex.getCause();
+        }
+
+        String message = ex instanceof TimeoutException ? "Request timed out" : ex.getMessage();
+        utils.error(LOGGER, functionRequestContext.getRequestId(), message);
+        return ResponseEntity
+                .status(ex instanceof InvalidRequestException ? ((InvalidRequestException) ex).getStatusCode() : 503)
+                .contentType(TEXT_PLAIN_UTF8)
+                .body(Flux.just(DefaultDataBufferFactory.sharedInstance.wrap(
+                        String.valueOf(message).getBytes(StandardCharsets.UTF_8))));
+    }
+}
@@ -0,0 +1,79 @@
+package com.salesforce.functions.proxy.controller;
+
+import com.salesforce.functions.proxy.handler.request.RequestHandlerPipeline;
+import com.salesforce.functions.proxy.model.FunctionRequestContext;
+import com.salesforce.functions.proxy.service.StreamingInvokeFunctionService;
+import com.salesforce.functions.proxy.util.InvalidRequestException;
+import com.salesforce.functions.proxy.util.Utils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * This controller forwards /sync function invocation requests to function, streaming request and response
+ * bodies rather than buffering them.
+ *
+ * As w/ SyncController, requests are first validated and enriched by the request handlers, which only
+ * consider the request's headers.  The request body is not read until the function is invoked.
+ */
+@RestController
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+@ConditionalOnProperty(prefix = "proxy", name = "syncStreamingEnabled", havingValue = "true")
+public class StreamingSyncController {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(StreamingSyncController.class);
+
+    private static final MediaType TEXT_PLAIN_UTF8 = new MediaType(MediaType.TEXT_PLAIN, StandardCharsets.UTF_8);
+
+    @Autowired
+    RequestHandlerPipeline requestHandlerPipeline;
+
+    @Autowired
+    StreamingInvokeFunctionService streamingInvokeFunctionService;
+
+    @Autowired
+    Utils utils;
+
+    @RequestMapping("/sync/**")
+    public CompletableFuture<ResponseEntity<StreamingResponseBody>> handleRequest(InputStream body,
+                                                                                 @RequestHeader HttpHeaders headers,
+                                                                                 HttpMethod method) {
+        LOGGER.info("Received /sync request");
+
+        boolean hasBody = headers.getContentLength() > 0 || headers.containsKey(HttpHeaders.TRANSFER_ENCODING);
+        FunctionRequestContext functionRequestContext = new FunctionRequestContext(headers, method);
+        return requestHandlerPipeline.handleAsync(functionRequestContext)
+                .thenCompose(ignored ->
+                        streamingInvokeFunctionService.invokeFunction(functionRequestContext, hasBody ? body : null))
+                .exceptionally(ex -> toErrorResponse(functionRequestContext, ex));
+    }
+
+    private ResponseEntity<StreamingResponseBody> toErrorResponse(FunctionRequestContext functionRequestContext,
+                                                                  Throwable ex) {
+        if (ex instanceof CompletionException && ex.getCause() != null) {
+            ex = ex.getCause();
+        }
+
+        utils.error(LOGGER, functionRequestContext.getRequestId(), ex.getMessage());
+        byte[] message = String.valueOf(ex.getMessage()).getBytes(StandardCharsets.UTF_8);
+        return ResponseEntity
+                .status(ex instanceof InvalidRequestException ? ((InvalidRequestException) ex).getStatusCode() : 503)
+                .contentType(TEXT_PLAIN_UTF8)
+                .body(out -> out.write(message));
+    }
+}
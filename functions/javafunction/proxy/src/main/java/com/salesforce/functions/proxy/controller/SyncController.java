@@ -1,6 +1,6 @@
 package com.salesforce.functions.proxy.controller;
 
-import com.salesforce.functions.proxy.handler.request.RequestHandler;
+import com.salesforce.functions.proxy.handler.request.RequestHandlerPipeline;
 import com.salesforce.functions.proxy.model.FunctionRequestContext;
 import com.salesforce.functions.proxy.service.InvokeFunctionService;
 import com.salesforce.functions.proxy.util.InvalidRequestException;
@@ -8,6 +8,8 @@ import com.salesforce.functions.proxy.util.Utils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
 import org.springframework.http.ResponseEntity;
@@ -16,7 +18,8 @@ import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
-import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 /**
  * This controller forwards /sync function invocation requests to function.
@@ -27,12 +30,14 @@ import java.util.List;
  *     given Permission Sets on the function's token, if applicable.
  */
 @RestController
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+@ConditionalOnProperty(prefix = "proxy", name = "syncStreamingEnabled", havingValue = "false", matchIfMissing = true)
 public class SyncController {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(SyncController.class);
 
     @Autowired
-    List<RequestHandler> handlers;
+    RequestHandlerPipeline requestHandlerPipeline;
 
     @Autowired
     InvokeFunctionService invokeFunctionService;
@@ -41,37 +46,34 @@ public class SyncController {
     Utils utils;
 
     @RequestMapping("/sync/**")
-    public ResponseEntity<String> handleRequest(@RequestBody(required = false) String body,
-                                               @RequestHeader HttpHeaders headers,
-                                               HttpMethod method) {
+    public CompletableFuture<ResponseEntity<String>> handleRequest(@RequestBody(required = false) String body,
+                                                                  @RequestHeader HttpHeaders headers,
+                                                                  HttpMethod method) {
         LOGGER.info("Received /sync request");
 
+        // Request thread is released while handlers and the function run
         FunctionRequestContext functionRequestContext = new FunctionRequestContext(headers, method);
-        try {
-            for (RequestHandler handler : handlers) {
-                String requestId = functionRequestContext.getRequestId();
-                String handlerName = handler.getClass().getSimpleName();
-                utils.debug(LOGGER, requestId, "Invoking handler " + handlerName + "...");
-                long startMs = System.currentTimeMillis();
+        return requestHandlerPipeline.handleAsync(functionRequestContext)
+                .handle((ignored, ex) -> ex != null ? toErrorResponse(functionRequestContext, ex) : null)
+                .thenCompose(errorResponse -> errorResponse != null
+                        ? CompletableFuture.completedFuture(errorResponse)
+                        : invokeFunctionService.syncInvokeFunctionAsync(functionRequestContext, body));
+    }
 
-                handler.handle(functionRequestContext);
+    private ResponseEntity<String> toErrorResponse(FunctionRequestContext functionRequestContext, Throwable ex) {
+        if (ex instanceof CompletionException && ex.getCause() != null) {
+            ex = ex.getCause();
+        }
 
-                utils.debug(LOGGER,
-                            functionRequestContext.getRequestId(),
-                            "Invoked handler " + handlerName + " in " + (System.currentTimeMillis() - startMs) + "ms");
-            }
-        } catch (InvalidRequestException ex) {
-            utils.error(LOGGER, functionRequestContext.getRequestId(), ex.getMessage());
-            return ResponseEntity
-                    .status(ex.getStatusCode())
-                    .body(ex.getMessage());
-        } catch (Exception ex) {
-            utils.error(LOGGER, functionRequestContext.getRequestId(), ex.getMessage());
+        utils.error(LOGGER, functionRequestContext.getRequestId(), ex.getMessage());
+        if (ex instanceof InvalidRequestException) {
             return ResponseEntity
-                    .status(503)
+                    .status(((InvalidRequestException) ex).getStatusCode())
                     .body(ex.getMessage());
         }
 
-        return invokeFunctionService.syncInvokeFunction(functionRequestContext, body);
+        return ResponseEntity
+                .status(503)
+                .body(ex.getMessage());
     }
 }
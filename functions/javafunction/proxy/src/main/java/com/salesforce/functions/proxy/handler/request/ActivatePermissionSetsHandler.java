@@ -3,6 +3,7 @@ package com.salesforce.functions.proxy.handler.request;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.salesforce.functions.proxy.model.*;
+import com.salesforce.functions.proxy.service.PermissionSetActivationCacheService;
 import com.salesforce.functions.proxy.util.InvalidRequestException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -15,8 +16,10 @@ import org.springframework.stereotype.Component;
 import org.springframework.web.client.RestTemplate;
 
 import java.util.Arrays;
+import java.util.EnumSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * Activate session-based Permission Sets on function's accessToken.
@@ -30,9 +33,25 @@ public class ActivatePermissionSetsHandler extends BaseRequestHandler {
     @Autowired
     RestTemplate restTemplate;
 
+    @Autowired
+    PermissionSetActivationCacheService permissionSetActivationCacheService;
+
+    @Override
+    public Set<Artifact> requires() {
+        return EnumSet.of(Artifact.VALIDATED_CALLER, Artifact.FUNCTION_TOKEN);
+    }
+
+    @Override
+    public Set<Artifact> provides() {
+        return EnumSet.of(Artifact.ACTIVATED_PERMISSION_SETS);
+    }
+
     /**
      * Activate session-based Permission Sets, if applicable.
      *
+     * If enabled, Permission Sets activated on a function's token are tracked so that only Permission Sets not
+     * yet activated on the token are activated.
+     *
      * @param functionRequestContext
      * @throws InvalidRequestException
      */
@@ -55,6 +74,14 @@ public class ActivatePermissionSetsHandler extends BaseRequestHandler {
             return;
         }
 
+        if (permissionSetActivationCacheService.isEnabled()) {
+            permissionSets = permissionSetActivationCacheService.getInactive(functionContext.getAccessToken(), permissionSets);
+            if (permissionSets.isEmpty()) {
+                utils.info(LOGGER, requestId, "Session-based Permission Set(s) already activated on function's token");
+                return;
+            }
+        }
+
         // Assemble action payload
         Map<String,Object> inputs = Maps.newHashMap();
         List<ActivatePermSetRequest> toActivatePermSetRequests = Lists.newArrayList();
@@ -105,6 +132,12 @@ public class ActivatePermissionSetsHandler extends BaseRequestHandler {
                                               responseEntity.getStatusCode().value());
         }
 
+        if (permissionSetActivationCacheService.isEnabled()) {
+            permissionSetActivationCacheService.putActivated(functionContext.getAccessToken(),
+                                                             functionRequestContext.getFunctionAccessTokenExpiresAtMs(),
+                                                             permissionSets);
+        }
+
         utils.info(LOGGER, requestId, "Activated session-based Permission Set(s): " +
                 String.join(",", permissionSets) + " - yessir");
     }
@@ -2,10 +2,13 @@ package com.salesforce.functions.proxy.handler.request;
 
 import com.salesforce.functions.proxy.model.FunctionRequestContext;
 import com.salesforce.functions.proxy.model.OauthExchangeResponse;
+import com.salesforce.functions.proxy.model.OauthIntrospectResponse;
 import com.salesforce.functions.proxy.model.SfContext;
+import com.salesforce.functions.proxy.model.SfFnContext;
+import com.salesforce.functions.proxy.service.FunctionTokenCacheService;
+import com.salesforce.functions.proxy.service.JwtSigningService;
 import com.salesforce.functions.proxy.util.InvalidRequestException;
-import io.jsonwebtoken.Jwts;
-import io.jsonwebtoken.SignatureAlgorithm;
+import com.salesforce.functions.proxy.util.SingleFlight;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -16,14 +19,8 @@ import org.springframework.util.LinkedMultiValueMap;
 import org.springframework.util.MultiValueMap;
 import org.springframework.web.client.RestTemplate;
 
-import java.io.UnsupportedEncodingException;
-import java.security.KeyFactory;
-import java.security.NoSuchAlgorithmException;
-import java.security.PrivateKey;
-import java.security.spec.InvalidKeySpecException;
-import java.security.spec.PKCS8EncodedKeySpec;
-import java.util.Base64;
-import java.util.Date;
+import java.util.EnumSet;
+import java.util.Set;
 
 import static com.salesforce.functions.proxy.util.Constants.PROD_AUDIENCE_URL;
 import static com.salesforce.functions.proxy.util.Constants.SANDBOX_AUDIENCE_URL;
@@ -40,14 +37,30 @@ public class MintTokenHandler extends BaseRequestHandler {
     @Autowired
     RestTemplate restTemplate;
 
+    @Autowired
+    FunctionTokenCacheService functionTokenCacheService;
+
+    @Autowired
+    JwtSigningService jwtSigningService;
+
+    private final SingleFlight<FunctionTokenCacheService.Key, FunctionTokenCacheService.CachedToken> mintSingleFlight = new SingleFlight<>();
+
+    @Override
+    public Set<Artifact> requires() {
+        return EnumSet.of(Artifact.CONTEXTS);
+    }
+
+    @Override
+    public Set<Artifact> provides() {
+        return EnumSet.of(Artifact.FUNCTION_TOKEN);
+    }
+
     /**
      * Mint and return function's token for requesting user using configured Connected App.
      *
-     * If applicable, activate provided session-based Permission Set(s) to token.
-     *
-     * TODO: Consider caching tokens (referesh token) for given signature: user, connected app,
-     *  session-based Permission(s).  If cached, use /services/oauth2/introspect to determine
-     *  token validity (eg, timeout).
+     * If enabled, tokens are cached for given signature: org, user, connected app, audience and
+     * session-based Permission Set(s).  If configured, /services/oauth2/introspect is used to verify that
+     * cached tokens are still valid.
      *
      * @param functionRequestContext
      * @throws InvalidRequestException
@@ -55,26 +68,230 @@ public class MintTokenHandler extends BaseRequestHandler {
     @Override
     public void handle(FunctionRequestContext functionRequestContext) throws InvalidRequestException {
         String requestId = functionRequestContext.getRequestId();
+        SfFnContext functionContext = functionRequestContext.getSfFnContext();
         SfContext.UserContext userContext = functionRequestContext.getSfContext().getUserContext();
-        String oauth2TokenUri = proxyConfig.getOauth2TokenUri();
-        String url = userContext.getOrgDomainUrl() + oauth2TokenUri;
-        boolean isTest = url.contains(".sandbox.") || url.contains(".scratch.");
 
-        String issuer = proxyConfig.getConsumerKey();
-        String audience = !utils.isBlank(proxyConfig.getAudience())
-                ? proxyConfig.getAudience() : (isTest ? SANDBOX_AUDIENCE_URL : PROD_AUDIENCE_URL);
+        FunctionTokenCacheService.Key tokenKey = toTokenKey(userContext, functionContext);
+        if (functionTokenCacheService.isEnabled()) {
+            FunctionTokenCacheService.CachedToken cachedToken = getCachedToken(requestId, userContext, tokenKey);
+            if (cachedToken != null) {
+                functionContext.setAccessToken(cachedToken.getAccessToken());
+                functionRequestContext.setFunctionAccessTokenExpiresAtMs(cachedToken.getExpiresAtMs());
+                utils.info(LOGGER, requestId, "Using cached function's token (" + functionTokenCacheService.getStats() + ")");
+                return;
+            }
+        }
+
+        MintResult mintResult = mintToken(requestId,
+                                          tokenKey,
+                                          userContext.getOrgDomainUrl(),
+                                          functionRequestContext.getRequestProvidedAccessToken(),
+                                          false);
+        functionContext.setAccessToken(mintResult.token.getAccessToken());
+        functionRequestContext.setFunctionAccessTokenExpiresAtMs(mintResult.token.getExpiresAtMs());
+        // Only this request's own mint is discarded if the request fails, not a token shared w/ other requests
+        functionRequestContext.setFunctionAccessTokenMinted(mintResult.exchanged);
+    }
+
+    /**
+     * Drop function's token minted for a request that subsequently failed, eg the caller failed validation
+     * while the token was minted concurrently, so that the token is not cached.
+     *
+     * @param functionRequestContext
+     */
+    @Override
+    public void discard(FunctionRequestContext functionRequestContext) {
+        SfFnContext functionContext = functionRequestContext.getSfFnContext();
+        if (!functionRequestContext.isFunctionAccessTokenMinted()
+                || !functionTokenCacheService.isEnabled()
+                || functionContext == null
+                || utils.isBlank(functionContext.getAccessToken())) {
+            return;
+        }
+
+        SfContext.UserContext userContext = functionRequestContext.getSfContext().getUserContext();
+        FunctionTokenCacheService.Key tokenKey = toTokenKey(userContext, functionContext);
+        FunctionTokenCacheService.CachedToken cachedToken = functionTokenCacheService.peek(tokenKey);
+        if (cachedToken != null && functionContext.getAccessToken().equals(cachedToken.getAccessToken())) {
+            functionTokenCacheService.invalidate(tokenKey, cachedToken);
+            utils.info(LOGGER, functionRequestContext.getRequestId(), "Discarded function's token minted for failed request");
+        }
+    }
+
+    /**
+     * Re-mint and cache function's token for given signature, eg ahead of the cached token's expiration.
+     *
+     * @param requestId
+     * @param tokenKey
+     * @param orgDomainUrl
+     * @return function's accessToken
+     * @throws InvalidRequestException
+     */
+    public String refreshToken(String requestId,
+                               FunctionTokenCacheService.Key tokenKey,
+                               String orgDomainUrl) throws InvalidRequestException {
+        return mintToken(requestId, tokenKey, orgDomainUrl, null, true).token.getAccessToken();
+    }
+
+    /**
+     * Mint function's token for given signature, caching the token if enabled.
+     *
+     * Concurrent mints for the same signature are coalesced: only one token exchange is in flight per
+     * signature and concurrent callers wait on, and share, its result or failure.
+     *
+     * @param requestId
+     * @param tokenKey
+     * @param orgDomainUrl
+     * @param requestProvidedAccessToken
+     * @param refresh if true, mint a new token even if an unexpired token is cached
+     * @return function's accessToken and its expiration, and whether this request exchanged the token
+     * @throws InvalidRequestException
+     */
+    MintResult mintToken(String requestId,
+                         FunctionTokenCacheService.Key tokenKey,
+                         String orgDomainUrl,
+                         String requestProvidedAccessToken,
+                         boolean refresh) throws InvalidRequestException {
+        // Set by the request that leads the coalesced mint, not by requests that wait on its result
+        boolean[] led = { false };
+        boolean[] exchanged = { false };
+        FunctionTokenCacheService.CachedToken token;
+        try {
+            token = mintSingleFlight.execute(tokenKey, () -> {
+                led[0] = true;
+
+                // A concurrent request may have just minted and cached a token for this signature
+                if (!refresh && functionTokenCacheService.isEnabled()) {
+                    FunctionTokenCacheService.CachedToken cachedToken = functionTokenCacheService.peek(tokenKey);
+                    if (cachedToken != null) {
+                        return cachedToken;
+                    }
+                }
+
+                long startMs = System.currentTimeMillis();
+                String accessToken = exchangeToken(requestId, tokenKey, orgDomainUrl, requestProvidedAccessToken);
+                exchanged[0] = true;
+                long mintMs = System.currentTimeMillis() - startMs;
+                functionTokenCacheService.recordMint(mintMs);
+                long nowMs = System.currentTimeMillis();
+                long expiresAtMs = functionTokenCacheService.computeExpiresAtMs(nowMs);
+                FunctionTokenCacheService.CachedToken mintedToken = functionTokenCacheService.isEnabled()
+                        ? functionTokenCacheService.put(tokenKey, accessToken, orgDomainUrl, expiresAtMs)
+                        : new FunctionTokenCacheService.CachedToken(accessToken, orgDomainUrl, nowMs, expiresAtMs);
+
+                utils.info(LOGGER, requestId, "Minted function's token in " + mintMs + "ms - hooray");
+                return mintedToken;
+            });
+        } catch (InvalidRequestException ex) {
+            if (led[0]) {
+                throw ex;
+            }
+            throw new InvalidRequestException(requestId,
+                                              "Unable to mint function token (coalesced w/ concurrent request): " + ex.getMessage(),
+                                              ex.getStatusCode());
+        } catch (Exception ex) {
+            throw new InvalidRequestException(requestId, "Unable to mint function token: " + ex.getMessage(), 401);
+        }
+
+        if (!exchanged[0]) {
+            functionTokenCacheService.recordCoalescedMint();
+            utils.info(LOGGER, requestId, "Shared function's token minted by concurrent request");
+        }
+        return new MintResult(token, exchanged[0]);
+    }
+
+    /**
+     * Return cached token, if present and still valid.  If enabled, validate cached token via
+     * /services/oauth2/introspect, updating the token's expiration w/ the token's actual expiration.
+     *
+     * @param requestId
+     * @param userContext
+     * @param cacheKey
+     * @return
+     */
+    private FunctionTokenCacheService.CachedToken getCachedToken(String requestId,
+                                                                 SfContext.UserContext userContext,
+                                                                 FunctionTokenCacheService.Key cacheKey) {
+        FunctionTokenCacheService.CachedToken cachedToken = functionTokenCacheService.get(cacheKey);
+        if (cachedToken == null || !proxyConfig.isTokenIntrospectionEnabled()) {
+            return cachedToken;
+        }
+
+        if (utils.isBlank(proxyConfig.getConsumerSecret())) {
+            utils.warn(LOGGER, requestId, "Unable to introspect cached function's token: consumer secret not configured");
+            return cachedToken;
+        }
+
+        OauthIntrospectResponse introspectResponse = introspectToken(requestId, userContext, cachedToken.getAccessToken());
+        if (introspectResponse == null || !introspectResponse.isActive()) {
+            utils.info(LOGGER, requestId, "Cached function's token is no longer active, minting new token");
+            functionTokenCacheService.invalidate(cacheKey);
+            return null;
+        }
+
+        if (introspectResponse.getExp() != null) {
+            long expiresAtMs = functionTokenCacheService.computeExpiresAtMsFromExp(introspectResponse.getExp());
+            if (expiresAtMs <= System.currentTimeMillis()) {
+                functionTokenCacheService.invalidate(cacheKey);
+                return null;
+            }
+            cachedToken = functionTokenCacheService.put(cacheKey,
+                                                        cachedToken.getAccessToken(),
+                                                        userContext.getOrgDomainUrl(),
+                                                        expiresAtMs);
+        }
+
+        return cachedToken;
+    }
+
+    private OauthIntrospectResponse introspectToken(String requestId, SfContext.UserContext userContext, String accessToken) {
+        String oauth2IntrospectUri = proxyConfig.getOauth2IntrospectUri();
+        String url = userContext.getOrgDomainUrl() + oauth2IntrospectUri;
+
+        MultiValueMap<String, String> formDataMap = new LinkedMultiValueMap<>();
+        formDataMap.add("token", accessToken);
+        formDataMap.add("token_type_hint", "access_token");
+        formDataMap.add("client_id", proxyConfig.getConsumerKey());
+        formDataMap.add("client_secret", proxyConfig.getConsumerSecret());
+        HttpHeaders headers = new HttpHeaders();
+        headers.add(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_FORM_URLENCODED_VALUE);
+        HttpEntity<MultiValueMap<String, String>> entity = new HttpEntity<>(formDataMap, headers);
+
+        try {
+            utils.debug(LOGGER, requestId, "POST " + oauth2IntrospectUri + ": introspecting cached function's token");
+            ResponseEntity<OauthIntrospectResponse> responseEntity =
+                    restTemplate.postForEntity(url, entity, OauthIntrospectResponse.class);
+            return responseEntity.getStatusCode() == HttpStatus.OK ? responseEntity.getBody() : null;
+        } catch (Exception ex) {
+            utils.warn(LOGGER, requestId, "Unable to introspect cached function's token: " + ex.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Mint function's token via JWT bearer token exchange.
+     *
+     * @param requestId
+     * @param tokenKey
+     * @param orgDomainUrl
+     * @param requestProvidedAccessToken
+     * @return
+     * @throws InvalidRequestException
+     */
+    private String exchangeToken(String requestId,
+                                 FunctionTokenCacheService.Key tokenKey,
+                                 String orgDomainUrl,
+                                 String requestProvidedAccessToken) throws InvalidRequestException {
+        String oauth2TokenUri = proxyConfig.getOauth2TokenUri();
+        String url = orgDomainUrl + oauth2TokenUri;
+        boolean isTest = isTest(url);
+        String issuer = tokenKey.getConsumerKey();
+        String audience = tokenKey.getAudience();
+        String username = tokenKey.getUsername();
 
         ResponseEntity<OauthExchangeResponse> responseEntity = null;
         try {
-            String privateKey = decodePrivateKey(proxyConfig.getEncodedPrivateKey());
-            PrivateKey signedKey = generatePrivateKey(privateKey);
-            String signedJWT = Jwts.builder()
-                    .setIssuer(issuer)
-                    .setSubject(userContext.getUsername())
-                    .setAudience(audience)
-                    .setExpiration(new Date((new Date()).getTime() + 360))
-                    .signWith(signedKey, SignatureAlgorithm.RS256)
-                    .compact();
+            String signedJWT = jwtSigningService.getAssertion(issuer, username, audience);
 
             // Assemble payload
             MultiValueMap<String, String> formDataMap = new LinkedMultiValueMap<>();
@@ -84,14 +301,16 @@ public class MintTokenHandler extends BaseRequestHandler {
             // Assemble POST form request
             utils.info(LOGGER, requestId, "POST " + oauth2TokenUri + ": minting function " +
                     (isTest ? "test " : " ") + "token for user " +
-                    userContext.getUsername() + ", audience " + audience + ", url " + url + ", issuer " +
+                    username + ", audience " + audience + ", url " + url + ", issuer " +
                     issuer.substring(0, 5) + "...");
             HttpHeaders headers = new HttpHeaders();
             headers.add(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_FORM_URLENCODED_VALUE);
-            headers.add(HttpHeaders.AUTHORIZATION, "Bearer " + functionRequestContext.getRequestProvidedAccessToken());
+            if (!utils.isBlank(requestProvidedAccessToken)) {
+                headers.add(HttpHeaders.AUTHORIZATION, "Bearer " + requestProvidedAccessToken);
+            }
             HttpEntity<MultiValueMap<String, String>> entity = new HttpEntity<>(formDataMap, headers);
             responseEntity = restTemplate.postForEntity(url, entity, OauthExchangeResponse.class);
-        } catch (Exception ex) {;
+        } catch (Exception ex) {
             throw new InvalidRequestException(requestId,
                                               "Unable to mint function token: " + ex.getMessage(),
                                               responseEntity != null ? responseEntity.getStatusCode().value() : 401);
@@ -112,29 +331,43 @@ public class MintTokenHandler extends BaseRequestHandler {
                             ? " (" + oauthExchangeResponse.getError_description() + ")" : "");
             if (msg.contains("invalid_app_access") || msg.contains("user hasn't approved this consumer")) {
                 msg += ". Ensure that the target Connected App is set to \"Admin approved users are pre-authorized\" and user " +
-                        userContext.getUsername() + " is assigned to Connected App via a Permission Set";
+                        username + " is assigned to Connected App via a Permission Set";
             }
             throw new InvalidRequestException(requestId,
                     "Unable to mint function token: " + msg,
                     401);
         }
 
-        functionRequestContext.getSfFnContext().setAccessToken(oauthExchangeResponse.getAccess_token());
+        return oauthExchangeResponse.getAccess_token();
+    }
+
+    private FunctionTokenCacheService.Key toTokenKey(SfContext.UserContext userContext, SfFnContext functionContext) {
+        return new FunctionTokenCacheService.Key(userContext.getOrgId(),
+                                                 userContext.getUsername(),
+                                                 proxyConfig.getConsumerKey(),
+                                                 getAudience(userContext.getOrgDomainUrl()),
+                                                 functionContext.getPermissionSets());
+    }
 
-        utils.info(LOGGER, requestId, "Minted function's token - hooray");
+    private String getAudience(String orgDomainUrl) {
+        return !utils.isBlank(proxyConfig.getAudience())
+                ? proxyConfig.getAudience() : (isTest(orgDomainUrl) ? SANDBOX_AUDIENCE_URL : PROD_AUDIENCE_URL);
     }
 
-    private String decodePrivateKey(String encodedPrivateKey) throws UnsupportedEncodingException {
-        String privateKey = new String(Base64.getDecoder().decode(encodedPrivateKey), "UTF-8");
-        privateKey = privateKey.replaceAll("-----(BEGIN|END)[\\w\\s]*-----", "");
-        privateKey = privateKey.replaceAll(" ", "");
-        privateKey = privateKey.replaceAll("\n", "");
-        return privateKey.trim();
+    private boolean isTest(String url) {
+        return url.contains(".sandbox.") || url.contains(".scratch.");
     }
 
-    private PrivateKey generatePrivateKey(String privateKeyStr) throws NoSuchAlgorithmException, InvalidKeySpecException {
-        PKCS8EncodedKeySpec keySpec = new PKCS8EncodedKeySpec(Base64.getDecoder().decode(privateKeyStr));
-        KeyFactory kf = KeyFactory.getInstance("RSA");
-        return kf.generatePrivate(keySpec);
+    /**
+     * Function's token and whether it was exchanged by the minting request or shared from a concurrent request's mint.
+     */
+    static class MintResult {
+        final FunctionTokenCacheService.CachedToken token;
+        final boolean exchanged;
+
+        MintResult(FunctionTokenCacheService.CachedToken token, boolean exchanged) {
+            this.token = token;
+            this.exchanged = exchanged;
+        }
     }
-}
\ No newline at end of file
+}
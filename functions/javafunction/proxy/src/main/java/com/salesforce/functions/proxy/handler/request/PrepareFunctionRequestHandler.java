@@ -11,7 +11,9 @@ import org.springframework.core.annotation.Order;
 import org.springframework.http.HttpHeaders;
 import org.springframework.stereotype.Component;
 
+import java.util.EnumSet;
 import java.util.List;
+import java.util.Set;
 
 import static com.salesforce.functions.proxy.util.Constants.HEADER_FUNCTION_REQUEST_CONTEXT;
 
@@ -30,6 +32,16 @@ public class PrepareFunctionRequestHandler extends BaseRequestHandler {
         this.utils = utils;
     }
 
+    @Override
+    public Set<Artifact> requires() {
+        return EnumSet.of(Artifact.VALIDATED_CALLER, Artifact.FUNCTION_TOKEN, Artifact.ACTIVATED_PERMISSION_SETS);
+    }
+
+    @Override
+    public Set<Artifact> provides() {
+        return EnumSet.of(Artifact.FUNCTION_REQUEST);
+    }
+
     @Override
     public void handle(FunctionRequestContext functionRequestContext) throws InvalidRequestException {
         String requestId = functionRequestContext.getRequestId();
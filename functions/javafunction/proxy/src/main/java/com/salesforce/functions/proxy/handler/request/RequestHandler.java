@@ -3,10 +3,46 @@ package com.salesforce.functions.proxy.handler.request;
 import com.salesforce.functions.proxy.model.FunctionRequestContext;
 import com.salesforce.functions.proxy.util.InvalidRequestException;
 
+import java.util.Collections;
+import java.util.Set;
+
 /**
  * Perform specific tasks on a function request.
+ *
+ * Handlers declare what they require from, and provide to, the function request so that independent
+ * handlers may run concurrently, see RequestHandlerPipeline.  Handlers that declare neither are run after
+ * all preceding, and before all subsequent, handlers.
  */
 public interface RequestHandler {
 
+    /**
+     * Parts of a function request that handlers require or provide.
+     */
+    enum Artifact {
+        VALIDATED_HEADERS,
+        CONTEXTS,
+        VALIDATED_CALLER,
+        FUNCTION_TOKEN,
+        ACTIVATED_PERMISSION_SETS,
+        FUNCTION_REQUEST
+    }
+
     void handle(FunctionRequestContext functionRequestContext) throws InvalidRequestException;
+
+    default Set<Artifact> requires() {
+        return Collections.emptySet();
+    }
+
+    default Set<Artifact> provides() {
+        return Collections.emptySet();
+    }
+
+    /**
+     * Undo, if needed, work done by this handler when the function request subsequently failed, eg discard
+     * a function token minted for a caller that failed validation.
+     *
+     * @param functionRequestContext
+     */
+    default void discard(FunctionRequestContext functionRequestContext) {
+    }
 }
@@ -0,0 +1,227 @@
+package com.salesforce.functions.proxy.handler.request;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.salesforce.functions.proxy.config.ProxyConfig;
+import com.salesforce.functions.proxy.model.FunctionRequestContext;
+import com.salesforce.functions.proxy.util.InvalidRequestException;
+import com.salesforce.functions.proxy.util.Utils;
+import com.salesforce.functions.proxy.util.VirtualThreads;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Runs RequestHandlers on a function request.
+ *
+ * Handlers run in order, but a handler only waits on preceding handlers that provide what it requires, so
+ * that independent handlers, eg caller validation and function token minting, run concurrently.  Handlers
+ * that declare neither requirements nor provisions wait on, and are waited on by, all other handlers.
+ *
+ * If any handler fails, the first failure in handler order is thrown once all started handlers complete and
+ * handlers that completed are given the chance to discard their work, eg a function token minted for a
+ * caller that failed validation.
+ *
+ * Handlers run on the pipeline's pool, so that request threads are not held while handlers run.
+ */
+@Component
+public class RequestHandlerPipeline implements InitializingBean, DisposableBean {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(RequestHandlerPipeline.class);
+
+    @Autowired
+    List<RequestHandler> handlers;
+
+    @Autowired
+    ProxyConfig proxyConfig;
+
+    @Autowired
+    Utils utils;
+
+    // Indexes of preceding handlers that each handler waits on
+    private List<List<Integer>> dependencies;
+    private ExecutorService executorService;
+
+    public RequestHandlerPipeline() {
+    }
+
+    // For testing
+    public RequestHandlerPipeline(List<RequestHandler> handlers, ProxyConfig proxyConfig, Utils utils) {
+        this.handlers = handlers;
+        this.proxyConfig = proxyConfig;
+        this.utils = utils;
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        dependencies = new ArrayList<>(handlers.size());
+        for (int j = 0; j < handlers.size(); j++) {
+            List<Integer> handlerDependencies = new ArrayList<>();
+            for (int i = 0; i < j; i++) {
+                if (dependsOn(handlers.get(j), handlers.get(i))) {
+                    handlerDependencies.add(i);
+                }
+            }
+            dependencies.add(handlerDependencies);
+        }
+
+        if (!proxyConfig.isRequestHandlerParallelEnabled()) {
+            LOGGER.info("Running request handlers sequentially");
+            return;
+        }
+
+        if (VirtualThreads.isEnabled(proxyConfig)) {
+            executorService = VirtualThreads.newThreadPerTaskExecutor("RequestHandler-");
+            LOGGER.info("Running independent request handlers concurrently on virtual threads");
+            return;
+        }
+
+        executorService = Executors.newFixedThreadPool(proxyConfig.getRequestHandlerPoolSize(),
+                new ThreadFactoryBuilder().setNameFormat("RequestHandler-%d").setDaemon(true).build());
+        LOGGER.info("Running independent request handlers concurrently w/ " +
+                proxyConfig.getRequestHandlerPoolSize() + " threads");
+    }
+
+    @Override
+    public void destroy() {
+        if (executorService != null) {
+            executorService.shutdownNow();
+        }
+    }
+
+    /**
+     * Run handlers on given function request, blocking until handled.
+     *
+     * @param functionRequestContext
+     * @throws Exception first failure, in handler order
+     */
+    public void handle(FunctionRequestContext functionRequestContext) throws Exception {
+        try {
+            handleAsync(functionRequestContext).join();
+        } catch (CompletionException ex) {
+            Throwable cause = unwrap(ex);
+            if (cause instanceof Exception) {
+                throw (Exception) cause;
+            }
+            throw ex;
+        }
+    }
+
+    /**
+     * Run handlers on given function request w/o blocking the calling thread.
+     *
+     * @param functionRequestContext
+     * @return future that completes when handled or completes exceptionally w/ first failure, in handler order
+     */
+    public CompletableFuture<Void> handleAsync(FunctionRequestContext functionRequestContext) {
+        if (executorService == null) {
+            CompletableFuture<Void> handled = new CompletableFuture<>();
+            try {
+                for (RequestHandler handler : handlers) {
+                    invokeHandler(handler, functionRequestContext);
+                }
+                handled.complete(null);
+            } catch (Exception ex) {
+                handled.completeExceptionally(ex);
+            }
+            return handled;
+        }
+
+        List<CompletableFuture<Void>> stages = new ArrayList<>(handlers.size());
+        for (int j = 0; j < handlers.size(); j++) {
+            RequestHandler handler = handlers.get(j);
+            CompletableFuture<?>[] handlerDependencies = dependencies.get(j).stream()
+                    .map(stages::get)
+                    .toArray(CompletableFuture<?>[]::new);
+            CompletableFuture<Void> dependenciesHandled = CompletableFuture.allOf(handlerDependencies);
+            stages.add(dependenciesHandled.thenRunAsync(() -> {
+                try {
+                    invokeHandler(handler, functionRequestContext);
+                } catch (InvalidRequestException ex) {
+                    throw new CompletionException(ex);
+                }
+            }, executorService));
+        }
+
+        // Wait for all started handlers, including those that failed dependents won't wait on
+        return CompletableFuture.allOf(stages.toArray(new CompletableFuture<?>[0]))
+                .<Void>handle((ignored, ex) -> {
+                    if (ex == null) {
+                        return null;
+                    }
+
+                    Throwable failure = null;
+                    List<RequestHandler> completedHandlers = new ArrayList<>();
+                    for (int j = 0; j < handlers.size(); j++) {
+                        CompletableFuture<Void> stage = stages.get(j);
+                        if (!stage.isCompletedExceptionally()) {
+                            completedHandlers.add(handlers.get(j));
+                        } else if (failure == null) {
+                            // Dependents fail w/ their dependency's failure, so the first failure is an
+                            // originating failure
+                            failure = unwrap(stage.handle((result, stageEx) -> stageEx).join());
+                        }
+                    }
+
+                    Collections.reverse(completedHandlers);
+                    for (RequestHandler handler : completedHandlers) {
+                        discard(handler, functionRequestContext);
+                    }
+
+                    throw new CompletionException(failure);
+                });
+    }
+
+    private void invokeHandler(RequestHandler handler,
+                               FunctionRequestContext functionRequestContext) throws InvalidRequestException {
+        String requestId = functionRequestContext.getRequestId();
+        String handlerName = handler.getClass().getSimpleName();
+        utils.debug(LOGGER, requestId, "Invoking handler " + handlerName + "...");
+        long startMs = System.currentTimeMillis();
+
+        handler.handle(functionRequestContext);
+
+        utils.debug(LOGGER,
+                    functionRequestContext.getRequestId(),
+                    "Invoked handler " + handlerName + " in " + (System.currentTimeMillis() - startMs) + "ms");
+    }
+
+    private void discard(RequestHandler handler, FunctionRequestContext functionRequestContext) {
+        try {
+            handler.discard(functionRequestContext);
+        } catch (Exception ex) {
+            utils.warn(LOGGER,
+                       functionRequestContext.getRequestId(),
+                       "Unable to discard work of handler " + handler.getClass().getSimpleName() + ": " + ex.getMessage());
+        }
+    }
+
+    private boolean dependsOn(RequestHandler handler, RequestHandler precedingHandler) {
+        if (isBarrier(handler) || isBarrier(precedingHandler)) {
+            return true;
+        }
+
+        return handler.requires().stream().anyMatch(precedingHandler.provides()::contains);
+    }
+
+    private boolean isBarrier(RequestHandler handler) {
+        return handler.requires().isEmpty() && handler.provides().isEmpty();
+    }
+
+    private static Throwable unwrap(Throwable ex) {
+        while (ex instanceof CompletionException && ex.getCause() != null) {
+            ex = ex.getCause();
+        }
+        return ex;
+    }
+}
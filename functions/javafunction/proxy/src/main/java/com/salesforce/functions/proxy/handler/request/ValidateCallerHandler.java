@@ -2,6 +2,8 @@ package com.salesforce.functions.proxy.handler.request;
 
 import com.salesforce.functions.proxy.model.FunctionRequestContext;
 import com.salesforce.functions.proxy.model.UserInfoResponse;
+import com.salesforce.functions.proxy.service.CallerValidationCacheService;
+import com.salesforce.functions.proxy.service.RequestAssertionService;
 import com.salesforce.functions.proxy.util.InvalidRequestException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -12,13 +14,19 @@ import org.springframework.http.HttpMethod;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Component;
+import org.springframework.web.client.HttpClientErrorException;
 import org.springframework.web.client.RestTemplate;
 
 import java.net.URI;
 
+import java.util.EnumSet;
+import java.util.Set;
+
+import static com.salesforce.functions.proxy.util.Constants.HEADER_REQUEST_ASSERTION;
+
 /**
  * Validate that requesting org is expected org (orgId18) by using given token to verify org info
- * provided by /userinfo API.
+ * provided by /userinfo API, or by verifying a signed request assertion.
  */
 @Order(30)
 @Component
@@ -29,18 +37,74 @@ public class ValidateCallerHandler extends BaseRequestHandler {
     @Autowired
     RestTemplate restTemplate;
 
+    @Autowired
+    CallerValidationCacheService callerValidationCacheService;
+
+    @Autowired
+    RequestAssertionService requestAssertionService;
+
+    @Override
+    public Set<Artifact> requires() {
+        return EnumSet.of(Artifact.CONTEXTS);
+    }
+
+    @Override
+    public Set<Artifact> provides() {
+        return EnumSet.of(Artifact.VALIDATED_CALLER);
+    }
+
     /**
      * Validate that requesting org is expected org (orgId18) by using given token to verify org info
      * provided by /userinfo API.
      *
-     * Alternative approach that is simpler and efficient send a private key encrypted value and is
-     * decrypted w/ a public key and validated by the proxy.
+     * If enabled, validation results are cached per caller token.  Only definitive rejections - the token is
+     * rejected by /userinfo or belongs to another org - are cached as rejections.
+     *
+     * Alternatively, when CALLER_VALIDATION_MODE=signature, callers are validated w/o a network hop by verifying
+     * a signed request assertion w/ the caller's certificate, see RequestAssertionService.
      *
      * @param functionRequestContext
      * @throws InvalidRequestException
      */
     @Override
     public void handle(FunctionRequestContext functionRequestContext) throws InvalidRequestException {
+        String requestId = functionRequestContext.getRequestId();
+        if (requestAssertionService.isEnabled()) {
+            requestAssertionService.validate(requestId,
+                                             functionRequestContext.getHeaders().getFirst(HEADER_REQUEST_ASSERTION),
+                                             functionRequestContext.getSfContext().getUserContext().getUsername());
+            utils.info(LOGGER, requestId, "Validated client via request assertion - good to go");
+            return;
+        }
+
+        if (!callerValidationCacheService.isEnabled()) {
+            validateCaller(functionRequestContext);
+            return;
+        }
+
+        String cacheKey = callerValidationCacheService.toKey(
+                functionRequestContext.getSfContext().getUserContext().getOrgDomainUrl(),
+                functionRequestContext.getRequestProvidedAccessToken());
+        CallerValidationCacheService.CachedValidation cachedValidation = callerValidationCacheService.get(cacheKey);
+        if (cachedValidation != null) {
+            if (!cachedValidation.isValid()) {
+                throw new InvalidRequestException(requestId, cachedValidation.getMessage(), cachedValidation.getStatusCode());
+            }
+
+            utils.info(LOGGER, requestId, "Validated client (cached) - good to go");
+            return;
+        }
+
+        try {
+            validateCaller(functionRequestContext);
+        } catch (CallerRejectedException ex) {
+            callerValidationCacheService.putRejected(cacheKey, ex.getReason(), ex.getStatusCode());
+            throw ex;
+        }
+        callerValidationCacheService.putValid(cacheKey);
+    }
+
+    private void validateCaller(FunctionRequestContext functionRequestContext) throws InvalidRequestException {
         String requestId = functionRequestContext.getRequestId();
         String userInfoUri = proxyConfig.getUserInfoUri();
         String url = functionRequestContext.getSfContext().getUserContext().getOrgDomainUrl() + userInfoUri;
@@ -50,6 +114,9 @@ public class ValidateCallerHandler extends BaseRequestHandler {
             HttpEntity<String> entity = new HttpEntity<>(
                     utils.assembleSalesforceAPIHeaders(functionRequestContext.getRequestProvidedAccessToken()));
             responseEntity = restTemplate.exchange(new URI(url), HttpMethod.GET, entity, UserInfoResponse.class);
+        } catch (HttpClientErrorException.Unauthorized | HttpClientErrorException.Forbidden ex) {
+            // Token rejected by Salesforce
+            throw new CallerRejectedException(requestId, "Unable to validate request: " + ex.getMessage(), 400);
         } catch (Exception ex) {
             throw new InvalidRequestException(requestId,
                     "Unable to validate request: " + ex.getMessage(),
@@ -65,9 +132,27 @@ public class ValidateCallerHandler extends BaseRequestHandler {
         if (utils.isBlank(userInfo.getOrganization_id()) || !userInfo.getOrganization_id().equals(expectedOrgId18)) {
             LOGGER.warn("[" + requestId + "] Unauthorized caller from org " + userInfo.getOrganization_id() +
                     ", expected " + expectedOrgId18);
-            throw new InvalidRequestException(requestId, "Unauthorized request", 401);
+            throw new CallerRejectedException(requestId, "Unauthorized request", 401);
         }
 
         utils.info(LOGGER, requestId, "Validated client - good to go");
     }
-}
\ No newline at end of file
+
+    /**
+     * Caller is definitively not authorized, ie not a transient validation failure.
+     */
+    private static class CallerRejectedException extends InvalidRequestException {
+        private static final long serialVersionUID = 1L;
+
+        private final String reason;
+
+        CallerRejectedException(String requestId, String reason, int statusCode) {
+            super(requestId, reason, statusCode);
+            this.reason = reason;
+        }
+
+        String getReason() {
+            return reason;
+        }
+    }
+}
@@ -12,6 +12,9 @@ import org.springframework.core.annotation.Order;
 import org.springframework.http.HttpHeaders;
 import org.springframework.stereotype.Component;
 
+import java.util.EnumSet;
+import java.util.Set;
+
 import static com.salesforce.functions.proxy.util.Constants.HEADER_FUNCTION_REQUEST_CONTEXT;
 import static com.salesforce.functions.proxy.util.Constants.HEADER_SALESFORCE_CONTEXT;
 
@@ -30,6 +33,16 @@ public class ValidateContextsHandler extends BaseRequestHandler {
         this.utils = utils;
     }
 
+    @Override
+    public Set<Artifact> requires() {
+        return EnumSet.of(Artifact.VALIDATED_HEADERS);
+    }
+
+    @Override
+    public Set<Artifact> provides() {
+        return EnumSet.of(Artifact.CONTEXTS);
+    }
+
     /**
      * Parse and validate 'ce-sffncontext' and 'ce-sfcontext' headers.  See SfFnContext and SfContext.
      *
@@ -9,6 +9,9 @@ import org.springframework.core.annotation.Order;
 import org.springframework.http.HttpHeaders;
 import org.springframework.stereotype.Component;
 
+import java.util.EnumSet;
+import java.util.Set;
+
 import static com.salesforce.functions.proxy.util.Constants.*;
 
 /**
@@ -26,6 +29,11 @@ public class ValidateHeadersHandler extends BaseRequestHandler {
         this.utils = utils;
     }
 
+    @Override
+    public Set<Artifact> provides() {
+        return EnumSet.of(Artifact.VALIDATED_HEADERS);
+    }
+
     @Override
     /**
      * Expected headers:
@@ -1,125 +1,189 @@
 package com.salesforce.functions.proxy.handler.response;
 
+import com.fasterxml.jackson.core.type.TypeReference;
 import com.salesforce.functions.proxy.model.AsyncFunctionInvocationRequest;
+import com.salesforce.functions.proxy.model.AsyncResponseWriteBack;
 import com.salesforce.functions.proxy.model.FunctionRequestContext;
 import com.salesforce.functions.proxy.model.SfContext;
 import com.salesforce.functions.proxy.model.SfFnContext;
+import com.salesforce.functions.proxy.service.AsyncResponseRetryService;
 import com.salesforce.functions.proxy.util.InvalidRequestException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.http.HttpEntity;
-import org.springframework.http.HttpHeaders;
-import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Component;
 import org.springframework.web.client.HttpClientErrorException;
-import org.springframework.web.client.RestTemplate;
 
-import java.io.UnsupportedEncodingException;
-import java.net.URLDecoder;
-import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 import static com.salesforce.functions.proxy.util.Constants.HEADER_EXTRA_INFO;
 
 /**
- * Handle function responses from async requests.  Responses are saved to associated AsyncFunctionInvocationRequest__c.
+ * Handle function responses from async requests.  Responses are saved to associated AsyncFunctionInvocationRequest__c,
+ * batched w/ other responses for the same org when async write-back batching is enabled.  Responses that fail to save
+ * are retried and then dead-lettered.
  */
 @Component
 public class AsyncFunctionResponseHandler extends BaseResponseHandler {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(AsyncFunctionResponseHandler.class);
 
+    private static final TypeReference<Map<String, Object>> FIELDS_TYPE = new TypeReference<>() {};
+
     @Autowired
-    RestTemplate restTemplate;
+    AsyncResponseRetryService asyncResponseRetryService;
 
     @Override
     public void handleError(FunctionRequestContext functionRequestContext, Exception ex) {
+        awaitSaved(handleErrorAsync(functionRequestContext, ex));
+    }
+
+    @Override
+    public void handleResponse(FunctionRequestContext functionRequestContext, ResponseEntity<String> functionResponseEntity) {
+        awaitSaved(handleResponseAsync(functionRequestContext, functionResponseEntity));
+    }
+
+    @Override
+    public CompletableFuture<Void> handleErrorAsync(FunctionRequestContext functionRequestContext, Exception ex) {
+        return saveFunctionResponse(functionRequestContext, toAsyncFunctionInvocationRequest(functionRequestContext, ex));
+    }
+
+    @Override
+    public CompletableFuture<Void> handleResponseAsync(FunctionRequestContext functionRequestContext,
+                                                       ResponseEntity<String> functionResponseEntity) {
+        return saveFunctionResponse(functionRequestContext,
+                                    toAsyncFunctionInvocationRequest(functionRequestContext, functionResponseEntity));
+    }
+
+    private AsyncFunctionInvocationRequest toAsyncFunctionInvocationRequest(FunctionRequestContext functionRequestContext,
+                                                                            Exception ex) {
         SfContext.UserContext userContext = functionRequestContext.getSfContext().getUserContext();
 
-        AsyncFunctionInvocationRequest asyncFunctionInvocationRequest = null;
         if (ex instanceof HttpClientErrorException) {
             HttpClientErrorException httpEx = (HttpClientErrorException)ex;
-            asyncFunctionInvocationRequest = new AsyncFunctionInvocationRequest(userContext.getNamespace(),
-                                                                                httpEx.getResponseHeaders().getFirst(HEADER_EXTRA_INFO),
-                                                                                httpEx.getResponseBodyAsString(),
-                                                                            "ERROR",
-                                                                                httpEx.getStatusCode().value());
-            handleFunctionResponse(functionRequestContext, asyncFunctionInvocationRequest);
-        } else {
-            asyncFunctionInvocationRequest = new AsyncFunctionInvocationRequest(userContext.getNamespace(),
-                                                                        "",
-                                                                                ex.getMessage(),
-                                                                          "ERROR",
-                                                                       503);
-
+            return new AsyncFunctionInvocationRequest(userContext.getNamespace(),
+                                                      httpEx.getResponseHeaders().getFirst(HEADER_EXTRA_INFO),
+                                                      httpEx.getResponseBodyAsString(),
+                                                      "ERROR",
+                                                      httpEx.getStatusCode().value());
         }
 
-        handleFunctionResponse(functionRequestContext, asyncFunctionInvocationRequest);
+        return new AsyncFunctionInvocationRequest(userContext.getNamespace(),
+                                                  "",
+                                                  ex.getMessage(),
+                                                  "ERROR",
+                                                  503);
     }
 
-    @Override
-    public void handleResponse(FunctionRequestContext functionRequestContext, ResponseEntity<String> functionResponseEntity) {
-        String requestId = functionRequestContext.getRequestId();
+    private AsyncFunctionInvocationRequest toAsyncFunctionInvocationRequest(FunctionRequestContext functionRequestContext,
+                                                                            ResponseEntity<String> functionResponseEntity) {
         SfContext.UserContext userContext = functionRequestContext.getSfContext().getUserContext();
 
         String extraInfo = functionResponseEntity.getHeaders().getFirst(HEADER_EXTRA_INFO);
         String status = functionResponseEntity.getStatusCodeValue() < 200 || functionResponseEntity.getStatusCodeValue() > 299
                 ? "ERROR" : "SUCCESS";
-        AsyncFunctionInvocationRequest asyncFunctionInvocationRequest =
-                new AsyncFunctionInvocationRequest(userContext.getNamespace(),
-                                                   extraInfo,
-                                                   functionResponseEntity.getBody(),
-                                                   status,
-                                                   functionResponseEntity.getStatusCodeValue());
-
-        handleFunctionResponse(functionRequestContext, asyncFunctionInvocationRequest);
+        return new AsyncFunctionInvocationRequest(userContext.getNamespace(),
+                                                  extraInfo,
+                                                  functionResponseEntity.getBody(),
+                                                  status,
+                                                  functionResponseEntity.getStatusCodeValue());
     }
 
-    private void handleFunctionResponse(FunctionRequestContext functionRequestContext,
-                                        AsyncFunctionInvocationRequest asyncFunctionInvocationRequest) {
+    private String getAfirObjectName(SfContext.UserContext userContext) {
+        return (!utils.isBlank(userContext.getNamespace()) ? userContext.getNamespace() + "__" : "") +
+                "AsyncFunctionInvocationRequest__c";
+    }
+
+    private void awaitSaved(CompletableFuture<Void> saved) {
+        try {
+            saved.join();
+        } catch (CompletionException ex) {
+            // Logged when the save failed
+        }
+    }
+
+    /**
+     * Save function response w/ the next batch of responses for the org and function's token, retrying transient
+     * failures.  Responses that fail to save, or that can't be saved w/o the function's token, are dead-lettered.
+     *
+     * @param functionRequestContext
+     * @param asyncFunctionInvocationRequest
+     * @return future that completes once the response is saved or dead-lettered or completes exceptionally w/ the
+     * reason the response was neither
+     */
+    private CompletableFuture<Void> saveFunctionResponse(FunctionRequestContext functionRequestContext,
+                                                         AsyncFunctionInvocationRequest asyncFunctionInvocationRequest) {
         String requestId = functionRequestContext.getRequestId();
         SfFnContext sfFnContext = functionRequestContext.getSfFnContext();
         SfContext sfContext = functionRequestContext.getSfContext();
         SfContext.UserContext userContext = sfContext.getUserContext();
+        String afirObjectName = getAfirObjectName(userContext);
 
-        String afirObjectName =
-                (!utils.isBlank(userContext.getNamespace()) ? userContext.getNamespace() + "__" : "") + "AsyncFunctionInvocationRequest__c";
-        String uriPart = "/sobjects/" + afirObjectName + "/" + sfFnContext.getFunctionInvocationId() + "?_HttpMethod=PATCH";
-        String url = utils.assembleSalesforceAPIUrl(userContext.getOrgDomainUrl(),
-                sfContext.getApiVersion(),
-                uriPart);
+        AsyncResponseWriteBack writeBack;
+        try {
+            Map<String, Object> fields = utils.fromJson(utils.toJson(asyncFunctionInvocationRequest), FIELDS_TYPE);
+            writeBack = new AsyncResponseWriteBack(requestId,
+                                                   userContext.getOrgDomainUrl(),
+                                                   sfContext.getApiVersion(),
+                                                   userContext.getOrgId(),
+                                                   userContext.getUsername(),
+                                                   sfFnContext.getPermissionSets(),
+                                                   sfFnContext.getAccessToken(),
+                                                   afirObjectName,
+                                                   sfFnContext.getFunctionInvocationId(),
+                                                   fields);
+        } catch (Exception ex) {
+            logSaveError(functionRequestContext, afirObjectName, ex.getMessage());
+            return CompletableFuture.failedFuture(ex);
+        }
 
         if (utils.isBlank(sfFnContext.getAccessToken())) {
-            utils.error(LOGGER, requestId, "Unable to save function response to " + afirObjectName +
-                    " [" + sfFnContext.getFunctionInvocationId() + "]: function's token not provided");
-            return;
+            logSaveError(functionRequestContext, afirObjectName, "function's token not provided");
+            RuntimeException ex = new RuntimeException("Unable to save function response: function's token not provided");
+            // Replayed w/ a newly minted token
+            return asyncResponseRetryService.deadLetter(writeBack, ex)
+                    ? CompletableFuture.completedFuture(null) : CompletableFuture.failedFuture(ex);
         }
 
-        // Assemble POST (PATCH) sobject update request
+        CompletableFuture<AsyncResponseRetryService.SaveOutcome> saved;
         try {
-            String afirJson = utils.toJson(asyncFunctionInvocationRequest);
-            utils.debug(LOGGER, requestId, "POST " + uriPart + ": " + afirJson);
+            saved = asyncResponseRetryService.save(writeBack);
+        } catch (Exception ex) {
+            saved = CompletableFuture.failedFuture(ex);
+        }
 
-            HttpHeaders httpHeaders = utils.assembleSalesforceAPIHeaders(sfFnContext.getAccessToken());
-            HttpEntity<String> entity = new HttpEntity<>(afirJson, httpHeaders);
-            ResponseEntity<String> responseEntity = restTemplate.postForEntity(url, entity, String.class);
+        return saved.handle((outcome, ex) -> {
+            if (ex != null) {
+                Throwable cause = ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex;
+                logSaveError(functionRequestContext, afirObjectName, cause.getMessage());
+                throw ex instanceof CompletionException ? (CompletionException) ex : new CompletionException(ex);
+            }
 
-            if (responseEntity == null || responseEntity.getStatusCode() != HttpStatus.NO_CONTENT) {
-                utils.error(LOGGER, requestId, "Unable to save function response to " + afirObjectName + " [" +
-                        sfFnContext.getFunctionInvocationId() + "]: " + (responseEntity != null ? responseEntity.getBody() : ""));
+            if (outcome == AsyncResponseRetryService.SaveOutcome.SAVED) {
+                logSaved(functionRequestContext, asyncFunctionInvocationRequest);
             } else {
-                utils.info(LOGGER, requestId, "Updated function response [" + asyncFunctionInvocationRequest.getStatus()
-                        + "] to AsyncFunctionInvocationRequest__c [" +
-                        sfFnContext.getFunctionInvocationId() + "]");
-            }
-        } catch (Exception ex) {
-            String errMsg = ex.getMessage();
-            if (errMsg.contains("The requested resource does not exist")) {
-                errMsg += ". Ensure that user " + userContext.getUsername() + " has access to " + afirObjectName + ".";
+                logSaveError(functionRequestContext, afirObjectName, writeBack.getError());
             }
-            utils.error(LOGGER, requestId,"Unable to save function response to " + afirObjectName + " [" +
-                    sfFnContext.getFunctionInvocationId() + "]: " + errMsg);
+            return null;
+        });
+    }
+
+    private void logSaved(FunctionRequestContext functionRequestContext,
+                          AsyncFunctionInvocationRequest asyncFunctionInvocationRequest) {
+        utils.info(LOGGER, functionRequestContext.getRequestId(), "Updated function response [" +
+                asyncFunctionInvocationRequest.getStatus() + "] to AsyncFunctionInvocationRequest__c [" +
+                functionRequestContext.getSfFnContext().getFunctionInvocationId() + "]");
+    }
+
+    private void logSaveError(FunctionRequestContext functionRequestContext, String afirObjectName, String errMsg) {
+        if (errMsg != null && errMsg.contains("The requested resource does not exist")) {
+            errMsg += ". Ensure that user " + functionRequestContext.getSfContext().getUserContext().getUsername() +
+                    " has access to " + afirObjectName + ".";
         }
+        utils.error(LOGGER, functionRequestContext.getRequestId(),"Unable to save function response to " +
+                afirObjectName + " [" + functionRequestContext.getSfFnContext().getFunctionInvocationId() + "]: " + errMsg);
     }
-}
\ No newline at end of file
+}
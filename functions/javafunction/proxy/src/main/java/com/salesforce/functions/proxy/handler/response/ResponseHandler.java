@@ -3,6 +3,8 @@ package com.salesforce.functions.proxy.handler.response;
 import com.salesforce.functions.proxy.model.FunctionRequestContext;
 import org.springframework.http.ResponseEntity;
 
+import java.util.concurrent.CompletableFuture;
+
 /**
  * Perform specific tasks on a function response.
  */
@@ -11,4 +13,22 @@ public interface ResponseHandler {
     void handleError(FunctionRequestContext functionRequestContext, Exception ex);
 
     void handleResponse(FunctionRequestContext functionRequestContext, ResponseEntity<String> functionResponseEntity);
+
+    /**
+     * Handle error, completing once handled.  Handlers that defer work, eg batching, override to not block the caller.
+     */
+    default CompletableFuture<Void> handleErrorAsync(FunctionRequestContext functionRequestContext, Exception ex) {
+        handleError(functionRequestContext, ex);
+        return CompletableFuture.completedFuture(null);
+    }
+
+    /**
+     * Handle response, completing once handled.  Handlers that defer work, eg batching, override to not block the
+     * caller.
+     */
+    default CompletableFuture<Void> handleResponseAsync(FunctionRequestContext functionRequestContext,
+                                                        ResponseEntity<String> functionResponseEntity) {
+        handleResponse(functionRequestContext, functionResponseEntity);
+        return CompletableFuture.completedFuture(null);
+    }
 }
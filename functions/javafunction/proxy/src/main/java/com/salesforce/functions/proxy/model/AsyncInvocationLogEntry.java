@@ -0,0 +1,105 @@
+package com.salesforce.functions.proxy.model;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Encapsulates an accepted async invocation, as logged to the async invocation write-ahead log.
+ */
+public class AsyncInvocationLogEntry {
+
+    private long id;
+    private String requestId;
+    private HttpMethod method;
+    private Map<String, List<String>> headers;
+    private SfFnContext sfFnContext;
+    private SfContext sfContext;
+    private String body;
+
+    public AsyncInvocationLogEntry() {
+    }
+
+    public AsyncInvocationLogEntry(FunctionRequestContext functionRequestContext, String body) {
+        this.requestId = functionRequestContext.getRequestId();
+        this.method = functionRequestContext.getMethod();
+        this.headers = new LinkedHashMap<>(functionRequestContext.getHeaders());
+        this.sfFnContext = functionRequestContext.getSfFnContext();
+        this.sfContext = functionRequestContext.getSfContext();
+        this.body = body;
+    }
+
+    /**
+     * @return function request context of the logged invocation, as handled before the invocation was accepted
+     */
+    public FunctionRequestContext toFunctionRequestContext() {
+        HttpHeaders httpHeaders = new HttpHeaders();
+        if (headers != null) {
+            headers.forEach(httpHeaders::addAll);
+        }
+        FunctionRequestContext functionRequestContext = new FunctionRequestContext(httpHeaders, method);
+        functionRequestContext.setRequestId(requestId);
+        functionRequestContext.setSfFnContext(sfFnContext);
+        functionRequestContext.setSfContext(sfContext);
+        return functionRequestContext;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public void setId(long id) {
+        this.id = id;
+    }
+
+    public String getRequestId() {
+        return requestId;
+    }
+
+    public void setRequestId(String requestId) {
+        this.requestId = requestId;
+    }
+
+    public HttpMethod getMethod() {
+        return method;
+    }
+
+    public void setMethod(HttpMethod method) {
+        this.method = method;
+    }
+
+    public Map<String, List<String>> getHeaders() {
+        return headers;
+    }
+
+    public void setHeaders(Map<String, List<String>> headers) {
+        this.headers = headers;
+    }
+
+    public SfFnContext getSfFnContext() {
+        return sfFnContext;
+    }
+
+    public void setSfFnContext(SfFnContext sfFnContext) {
+        this.sfFnContext = sfFnContext;
+    }
+
+    public SfContext getSfContext() {
+        return sfContext;
+    }
+
+    public void setSfContext(SfContext sfContext) {
+        this.sfContext = sfContext;
+    }
+
+    public String getBody() {
+        return body;
+    }
+
+    public void setBody(String body) {
+        this.body = body;
+    }
+}
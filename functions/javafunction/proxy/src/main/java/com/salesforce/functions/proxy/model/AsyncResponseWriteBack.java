@@ -0,0 +1,152 @@
+package com.salesforce.functions.proxy.model;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Encapsulates a function response to be saved to its AsyncFunctionInvocationRequest__c, as written to the async
+ * write-back dead-letter file when the response fails to save.
+ *
+ * The function's token isn't written, as it's expired by the time dead-lettered responses are replayed; the org, user
+ * and session-based Permission Sets of the token are written so that a token is minted to replay the response.
+ */
+public class AsyncResponseWriteBack {
+
+    private String requestId;
+    private String orgDomainUrl;
+    private String apiVersion;
+    private String orgId;
+    private String username;
+    private List<String> permissionSets;
+    @JsonIgnore
+    private String accessToken;
+    private String sobjectType;
+    private String recordId;
+    private Map<String, Object> fields;
+    // Set when dead-lettered
+    private String error;
+    private long failedAtMs;
+
+    public AsyncResponseWriteBack() {
+    }
+
+    public AsyncResponseWriteBack(String requestId,
+                                  String orgDomainUrl,
+                                  String apiVersion,
+                                  String orgId,
+                                  String username,
+                                  List<String> permissionSets,
+                                  String accessToken,
+                                  String sobjectType,
+                                  String recordId,
+                                  Map<String, Object> fields) {
+        this.requestId = requestId;
+        this.orgDomainUrl = orgDomainUrl;
+        this.apiVersion = apiVersion;
+        this.orgId = orgId;
+        this.username = username;
+        this.permissionSets = permissionSets;
+        this.accessToken = accessToken;
+        this.sobjectType = sobjectType;
+        this.recordId = recordId;
+        this.fields = fields;
+    }
+
+    public String getRequestId() {
+        return requestId;
+    }
+
+    public void setRequestId(String requestId) {
+        this.requestId = requestId;
+    }
+
+    public String getOrgDomainUrl() {
+        return orgDomainUrl;
+    }
+
+    public void setOrgDomainUrl(String orgDomainUrl) {
+        this.orgDomainUrl = orgDomainUrl;
+    }
+
+    public String getApiVersion() {
+        return apiVersion;
+    }
+
+    public void setApiVersion(String apiVersion) {
+        this.apiVersion = apiVersion;
+    }
+
+    public String getOrgId() {
+        return orgId;
+    }
+
+    public void setOrgId(String orgId) {
+        this.orgId = orgId;
+    }
+
+    public String getUsername() {
+        return username;
+    }
+
+    public void setUsername(String username) {
+        this.username = username;
+    }
+
+    public List<String> getPermissionSets() {
+        return permissionSets;
+    }
+
+    public void setPermissionSets(List<String> permissionSets) {
+        this.permissionSets = permissionSets;
+    }
+
+    public String getAccessToken() {
+        return accessToken;
+    }
+
+    public void setAccessToken(String accessToken) {
+        this.accessToken = accessToken;
+    }
+
+    public String getSobjectType() {
+        return sobjectType;
+    }
+
+    public void setSobjectType(String sobjectType) {
+        this.sobjectType = sobjectType;
+    }
+
+    public String getRecordId() {
+        return recordId;
+    }
+
+    public void setRecordId(String recordId) {
+        this.recordId = recordId;
+    }
+
+    public Map<String, Object> getFields() {
+        return fields;
+    }
+
+    public void setFields(Map<String, Object> fields) {
+        this.fields = fields;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public void setError(String error) {
+        this.error = error;
+    }
+
+    public long getFailedAtMs() {
+        return failedAtMs;
+    }
+
+    public void setFailedAtMs(long failedAtMs) {
+        this.failedAtMs = failedAtMs;
+    }
+}
@@ -0,0 +1,18 @@
+package com.salesforce.functions.proxy.model;
+
+import java.util.List;
+
+/**
+ * Encapsulates a Salesforce sObject Collections API per-record result.
+ */
+public class CompositeSaveResult {
+    public String id;
+    public boolean success;
+    public List<Error> errors;
+
+    public static class Error {
+        public String statusCode;
+        public String message;
+        public String [] fields;
+    }
+}
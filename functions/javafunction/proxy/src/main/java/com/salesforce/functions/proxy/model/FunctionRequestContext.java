@@ -14,6 +14,8 @@ public class FunctionRequestContext {
     private String requestProvidedAccessToken;
     private SfFnContext sfFnContext;
     private SfContext sfContext;
+    private Long functionAccessTokenExpiresAtMs;
+    private boolean functionAccessTokenMinted;
 
     public FunctionRequestContext(HttpHeaders headers, HttpMethod method) {
         this.headers = headers;
@@ -59,4 +61,26 @@ public class FunctionRequestContext {
     public void setSfContext(SfContext sfContext) {
         this.sfContext = sfContext;
     }
+
+    /**
+     * @return when function's accessToken is expected to expire, if known
+     */
+    public Long getFunctionAccessTokenExpiresAtMs() {
+        return functionAccessTokenExpiresAtMs;
+    }
+
+    public void setFunctionAccessTokenExpiresAtMs(Long functionAccessTokenExpiresAtMs) {
+        this.functionAccessTokenExpiresAtMs = functionAccessTokenExpiresAtMs;
+    }
+
+    /**
+     * @return true if function's accessToken was minted for this request, ie not shared from the token cache
+     */
+    public boolean isFunctionAccessTokenMinted() {
+        return functionAccessTokenMinted;
+    }
+
+    public void setFunctionAccessTokenMinted(boolean functionAccessTokenMinted) {
+        this.functionAccessTokenMinted = functionAccessTokenMinted;
+    }
 }
@@ -0,0 +1,208 @@
+package com.salesforce.functions.proxy.model;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A function process, listening on its own port, that invocations are balanced across.  In embedded mode, the
+ * worker is the thread running the function runtime in the proxy's process.
+ */
+public class FunctionWorker {
+
+    private final int index;
+    // Replaced as a whole, so that readers see a consistent port, url and process, eg during failover
+    private volatile Endpoint endpoint;
+    private final AtomicInteger outstandingRequests = new AtomicInteger();
+    private volatile Thread thread;
+    private volatile boolean restarting;
+    private volatile boolean warming;
+    private final AtomicInteger restartAttempts = new AtomicInteger();
+
+    public FunctionWorker(int index, int port, String url) {
+        this.index = index;
+        this.endpoint = new Endpoint(port, url, null, null, 0);
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    public Endpoint getEndpoint() {
+        return endpoint;
+    }
+
+    public int getPort() {
+        return endpoint.getPort();
+    }
+
+    public String getUrl() {
+        return endpoint.getUrl();
+    }
+
+    public int getOutstandingRequests() {
+        return outstandingRequests.get();
+    }
+
+    public int incrementOutstandingRequests() {
+        return outstandingRequests.incrementAndGet();
+    }
+
+    public int decrementOutstandingRequests() {
+        return outstandingRequests.decrementAndGet();
+    }
+
+    public ProcessHandle getProcessHandle() {
+        return endpoint.getProcessHandle();
+    }
+
+    public void setProcessHandle(ProcessHandle processHandle) {
+        Endpoint endpoint = this.endpoint;
+        this.endpoint = new Endpoint(endpoint.getPort(),
+                                     endpoint.getUrl(),
+                                     endpoint.getProcess(),
+                                     processHandle,
+                                     endpoint.getStartedMs());
+    }
+
+    public Process getProcess() {
+        return endpoint.getProcess();
+    }
+
+    public void setProcess(Process process) {
+        Endpoint endpoint = this.endpoint;
+        this.endpoint = new Endpoint(endpoint.getPort(),
+                                     endpoint.getUrl(),
+                                     process,
+                                     process.toHandle(),
+                                     System.currentTimeMillis());
+    }
+
+    public Thread getThread() {
+        return thread;
+    }
+
+    public void setThread(Thread thread) {
+        this.thread = thread;
+        if (thread != null) {
+            Endpoint endpoint = this.endpoint;
+            this.endpoint = new Endpoint(endpoint.getPort(),
+                                         endpoint.getUrl(),
+                                         endpoint.getProcess(),
+                                         endpoint.getProcessHandle(),
+                                         System.currentTimeMillis());
+        }
+    }
+
+    public long getStartedMs() {
+        return endpoint.getStartedMs();
+    }
+
+    /**
+     * @return true if the worker's process exited and the worker isn't yet ready again
+     */
+    public boolean isRestarting() {
+        return restarting;
+    }
+
+    public void setRestarting(boolean restarting) {
+        this.restarting = restarting;
+    }
+
+    /**
+     * @return true if the worker is a standby that's ready but not yet warmed, so shouldn't be failed over to
+     */
+    public boolean isWarming() {
+        return warming;
+    }
+
+    public void setWarming(boolean warming) {
+        this.warming = warming;
+    }
+
+    public int incrementRestartAttempts() {
+        return restartAttempts.incrementAndGet();
+    }
+
+    public void resetRestartAttempts() {
+        restartAttempts.set(0);
+    }
+
+    /**
+     * @return exit code of the worker's process, or null if running or not started by the proxy
+     */
+    public Integer getExitCode() {
+        Process process = endpoint.getProcess();
+        return process != null && !process.isAlive() ? process.exitValue() : null;
+    }
+
+    /**
+     * Exchange processes, and the ports that they listen on, w/ given worker, eg to fail over to a standby process.
+     *
+     * @param other
+     */
+    public void swapProcess(FunctionWorker other) {
+        Endpoint endpoint = this.endpoint;
+        this.endpoint = other.endpoint;
+        other.endpoint = endpoint;
+    }
+
+    public boolean isAlive() {
+        Thread thread = this.thread;
+        if (thread != null) {
+            return thread.isAlive();
+        }
+
+        ProcessHandle processHandle = endpoint.getProcessHandle();
+        return processHandle != null && processHandle.isAlive();
+    }
+
+    @Override
+    public String toString() {
+        Endpoint endpoint = this.endpoint;
+        return "FunctionWorker{" +
+                "index=" + index +
+                ", port=" + endpoint.getPort() +
+                ", pid=" + (endpoint.getProcessHandle() != null ? endpoint.getProcessHandle().pid() : null) +
+                ", outstandingRequests=" + outstandingRequests.get() +
+                ", restarting=" + restarting +
+                '}';
+    }
+
+    /**
+     * Port, and the process listening on it, that a worker's invocations are sent to.
+     */
+    public static class Endpoint {
+        private final int port;
+        private final String url;
+        private final Process process;
+        private final ProcessHandle processHandle;
+        private final long startedMs;
+
+        Endpoint(int port, String url, Process process, ProcessHandle processHandle, long startedMs) {
+            this.port = port;
+            this.url = url;
+            this.process = process;
+            this.processHandle = processHandle;
+            this.startedMs = startedMs;
+        }
+
+        public int getPort() {
+            return port;
+        }
+
+        public String getUrl() {
+            return url;
+        }
+
+        public Process getProcess() {
+            return process;
+        }
+
+        public ProcessHandle getProcessHandle() {
+            return processHandle;
+        }
+
+        public long getStartedMs() {
+            return startedMs;
+        }
+    }
+}
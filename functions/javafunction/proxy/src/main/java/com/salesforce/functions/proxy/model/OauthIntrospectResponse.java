@@ -0,0 +1,44 @@
+package com.salesforce.functions.proxy.model;
+
+/**
+ * Encapsulates a /oauth2/introspect API response.
+ */
+public class OauthIntrospectResponse {
+
+    private boolean active;
+    private Long exp;
+    private String error;
+    private String error_description;
+
+    public boolean isActive() {
+        return active;
+    }
+
+    public void setActive(boolean active) {
+        this.active = active;
+    }
+
+    public Long getExp() {
+        return exp;
+    }
+
+    public void setExp(Long exp) {
+        this.exp = exp;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public void setError(String error) {
+        this.error = error;
+    }
+
+    public String getError_description() {
+        return error_description;
+    }
+
+    public void setError_description(String error_description) {
+        this.error_description = error_description;
+    }
+}
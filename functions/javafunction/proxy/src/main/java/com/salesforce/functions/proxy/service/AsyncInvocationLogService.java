@@ -0,0 +1,409 @@
+package com.salesforce.functions.proxy.service;
+
+import com.salesforce.functions.proxy.config.ProxyConfig;
+import com.salesforce.functions.proxy.model.AsyncInvocationLogEntry;
+import com.salesforce.functions.proxy.model.FunctionRequestContext;
+import com.salesforce.functions.proxy.util.Utils;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Write-ahead log of accepted async invocations, so that invocations accepted but not completed when the proxy stops
+ * are replayed when the proxy restarts.
+ *
+ * The log is a sequence of memory-mapped, append-only segment files.  Each record is:
+ *   length (int) | CRC32 (int) | type (byte) | invocation id (long) | payload (length bytes)
+ * An accepted record's payload is the invocation as JSON; a completed record has no payload.  A torn record, eg from
+ * a crash mid-write, ends a segment.
+ *
+ * Appending an accepted invocation waits until the record is synced to disk.  Syncs are group committed: one waiter
+ * syncs everything appended so far while concurrent appenders wait on that sync, so that the cost of a sync is shared
+ * by concurrent requests.  Completed records aren't synced, as an invocation whose completion is lost is replayed.
+ *
+ * Segments are deleted oldest first, once each invocation of a segment and of all older segments completes, as a
+ * segment's completed records may be of invocations accepted in older segments.  On startup, incomplete invocations
+ * are moved to a new segment and older segments are deleted.
+ *
+ * Locks are {@link ReentrantLock}s rather than monitors, so that virtual threads appending invocations aren't pinned
+ * while they wait.
+ */
+@Service
+public class AsyncInvocationLogService implements InitializingBean, DisposableBean {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(AsyncInvocationLogService.class);
+
+    static final byte RECORD_ACCEPTED = 1;
+    static final byte RECORD_COMPLETED = 2;
+    static final int RECORD_HEADER_SIZE = 4 + 4 + 1 + 8;
+    private static final String SEGMENT_PREFIX = "async-";
+    private static final String SEGMENT_SUFFIX = ".wal";
+    private static final long MB = 1024 * 1024;
+
+    @Autowired
+    ProxyConfig proxyConfig;
+
+    @Autowired
+    MeterRegistry meterRegistry;
+
+    @Autowired
+    Utils utils;
+
+    private Path walDir;
+    private Timer syncTimer;
+    private List<AsyncInvocationLogEntry> recovered = new ArrayList<>();
+
+    // Guarded by appendLock
+    private final ReentrantLock appendLock = new ReentrantLock();
+    private Segment segment;
+    private long oldestSegmentIndex;
+    private long nextId;
+    private long appendedPosition;
+    private final Map<Long, Long> segmentsById = new HashMap<>();
+    private final Map<Long, Integer> pendingBySegment = new HashMap<>();
+
+    // Guarded by syncLock
+    private final ReentrantLock syncLock = new ReentrantLock();
+    private final Condition synced = syncLock.newCondition();
+    private long syncedPosition;
+    private boolean syncing;
+
+    @Override
+    public void afterPropertiesSet() throws Exception {
+        if (!isEnabled()) {
+            return;
+        }
+
+        walDir = Paths.get(proxyConfig.getAsyncWalDir());
+        Files.createDirectories(walDir);
+        syncTimer = Timer.builder("proxy.async.wal.sync")
+                .description("Time to sync the async invocation write-ahead log to disk")
+                .register(meterRegistry);
+        recover();
+    }
+
+    @Override
+    public void destroy() {
+        appendLock.lock();
+        try {
+            if (segment != null) {
+                segment.buffer.force();
+                segment.close();
+            }
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    public boolean isEnabled() {
+        return !utils.isBlank(proxyConfig.getAsyncWalDir());
+    }
+
+    /**
+     * @return invocations accepted, but not completed, before the proxy restarted
+     */
+    public List<AsyncInvocationLogEntry> getRecovered() {
+        return recovered;
+    }
+
+    /**
+     * Log given accepted invocation, returning once the record is synced to disk.
+     *
+     * @param functionRequestContext
+     * @param body
+     * @return invocation id, to mark the invocation complete
+     * @throws RuntimeException if the invocation can't be logged
+     */
+    public long append(FunctionRequestContext functionRequestContext, String body) {
+        AsyncInvocationLogEntry entry = new AsyncInvocationLogEntry(functionRequestContext, body);
+        try {
+            long position;
+            appendLock.lock();
+            try {
+                entry.setId(nextId++);
+                position = appendAccepted(entry);
+            } finally {
+                appendLock.unlock();
+            }
+            awaitSynced(position);
+            return entry.getId();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Unable to log async invocation: interrupted");
+        } catch (Exception ex) {
+            throw new RuntimeException("Unable to log async invocation: " + ex.getMessage());
+        }
+    }
+
+    /**
+     * Mark given invocation complete, eg once its response is saved.
+     *
+     * @param id
+     */
+    public void complete(long id) {
+        appendLock.lock();
+        try {
+            try {
+                appendRecord(RECORD_COMPLETED, id, new byte[0]);
+            } catch (IOException ex) {
+                LOGGER.warn("Unable to log completion of async invocation " + id + "; invocation will be replayed " +
+                        "on restart: " + ex.getMessage());
+                return;
+            }
+
+            Long segmentIndex = segmentsById.remove(id);
+            if (segmentIndex != null) {
+                pendingBySegment.merge(segmentIndex, -1, Integer::sum);
+                deleteCompletedSegments();
+            }
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    // Called w/ appendLock
+    private long appendAccepted(AsyncInvocationLogEntry entry) throws IOException {
+        byte[] payload = utils.toJson(entry).getBytes(StandardCharsets.UTF_8);
+        long position = appendRecord(RECORD_ACCEPTED, entry.getId(), payload);
+        segmentsById.put(entry.getId(), segment.index);
+        pendingBySegment.merge(segment.index, 1, Integer::sum);
+        return position;
+    }
+
+    // Called w/ appendLock
+    private long appendRecord(byte type, long id, byte[] payload) throws IOException {
+        int recordSize = RECORD_HEADER_SIZE + payload.length;
+        if (segment.buffer.remaining() < recordSize) {
+            rollSegment(recordSize);
+        }
+
+        CRC32 crc = new CRC32();
+        crc.update(type);
+        crc.update(toBytes(id));
+        crc.update(payload);
+        segment.buffer.putInt(payload.length)
+                .putInt((int) crc.getValue())
+                .put(type)
+                .putLong(id)
+                .put(payload);
+        appendedPosition += recordSize;
+        return appendedPosition;
+    }
+
+    // Called w/ appendLock
+    private void rollSegment(int minSize) throws IOException {
+        // Records in rolled segments are synced here, so syncs need only sync the current segment
+        Segment rolled = segment;
+        rolled.buffer.force();
+        rolled.close();
+        segment = openSegment(rolled.index + 1, minSize);
+        deleteCompletedSegments();
+    }
+
+    // Called w/ appendLock
+    private void deleteCompletedSegments() {
+        // A segment's completed records may be of invocations accepted in older segments, so a segment is only
+        // deleted once older segments are, else those invocations would be replayed on restart
+        while (oldestSegmentIndex < segment.index && pendingBySegment.getOrDefault(oldestSegmentIndex, 0) <= 0) {
+            pendingBySegment.remove(oldestSegmentIndex);
+            deleteSegment(oldestSegmentIndex);
+            oldestSegmentIndex++;
+        }
+    }
+
+    private void awaitSynced(long position) throws InterruptedException {
+        while (true) {
+            syncLock.lock();
+            try {
+                while (syncing && syncedPosition < position) {
+                    synced.await();
+                }
+                if (syncedPosition >= position) {
+                    return;
+                }
+                syncing = true;
+            } finally {
+                syncLock.unlock();
+            }
+
+            // Sync all records appended so far, including concurrent appenders' records
+            long syncingPosition = 0;
+            try {
+                MappedByteBuffer buffer;
+                appendLock.lock();
+                try {
+                    syncingPosition = appendedPosition;
+                    buffer = segment.buffer;
+                } finally {
+                    appendLock.unlock();
+                }
+                long startNs = System.nanoTime();
+                buffer.force();
+                syncTimer.record(System.nanoTime() - startNs, TimeUnit.NANOSECONDS);
+            } finally {
+                syncLock.lock();
+                try {
+                    syncedPosition = Math.max(syncedPosition, syncingPosition);
+                    syncing = false;
+                    synced.signalAll();
+                } finally {
+                    syncLock.unlock();
+                }
+            }
+        }
+    }
+
+    private void recover() throws IOException {
+        List<Path> segmentPaths;
+        try (Stream<Path> paths = Files.list(walDir)) {
+            segmentPaths = paths
+                    .filter(path -> path.getFileName().toString().startsWith(SEGMENT_PREFIX)
+                            && path.getFileName().toString().endsWith(SEGMENT_SUFFIX))
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+
+        Map<Long, AsyncInvocationLogEntry> incomplete = new LinkedHashMap<>();
+        long lastIndex = -1;
+        for (Path segmentPath : segmentPaths) {
+            lastIndex = Math.max(lastIndex, toSegmentIndex(segmentPath));
+            readSegment(segmentPath, incomplete);
+        }
+        nextId = incomplete.keySet().stream().mapToLong(Long::longValue).max().orElse(-1) + 1;
+
+        // Move incomplete invocations to a new segment, so that older segments can be deleted
+        appendLock.lock();
+        try {
+            segment = openSegment(lastIndex + 1, 0);
+            oldestSegmentIndex = segment.index;
+            for (AsyncInvocationLogEntry entry : incomplete.values()) {
+                appendAccepted(entry);
+            }
+            segment.buffer.force();
+            syncedPosition = appendedPosition;
+        } finally {
+            appendLock.unlock();
+        }
+        for (Path segmentPath : segmentPaths) {
+            Files.deleteIfExists(segmentPath);
+        }
+
+        recovered = new ArrayList<>(incomplete.values());
+        LOGGER.info("Logging async invocations to " + walDir.toAbsolutePath() + "; recovered " + recovered.size() +
+                " incomplete invocation(s)");
+    }
+
+    private void readSegment(Path segmentPath, Map<Long, AsyncInvocationLogEntry> incomplete) throws IOException {
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(segmentPath, StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+
+        while (buffer.remaining() >= RECORD_HEADER_SIZE) {
+            int length = buffer.getInt();
+            int checksum = buffer.getInt();
+            byte type = buffer.get();
+            long id = buffer.getLong();
+            if (type == 0 || length < 0 || length > buffer.remaining()) {
+                // End of appended records, or torn record
+                break;
+            }
+
+            byte[] payload = new byte[length];
+            buffer.get(payload);
+            CRC32 crc = new CRC32();
+            crc.update(type);
+            crc.update(toBytes(id));
+            crc.update(payload);
+            if ((int) crc.getValue() != checksum) {
+                LOGGER.warn("Ignoring torn record of async invocation " + id + " in " + segmentPath);
+                break;
+            }
+
+            if (type == RECORD_ACCEPTED) {
+                incomplete.put(id, utils.fromJson(new String(payload, StandardCharsets.UTF_8),
+                                                  AsyncInvocationLogEntry.class));
+            } else if (type == RECORD_COMPLETED) {
+                incomplete.remove(id);
+            }
+        }
+    }
+
+    private Segment openSegment(long index, int minSize) throws IOException {
+        long size = Math.max(proxyConfig.getAsyncWalSegmentSizeMb() * MB, minSize);
+        Path path = walDir.resolve(String.format("%s%016d%s", SEGMENT_PREFIX, index, SEGMENT_SUFFIX));
+        FileChannel channel = FileChannel.open(path,
+                                               StandardOpenOption.CREATE_NEW,
+                                               StandardOpenOption.READ,
+                                               StandardOpenOption.WRITE);
+        return new Segment(index, channel, channel.map(FileChannel.MapMode.READ_WRITE, 0, size));
+    }
+
+    private void deleteSegment(long index) {
+        Path path = walDir.resolve(String.format("%s%016d%s", SEGMENT_PREFIX, index, SEGMENT_SUFFIX));
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException ex) {
+            LOGGER.warn("Unable to delete " + path + ": " + ex.getMessage());
+        }
+    }
+
+    private long toSegmentIndex(Path segmentPath) {
+        String name = segmentPath.getFileName().toString();
+        return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+    }
+
+    private static byte[] toBytes(long value) {
+        byte[] bytes = new byte[8];
+        for (int i = 7; i >= 0; i--) {
+            bytes[i] = (byte) value;
+            value >>= 8;
+        }
+        return bytes;
+    }
+
+    private static class Segment {
+        final long index;
+        final FileChannel channel;
+        final MappedByteBuffer buffer;
+
+        Segment(long index, FileChannel channel, MappedByteBuffer buffer) {
+            this.index = index;
+            this.channel = channel;
+            this.buffer = buffer;
+        }
+
+        void close() {
+            try {
+                channel.close();
+            } catch (IOException ex) {
+                LOGGER.warn("Unable to close async invocation log segment " + index + ": " + ex.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,331 @@
+package com.salesforce.functions.proxy.service;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.salesforce.functions.proxy.config.ProxyConfig;
+import com.salesforce.functions.proxy.handler.request.ActivatePermissionSetsHandler;
+import com.salesforce.functions.proxy.handler.request.MintTokenHandler;
+import com.salesforce.functions.proxy.handler.request.PrepareFunctionRequestHandler;
+import com.salesforce.functions.proxy.handler.response.AsyncFunctionResponseHandler;
+import com.salesforce.functions.proxy.handler.response.ResponseHandler;
+import com.salesforce.functions.proxy.model.AsyncInvocationLogEntry;
+import com.salesforce.functions.proxy.model.FunctionRequestContext;
+import com.salesforce.functions.proxy.util.Utils;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Bounded queue of accepted async invocations.
+ *
+ * Async invocations are dispatched to the function in the order accepted, up to the max concurrent invocations.  An
+ * invocation holds its slot until the function's response is saved, so that slow saves to Salesforce throttle
+ * dispatch rather than pile up.  Once the queue is full, invocations are rejected so that callers back off and retry
+ * rather than the proxy accepting work it can't hold.
+ *
+ * If the async invocation write-ahead log is enabled, invocations are logged before being accepted and marked
+ * complete once the function's response is saved or dead-lettered.  Invocations recovered from the log are replayed
+ * once the function is ready, w/ a newly minted function's token as the logged token has likely expired.
+ */
+@Service
+public class AsyncInvocationQueueService implements InitializingBean {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(AsyncInvocationQueueService.class);
+
+    @Autowired
+    ProxyConfig proxyConfig;
+
+    @Autowired
+    InvokeFunctionService invokeFunctionService;
+
+    @Autowired
+    MeterRegistry meterRegistry;
+
+    @Autowired
+    Utils utils;
+
+    @Autowired
+    AsyncInvocationLogService asyncInvocationLogService;
+
+    @Autowired
+    AsyncFunctionResponseHandler asyncFunctionResponseHandler;
+
+    @Autowired
+    StartFunctionService startFunctionService;
+
+    @Autowired
+    MintTokenHandler mintTokenHandler;
+
+    @Autowired
+    ActivatePermissionSetsHandler activatePermissionSetsHandler;
+
+    @Autowired
+    PrepareFunctionRequestHandler prepareFunctionRequestHandler;
+
+    // Mint attempts and backoff of recovered invocations
+    int replayMintMaxAttempts = 10;
+    long replayMintRetryDelayMs = 1000;
+    long replayMintRetryMaxDelayMs = 60000;
+
+    // Guards queue and counts
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Deque<QueuedInvocation> queue = new ArrayDeque<>();
+    // Accepted invocations being logged
+    private int logging;
+    private int inFlight;
+    private Timer waitTimer;
+    private Counter rejectedCounter;
+
+    @Override
+    public void afterPropertiesSet() {
+        Gauge.builder("proxy.async.queue.depth", this, AsyncInvocationQueueService::getQueueDepth)
+                .description("Accepted async invocations waiting to invoke the function")
+                .register(meterRegistry);
+        Gauge.builder("proxy.async.invocations.inflight", this, AsyncInvocationQueueService::getInFlight)
+                .description("Async invocations invoking the function or saving the function's response")
+                .register(meterRegistry);
+        waitTimer = Timer.builder("proxy.async.queue.wait")
+                .description("Time async invocations wait in the queue")
+                .register(meterRegistry);
+        rejectedCounter = Counter.builder("proxy.async.rejected")
+                .description("Async invocations rejected because the queue is full")
+                .register(meterRegistry);
+
+        LOGGER.info("Queueing up to " + proxyConfig.getAsyncQueueCapacity() + " async invocation(s), invoking up to " +
+                proxyConfig.getAsyncMaxConcurrentInvocations() + " concurrently");
+
+        if (asyncInvocationLogService.isEnabled() && !asyncInvocationLogService.getRecovered().isEmpty()) {
+            new ThreadFactoryBuilder().setNameFormat("AsyncInvocationReplayer-%d").setDaemon(true).build()
+                    .newThread(this::replay)
+                    .start();
+        }
+    }
+
+    private void replay() {
+        List<AsyncInvocationLogEntry> recovered = asyncInvocationLogService.getRecovered();
+        try {
+            startFunctionService.awaitReady();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            return;
+        } catch (Exception ex) {
+            LOGGER.warn("Replaying " + recovered.size() + " async invocation(s) though function isn't ready: " +
+                    ex.getMessage());
+        }
+
+        LOGGER.info("Replaying " + recovered.size() + " async invocation(s)");
+        // Invocations whose function's token fails to mint, eg while Salesforce is unavailable, are retried w/
+        // backoff, remaining in the log until replayed
+        List<AsyncInvocationLogEntry> pending = recovered;
+        long delayMs = replayMintRetryDelayMs;
+        for (int attempt = 1; !pending.isEmpty(); attempt++) {
+            if (attempt > 1) {
+                LOGGER.warn("Retrying replay of " + pending.size() + " async invocation(s) in " + delayMs + "ms");
+                try {
+                    Thread.sleep(delayMs);
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                delayMs = Math.min(delayMs * 2, replayMintRetryMaxDelayMs);
+            }
+
+            List<AsyncInvocationLogEntry> failed = new ArrayList<>();
+            List<QueuedInvocation> replayed = new ArrayList<>(pending.size());
+            for (AsyncInvocationLogEntry entry : pending) {
+                FunctionRequestContext functionRequestContext = entry.toFunctionRequestContext();
+                try {
+                    mintFunctionToken(functionRequestContext);
+                } catch (Exception ex) {
+                    if (attempt < replayMintMaxAttempts) {
+                        utils.warn(LOGGER, entry.getRequestId(), "Unable to replay async invocation on attempt " +
+                                attempt + ": " + ex.getMessage());
+                        failed.add(entry);
+                    } else {
+                        saveReplayError(entry, functionRequestContext, ex);
+                    }
+                    continue;
+                }
+                replayed.add(new QueuedInvocation(functionRequestContext,
+                                                  entry.getBody(),
+                                                  asyncFunctionResponseHandler,
+                                                  entry.getId()));
+            }
+
+            // Recovered invocations were accepted, so are queued regardless of capacity
+            lock.lock();
+            try {
+                queue.addAll(replayed);
+            } finally {
+                lock.unlock();
+            }
+            dispatch();
+            pending = failed;
+        }
+    }
+
+    /**
+     * Save the reason a recovered invocation can't be replayed as the function's response, or dead-letter it if it
+     * can't be saved, so that the invocation isn't lost.  The invocation remains in the log if neither.
+     */
+    private void saveReplayError(AsyncInvocationLogEntry entry, FunctionRequestContext functionRequestContext, Exception ex) {
+        utils.error(LOGGER, entry.getRequestId(), "Unable to replay async invocation: " + ex.getMessage());
+        asyncFunctionResponseHandler.handleErrorAsync(functionRequestContext,
+                                                      new RuntimeException("Unable to replay async invocation: " +
+                                                              ex.getMessage()))
+                .whenComplete((ignored, saveEx) -> {
+                    if (saveEx == null) {
+                        asyncInvocationLogService.complete(entry.getId());
+                    }
+                });
+    }
+
+    /**
+     * Mint the function's token of a recovered invocation, replacing the token logged when the invocation was
+     * accepted, and re-activate session-based Permission Sets on the token.  The caller was validated when the
+     * invocation was accepted.
+     *
+     * @param functionRequestContext
+     * @throws Exception
+     */
+    private void mintFunctionToken(FunctionRequestContext functionRequestContext) throws Exception {
+        mintTokenHandler.handle(functionRequestContext);
+        activatePermissionSetsHandler.handle(functionRequestContext);
+        prepareFunctionRequestHandler.handle(functionRequestContext);
+    }
+
+    /**
+     * Queue given async invocation, if there's capacity.
+     *
+     * @param functionRequestContext
+     * @param body
+     * @param responseHandler
+     * @return true if queued; false if the queue is full and the invocation should be rejected
+     * @throws RuntimeException if the invocation can't be logged
+     */
+    public boolean offer(FunctionRequestContext functionRequestContext, String body, ResponseHandler responseHandler) {
+        lock.lock();
+        try {
+            if (queue.size() + logging >= proxyConfig.getAsyncQueueCapacity()) {
+                rejectedCounter.increment();
+                utils.warn(LOGGER, functionRequestContext.getRequestId(), "Async invocation queue full [" +
+                        queue.size() + "]; rejecting request");
+                return false;
+            }
+            logging++;
+        } finally {
+            lock.unlock();
+        }
+
+        // Logged outside of the lock, so that concurrent invocations share syncs
+        long logId = QueuedInvocation.NOT_LOGGED;
+        try {
+            if (asyncInvocationLogService.isEnabled()) {
+                logId = asyncInvocationLogService.append(functionRequestContext, body);
+            }
+        } catch (RuntimeException ex) {
+            lock.lock();
+            try {
+                logging--;
+            } finally {
+                lock.unlock();
+            }
+            throw ex;
+        }
+
+        lock.lock();
+        try {
+            logging--;
+            queue.add(new QueuedInvocation(functionRequestContext, body, responseHandler, logId));
+        } finally {
+            lock.unlock();
+        }
+
+        dispatch();
+        return true;
+    }
+
+    public int getQueueDepth() {
+        lock.lock();
+        try {
+            return queue.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getInFlight() {
+        lock.lock();
+        try {
+            return inFlight;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void dispatch() {
+        while (true) {
+            QueuedInvocation invocation;
+            lock.lock();
+            try {
+                if (inFlight >= proxyConfig.getAsyncMaxConcurrentInvocations() || queue.isEmpty()) {
+                    return;
+                }
+                invocation = queue.poll();
+                inFlight++;
+            } finally {
+                lock.unlock();
+            }
+
+            waitTimer.record(System.nanoTime() - invocation.queuedNs, TimeUnit.NANOSECONDS);
+            invokeFunctionService.asyncInvokeFunction(invocation.functionRequestContext,
+                                                      invocation.body,
+                                                      invocation.responseHandler)
+                    .whenComplete((ignored, ex) -> {
+                        // Invocations whose response was neither saved nor dead-lettered, eg on shutdown, are replayed
+                        if (ex == null && invocation.logId != QueuedInvocation.NOT_LOGGED) {
+                            asyncInvocationLogService.complete(invocation.logId);
+                        }
+                        lock.lock();
+                        try {
+                            inFlight--;
+                        } finally {
+                            lock.unlock();
+                        }
+                        dispatch();
+                    });
+        }
+    }
+
+    private static class QueuedInvocation {
+        static final long NOT_LOGGED = -1;
+
+        final FunctionRequestContext functionRequestContext;
+        final String body;
+        final ResponseHandler responseHandler;
+        final long logId;
+        final long queuedNs = System.nanoTime();
+
+        QueuedInvocation(FunctionRequestContext functionRequestContext,
+                         String body,
+                         ResponseHandler responseHandler,
+                         long logId) {
+            this.functionRequestContext = functionRequestContext;
+            this.body = body;
+            this.responseHandler = responseHandler;
+            this.logId = logId;
+        }
+    }
+}
@@ -0,0 +1,286 @@
+package com.salesforce.functions.proxy.service;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.salesforce.functions.proxy.config.ProxyConfig;
+import com.salesforce.functions.proxy.model.CompositeSaveResult;
+import com.salesforce.functions.proxy.util.Utils;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Service;
+import org.springframework.web.client.RestTemplate;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Collectors;
+
+/**
+ * Batch record updates to Salesforce through the sObject Collections API.
+ *
+ * Updates are grouped by org and access token, and a group is saved w/ a single /composite/sobjects request once it
+ * reaches the batch size or once its oldest update has waited the batch delay.  Each record's result is mapped back to
+ * its update, so that one record failing to save doesn't fail the others.  W/ a batch size of 1, each update is saved
+ * w/ its own request.
+ */
+@Service
+public class AsyncResponseBatchService implements InitializingBean, DisposableBean {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(AsyncResponseBatchService.class);
+
+    // sObject Collections API limit
+    static final int MAX_BATCH_SIZE = 200;
+
+    @Autowired
+    ProxyConfig proxyConfig;
+
+    @Autowired
+    RestTemplate restTemplate;
+
+    @Autowired
+    @Qualifier("asyncWriteBackExecutor")
+    Executor writeBackExecutor;
+
+    @Autowired
+    MeterRegistry meterRegistry;
+
+    @Autowired
+    Utils utils;
+
+    // Guards batches
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Map<String, Batch> batches = new HashMap<>();
+    private ScheduledExecutorService scheduler;
+    private DistributionSummary batchSizeSummary;
+
+    @Override
+    public void afterPropertiesSet() {
+        batchSizeSummary = DistributionSummary.builder("proxy.async.writeback.batch.size")
+                .description("Records saved per sObject Collections API request")
+                .register(meterRegistry);
+
+        scheduler = Executors.newSingleThreadScheduledExecutor(
+                new ThreadFactoryBuilder().setNameFormat("AsyncResponseBatcher-%d").setDaemon(true).build());
+        if (isEnabled()) {
+            LOGGER.info("Batching up to " + getBatchSize() + " async function response(s) per save, waiting up to " +
+                    proxyConfig.getAsyncWriteBackBatchDelayMs() + "ms");
+        }
+    }
+
+    @Override
+    public void destroy() {
+        List<Batch> pending;
+        lock.lock();
+        try {
+            pending = new ArrayList<>(batches.values());
+            batches.clear();
+        } finally {
+            lock.unlock();
+        }
+
+        // Save pending updates before shutting down
+        pending.forEach(batch -> {
+            if (batch.delayed != null) {
+                batch.delayed.cancel(false);
+            }
+            flush(batch);
+        });
+
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    public boolean isEnabled() {
+        return proxyConfig.getAsyncWriteBackBatchSize() > 1;
+    }
+
+    int getBatchSize() {
+        return Math.min(proxyConfig.getAsyncWriteBackBatchSize(), MAX_BATCH_SIZE);
+    }
+
+    /**
+     * Update given record w/ the next batch for the given org and access token.
+     *
+     * @param requestId
+     * @param orgDomainUrl
+     * @param apiVersion
+     * @param accessToken
+     * @param sobjectType
+     * @param recordId
+     * @param fields
+     * @return future that completes once the record is saved or completes exceptionally w/ the reason the record
+     * wasn't saved
+     */
+    public CompletableFuture<Void> update(String requestId,
+                                          String orgDomainUrl,
+                                          String apiVersion,
+                                          String accessToken,
+                                          String sobjectType,
+                                          String recordId,
+                                          Map<String, Object> fields) {
+        BatchedRecord record = new BatchedRecord(requestId, sobjectType, recordId, fields);
+        String key = orgDomainUrl + "|" + apiVersion + "|" + accessToken;
+
+        Batch full = null;
+        lock.lock();
+        try {
+            Batch batch = batches.get(key);
+            if (batch == null) {
+                String url = utils.assembleSalesforceAPIUrl(orgDomainUrl,
+                                                            apiVersion,
+                                                            "/composite/sobjects?_HttpMethod=PATCH");
+                batch = new Batch(url, accessToken);
+                batches.put(key, batch);
+            }
+
+            batch.records.add(record);
+            if (batch.records.size() >= getBatchSize()) {
+                batches.remove(key);
+                if (batch.delayed != null) {
+                    batch.delayed.cancel(false);
+                }
+                full = batch;
+            } else if (batch.delayed == null) {
+                Batch delayed = batch;
+                batch.delayed = scheduler.schedule(() -> flushDelayed(key, delayed),
+                                                   proxyConfig.getAsyncWriteBackBatchDelayMs(),
+                                                   TimeUnit.MILLISECONDS);
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        if (full != null) {
+            submitFlush(full);
+        }
+
+        return record.future;
+    }
+
+    private void flushDelayed(String key, Batch batch) {
+        lock.lock();
+        try {
+            // Already flushed when full
+            if (batches.get(key) != batch) {
+                return;
+            }
+            batches.remove(key);
+        } finally {
+            lock.unlock();
+        }
+
+        submitFlush(batch);
+    }
+
+    private void submitFlush(Batch batch) {
+        try {
+            writeBackExecutor.execute(() -> flush(batch));
+        } catch (RejectedExecutionException ex) {
+            // Not flushed on the caller, eg the batch scheduler; the records' saves are retried
+            batch.records.forEach(record -> record.future.completeExceptionally(ex));
+        }
+    }
+
+    void flush(Batch batch) {
+        List<BatchedRecord> records = batch.records;
+        batchSizeSummary.record(records.size());
+
+        CompositeSaveResult[] results;
+        try {
+            List<Map<String, Object>> sobjects = new ArrayList<>(records.size());
+            for (BatchedRecord record : records) {
+                Map<String, Object> sobject = new LinkedHashMap<>();
+                sobject.put("attributes", Map.of("type", record.sobjectType));
+                sobject.put("id", record.recordId);
+                sobject.putAll(record.fields);
+                sobjects.add(sobject);
+            }
+            Map<String, Object> request = new LinkedHashMap<>();
+            request.put("allOrNone", false);
+            request.put("records", sobjects);
+
+            String requestJson = utils.toJson(request);
+            String requestIds = records.stream().map(record -> record.requestId).collect(Collectors.joining(","));
+            LOGGER.debug("POST " + batch.url + " [" + requestIds + "]: " + requestJson);
+
+            HttpHeaders httpHeaders = utils.assembleSalesforceAPIHeaders(batch.accessToken);
+            HttpEntity<String> entity = new HttpEntity<>(requestJson, httpHeaders);
+            ResponseEntity<String> responseEntity = restTemplate.postForEntity(batch.url, entity, String.class);
+            results = responseEntity != null && responseEntity.getBody() != null
+                    ? utils.fromJson(responseEntity.getBody(), CompositeSaveResult[].class)
+                    : new CompositeSaveResult[0];
+        } catch (Exception ex) {
+            records.forEach(record -> record.future.completeExceptionally(ex));
+            return;
+        }
+
+        // Results are in the order of the request's records
+        for (int i = 0; i < records.size(); i++) {
+            BatchedRecord record = records.get(i);
+            CompositeSaveResult result = i < results.length ? results[i] : null;
+            if (result == null) {
+                record.future.completeExceptionally(new RuntimeException("No result for record " + record.recordId));
+            } else if (!result.success) {
+                record.future.completeExceptionally(new RuntimeException(toErrorMessage(result)));
+            } else {
+                record.future.complete(null);
+            }
+        }
+    }
+
+    private String toErrorMessage(CompositeSaveResult result) {
+        if (result.errors == null || result.errors.isEmpty()) {
+            return "Unknown error";
+        }
+
+        return result.errors.stream()
+                .map(error -> error.statusCode + ": " + error.message)
+                .collect(Collectors.joining("; "));
+    }
+
+    static class Batch {
+        final String url;
+        final String accessToken;
+        final List<BatchedRecord> records = new ArrayList<>();
+        ScheduledFuture<?> delayed;
+
+        Batch(String url, String accessToken) {
+            this.url = url;
+            this.accessToken = accessToken;
+        }
+    }
+
+    static class BatchedRecord {
+        final String requestId;
+        final String sobjectType;
+        final String recordId;
+        final Map<String, Object> fields;
+        final CompletableFuture<Void> future = new CompletableFuture<>();
+
+        BatchedRecord(String requestId, String sobjectType, String recordId, Map<String, Object> fields) {
+            this.requestId = requestId;
+            this.sobjectType = sobjectType;
+            this.recordId = recordId;
+            this.fields = fields;
+        }
+    }
+}
@@ -0,0 +1,483 @@
+package com.salesforce.functions.proxy.service;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.salesforce.functions.proxy.config.ProxyConfig;
+import com.salesforce.functions.proxy.handler.request.ActivatePermissionSetsHandler;
+import com.salesforce.functions.proxy.handler.request.MintTokenHandler;
+import com.salesforce.functions.proxy.model.AsyncResponseWriteBack;
+import com.salesforce.functions.proxy.model.FunctionRequestContext;
+import com.salesforce.functions.proxy.model.SfContext;
+import com.salesforce.functions.proxy.model.SfFnContext;
+import com.salesforce.functions.proxy.util.Utils;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.ResourceAccessException;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Save async function responses, retrying transient failures.
+ *
+ * Salesforce 5xx responses, timeouts, and record lock contention are retried w/ jittered exponential backoff, up to
+ * the max attempts.  Retries are limited per org by a budget that refills each minute, so that an org that's down or
+ * throttling isn't flooded w/ retries.  Responses that still fail to save are appended to the dead-letter file, if
+ * configured, to be replayed by an admin once the cause is fixed.  Replayed responses are saved w/ a newly minted
+ * function's token.
+ *
+ * Saves complete once the response is either saved or durably dead-lettered, as either way the response isn't lost.
+ */
+@Service
+public class AsyncResponseRetryService implements InitializingBean, DisposableBean {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(AsyncResponseRetryService.class);
+
+    private static final String REPLAY_SUFFIX = ".replay";
+
+    @Autowired
+    ProxyConfig proxyConfig;
+
+    @Autowired
+    AsyncResponseBatchService asyncResponseBatchService;
+
+    @Autowired
+    MintTokenHandler mintTokenHandler;
+
+    @Autowired
+    ActivatePermissionSetsHandler activatePermissionSetsHandler;
+
+    @Autowired
+    MeterRegistry meterRegistry;
+
+    @Autowired
+    Utils utils;
+
+    private final Map<String, RetryBudget> retryBudgets = new ConcurrentHashMap<>();
+    // Responses waiting to be retried
+    private final Map<AsyncResponseWriteBack, CompletableFuture<SaveOutcome>> pendingRetries = new ConcurrentHashMap<>();
+    // Guards the dead-letter file and replaying
+    private final ReentrantLock deadLetterLock = new ReentrantLock();
+    private ScheduledExecutorService scheduler;
+    private Path deadLetterFile;
+    private boolean replaying;
+    private Counter retriesCounter;
+    private Counter deadLetteredCounter;
+
+    @Override
+    public void afterPropertiesSet() {
+        retriesCounter = Counter.builder("proxy.async.writeback.retries")
+                .description("Retried saves of async function responses")
+                .register(meterRegistry);
+        deadLetteredCounter = Counter.builder("proxy.async.writeback.deadlettered")
+                .description("Async function responses that failed to save")
+                .register(meterRegistry);
+
+        scheduler = Executors.newSingleThreadScheduledExecutor(
+                new ThreadFactoryBuilder().setNameFormat("AsyncResponseRetrier-%d").setDaemon(true).build());
+
+        if (!utils.isBlank(proxyConfig.getAsyncWriteBackDeadLetterFile())) {
+            deadLetterFile = Paths.get(proxyConfig.getAsyncWriteBackDeadLetterFile()).toAbsolutePath();
+            try {
+                if (deadLetterFile.getParent() != null) {
+                    Files.createDirectories(deadLetterFile.getParent());
+                }
+            } catch (IOException ex) {
+                throw new RuntimeException("Unable to create async write-back dead-letter directory " +
+                        deadLetterFile.getParent() + ": " + ex.getMessage());
+            }
+            LOGGER.info("Appending async function responses that fail to save to " + deadLetterFile);
+        }
+    }
+
+    @Override
+    public void destroy() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+
+        // Dead-letter, rather than drop, responses waiting to be retried
+        for (AsyncResponseWriteBack writeBack : new ArrayList<>(pendingRetries.keySet())) {
+            CompletableFuture<SaveOutcome> saved = pendingRetries.remove(writeBack);
+            if (saved != null) {
+                deadLetter(writeBack, new RuntimeException("Proxy stopped before retrying save"), saved);
+            }
+        }
+    }
+
+    public boolean isDeadLetterEnabled() {
+        return deadLetterFile != null;
+    }
+
+    /**
+     * Save given function response, retrying transient failures.
+     *
+     * @param writeBack
+     * @return future that completes once the response is saved or dead-lettered, or completes exceptionally w/ the
+     * reason the response wasn't saved if it couldn't be dead-lettered either
+     */
+    public CompletableFuture<SaveOutcome> save(AsyncResponseWriteBack writeBack) {
+        CompletableFuture<SaveOutcome> saved = new CompletableFuture<>();
+        attempt(writeBack, 1, saved);
+        return saved;
+    }
+
+    private void attempt(AsyncResponseWriteBack writeBack, int attempt, CompletableFuture<SaveOutcome> saved) {
+        CompletableFuture<Void> updated;
+        try {
+            updated = asyncResponseBatchService.update(writeBack.getRequestId(),
+                                                       writeBack.getOrgDomainUrl(),
+                                                       writeBack.getApiVersion(),
+                                                       writeBack.getAccessToken(),
+                                                       writeBack.getSobjectType(),
+                                                       writeBack.getRecordId(),
+                                                       writeBack.getFields());
+        } catch (Exception ex) {
+            updated = CompletableFuture.failedFuture(ex);
+        }
+
+        updated.whenComplete((ignored, ex) -> {
+            if (ex == null) {
+                saved.complete(SaveOutcome.SAVED);
+                return;
+            }
+
+            Throwable cause = ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex;
+            if (isRetryable(cause)
+                    && attempt < proxyConfig.getAsyncWriteBackMaxAttempts()
+                    && getRetryBudget(writeBack.getOrgDomainUrl()).tryAcquire()) {
+                long delayMs = getBackoffMs(attempt);
+                utils.warn(LOGGER, writeBack.getRequestId(), "Unable to save function response to " +
+                        writeBack.getSobjectType() + " [" + writeBack.getRecordId() + "] on attempt " + attempt +
+                        "; retrying in " + delayMs + "ms: " + cause.getMessage());
+                retriesCounter.increment();
+                pendingRetries.put(writeBack, saved);
+                try {
+                    scheduler.schedule(() -> {
+                        // Dead-lettered on shutdown
+                        if (pendingRetries.remove(writeBack) != null) {
+                            attempt(writeBack, attempt + 1, saved);
+                        }
+                    }, delayMs, TimeUnit.MILLISECONDS);
+                    return;
+                } catch (RuntimeException scheduleEx) {
+                    pendingRetries.remove(writeBack);
+                }
+            }
+
+            deadLetter(writeBack, cause, saved);
+        });
+    }
+
+    /**
+     * Salesforce 5xx responses, IO errors and timeouts, record lock contention, and a saturated write-back executor
+     * are transient; other failures, eg an expired token or missing access, fail each retry.
+     */
+    boolean isRetryable(Throwable ex) {
+        if (ex instanceof HttpServerErrorException
+                || ex instanceof ResourceAccessException
+                || ex instanceof RejectedExecutionException) {
+            return true;
+        }
+
+        if (ex instanceof HttpClientErrorException) {
+            HttpStatus status = ((HttpClientErrorException) ex).getStatusCode();
+            if (status == HttpStatus.CONFLICT || status == HttpStatus.TOO_MANY_REQUESTS) {
+                return true;
+            }
+        }
+
+        return ex.getMessage() != null && ex.getMessage().contains("UNABLE_TO_LOCK_ROW");
+    }
+
+    /**
+     * Exponential backoff w/ equal jitter: half the exponential delay plus a random portion of the other half, so that
+     * responses that failed together, eg in the same batch, don't retry together.
+     */
+    long getBackoffMs(int attempt) {
+        long exponentialMs = (long) proxyConfig.getAsyncWriteBackRetryBaseDelayMs() << Math.min(attempt - 1, 20);
+        long capMs = Math.min(exponentialMs, proxyConfig.getAsyncWriteBackRetryMaxDelayMs());
+        return capMs / 2 + ThreadLocalRandom.current().nextLong(capMs / 2 + 1);
+    }
+
+    private RetryBudget getRetryBudget(String orgDomainUrl) {
+        return retryBudgets.computeIfAbsent(orgDomainUrl,
+                                            org -> new RetryBudget(proxyConfig.getAsyncWriteBackRetryBudgetPerMinute()));
+    }
+
+    private void deadLetter(AsyncResponseWriteBack writeBack, Throwable ex, CompletableFuture<SaveOutcome> saved) {
+        if (deadLetter(writeBack, ex)) {
+            saved.complete(SaveOutcome.DEAD_LETTERED);
+        } else {
+            saved.completeExceptionally(ex);
+        }
+    }
+
+    /**
+     * Append given function response that failed to save to the dead-letter file.
+     *
+     * @param writeBack
+     * @param ex reason the response failed to save
+     * @return true if the response was durably dead-lettered, false if the dead-letter file isn't configured or
+     * couldn't be written
+     */
+    public boolean deadLetter(AsyncResponseWriteBack writeBack, Throwable ex) {
+        deadLetteredCounter.increment();
+        if (!isDeadLetterEnabled()) {
+            return false;
+        }
+
+        writeBack.setError(ex.getMessage());
+        writeBack.setFailedAtMs(System.currentTimeMillis());
+        try {
+            byte[] line = (utils.toJson(writeBack) + "\n").getBytes(StandardCharsets.UTF_8);
+            deadLetterLock.lock();
+            try {
+                Files.write(deadLetterFile,
+                            line,
+                            StandardOpenOption.CREATE,
+                            StandardOpenOption.APPEND,
+                            StandardOpenOption.DSYNC);
+            } finally {
+                deadLetterLock.unlock();
+            }
+            utils.warn(LOGGER, writeBack.getRequestId(), "Dead-lettered function response to " +
+                    writeBack.getSobjectType() + " [" + writeBack.getRecordId() + "]: " + ex.getMessage());
+            return true;
+        } catch (Exception dlEx) {
+            utils.error(LOGGER, writeBack.getRequestId(), "Unable to dead-letter function response to " +
+                    writeBack.getSobjectType() + " [" + writeBack.getRecordId() + "]: " + dlEx.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Retry saving dead-lettered function responses.  Responses that fail again are dead-lettered again.
+     *
+     * The dead-letter file is moved aside while replaying, so that a replay interrupted, eg by a restart, is resumed by
+     * the next replay.
+     * Responses are replayed on their own thread, as minting their tokens blocks.
+     *
+     * @return future that completes once each dead-lettered response is saved or dead-lettered again
+     * @throws UnsupportedOperationException if the dead-letter file isn't configured
+     * @throws IllegalStateException if already replaying
+     */
+    public CompletableFuture<ReplayResult> replayDeadLetters() {
+        if (!isDeadLetterEnabled()) {
+            throw new UnsupportedOperationException("Async write-back dead-letter file not configured");
+        }
+
+        Path replayFile = deadLetterFile.resolveSibling(deadLetterFile.getFileName() + REPLAY_SUFFIX);
+        List<AsyncResponseWriteBack> writeBacks = new ArrayList<>();
+        deadLetterLock.lock();
+        try {
+            if (replaying) {
+                throw new IllegalStateException("Already replaying dead-lettered function responses");
+            }
+
+            try {
+                // Resume an interrupted replay before replaying responses dead-lettered since
+                if (!Files.exists(replayFile) && Files.exists(deadLetterFile)) {
+                    Files.move(deadLetterFile, replayFile, StandardCopyOption.ATOMIC_MOVE);
+                }
+                if (Files.exists(replayFile)) {
+                    for (String line : Files.readAllLines(replayFile, StandardCharsets.UTF_8)) {
+                        if (!utils.isBlank(line)) {
+                            writeBacks.add(utils.fromJson(line, AsyncResponseWriteBack.class));
+                        }
+                    }
+                }
+            } catch (IOException ex) {
+                throw new RuntimeException("Unable to read dead-lettered function responses: " + ex.getMessage());
+            }
+            replaying = true;
+        } finally {
+            deadLetterLock.unlock();
+        }
+
+        LOGGER.info("Replaying " + writeBacks.size() + " dead-lettered function response(s)");
+        CompletableFuture<ReplayResult> replayed = new CompletableFuture<>();
+        new ThreadFactoryBuilder().setNameFormat("AsyncResponseReplayer-%d").setDaemon(true).build()
+                .newThread(() -> {
+                    try {
+                        int saved = replay(writeBacks);
+                        deleteReplayFile(replayFile);
+                        replayed.complete(new ReplayResult(writeBacks.size(), saved));
+                    } catch (Exception ex) {
+                        // Replay file is kept, so that the next replay resumes
+                        LOGGER.error("Unable to replay dead-lettered function responses: " + ex.getMessage());
+                        replayed.completeExceptionally(ex);
+                    } finally {
+                        deadLetterLock.lock();
+                        try {
+                            replaying = false;
+                        } finally {
+                            deadLetterLock.unlock();
+                        }
+                    }
+                })
+                .start();
+        return replayed;
+    }
+
+    /**
+     * Replay given dead-lettered responses a window of the max concurrent async invocations at a time, so that a
+     * large dead-letter file doesn't flood the write-back executor or the org.
+     *
+     * @param writeBacks
+     * @return count of responses saved
+     */
+    private int replay(List<AsyncResponseWriteBack> writeBacks) {
+        int window = Math.max(1, proxyConfig.getAsyncMaxConcurrentInvocations());
+        AtomicInteger savedCount = new AtomicInteger();
+        for (int i = 0; i < writeBacks.size(); i += window) {
+            List<CompletableFuture<Void>> saves = new ArrayList<>(window);
+            for (AsyncResponseWriteBack writeBack : writeBacks.subList(i, Math.min(i + window, writeBacks.size()))) {
+                writeBack.setError(null);
+                writeBack.setFailedAtMs(0);
+                if (!mintFunctionToken(writeBack)) {
+                    continue;
+                }
+
+                saves.add(save(writeBack).handle((outcome, ex) -> {
+                    if (outcome == SaveOutcome.SAVED) {
+                        savedCount.incrementAndGet();
+                        utils.info(LOGGER, writeBack.getRequestId(), "Replayed function response to " +
+                                writeBack.getSobjectType() + " [" + writeBack.getRecordId() + "]");
+                    }
+                    return null;
+                }));
+            }
+            CompletableFuture.allOf(saves.toArray(new CompletableFuture<?>[0])).join();
+        }
+        return savedCount.get();
+    }
+
+    private void deleteReplayFile(Path replayFile) {
+        deadLetterLock.lock();
+        try {
+            Files.deleteIfExists(replayFile);
+        } catch (IOException ex) {
+            LOGGER.warn("Unable to delete " + replayFile + ": " + ex.getMessage());
+        } finally {
+            deadLetterLock.unlock();
+        }
+    }
+
+    /**
+     * Mint a function's token for given dead-lettered response's org, user and session-based Permission Sets.
+     * Responses whose token can't be minted are dead-lettered again.
+     *
+     * @param writeBack
+     * @return true if the response's token is set
+     */
+    private boolean mintFunctionToken(AsyncResponseWriteBack writeBack) {
+        SfContext.UserContext userContext = new SfContext.UserContext();
+        userContext.setOrgId(writeBack.getOrgId());
+        userContext.setUsername(writeBack.getUsername());
+        userContext.setOrgDomainUrl(writeBack.getOrgDomainUrl());
+        SfContext sfContext = new SfContext();
+        sfContext.setApiVersion(writeBack.getApiVersion());
+        sfContext.setUserContext(userContext);
+        SfFnContext sfFnContext = new SfFnContext();
+        sfFnContext.setPermissionSetS(writeBack.getPermissionSets());
+        FunctionRequestContext functionRequestContext = new FunctionRequestContext(new HttpHeaders(), HttpMethod.POST);
+        functionRequestContext.setRequestId(writeBack.getRequestId());
+        functionRequestContext.setSfContext(sfContext);
+        functionRequestContext.setSfFnContext(sfFnContext);
+
+        try {
+            mintTokenHandler.handle(functionRequestContext);
+            activatePermissionSetsHandler.handle(functionRequestContext);
+        } catch (Exception ex) {
+            utils.error(LOGGER, writeBack.getRequestId(), "Unable to replay function response to " +
+                    writeBack.getSobjectType() + " [" + writeBack.getRecordId() + "]: " + ex.getMessage());
+            deadLetter(writeBack, ex);
+            return false;
+        }
+        writeBack.setAccessToken(sfFnContext.getAccessToken());
+        return true;
+    }
+
+    public enum SaveOutcome {
+        SAVED,
+        DEAD_LETTERED
+    }
+
+    public static class ReplayResult {
+        private final int replayed;
+        private final int saved;
+
+        ReplayResult(int replayed, int saved) {
+            this.replayed = replayed;
+            this.saved = saved;
+        }
+
+        public int getReplayed() {
+            return replayed;
+        }
+
+        public int getSaved() {
+            return saved;
+        }
+    }
+
+    /**
+     * Token bucket of retries, refilled continuously up to the per-minute budget.
+     */
+    static class RetryBudget {
+        private final ReentrantLock lock = new ReentrantLock();
+        private final double capacity;
+        private double tokens;
+        private long refilledNs = System.nanoTime();
+
+        RetryBudget(int perMinute) {
+            this.capacity = perMinute;
+            this.tokens = perMinute;
+        }
+
+        boolean tryAcquire() {
+            lock.lock();
+            try {
+                long nowNs = System.nanoTime();
+                tokens = Math.min(capacity, tokens + capacity * (nowNs - refilledNs) / TimeUnit.MINUTES.toNanos(1));
+                refilledNs = nowNs;
+                if (tokens < 1) {
+                    return false;
+                }
+                tokens--;
+                return true;
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+}
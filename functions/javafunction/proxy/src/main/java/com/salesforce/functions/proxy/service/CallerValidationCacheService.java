@@ -0,0 +1,135 @@
+package com.salesforce.functions.proxy.service;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.hash.Hashing;
+import com.salesforce.functions.proxy.config.ProxyConfig;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Caches caller validation results keyed by a SHA-256 hash of the caller's org domain URL and token; tokens
+ * are not held in memory.
+ *
+ * Successful validations are cached for a short TTL.  Definitive rejections, eg wrong org or a token rejected
+ * by /userinfo, are cached for a shorter TTL so that repeated bad requests don't amplify load on Salesforce.
+ */
+@Service
+public class CallerValidationCacheService implements InitializingBean {
+
+    /**
+     * Cached validation result.  Rejections retain the error message and status code returned to the caller.
+     */
+    public static class CachedValidation {
+        private final boolean valid;
+        private final String message;
+        private final int statusCode;
+        private final long expiresAtMs;
+
+        public CachedValidation(boolean valid, String message, int statusCode, long expiresAtMs) {
+            this.valid = valid;
+            this.message = message;
+            this.statusCode = statusCode;
+            this.expiresAtMs = expiresAtMs;
+        }
+
+        public boolean isValid() {
+            return valid;
+        }
+
+        public String getMessage() {
+            return message;
+        }
+
+        public int getStatusCode() {
+            return statusCode;
+        }
+
+        public boolean isExpired(long nowMs) {
+            return nowMs >= expiresAtMs;
+        }
+    }
+
+    @Autowired
+    ProxyConfig proxyConfig;
+
+    @Autowired
+    MeterRegistry meterRegistry;
+
+    private Cache<String, CachedValidation> cache;
+    private Counter hitCounter;
+    private Counter rejectedHitCounter;
+    private Counter missCounter;
+
+    @Override
+    public void afterPropertiesSet() {
+        cache = CacheBuilder.newBuilder()
+                .maximumSize(proxyConfig.getCallerValidationCacheMaxSize())
+                .expireAfterWrite(proxyConfig.getCallerValidationCacheTtlSeconds(), TimeUnit.SECONDS)
+                .build();
+
+        hitCounter = meterRegistry.counter("proxy.caller.validation.cache.requests", "result", "hit");
+        rejectedHitCounter = meterRegistry.counter("proxy.caller.validation.cache.requests", "result", "rejected");
+        missCounter = meterRegistry.counter("proxy.caller.validation.cache.requests", "result", "miss");
+        Gauge.builder("proxy.caller.validation.cache.size", cache, Cache::size).register(meterRegistry);
+    }
+
+    public boolean isEnabled() {
+        return proxyConfig.isCallerValidationCacheEnabled();
+    }
+
+    /**
+     * @param orgDomainUrl
+     * @param accessToken
+     * @return cache key for given caller's org domain URL and token
+     */
+    public String toKey(String orgDomainUrl, String accessToken) {
+        return Hashing.sha256().hashString(orgDomainUrl + "\n" + accessToken, StandardCharsets.UTF_8).toString();
+    }
+
+    /**
+     * Return unexpired cached validation result, if any.
+     *
+     * @param key
+     * @return
+     */
+    public CachedValidation get(String key) {
+        CachedValidation cachedValidation = cache.getIfPresent(key);
+        if (cachedValidation == null) {
+            missCounter.increment();
+            return null;
+        }
+
+        if (cachedValidation.isExpired(System.currentTimeMillis())) {
+            cache.asMap().remove(key, cachedValidation);
+            missCounter.increment();
+            return null;
+        }
+
+        (cachedValidation.isValid() ? hitCounter : rejectedHitCounter).increment();
+        return cachedValidation;
+    }
+
+    public void putValid(String key) {
+        long expiresAtMs = System.currentTimeMillis()
+                + TimeUnit.SECONDS.toMillis(proxyConfig.getCallerValidationCacheTtlSeconds());
+        cache.put(key, new CachedValidation(true, null, 200, expiresAtMs));
+    }
+
+    public void putRejected(String key, String message, int statusCode) {
+        long expiresAtMs = System.currentTimeMillis()
+                + TimeUnit.SECONDS.toMillis(proxyConfig.getCallerValidationCacheNegativeTtlSeconds());
+        cache.put(key, new CachedValidation(false, message, statusCode, expiresAtMs));
+    }
+
+    public long size() {
+        return cache.size();
+    }
+}
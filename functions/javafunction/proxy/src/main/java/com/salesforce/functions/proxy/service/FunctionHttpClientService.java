@@ -0,0 +1,200 @@
+package com.salesforce.functions.proxy.service;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.salesforce.functions.proxy.config.ProxyConfig;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.conn.ConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.impl.nio.client.CloseableHttpAsyncClient;
+import org.apache.http.impl.nio.client.HttpAsyncClients;
+import org.apache.http.impl.nio.conn.PoolingNHttpClientConnectionManager;
+import org.apache.http.impl.nio.reactor.DefaultConnectingIOReactor;
+import org.apache.http.impl.nio.reactor.IOReactorConfig;
+import org.apache.http.nio.reactor.IOReactorException;
+import org.apache.http.pool.PoolStats;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Pooled HTTP clients for invoking the co-located function.
+ *
+ * Connections to the function are kept alive and reused across invocations rather than re-established per
+ * invocation.  Idle and expired connections are evicted in the background.  Cookies are not retained, as
+ * invocations are on behalf of different callers.
+ *
+ * The blocking client serves health checks and streamed invocations; the non-blocking client serves buffered
+ * /sync and /async invocations w/o holding a thread while the function runs.  Each client pools up to
+ * FUNCTION_CLIENT_MAX_CONNECTIONS connections.
+ */
+@Service
+public class FunctionHttpClientService implements InitializingBean, DisposableBean {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(FunctionHttpClientService.class);
+
+    // Connections idle for longer are validated before reuse, as the function may have closed them
+    private static final int VALIDATE_AFTER_INACTIVITY_MS = 2000;
+
+    @Autowired
+    ProxyConfig proxyConfig;
+
+    @Autowired
+    MeterRegistry meterRegistry;
+
+    PoolingHttpClientConnectionManager connectionManager;
+    private CloseableHttpClient httpClient;
+    private RestTemplate restTemplate;
+    PoolingNHttpClientConnectionManager asyncConnectionManager;
+    private CloseableHttpAsyncClient asyncHttpClient;
+    private ScheduledExecutorService asyncEvictor;
+
+    @Override
+    public void afterPropertiesSet() {
+        int maxConnections = proxyConfig.getFunctionClientMaxConnections();
+        long idleTimeoutMs = TimeUnit.SECONDS.toMillis(proxyConfig.getFunctionClientIdleTimeoutSeconds());
+
+        connectionManager = new PoolingHttpClientConnectionManager();
+        // All connections are to the function
+        connectionManager.setMaxTotal(maxConnections);
+        connectionManager.setDefaultMaxPerRoute(maxConnections);
+        connectionManager.setValidateAfterInactivity(VALIDATE_AFTER_INACTIVITY_MS);
+
+        RequestConfig requestConfig = RequestConfig.custom()
+                .setConnectTimeout(proxyConfig.getFunctionClientConnectTimeoutMs())
+                .setConnectionRequestTimeout(proxyConfig.getFunctionClientConnectTimeoutMs())
+                .setSocketTimeout(proxyConfig.getFunctionClientReadTimeoutMs())
+                .build();
+
+        // Keep connections alive no longer than the function allows, if specified, or the idle timeout
+        ConnectionKeepAliveStrategy keepAliveStrategy = (response, context) -> {
+            long keepAliveMs = DefaultConnectionKeepAliveStrategy.INSTANCE.getKeepAliveDuration(response, context);
+            return keepAliveMs > 0 ? Math.min(keepAliveMs, idleTimeoutMs) : idleTimeoutMs;
+        };
+
+        httpClient = HttpClients.custom()
+                .setConnectionManager(connectionManager)
+                .setDefaultRequestConfig(requestConfig)
+                .setKeepAliveStrategy(keepAliveStrategy)
+                .evictExpiredConnections()
+                .evictIdleConnections(idleTimeoutMs, TimeUnit.MILLISECONDS)
+                .disableCookieManagement()
+                .disableContentCompression()
+                .build();
+        restTemplate = new RestTemplate(new HttpComponentsClientHttpRequestFactory(httpClient));
+
+        try {
+            asyncConnectionManager = new PoolingNHttpClientConnectionManager(
+                    new DefaultConnectingIOReactor(IOReactorConfig.DEFAULT,
+                            new ThreadFactoryBuilder().setNameFormat("FunctionClientIO-%d").setDaemon(true).build()));
+        } catch (IOReactorException ex) {
+            throw new RuntimeException("Unable to create function HTTP client: " + ex.getMessage(), ex);
+        }
+        asyncConnectionManager.setMaxTotal(maxConnections);
+        asyncConnectionManager.setDefaultMaxPerRoute(maxConnections);
+
+        asyncHttpClient = HttpAsyncClients.custom()
+                .setConnectionManager(asyncConnectionManager)
+                .setDefaultRequestConfig(requestConfig)
+                .setKeepAliveStrategy(keepAliveStrategy)
+                .disableCookieManagement()
+                .build();
+        asyncHttpClient.start();
+
+        // Unlike the blocking client, the non-blocking client doesn't evict idle connections itself
+        asyncEvictor = Executors.newSingleThreadScheduledExecutor(
+                new ThreadFactoryBuilder().setNameFormat("FunctionClientEvictor-%d").setDaemon(true).build());
+        long evictPeriodMs = Math.max(idleTimeoutMs, 1000);
+        asyncEvictor.scheduleWithFixedDelay(() -> {
+            asyncConnectionManager.closeExpiredConnections();
+            asyncConnectionManager.closeIdleConnections(idleTimeoutMs, TimeUnit.MILLISECONDS);
+        }, evictPeriodMs, evictPeriodMs, TimeUnit.MILLISECONDS);
+
+        registerGauges("blocking", connectionManager::getTotalStats);
+        registerGauges("nonblocking", asyncConnectionManager::getTotalStats);
+
+        LOGGER.info("Pooling up to " + maxConnections + " keep-alive connections to function " +
+                proxyConfig.getFunctionUrl());
+    }
+
+    private void registerGauges(String client, Supplier<PoolStats> stats) {
+        // Suppliers are only referenced by the gauges, so are held strongly rather than collected
+        Gauge.builder("proxy.function.client.connections", stats, s -> s.get().getLeased())
+                .strongReference(true)
+                .tag("client", client)
+                .tag("state", "leased")
+                .register(meterRegistry);
+        Gauge.builder("proxy.function.client.connections", stats, s -> s.get().getAvailable())
+                .strongReference(true)
+                .tag("client", client)
+                .tag("state", "idle")
+                .register(meterRegistry);
+        Gauge.builder("proxy.function.client.pending", stats, s -> s.get().getPending())
+                .strongReference(true)
+                .tag("client", client)
+                .register(meterRegistry);
+        Gauge.builder("proxy.function.client.max", stats, s -> s.get().getMax())
+                .strongReference(true)
+                .tag("client", client)
+                .register(meterRegistry);
+    }
+
+    @Override
+    public void destroy() {
+        if (asyncEvictor != null) {
+            asyncEvictor.shutdownNow();
+        }
+
+        close(httpClient);
+        close(asyncHttpClient);
+    }
+
+    private void close(Closeable client) {
+        if (client == null) {
+            return;
+        }
+
+        try {
+            client.close();
+        } catch (IOException ex) {
+            LOGGER.warn("Unable to close function HTTP client: " + ex.getMessage());
+        }
+    }
+
+    /**
+     * @return client that invokes the function over pooled connections
+     */
+    public CloseableHttpClient getHttpClient() {
+        return httpClient;
+    }
+
+    /**
+     * @return non-blocking client that invokes the function over pooled connections
+     */
+    public CloseableHttpAsyncClient getAsyncHttpClient() {
+        return asyncHttpClient;
+    }
+
+    /**
+     * @return RestTemplate that invokes the function over pooled connections
+     */
+    public RestTemplate getRestTemplate() {
+        return restTemplate;
+    }
+}
@@ -0,0 +1,163 @@
+package com.salesforce.functions.proxy.service;
+
+import com.salesforce.functions.proxy.config.ProxyConfig;
+import com.salesforce.functions.proxy.model.FunctionWorker;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static com.salesforce.functions.proxy.util.Constants.HEADER_HEALTH_CHECK;
+
+/**
+ * Waits for started function workers to be ready, ie to respond to health checks.
+ *
+ * Workers are polled w/ exponential backoff, so that readiness is detected soon after the function boots, until
+ * the startup deadline.  Waiting fails as soon as a worker's process exits.  A restarting worker that's ready again
+ * is returned to the pool.
+ */
+@Service
+public class FunctionReadinessService implements InitializingBean {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(FunctionReadinessService.class);
+
+    static final long INITIAL_BACKOFF_MS = 25;
+    static final long MAX_BACKOFF_MS = 1000;
+    private static final int PROBE_TIMEOUT_MS = 2000;
+
+    @Autowired
+    ProxyConfig proxyConfig;
+
+    @Autowired
+    MeterRegistry meterRegistry;
+
+    private HttpClient httpClient;
+    private Timer readyTimer;
+
+    @Override
+    public void afterPropertiesSet() {
+        httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofMillis(PROBE_TIMEOUT_MS))
+                .build();
+        readyTimer = Timer.builder("proxy.function.startup")
+                .description("Time from function start until ready")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Wait for given workers to be ready.
+     *
+     * @param workers
+     * @throws RuntimeException if a worker's process exits or a worker isn't ready by the startup deadline
+     * @throws InterruptedException
+     */
+    public void awaitReady(List<FunctionWorker> workers) throws InterruptedException {
+        long startNs = System.nanoTime();
+        long deadlineNs = startNs + TimeUnit.MILLISECONDS.toNanos(proxyConfig.getFunctionStartupTimeoutMs());
+        for (FunctionWorker worker : workers) {
+            awaitReady(worker, deadlineNs);
+        }
+        long elapsedNs = System.nanoTime() - startNs;
+        readyTimer.record(elapsedNs, TimeUnit.NANOSECONDS);
+        LOGGER.info("Function ready in " + TimeUnit.NANOSECONDS.toMillis(elapsedNs) + "ms");
+    }
+
+    private void awaitReady(FunctionWorker worker, long deadlineNs) throws InterruptedException {
+        long backoffMs = INITIAL_BACKOFF_MS;
+        String lastError = "not probed";
+        while (true) {
+            Integer exitCode = worker.getExitCode();
+            if (exitCode != null || !worker.isAlive()) {
+                throw new RuntimeException("Function worker " + worker.getIndex() + " exited" +
+                        (exitCode != null ? " w/ exit code " + exitCode : "") + " before ready");
+            }
+
+            long remainingMs = TimeUnit.NANOSECONDS.toMillis(deadlineNs - System.nanoTime());
+            if (remainingMs <= 0) {
+                throw new RuntimeException("Function worker " + worker.getIndex() + " not ready after " +
+                        proxyConfig.getFunctionStartupTimeoutMs() + "ms: " + lastError);
+            }
+
+            try {
+                int timeoutMs = (int) Math.min(PROBE_TIMEOUT_MS, remainingMs);
+                // Cheap check that the function is listening before sending a health check
+                URI uri = URI.create(worker.getUrl());
+                int port = uri.getPort() != -1 ? uri.getPort() : 80;
+                try (Socket socket = new Socket()) {
+                    socket.connect(new InetSocketAddress(uri.getHost(), port), timeoutMs);
+                }
+
+                int statusCode = sendHealthCheck(uri, timeoutMs);
+                if (statusCode == HttpStatus.OK.value()) {
+                    worker.setRestarting(false);
+                    return;
+                }
+                lastError = "health check response [" + statusCode + "]";
+            } catch (IOException ex) {
+                lastError = ex.getClass().getSimpleName() + ": " + ex.getMessage();
+            }
+
+            remainingMs = TimeUnit.NANOSECONDS.toMillis(deadlineNs - System.nanoTime());
+            Thread.sleep(Math.max(1, Math.min(backoffMs, remainingMs)));
+            backoffMs = Math.min(backoffMs * 2, MAX_BACKOFF_MS);
+        }
+    }
+
+    /**
+     * Warm given ready worker, eg a standby, w/ health check requests so that its first invocations aren't slowed
+     * by class loading and JIT compilation.
+     *
+     * @param worker
+     * @param requests
+     * @throws InterruptedException
+     */
+    public void warmUp(FunctionWorker worker, int requests) throws InterruptedException {
+        long startMs = System.currentTimeMillis();
+        URI uri = URI.create(worker.getUrl());
+        int warmed = 0;
+        int sent = 0;
+        int ioErrors = 0;
+        while (sent < requests) {
+            try {
+                if (sendHealthCheck(uri, PROBE_TIMEOUT_MS) == HttpStatus.OK.value()) {
+                    warmed++;
+                }
+                sent++;
+            } catch (IOException ex) {
+                // Eg, a kept-alive connection closed by the function, as the client doesn't retry POSTs.  Retry
+                // unless the function's gone.
+                if (!worker.isAlive() || ++ioErrors >= requests) {
+                    LOGGER.warn("Unable to warm function worker " + worker.getIndex() + ": " + ex.getMessage());
+                    return;
+                }
+            }
+        }
+        LOGGER.info("Warmed function worker " + worker.getIndex() + " w/ " + warmed + " health check(s) in " +
+                (System.currentTimeMillis() - startMs) + "ms");
+    }
+
+    private int sendHealthCheck(URI uri, int timeoutMs) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(uri)
+                .timeout(Duration.ofMillis(timeoutMs))
+                .header(HEADER_HEALTH_CHECK, "true")
+                .POST(HttpRequest.BodyPublishers.noBody())
+                .build();
+        return httpClient.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+    }
+}
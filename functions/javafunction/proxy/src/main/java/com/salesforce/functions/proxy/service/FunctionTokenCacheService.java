@@ -0,0 +1,324 @@
+package com.salesforce.functions.proxy.service;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Ordering;
+import com.salesforce.functions.proxy.config.ProxyConfig;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Caches minted function tokens for a given signature: org, user, Connected App (consumer key), audience
+ * and session-based Permission Set(s).  Tokens are held until shortly before they're expected to expire.
+ *
+ * The cache is bounded by size (least-recently-used entries are evicted first) and by TTL.
+ */
+@Service
+public class FunctionTokenCacheService implements InitializingBean {
+
+    /**
+     * Function token signature.  Permission Sets are sorted so that ordering does not matter.
+     */
+    public static class Key {
+        private final String orgId;
+        private final String username;
+        private final String consumerKey;
+        private final String audience;
+        private final List<String> permissionSets;
+
+        public Key(String orgId, String username, String consumerKey, String audience, List<String> permissionSets) {
+            this.orgId = orgId;
+            this.username = username;
+            this.consumerKey = consumerKey;
+            this.audience = audience;
+            this.permissionSets = permissionSets != null
+                    ? Ordering.natural().immutableSortedCopy(permissionSets) : ImmutableList.of();
+        }
+
+        public String getOrgId() {
+            return orgId;
+        }
+
+        public String getUsername() {
+            return username;
+        }
+
+        public String getConsumerKey() {
+            return consumerKey;
+        }
+
+        public String getAudience() {
+            return audience;
+        }
+
+        public List<String> getPermissionSets() {
+            return permissionSets;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            Key key = (Key) o;
+            return Objects.equals(orgId, key.orgId)
+                    && Objects.equals(username, key.username)
+                    && Objects.equals(consumerKey, key.consumerKey)
+                    && Objects.equals(audience, key.audience)
+                    && permissionSets.equals(key.permissionSets);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(orgId, username, consumerKey, audience, permissionSets);
+        }
+
+        @Override
+        public String toString() {
+            return orgId + ":" + username + ":" + audience + ":" + String.join(",", permissionSets);
+        }
+    }
+
+    /**
+     * Cached function token, when it was minted and is considered expired, and when it was last used.
+     */
+    public static class CachedToken {
+        private final String accessToken;
+        private final String orgDomainUrl;
+        private final long mintedAtMs;
+        private final long expiresAtMs;
+        private volatile long lastAccessedMs;
+
+        public CachedToken(String accessToken, String orgDomainUrl, long mintedAtMs, long expiresAtMs) {
+            this.accessToken = accessToken;
+            this.orgDomainUrl = orgDomainUrl;
+            this.mintedAtMs = mintedAtMs;
+            this.expiresAtMs = expiresAtMs;
+            this.lastAccessedMs = mintedAtMs;
+        }
+
+        public String getAccessToken() {
+            return accessToken;
+        }
+
+        public String getOrgDomainUrl() {
+            return orgDomainUrl;
+        }
+
+        public long getMintedAtMs() {
+            return mintedAtMs;
+        }
+
+        public long getExpiresAtMs() {
+            return expiresAtMs;
+        }
+
+        public long getLastAccessedMs() {
+            return lastAccessedMs;
+        }
+
+        public boolean isExpired(long nowMs) {
+            return nowMs >= expiresAtMs;
+        }
+
+        /**
+         * @param nowMs
+         * @param lifetimeFraction fraction of the token's lifetime after which the token should be refreshed
+         * @return true if given fraction of the token's lifetime has elapsed
+         */
+        public boolean isDueForRefresh(long nowMs, double lifetimeFraction) {
+            return nowMs >= mintedAtMs + (long) ((expiresAtMs - mintedAtMs) * lifetimeFraction);
+        }
+    }
+
+    @Autowired
+    ProxyConfig proxyConfig;
+
+    @Autowired
+    MeterRegistry meterRegistry;
+
+    private Cache<Key, CachedToken> cache;
+    private Counter hitCounter;
+    private Counter missCounter;
+    private Counter expiredCounter;
+    private Counter coalescedMintCounter;
+    private Timer mintTimer;
+
+    @Override
+    public void afterPropertiesSet() {
+        cache = CacheBuilder.newBuilder()
+                .maximumSize(proxyConfig.getTokenCacheMaxSize())
+                .expireAfterWrite(proxyConfig.getTokenCacheTtlSeconds(), TimeUnit.SECONDS)
+                .build();
+
+        hitCounter = meterRegistry.counter("proxy.token.cache.requests", "result", "hit");
+        missCounter = meterRegistry.counter("proxy.token.cache.requests", "result", "miss");
+        expiredCounter = meterRegistry.counter("proxy.token.cache.requests", "result", "expired");
+        coalescedMintCounter = meterRegistry.counter("proxy.token.mint.coalesced");
+        mintTimer = meterRegistry.timer("proxy.token.mint");
+        Gauge.builder("proxy.token.cache.size", cache, Cache::size).register(meterRegistry);
+    }
+
+    public boolean isEnabled() {
+        return proxyConfig.isTokenCacheEnabled();
+    }
+
+    /**
+     * Return unexpired cached token for given signature, if any.
+     *
+     * @param key
+     * @return
+     */
+    public CachedToken get(Key key) {
+        CachedToken cachedToken = cache.getIfPresent(key);
+        if (cachedToken == null) {
+            missCounter.increment();
+            return null;
+        }
+
+        if (cachedToken.isExpired(System.currentTimeMillis())) {
+            cache.asMap().remove(key, cachedToken);
+            expiredCounter.increment();
+            missCounter.increment();
+            return null;
+        }
+
+        cachedToken.lastAccessedMs = System.currentTimeMillis();
+        hitCounter.increment();
+        return cachedToken;
+    }
+
+    /**
+     * Return unexpired cached token for given signature, if any, w/o recording cache statistics.
+     *
+     * @param key
+     * @return
+     */
+    public CachedToken peek(Key key) {
+        CachedToken cachedToken = cache.getIfPresent(key);
+        return cachedToken != null && !cachedToken.isExpired(System.currentTimeMillis()) ? cachedToken : null;
+    }
+
+    /**
+     * Cache given token.  If replacing a cached token, eg on refresh, the previous entry's last access time is
+     * retained so that refreshing does not keep idle tokens alive.
+     *
+     * @param key
+     * @param accessToken
+     * @param orgDomainUrl
+     * @param expiresAtMs
+     * @return
+     */
+    public CachedToken put(Key key, String accessToken, String orgDomainUrl, long expiresAtMs) {
+        long nowMs = System.currentTimeMillis();
+        CachedToken existing = cache.getIfPresent(key);
+        long mintedAtMs = existing != null && existing.accessToken.equals(accessToken) ? existing.mintedAtMs : nowMs;
+        CachedToken cachedToken = new CachedToken(accessToken, orgDomainUrl, mintedAtMs, expiresAtMs);
+        if (existing != null) {
+            cachedToken.lastAccessedMs = existing.lastAccessedMs;
+        }
+        cache.put(key, cachedToken);
+        return cachedToken;
+    }
+
+    public void invalidate(Key key) {
+        cache.invalidate(key);
+    }
+
+    /**
+     * Invalidate given token only if it's still the cached token for given signature.
+     *
+     * @param key
+     * @param cachedToken
+     * @return true if invalidated
+     */
+    public boolean invalidate(Key key, CachedToken cachedToken) {
+        return cache.asMap().remove(key, cachedToken);
+    }
+
+    /**
+     * @return live view of cached tokens
+     */
+    public Map<Key, CachedToken> asMap() {
+        return cache.asMap();
+    }
+
+    /**
+     * Default expiration for a newly minted token.  Salesforce does not return the token's lifetime on
+     * token exchange, so expire at configured TTL less skew.
+     *
+     * @param nowMs
+     * @return
+     */
+    public long computeExpiresAtMs(long nowMs) {
+        return nowMs + TimeUnit.SECONDS.toMillis(proxyConfig.getTokenCacheTtlSeconds())
+                - TimeUnit.SECONDS.toMillis(proxyConfig.getTokenCacheExpirySkewSeconds());
+    }
+
+    /**
+     * Expiration given a token's 'exp' claim, eg from /oauth2/introspect, in seconds since epoch.
+     *
+     * @param expSeconds
+     * @return
+     */
+    public long computeExpiresAtMsFromExp(long expSeconds) {
+        return TimeUnit.SECONDS.toMillis(expSeconds)
+                - TimeUnit.SECONDS.toMillis(proxyConfig.getTokenCacheExpirySkewSeconds());
+    }
+
+    public void recordMint(long durationMs) {
+        mintTimer.record(durationMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Record a mint that was satisfied by a concurrent, in-flight mint for the same signature.
+     */
+    public void recordCoalescedMint() {
+        coalescedMintCounter.increment();
+    }
+
+    public long size() {
+        return cache.size();
+    }
+
+    public long getHitCount() {
+        return (long) hitCounter.count();
+    }
+
+    public long getMissCount() {
+        return (long) missCounter.count();
+    }
+
+    /**
+     * Estimated time saved by cache hits, based on average mint latency.
+     *
+     * @return
+     */
+    public long getEstimatedSavedMs() {
+        return (long) (getHitCount() * mintTimer.mean(TimeUnit.MILLISECONDS));
+    }
+
+    public long getCoalescedMintCount() {
+        return (long) coalescedMintCounter.count();
+    }
+
+    public String getStats() {
+        return "hits " + getHitCount() + ", misses " + getMissCount() + ", coalesced " + getCoalescedMintCount() +
+                ", size " + size() +
+                ", ~" + getEstimatedSavedMs() + "ms saved";
+    }
+}
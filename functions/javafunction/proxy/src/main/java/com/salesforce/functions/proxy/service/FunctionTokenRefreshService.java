@@ -0,0 +1,138 @@
+package com.salesforce.functions.proxy.service;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.salesforce.functions.proxy.config.ProxyConfig;
+import com.salesforce.functions.proxy.handler.request.MintTokenHandler;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Proactively re-mints cached function tokens that are in active use so that steady callers don't wait on
+ * token exchange when their token expires.
+ *
+ * Tokens are refreshed once a configured fraction of their lifetime has elapsed.  Tokens that have not been
+ * used within the configured idle threshold are dropped instead of refreshed.
+ */
+@Service
+public class FunctionTokenRefreshService implements InitializingBean, DisposableBean {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(FunctionTokenRefreshService.class);
+
+    @Autowired
+    ProxyConfig proxyConfig;
+
+    @Autowired
+    FunctionTokenCacheService functionTokenCacheService;
+
+    @Autowired
+    MintTokenHandler mintTokenHandler;
+
+    @Autowired
+    MeterRegistry meterRegistry;
+
+    private final Set<FunctionTokenCacheService.Key> pendingRefreshes = ConcurrentHashMap.newKeySet();
+    ScheduledExecutorService scheduledExecutorService;
+    private Counter refreshedCounter;
+    private Counter refreshFailedCounter;
+    private Counter idleDroppedCounter;
+
+    @Override
+    public void afterPropertiesSet() {
+        refreshedCounter = meterRegistry.counter("proxy.token.refresh", "result", "success");
+        refreshFailedCounter = meterRegistry.counter("proxy.token.refresh", "result", "failure");
+        idleDroppedCounter = meterRegistry.counter("proxy.token.refresh.idle.dropped");
+
+        if (!proxyConfig.isTokenCacheEnabled() || !proxyConfig.isTokenRefreshEnabled()) {
+            LOGGER.info("Function token refresh disabled");
+            return;
+        }
+
+        scheduledExecutorService = Executors.newScheduledThreadPool(proxyConfig.getTokenRefreshPoolSize(),
+                new ThreadFactoryBuilder().setNameFormat("FunctionTokenRefresher-%d").setDaemon(true).build());
+        long intervalSeconds = proxyConfig.getTokenRefreshIntervalSeconds();
+        scheduledExecutorService.scheduleWithFixedDelay(this::refreshTokens,
+                                                        intervalSeconds,
+                                                        intervalSeconds,
+                                                        TimeUnit.SECONDS);
+        LOGGER.info("Refreshing function tokens every " + intervalSeconds + "s at " +
+                (int) (proxyConfig.getTokenRefreshLifetimeFraction() * 100) + "% of their lifetime");
+    }
+
+    @Override
+    public void destroy() {
+        if (scheduledExecutorService != null) {
+            scheduledExecutorService.shutdownNow();
+        }
+    }
+
+    /**
+     * Drop idle tokens and schedule refresh of active tokens that are due.
+     */
+    void refreshTokens() {
+        long nowMs = System.currentTimeMillis();
+        long idleMs = TimeUnit.SECONDS.toMillis(proxyConfig.getTokenRefreshIdleSeconds());
+        double lifetimeFraction = proxyConfig.getTokenRefreshLifetimeFraction();
+
+        try {
+            for (Map.Entry<FunctionTokenCacheService.Key, FunctionTokenCacheService.CachedToken> entry
+                    : functionTokenCacheService.asMap().entrySet()) {
+                FunctionTokenCacheService.Key key = entry.getKey();
+                FunctionTokenCacheService.CachedToken cachedToken = entry.getValue();
+
+                if (nowMs - cachedToken.getLastAccessedMs() > idleMs) {
+                    if (functionTokenCacheService.invalidate(key, cachedToken)) {
+                        idleDroppedCounter.increment();
+                        LOGGER.debug("Dropped idle function token " + key);
+                    }
+                    continue;
+                }
+
+                if (cachedToken.isDueForRefresh(nowMs, lifetimeFraction) && pendingRefreshes.add(key)) {
+                    try {
+                        scheduledExecutorService.execute(() -> refreshToken(key));
+                    } catch (RejectedExecutionException ex) {
+                        pendingRefreshes.remove(key);
+                    }
+                }
+            }
+        } catch (Exception ex) {
+            // Don't let an unexpected failure cancel subsequent runs
+            LOGGER.warn("Unable to refresh function tokens: " + ex.getMessage());
+        }
+    }
+
+    private void refreshToken(FunctionTokenCacheService.Key key) {
+        String requestId = "token-refresh-" + System.currentTimeMillis();
+        try {
+            // Re-check: token may have been re-minted, dropped or evicted since scheduled
+            FunctionTokenCacheService.CachedToken cachedToken = functionTokenCacheService.asMap().get(key);
+            if (cachedToken == null
+                    || !cachedToken.isDueForRefresh(System.currentTimeMillis(), proxyConfig.getTokenRefreshLifetimeFraction())) {
+                return;
+            }
+
+            mintTokenHandler.refreshToken(requestId, key, cachedToken.getOrgDomainUrl());
+            refreshedCounter.increment();
+        } catch (Exception ex) {
+            // Cached token remains usable until it expires
+            refreshFailedCounter.increment();
+            LOGGER.warn("[" + requestId + "]: Unable to refresh function token for " + key + ": " + ex.getMessage());
+        } finally {
+            pendingRefreshes.remove(key);
+        }
+    }
+}
@@ -0,0 +1,179 @@
+package com.salesforce.functions.proxy.service;
+
+import com.salesforce.functions.proxy.config.ProxyConfig;
+import com.salesforce.functions.proxy.model.FunctionWorker;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.OperatingSystemMXBean;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Pool of function processes, each listening on its own port, that invocations are balanced across.
+ *
+ * Invocations go to the live, ready worker w/ the fewest outstanding requests.  Ties are broken round-robin so that
+ * idle workers share load evenly.  The first worker listens on the configured function port and URL; others on
+ * consecutive ports.
+ */
+@Service
+public class FunctionWorkerPoolService implements InitializingBean {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(FunctionWorkerPoolService.class);
+
+    private static final long MB = 1024 * 1024;
+
+    @Autowired
+    ProxyConfig proxyConfig;
+
+    @Autowired
+    MeterRegistry meterRegistry;
+
+    private volatile List<FunctionWorker> workers;
+    private FunctionWorker standby;
+    private final AtomicInteger nextWorker = new AtomicInteger();
+
+    @Override
+    public void afterPropertiesSet() {
+        int size = sizeWorkers();
+        int basePort = StringUtils.hasText(proxyConfig.getFunctionPort())
+                ? Integer.parseInt(proxyConfig.getFunctionPort()) : -1;
+        List<FunctionWorker> workers = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            workers.add(createWorker(i, basePort));
+            // Gauges the worker at the index, as workers are replaced on redeploy
+            int index = i;
+            Gauge.builder("proxy.function.worker.outstanding", this,
+                          pool -> pool.getWorkers().get(index).getOutstandingRequests())
+                    .tag("worker", String.valueOf(i))
+                    .register(meterRegistry);
+        }
+        this.workers = Collections.unmodifiableList(workers);
+        Gauge.builder("proxy.function.workers.alive", this, pool -> pool.getWorkers().stream().filter(FunctionWorker::isAlive).count())
+                .register(meterRegistry);
+
+        LOGGER.info("Balancing function invocations across " + size + " function worker(s)");
+
+        if (proxyConfig.isFunctionStandbyEnabled() && !proxyConfig.isEmbeddedFunctionEnabled()) {
+            // Standby listens on the port after the workers' ports
+            standby = createWorker(size, basePort);
+            LOGGER.info("Running standby function process on port " + standby.getPort());
+        }
+    }
+
+    private FunctionWorker createWorker(int index, int basePort) {
+        String url = index == 0
+                ? proxyConfig.getFunctionUrl()
+                : UriComponentsBuilder.fromHttpUrl(proxyConfig.getFunctionUrl()).port(basePort + index).toUriString();
+        return new FunctionWorker(index, basePort + index, url);
+    }
+
+    public List<FunctionWorker> getWorkers() {
+        return workers;
+    }
+
+    /**
+     * Replace given worker, eg w/ a worker running updated function code.  Invocations in flight on the replaced
+     * worker complete on that worker.
+     *
+     * @param worker
+     * @param replacement worker w/ the same index
+     */
+    public synchronized void replaceWorker(FunctionWorker worker, FunctionWorker replacement) {
+        List<FunctionWorker> workers = new ArrayList<>(this.workers);
+        if (workers.get(replacement.getIndex()) != worker) {
+            throw new IllegalStateException("Function worker " + replacement.getIndex() + " already replaced");
+        }
+
+        workers.set(replacement.getIndex(), replacement);
+        this.workers = Collections.unmodifiableList(workers);
+    }
+
+    /**
+     * @return warm standby that takes over from a worker whose process exits, or null if not enabled
+     */
+    public FunctionWorker getStandby() {
+        return standby;
+    }
+
+    /**
+     * Select the live worker w/ the fewest outstanding requests, counting the caller's request.  Callers must
+     * release the worker once the worker has responded.
+     *
+     * @return worker; if none are alive, a worker is returned regardless so that the invocation fails as it would
+     *         have w/o a pool
+     * @throws ResponseStatusException w/ 503 status if no worker is available because workers are restarting
+     */
+    public FunctionWorker acquire() {
+        List<FunctionWorker> workers = this.workers;
+        int start = Math.floorMod(nextWorker.getAndIncrement(), workers.size());
+        FunctionWorker selected = null;
+        for (int i = 0; i < workers.size(); i++) {
+            FunctionWorker worker = workers.get((start + i) % workers.size());
+            if (!worker.isAlive() || worker.isRestarting()) {
+                continue;
+            }
+            if (selected == null || worker.getOutstandingRequests() < selected.getOutstandingRequests()) {
+                selected = worker;
+            }
+        }
+
+        if (selected == null) {
+            if (workers.stream().anyMatch(FunctionWorker::isRestarting)) {
+                // Fail fast, rather than tie up the caller, until the function is back; callers retry 503s
+                throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Function is restarting");
+            }
+            selected = workers.get(start);
+        }
+        selected.incrementOutstandingRequests();
+        return selected;
+    }
+
+    /**
+     * @param worker worker, returned by acquire(), that has responded
+     */
+    public void release(FunctionWorker worker) {
+        worker.decrementOutstandingRequests();
+    }
+
+    int sizeWorkers() {
+        if (proxyConfig.isEmbeddedFunctionEnabled()) {
+            return 1;
+        }
+
+        if (proxyConfig.getFunctionWorkers() > 0) {
+            return proxyConfig.getFunctionWorkers();
+        }
+
+        // Size from CPUs and memory not used by the proxy
+        int cpus = Runtime.getRuntime().availableProcessors();
+        long availableMemory = getTotalMemory() - Runtime.getRuntime().maxMemory();
+        long workersByMemory = availableMemory / (proxyConfig.getFunctionWorkerMemoryMb() * MB);
+        int size = (int) Math.max(1, Math.min(cpus, workersByMemory));
+        LOGGER.info("Sized " + size + " function worker(s) from " + cpus + " CPUs and " + (availableMemory / MB) +
+                "MB available memory");
+        return size;
+    }
+
+    @SuppressWarnings("deprecation")
+    private long getTotalMemory() {
+        OperatingSystemMXBean osBean = ManagementFactory.getOperatingSystemMXBean();
+        if (osBean instanceof com.sun.management.OperatingSystemMXBean) {
+            return ((com.sun.management.OperatingSystemMXBean) osBean).getTotalPhysicalMemorySize();
+        }
+
+        return Runtime.getRuntime().maxMemory();
+    }
+}
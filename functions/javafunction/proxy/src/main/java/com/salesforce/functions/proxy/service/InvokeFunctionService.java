@@ -1,23 +1,43 @@
 package com.salesforce.functions.proxy.service;
 
+import com.google.common.collect.ImmutableSet;
 import com.salesforce.functions.proxy.config.ProxyConfig;
 import com.salesforce.functions.proxy.handler.response.ResponseHandler;
 import com.salesforce.functions.proxy.model.AsyncFunctionInvocationRequest;
 import com.salesforce.functions.proxy.model.FunctionRequestContext;
+import com.salesforce.functions.proxy.model.FunctionWorker;
 import com.salesforce.functions.proxy.model.SfContext;
 import com.salesforce.functions.proxy.model.SfFnContext;
 import com.salesforce.functions.proxy.util.Utils;
+import org.apache.http.Header;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.client.methods.RequestBuilder;
+import org.apache.http.concurrent.FutureCallback;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.util.EntityUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.http.*;
-import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
 import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.HttpStatusCodeException;
+import org.springframework.web.client.ResourceAccessException;
 import org.springframework.web.client.RestTemplate;
 
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.ExecutionException;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
 
 import static com.salesforce.functions.proxy.util.Constants.HEADER_EXTRA_INFO;
 
@@ -29,63 +49,226 @@ public class InvokeFunctionService {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(InvokeFunctionService.class);
 
+    // Headers set by the HTTP client that may not be forwarded
+    static final Set<String> RESTRICTED_HEADERS = ImmutableSet.of("connection",
+                                                                          "content-length",
+                                                                          "content-transfer-encoding",
+                                                                          "date",
+                                                                          "expect",
+                                                                          "from",
+                                                                          "host",
+                                                                          "keep-alive",
+                                                                          "origin",
+                                                                          "referer",
+                                                                          "te",
+                                                                          "trailer",
+                                                                          "transfer-encoding",
+                                                                          "upgrade",
+                                                                          "via",
+                                                                          "warning");
+
     @Autowired
     ProxyConfig proxyConfig;
 
     @Autowired
+    @Qualifier("functionRestTemplate")
     RestTemplate restTemplate;
 
     @Autowired
     Utils utils;
 
+    @Autowired
+    FunctionHttpClientService functionHttpClientService;
+
+    @Autowired
+    FunctionWorkerPoolService functionWorkerPoolService;
+
+    // Handles async function responses, eg saving responses to Salesforce, but doesn't wait on functions
+    @Autowired
+    @Qualifier("asyncExecutor")
+    Executor asyncExecutor;
+
     /**
-     * Invoke function synchronously.
+     * Invoke function synchronously w/o blocking the calling thread while the function runs.
+     *
+     * The function's 4xx responses are returned and 5xx responses complete the returned future exceptionally w/
+     * HttpServerErrorException.
      *
      * @param functionRequestContext
      * @param body
      * @return
      */
-    public ResponseEntity syncInvokeFunction(FunctionRequestContext functionRequestContext, String body) {
-        // Forward request to the function
-        ResponseEntity<String> responseEntity;
-        try {
-            responseEntity = invokeFunction("sync", functionRequestContext, body);
-        } catch (HttpClientErrorException ex) {
-            return ResponseEntity
-                    .status(ex.getStatusCode())
-                    .headers(ex.getResponseHeaders())
-                    .body(ex.getResponseBodyAsString());
-        }
-
-        return responseEntity;
+    public CompletableFuture<ResponseEntity<String>> syncInvokeFunctionAsync(FunctionRequestContext functionRequestContext,
+                                                                             String body) {
+        return sendAsync("sync", functionRequestContext, body)
+                .thenApply(responseEntity -> {
+                    HttpStatus status = HttpStatus.resolve(responseEntity.getStatusCodeValue());
+                    if (status != null && status.is5xxServerError()) {
+                        throw toHttpStatusCodeException(status, responseEntity);
+                    }
+                    return responseEntity;
+                });
     }
 
     /**
      * Invoke function asynchronously.
      *
+     * No thread is held while the function runs: the given handler handles the function's response, or error, on
+     * the async executor once the function responds.  The function's 4xx and 5xx responses are handled as errors.
+     * Responses are never handled on the function client's I/O thread, which would stall every in-flight response:
+     * should the async executor reject the response, the invocation fails instead.
+     *
      * @param functionRequestContext
      * @param body
      * @param responseHandler
+     * @return completed once the handler has handled the function's response, or completed exceptionally if the
+     * response couldn't be handled
      */
-    @Async
-    public void asyncInvokeFunction(FunctionRequestContext functionRequestContext,
-                                    String body,
-                                    ResponseHandler responseHandler) {
+    public CompletableFuture<Void> asyncInvokeFunction(FunctionRequestContext functionRequestContext,
+                                                       String body,
+                                                       ResponseHandler responseHandler) {
         // POST request to the function
-        ResponseEntity<String> responseEntity = null;
+        CompletableFuture<ResponseEntity<String>> future;
         try {
-            CompletableFuture<ResponseEntity<String>> future = CompletableFuture.completedFuture(
-                    invokeFunction("async", functionRequestContext, body));
-            // Wait for response to be fulfilled
-            CompletableFuture.allOf(future);
-            responseEntity = future.get();
+            future = sendAsync("async", functionRequestContext, body);
         } catch (Exception ex) {
-            responseHandler.handleError(functionRequestContext, ex);
-            return;
+            future = CompletableFuture.failedFuture(ex);
         }
 
         // Handle function response
-        responseHandler.handleResponse(functionRequestContext, responseEntity);
+        CompletableFuture<Void> handled = new CompletableFuture<>();
+        future.whenComplete((responseEntity, ex) -> {
+            try {
+                asyncExecutor.execute(() -> {
+                    CompletableFuture<Void> responseHandled;
+                    try {
+                        responseHandled = handleFunctionResponse(functionRequestContext, responseHandler, responseEntity, ex);
+                    } catch (Exception handleEx) {
+                        responseHandled = CompletableFuture.failedFuture(handleEx);
+                    }
+                    responseHandled.whenComplete((ignored, handleEx) -> {
+                        if (handleEx != null) {
+                            handled.completeExceptionally(handleEx);
+                        } else {
+                            handled.complete(null);
+                        }
+                    });
+                });
+            } catch (RejectedExecutionException rejectedEx) {
+                utils.error(LOGGER, functionRequestContext.getRequestId(), "Unable to handle function response: " +
+                        rejectedEx.getMessage());
+                handled.completeExceptionally(rejectedEx);
+            }
+        });
+        return handled;
+    }
+
+    private CompletableFuture<Void> handleFunctionResponse(FunctionRequestContext functionRequestContext,
+                                                           ResponseHandler responseHandler,
+                                                           ResponseEntity<String> responseEntity,
+                                                           Throwable ex) {
+        HttpStatus status = ex == null ? HttpStatus.resolve(responseEntity.getStatusCodeValue()) : null;
+        if (status != null && status.isError()) {
+            ex = toHttpStatusCodeException(status, responseEntity);
+        }
+        if (ex != null) {
+            Throwable cause = ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex;
+            return responseHandler.handleErrorAsync(functionRequestContext,
+                                                    cause instanceof Exception ? (Exception) cause : new RuntimeException(cause));
+        }
+        return responseHandler.handleResponseAsync(functionRequestContext, responseEntity);
+    }
+
+    private CompletableFuture<ResponseEntity<String>> sendAsync(String invocationType,
+                                                                FunctionRequestContext functionRequestContext,
+                                                                String body) {
+        String requestId = functionRequestContext.getRequestId();
+        FunctionWorker worker = functionWorkerPoolService.acquire();
+        String functionUrl = worker.getUrl();
+        utils.info(LOGGER, requestId,"Invoking " + invocationType + " function " + functionUrl + "...");
+        long startMs = System.currentTimeMillis();
+
+        // Waits for a pooled connection, and for the function, w/o holding a thread
+        CompletableFuture<ResponseEntity<String>> future = new CompletableFuture<>();
+        try {
+            functionHttpClientService.getAsyncHttpClient().execute(
+                    toFunctionRequest(functionRequestContext, functionUrl, body),
+                    new FutureCallback<HttpResponse>() {
+                        @Override
+                        public void completed(HttpResponse response) {
+                            try {
+                                future.complete(toResponseEntity(response));
+                            } catch (IOException ex) {
+                                failed(ex);
+                            }
+                        }
+
+                        @Override
+                        public void failed(Exception ex) {
+                            future.completeExceptionally(new ResourceAccessException("I/O error on " +
+                                    functionRequestContext.getMethod() + " request for \"" + functionUrl + "\": " +
+                                    ex.getMessage(), ex instanceof IOException ? (IOException) ex : new IOException(ex)));
+                        }
+
+                        @Override
+                        public void cancelled() {
+                            failed(new IOException("Request cancelled"));
+                        }
+                    });
+        } catch (RuntimeException ex) {
+            functionWorkerPoolService.release(worker);
+            throw ex;
+        }
+
+        return future.whenComplete((responseEntity, ex) -> {
+            functionWorkerPoolService.release(worker);
+            utils.info(LOGGER, requestId,"Invoked function " + functionUrl + " in " +
+                    (System.currentTimeMillis() - startMs) + "ms");
+        });
+    }
+
+    private HttpUriRequest toFunctionRequest(FunctionRequestContext functionRequestContext,
+                                             String functionUrl,
+                                             String body) {
+        HttpHeaders headers = functionRequestContext.getHeaders();
+        MediaType contentType = headers.getContentType();
+        Charset charset = contentType != null && contentType.getCharset() != null
+                ? contentType.getCharset() : StandardCharsets.UTF_8;
+        RequestBuilder requestBuilder = RequestBuilder.create(functionRequestContext.getMethod().name())
+                .setUri(functionUrl);
+        if (body != null) {
+            requestBuilder.setEntity(new ByteArrayEntity(body.getBytes(charset)));
+        }
+        for (Map.Entry<String, List<String>> header : toFunctionHeaders(headers).entrySet()) {
+            for (String value : header.getValue()) {
+                requestBuilder.addHeader(header.getKey(), value);
+            }
+        }
+        return requestBuilder.build();
+    }
+
+    private ResponseEntity<String> toResponseEntity(HttpResponse response) throws IOException {
+        HttpHeaders responseHeaders = new HttpHeaders();
+        for (Header header : response.getAllHeaders()) {
+            responseHeaders.add(header.getName(), header.getValue());
+        }
+        String responseBody = response.getEntity() != null
+                ? EntityUtils.toString(response.getEntity(), StandardCharsets.UTF_8) : null;
+        return ResponseEntity
+                .status(response.getStatusLine().getStatusCode())
+                .headers(responseHeaders)
+                .body(responseBody);
+    }
+
+    // As thrown by RestTemplate for error responses
+    private HttpStatusCodeException toHttpStatusCodeException(HttpStatus status, ResponseEntity<String> responseEntity) {
+        byte[] body = responseEntity.getBody() != null
+                ? responseEntity.getBody().getBytes(StandardCharsets.UTF_8) : new byte[0];
+        return status.is4xxClientError()
+                ? HttpClientErrorException.create(status, status.getReasonPhrase(), responseEntity.getHeaders(),
+                                                  body, StandardCharsets.UTF_8)
+                : HttpServerErrorException.create(status, status.getReasonPhrase(), responseEntity.getHeaders(),
+                                                  body, StandardCharsets.UTF_8);
     }
 
     /**
@@ -96,25 +279,39 @@ public class InvokeFunctionService {
      * @param body
      * @return
      */
-    public ResponseEntity invokeFunction(String invocationType,
-                                         FunctionRequestContext functionRequestContext,
-                                         String body)
+    public ResponseEntity<String> invokeFunction(String invocationType,
+                                                 FunctionRequestContext functionRequestContext,
+                                                 String body)
             throws HttpClientErrorException {
         String requestId = functionRequestContext.getRequestId();
-        utils.info(LOGGER, requestId,"Invoking " + invocationType + " function " + proxyConfig.getFunctionUrl() + "...");
-        HttpEntity<String> entity = new HttpEntity<>(body, functionRequestContext.getHeaders());
+        FunctionWorker worker = functionWorkerPoolService.acquire();
+        String functionUrl = worker.getUrl();
+        utils.info(LOGGER, requestId,"Invoking " + invocationType + " function " + functionUrl + "...");
+        HttpEntity<String> entity = new HttpEntity<>(body, toFunctionHeaders(functionRequestContext.getHeaders()));
         ResponseEntity<String> responseEntity;
         long startMs = System.currentTimeMillis();
         try {
-            responseEntity = restTemplate.exchange(proxyConfig.getFunctionUrl(),
+            responseEntity = restTemplate.exchange(functionUrl,
                                                    functionRequestContext.getMethod(),
                                                    entity,
                                                    String.class);
         } finally {
-            utils.info(LOGGER, requestId,"Invoked function " + proxyConfig.getFunctionUrl() + " in " +
+            functionWorkerPoolService.release(worker);
+            utils.info(LOGGER, requestId,"Invoked function " + functionUrl + " in " +
                     (System.currentTimeMillis() - startMs) + "ms");
         }
 
         return responseEntity;
     }
+
+    // Eg, a caller's Connection: close would otherwise close the pooled connection
+    private HttpHeaders toFunctionHeaders(HttpHeaders headers) {
+        HttpHeaders functionHeaders = new HttpHeaders();
+        for (Map.Entry<String, List<String>> header : headers.entrySet()) {
+            if (!RESTRICTED_HEADERS.contains(header.getKey().toLowerCase())) {
+                functionHeaders.addAll(header.getKey(), header.getValue());
+            }
+        }
+        return functionHeaders;
+    }
 }
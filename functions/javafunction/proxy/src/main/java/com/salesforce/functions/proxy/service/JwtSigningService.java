@@ -0,0 +1,197 @@
+package com.salesforce.functions.proxy.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.salesforce.functions.proxy.config.ProxyConfig;
+import com.salesforce.functions.proxy.util.Utils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.KeyFactory;
+import java.security.PrivateKey;
+import java.security.Signature;
+import java.security.spec.PKCS8EncodedKeySpec;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Generates RS256-signed JWT bearer assertions used to mint functions' tokens.
+ *
+ * The configured private key is decoded and parsed once on startup.  Initialized Signature instances are
+ * pooled and shared across threads, rather than held per thread, so that they're reused when requests run on
+ * short-lived virtual threads.  Assertions are reused for the same issuer, subject and audience until shortly
+ * before they expire.
+ */
+@Service
+public class JwtSigningService implements InitializingBean {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(JwtSigningService.class);
+
+    // Salesforce requires that an assertion expire within 3 minutes
+    static final long ASSERTION_EXPIRY_SECONDS = 180;
+    // Assertions are not reused once they're this close to expiring
+    static final long ASSERTION_REUSE_MARGIN_SECONDS = 30;
+    static final int MAX_CACHED_ASSERTIONS = 1000;
+
+    private static final String SIGNATURE_ALGORITHM = "SHA256withRSA";
+    private static final Base64.Encoder BASE64_URL_ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final String ENCODED_HEADER =
+            BASE64_URL_ENCODER.encodeToString("{\"alg\":\"RS256\"}".getBytes(StandardCharsets.UTF_8));
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    /**
+     * Signed assertion and its expiration.
+     */
+    static class Assertion {
+        private final String jwt;
+        private final long expiresAtMs;
+
+        Assertion(String jwt, long expiresAtMs) {
+            this.jwt = jwt;
+            this.expiresAtMs = expiresAtMs;
+        }
+
+        boolean isReusable(long nowMs) {
+            return nowMs < expiresAtMs - TimeUnit.SECONDS.toMillis(ASSERTION_REUSE_MARGIN_SECONDS);
+        }
+    }
+
+    @Autowired
+    ProxyConfig proxyConfig;
+
+    @Autowired
+    Utils utils;
+
+    private PrivateKey privateKey;
+    private final Queue<Signature> signatures = new ConcurrentLinkedQueue<>();
+    private final Cache<String, Assertion> assertions = CacheBuilder.newBuilder()
+            .maximumSize(MAX_CACHED_ASSERTIONS)
+            .expireAfterWrite(ASSERTION_EXPIRY_SECONDS, TimeUnit.SECONDS)
+            .build();
+
+    public JwtSigningService() {
+    }
+
+    // For testing
+    public JwtSigningService(ProxyConfig proxyConfig, Utils utils) {
+        this.proxyConfig = proxyConfig;
+        this.utils = utils;
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        if (utils.isBlank(proxyConfig.getEncodedPrivateKey())) {
+            throw new RuntimeException("Unable to load private key: ENCODED_PRIVATE_KEY not configured");
+        }
+
+        try {
+            privateKey = generatePrivateKey(decodePrivateKey(proxyConfig.getEncodedPrivateKey()));
+            // Fail fast if the key is unusable for signing
+            sign("validate");
+        } catch (Exception ex) {
+            throw new RuntimeException("Unable to load private key: " + ex.getMessage());
+        }
+
+        LOGGER.info("Loaded " + privateKey.getAlgorithm() + " private key for signing JWT bearer assertions");
+    }
+
+    /**
+     * Return a signed JWT bearer assertion for given issuer (Connected App's consumer key), subject (username)
+     * and audience, reusing a previously signed assertion if it's not about to expire.
+     *
+     * @param issuer
+     * @param subject
+     * @param audience
+     * @return
+     */
+    public String getAssertion(String issuer, String subject, String audience) {
+        String key = issuer + "\n" + subject + "\n" + audience;
+        long nowMs = System.currentTimeMillis();
+        Assertion assertion = assertions.getIfPresent(key);
+        if (assertion != null && assertion.isReusable(nowMs)) {
+            return assertion.jwt;
+        }
+
+        long expiresAtMs = nowMs + TimeUnit.SECONDS.toMillis(ASSERTION_EXPIRY_SECONDS);
+        assertion = new Assertion(generateAssertion(issuer, subject, audience, expiresAtMs), expiresAtMs);
+        assertions.put(key, assertion);
+        return assertion.jwt;
+    }
+
+    /**
+     * Generate a compact, RS256-signed JWS.
+     *
+     * @param issuer
+     * @param subject
+     * @param audience
+     * @param expiresAtMs
+     * @return
+     */
+    String generateAssertion(String issuer, String subject, String audience, long expiresAtMs) {
+        Map<String, Object> claims = new LinkedHashMap<>();
+        claims.put("iss", issuer);
+        claims.put("sub", subject);
+        claims.put("aud", audience);
+        claims.put("exp", TimeUnit.MILLISECONDS.toSeconds(expiresAtMs));
+
+        String encodedClaims;
+        try {
+            encodedClaims = BASE64_URL_ENCODER.encodeToString(OBJECT_MAPPER.writeValueAsBytes(claims));
+        } catch (Exception ex) {
+            throw new IllegalStateException("Unable to serialize JWT claims: " + ex.getMessage(), ex);
+        }
+
+        String signingInput = ENCODED_HEADER + "." + encodedClaims;
+        return signingInput + "." + sign(signingInput);
+    }
+
+    private String sign(String signingInput) {
+        Signature signature = signatures.poll();
+        if (signature == null) {
+            signature = newSignature();
+        }
+
+        try {
+            signature.update(signingInput.getBytes(StandardCharsets.UTF_8));
+            String encodedSignature = BASE64_URL_ENCODER.encodeToString(signature.sign());
+            // Signature is reset to its initialized state after sign(); possibly corrupted instances are discarded
+            signatures.offer(signature);
+            return encodedSignature;
+        } catch (GeneralSecurityException ex) {
+            throw new IllegalStateException("Unable to sign JWT: " + ex.getMessage(), ex);
+        }
+    }
+
+    private Signature newSignature() {
+        try {
+            Signature signature = Signature.getInstance(SIGNATURE_ALGORITHM);
+            signature.initSign(privateKey);
+            return signature;
+        } catch (GeneralSecurityException ex) {
+            throw new IllegalStateException("Unable to initialize " + SIGNATURE_ALGORITHM + " signature: " + ex.getMessage(), ex);
+        }
+    }
+
+    private String decodePrivateKey(String encodedPrivateKey) {
+        String privateKey = new String(Base64.getDecoder().decode(encodedPrivateKey), StandardCharsets.UTF_8);
+        privateKey = privateKey.replaceAll("-----(BEGIN|END)[\\w\\s]*-----", "");
+        return privateKey.replaceAll("\\s", "");
+    }
+
+    private PrivateKey generatePrivateKey(String privateKeyStr) throws GeneralSecurityException {
+        PKCS8EncodedKeySpec keySpec = new PKCS8EncodedKeySpec(Base64.getDecoder().decode(privateKeyStr));
+        KeyFactory kf = KeyFactory.getInstance("RSA");
+        return kf.generatePrivate(keySpec);
+    }
+}
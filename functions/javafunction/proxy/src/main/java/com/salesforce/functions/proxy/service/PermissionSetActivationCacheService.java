@@ -0,0 +1,116 @@
+package com.salesforce.functions.proxy.service;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.hash.Hashing;
+import com.salesforce.functions.proxy.config.ProxyConfig;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Tracks session-based Permission Sets activated on function tokens, keyed by a SHA-256 hash of the token, so
+ * that Permission Sets are activated once per token.  Entries expire w/ their token.
+ */
+@Service
+public class PermissionSetActivationCacheService implements InitializingBean {
+
+    /**
+     * Permission Sets activated on a token.
+     */
+    static class ActivatedPermissionSets {
+        private final Set<String> permissionSets = ConcurrentHashMap.newKeySet();
+        private final long expiresAtMs;
+
+        ActivatedPermissionSets(long expiresAtMs) {
+            this.expiresAtMs = expiresAtMs;
+        }
+
+        boolean isExpired(long nowMs) {
+            return nowMs >= expiresAtMs;
+        }
+    }
+
+    @Autowired
+    ProxyConfig proxyConfig;
+
+    @Autowired
+    MeterRegistry meterRegistry;
+
+    private Cache<String, ActivatedPermissionSets> cache;
+    private Counter skippedCounter;
+
+    @Override
+    public void afterPropertiesSet() {
+        cache = CacheBuilder.newBuilder()
+                .maximumSize(proxyConfig.getTokenCacheMaxSize())
+                .expireAfterWrite(proxyConfig.getTokenCacheTtlSeconds(), TimeUnit.SECONDS)
+                .build();
+
+        skippedCounter = meterRegistry.counter("proxy.permsets.activation.skipped");
+    }
+
+    public boolean isEnabled() {
+        return proxyConfig.isPermSetActivationCacheEnabled();
+    }
+
+    /**
+     * Return given Permission Sets that have not yet been activated on given token.
+     *
+     * @param accessToken
+     * @param permissionSets
+     * @return
+     */
+    public List<String> getInactive(String accessToken, List<String> permissionSets) {
+        ActivatedPermissionSets activated = cache.getIfPresent(toKey(accessToken));
+        if (activated == null || activated.isExpired(System.currentTimeMillis())) {
+            return permissionSets;
+        }
+
+        List<String> inactive = permissionSets.stream()
+                .filter(permissionSet -> !activated.permissionSets.contains(permissionSet))
+                .collect(Collectors.toList());
+        if (inactive.isEmpty()) {
+            skippedCounter.increment();
+        }
+        return inactive;
+    }
+
+    /**
+     * Record given Permission Sets as activated on given token.
+     *
+     * @param accessToken
+     * @param accessTokenExpiresAtMs when given token expires; if unknown, entry expires after token cache TTL
+     * @param permissionSets
+     */
+    public void putActivated(String accessToken, Long accessTokenExpiresAtMs, Collection<String> permissionSets) {
+        long expiresAtMs = accessTokenExpiresAtMs != null
+                ? accessTokenExpiresAtMs
+                : System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(proxyConfig.getTokenCacheTtlSeconds());
+        if (expiresAtMs <= System.currentTimeMillis()) {
+            return;
+        }
+
+        ActivatedPermissionSets activated =
+                cache.asMap().computeIfAbsent(toKey(accessToken), key -> new ActivatedPermissionSets(expiresAtMs));
+        activated.permissionSets.addAll(permissionSets);
+    }
+
+    public long size() {
+        return cache.size();
+    }
+
+    private String toKey(String accessToken) {
+        return Hashing.sha256().hashString(accessToken, StandardCharsets.UTF_8).toString();
+    }
+}
@@ -10,7 +10,7 @@ import java.io.IOException;
 @Service
 public class ProcessStartService {
 
-    public ProcessHandle start(ProcessBuilder processBuilder) throws IOException {
-        return processBuilder.inheritIO().start().toHandle();
+    public Process start(ProcessBuilder processBuilder) throws IOException {
+        return processBuilder.inheritIO().start();
     }
 }
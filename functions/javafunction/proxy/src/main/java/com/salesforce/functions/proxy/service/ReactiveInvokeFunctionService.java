@@ -0,0 +1,147 @@
+package com.salesforce.functions.proxy.service;
+
+import com.salesforce.functions.proxy.config.ProxyConfig;
+import com.salesforce.functions.proxy.model.FunctionRequestContext;
+import com.salesforce.functions.proxy.model.FunctionWorker;
+import com.salesforce.functions.proxy.util.Utils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Service;
+import org.springframework.web.reactive.function.BodyInserters;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static com.salesforce.functions.proxy.service.InvokeFunctionService.RESTRICTED_HEADERS;
+
+/**
+ * Service to invoke co-located function in reactive mode.  Request and response bodies are streamed between
+ * client and function w/o buffering.
+ */
+@Service
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveInvokeFunctionService implements InitializingBean {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ReactiveInvokeFunctionService.class);
+
+    @Autowired
+    ProxyConfig proxyConfig;
+
+    @Autowired
+    Utils utils;
+
+    @Autowired
+    WebClient.Builder webClientBuilder;
+
+    @Autowired
+    FunctionWorkerPoolService functionWorkerPoolService;
+
+    WebClient webClient;
+
+    @Override
+    public void afterPropertiesSet() {
+        webClient = webClientBuilder.build();
+    }
+
+    /**
+     * Invoke function synchronously.
+     *
+     * As w/ InvokeFunctionService, the function's 4xx responses are returned and 5xx responses are signaled as
+     * WebClientResponseException.
+     *
+     * @param invocationType
+     * @param functionRequestContext
+     * @param body
+     * @return
+     */
+    public Mono<ResponseEntity<Flux<DataBuffer>>> invokeFunction(String invocationType,
+                                                                 FunctionRequestContext functionRequestContext,
+                                                                 Flux<DataBuffer> body) {
+        String requestId = functionRequestContext.getRequestId();
+        // Worker is acquired on subscription so that it's always released
+        return Mono.defer(() -> {
+            FunctionWorker worker = functionWorkerPoolService.acquire();
+            String functionUrl = worker.getUrl();
+            utils.info(LOGGER, requestId,"Invoking " + invocationType + " function " + functionUrl + "...");
+            long startMs = System.currentTimeMillis();
+
+            // Worker is released once the response body is streamed, so that it's counted as outstanding, eg by
+            // balancing and redeploy's drain, until then
+            AtomicBoolean responded = new AtomicBoolean();
+            AtomicBoolean released = new AtomicBoolean();
+            Runnable release = () -> {
+                if (released.compareAndSet(false, true)) {
+                    functionWorkerPoolService.release(worker);
+                    utils.info(LOGGER, requestId,"Invoked function " + functionUrl + " in " +
+                            (System.currentTimeMillis() - startMs) + "ms");
+                }
+            };
+
+            return webClient.method(functionRequestContext.getMethod())
+                    .uri(functionUrl)
+                    .headers(headers -> copyHeaders(functionRequestContext.getHeaders(), headers))
+                    .body(BodyInserters.fromDataBuffers(body))
+                    .retrieve()
+                    .toEntityFlux(DataBuffer.class)
+                    .map(responseEntity -> {
+                        responded.set(true);
+                        return ResponseEntity
+                                .status(responseEntity.getStatusCodeValue())
+                                .headers(toResponseHeaders(responseEntity.getHeaders()))
+                                .body(responseEntity.getBody()
+                                        .doOnTerminate(release)
+                                        .doOnCancel(release));
+                    })
+                    .onErrorResume(WebClientResponseException.class, ex -> {
+                        if (!ex.getStatusCode().is4xxClientError()) {
+                            return Mono.error(ex);
+                        }
+
+                        // Error body is already read
+                        release.run();
+                        return Mono.just(ResponseEntity
+                                .status(ex.getRawStatusCode())
+                                .headers(toResponseHeaders(ex.getHeaders()))
+                                .body(Flux.just(DefaultDataBufferFactory.sharedInstance.wrap(ex.getResponseBodyAsByteArray()))));
+                    })
+                    .doOnError(ex -> release.run())
+                    .doOnCancel(() -> {
+                        // Once responded, released when the body is streamed or cancelled
+                        if (!responded.get()) {
+                            release.run();
+                        }
+                    });
+        });
+    }
+
+    private HttpHeaders toResponseHeaders(HttpHeaders functionResponseHeaders) {
+        HttpHeaders responseHeaders = new HttpHeaders();
+        copyHeaders(functionResponseHeaders, responseHeaders);
+        if (responseHeaders.getContentType() == null) {
+            // Otherwise streamed bodies are written as text/event-stream
+            responseHeaders.setContentType(MediaType.APPLICATION_OCTET_STREAM);
+        }
+        return responseHeaders;
+    }
+
+    private void copyHeaders(HttpHeaders from, HttpHeaders to) {
+        for (Map.Entry<String, List<String>> header : from.entrySet()) {
+            if (!RESTRICTED_HEADERS.contains(header.getKey().toLowerCase())) {
+                to.addAll(header.getKey(), header.getValue());
+            }
+        }
+    }
+}
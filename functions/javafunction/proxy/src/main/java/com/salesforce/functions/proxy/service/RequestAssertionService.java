@@ -0,0 +1,179 @@
+package com.salesforce.functions.proxy.service;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.salesforce.functions.proxy.config.ProxyConfig;
+import com.salesforce.functions.proxy.util.InvalidRequestException;
+import com.salesforce.functions.proxy.util.Utils;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
+import io.jsonwebtoken.Jwts;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.KeyFactory;
+import java.security.PublicKey;
+import java.security.cert.CertificateFactory;
+import java.security.spec.X509EncodedKeySpec;
+import java.util.Base64;
+import java.util.concurrent.TimeUnit;
+
+import static com.salesforce.functions.proxy.util.Constants.CALLER_VALIDATION_MODE_SIGNATURE;
+
+/**
+ * Verifies signed request assertions used to validate callers w/o calling /userinfo.
+ *
+ * Callers, ie FunctionInvoker.cls, send a short-lived RS256 JWT signed w/ the org's Certificate:
+ *   {
+ *     'iss': '<orgId18>',
+ *     'sub': '<username>',
+ *     'exp': <seconds since epoch>,
+ *     'requestId': '<x-request-id>',
+ *     'timestamp': <milliseconds since epoch>
+ *   }
+ *
+ * Assertions are verified w/ the configured Certificate's public key.  An assertion is accepted once: replays
+ * are rejected for as long as the assertion's timestamp is within the configured max age.
+ */
+@Service
+public class RequestAssertionService implements InitializingBean {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(RequestAssertionService.class);
+
+    static final String CLAIM_REQUEST_ID = "requestId";
+    static final String CLAIM_TIMESTAMP = "timestamp";
+
+    @Autowired
+    ProxyConfig proxyConfig;
+
+    @Autowired
+    Utils utils;
+
+    @Autowired
+    MeterRegistry meterRegistry;
+
+    private JwtParser jwtParser;
+    private Cache<String, Boolean> seenAssertions;
+    private Counter validCounter;
+    private Counter invalidCounter;
+    private Counter replayedCounter;
+
+    @Override
+    public void afterPropertiesSet() {
+        validCounter = meterRegistry.counter("proxy.caller.assertion", "result", "valid");
+        invalidCounter = meterRegistry.counter("proxy.caller.assertion", "result", "invalid");
+        replayedCounter = meterRegistry.counter("proxy.caller.assertion", "result", "replayed");
+
+        if (!isEnabled()) {
+            return;
+        }
+
+        if (utils.isBlank(proxyConfig.getEncodedCallerCertificate())) {
+            throw new RuntimeException("Unable to load caller certificate: ENCODED_CALLER_CERTIFICATE not configured");
+        }
+
+        PublicKey publicKey;
+        try {
+            publicKey = decodePublicKey(proxyConfig.getEncodedCallerCertificate());
+        } catch (Exception ex) {
+            throw new RuntimeException("Unable to load caller certificate: " + ex.getMessage());
+        }
+
+        long maxAgeSeconds = proxyConfig.getRequestAssertionMaxAgeSeconds();
+        jwtParser = Jwts.parserBuilder()
+                .setSigningKey(publicKey)
+                .setAllowedClockSkewSeconds(maxAgeSeconds)
+                .build();
+        // Timestamps are accepted within max age either side of now
+        seenAssertions = CacheBuilder.newBuilder()
+                .maximumSize(proxyConfig.getRequestAssertionReplayCacheMaxSize())
+                .expireAfterWrite(2 * maxAgeSeconds, TimeUnit.SECONDS)
+                .build();
+
+        LOGGER.info("Validating callers w/ signed request assertions");
+    }
+
+    public boolean isEnabled() {
+        return CALLER_VALIDATION_MODE_SIGNATURE.equals(proxyConfig.getCallerValidationMode());
+    }
+
+    /**
+     * Verify given assertion's signature and that it was issued by expected org for given request and user.
+     *
+     * @param requestId
+     * @param assertion
+     * @param username
+     * @throws InvalidRequestException
+     */
+    public void validate(String requestId, String assertion, String username) throws InvalidRequestException {
+        if (utils.isBlank(assertion)) {
+            invalidCounter.increment();
+            throw new InvalidRequestException(requestId, "Request assertion not found", 401);
+        }
+
+        Claims claims;
+        try {
+            claims = jwtParser.parseClaimsJws(assertion).getBody();
+        } catch (JwtException | IllegalArgumentException ex) {
+            invalidCounter.increment();
+            throw new InvalidRequestException(requestId, "Invalid request assertion: " + ex.getMessage(), 401);
+        }
+
+        String expectedOrgId18 = proxyConfig.getOrgId18();
+        if (!expectedOrgId18.equals(claims.getIssuer())) {
+            invalidCounter.increment();
+            LOGGER.warn("[" + requestId + "] Unauthorized caller from org " + claims.getIssuer() +
+                    ", expected " + expectedOrgId18);
+            throw new InvalidRequestException(requestId, "Unauthorized request", 401);
+        }
+
+        if (!requestId.equals(claims.get(CLAIM_REQUEST_ID, String.class))
+                || (username != null && !username.equals(claims.getSubject()))) {
+            invalidCounter.increment();
+            throw new InvalidRequestException(requestId, "Request assertion does not match request", 401);
+        }
+
+        Long timestamp = claims.get(CLAIM_TIMESTAMP, Long.class);
+        long maxAgeMs = TimeUnit.SECONDS.toMillis(proxyConfig.getRequestAssertionMaxAgeSeconds());
+        if (timestamp == null || Math.abs(System.currentTimeMillis() - timestamp) > maxAgeMs) {
+            invalidCounter.increment();
+            throw new InvalidRequestException(requestId, "Request assertion expired", 401);
+        }
+
+        if (seenAssertions.asMap().putIfAbsent(requestId + ":" + timestamp, Boolean.TRUE) != null) {
+            replayedCounter.increment();
+            throw new InvalidRequestException(requestId, "Replayed request assertion", 401);
+        }
+
+        validCounter.increment();
+    }
+
+    /**
+     * Decode Base64 encoded PEM X.509 certificate, eg as downloaded from Certificate and Key Management, or public
+     * key.
+     *
+     * @param encodedCertificate
+     * @return
+     * @throws Exception
+     */
+    private PublicKey decodePublicKey(String encodedCertificate) throws Exception {
+        byte[] pem = Base64.getDecoder().decode(encodedCertificate);
+        String pemStr = new String(pem, StandardCharsets.UTF_8);
+        if (pemStr.contains("CERTIFICATE-----")) {
+            return CertificateFactory.getInstance("X.509")
+                    .generateCertificate(new ByteArrayInputStream(pem))
+                    .getPublicKey();
+        }
+
+        String publicKey = pemStr.replaceAll("-----(BEGIN|END)[\\w\\s]*-----", "").replaceAll("\\s", "");
+        return KeyFactory.getInstance("RSA").generatePublic(new X509EncodedKeySpec(Base64.getDecoder().decode(publicKey)));
+    }
+}
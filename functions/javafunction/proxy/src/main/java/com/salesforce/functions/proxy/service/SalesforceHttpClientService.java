@@ -0,0 +1,237 @@
+package com.salesforce.functions.proxy.service;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.salesforce.functions.proxy.config.ProxyConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.client.AbstractClientHttpRequest;
+import org.springframework.http.client.AbstractClientHttpResponse;
+import org.springframework.http.client.ClientHttpRequest;
+import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+import org.springframework.web.client.RestTemplate;
+
+import javax.net.ssl.SSLContext;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.security.GeneralSecurityException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static com.salesforce.functions.proxy.service.InvokeFunctionService.RESTRICTED_HEADERS;
+
+/**
+ * HTTP client for Salesforce APIs, eg /userinfo, token exchange and Permission Set activation.
+ *
+ * Requests to each org domain share a client whose connections are kept alive and, when the org supports it,
+ * multiplex requests over HTTP/2.  Clients share an SSLContext so that TLS sessions are resumed rather than
+ * re-negotiated when new connections are opened.  When configured, a connection to the org is opened on
+ * startup.
+ */
+@Service
+public class SalesforceHttpClientService implements InitializingBean {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(SalesforceHttpClientService.class);
+
+    private static final int MAX_CLIENTS = 100;
+    private static final long CLIENT_IDLE_HOURS = 1;
+    private static final int TLS_SESSION_CACHE_SIZE = 1000;
+    private static final int TLS_SESSION_TIMEOUT_SECONDS = (int) TimeUnit.HOURS.toSeconds(24);
+
+    @Autowired
+    ProxyConfig proxyConfig;
+
+    private SSLContext sslContext;
+    private final Cache<String, HttpClient> httpClients = CacheBuilder.newBuilder()
+            .maximumSize(MAX_CLIENTS)
+            .expireAfterAccess(CLIENT_IDLE_HOURS, TimeUnit.HOURS)
+            .build();
+    private RestTemplate restTemplate;
+
+    @Override
+    public void afterPropertiesSet() {
+        try {
+            sslContext = SSLContext.getInstance("TLS");
+            sslContext.init(null, null, null);
+        } catch (GeneralSecurityException ex) {
+            throw new RuntimeException("Unable to create SSLContext: " + ex.getMessage(), ex);
+        }
+        sslContext.getClientSessionContext().setSessionCacheSize(TLS_SESSION_CACHE_SIZE);
+        sslContext.getClientSessionContext().setSessionTimeout(TLS_SESSION_TIMEOUT_SECONDS);
+
+        restTemplate = new RestTemplate(new SalesforceClientHttpRequestFactory());
+
+        warmUp();
+    }
+
+    /**
+     * @return RestTemplate that calls Salesforce APIs over per-org domain clients
+     */
+    public RestTemplate getRestTemplate() {
+        return restTemplate;
+    }
+
+    /**
+     * @param uri
+     * @return client for given URI's org domain
+     */
+    HttpClient getHttpClient(URI uri) {
+        String key = uri.getScheme() + "://" + uri.getAuthority();
+        try {
+            return httpClients.get(key, this::newHttpClient);
+        } catch (ExecutionException ex) {
+            throw new IllegalStateException("Unable to create HTTP client for " + key + ": " + ex.getMessage(), ex);
+        }
+    }
+
+    private HttpClient newHttpClient() {
+        HttpClient.Builder builder = HttpClient.newBuilder()
+                .version(proxyConfig.isSalesforceClientHttp2Enabled()
+                        ? HttpClient.Version.HTTP_2 : HttpClient.Version.HTTP_1_1)
+                .sslContext(sslContext);
+        if (proxyConfig.getSalesforceClientConnectTimeoutMs() > 0) {
+            builder.connectTimeout(Duration.ofMillis(proxyConfig.getSalesforceClientConnectTimeoutMs()));
+        }
+        return builder.build();
+    }
+
+    // Open a connection, including DNS lookup and TLS handshake, to the function's org w/o delaying startup
+    private void warmUp() {
+        String orgDomainUrl = proxyConfig.getOrgDomainUrl();
+        if (!StringUtils.hasText(orgDomainUrl)) {
+            return;
+        }
+
+        URI uri = URI.create(orgDomainUrl);
+        long startMs = System.currentTimeMillis();
+        HttpRequest request = newRequestBuilder(uri).method(HttpMethod.HEAD.name(), HttpRequest.BodyPublishers.noBody()).build();
+        getHttpClient(uri).sendAsync(request, HttpResponse.BodyHandlers.discarding())
+                .whenComplete((response, ex) -> {
+                    if (ex != null) {
+                        LOGGER.warn("Unable to open connection to " + orgDomainUrl + ": " + ex.getMessage());
+                    } else {
+                        LOGGER.info("Opened " + response.version() + " connection to " + orgDomainUrl + " in " +
+                                (System.currentTimeMillis() - startMs) + "ms");
+                    }
+                });
+    }
+
+    private HttpRequest.Builder newRequestBuilder(URI uri) {
+        HttpRequest.Builder requestBuilder = HttpRequest.newBuilder(uri);
+        if (proxyConfig.getSalesforceClientReadTimeoutMs() > 0) {
+            requestBuilder.timeout(Duration.ofMillis(proxyConfig.getSalesforceClientReadTimeoutMs()));
+        }
+        return requestBuilder;
+    }
+
+    private class SalesforceClientHttpRequestFactory implements ClientHttpRequestFactory {
+        @Override
+        public ClientHttpRequest createRequest(URI uri, HttpMethod httpMethod) {
+            return new SalesforceClientHttpRequest(uri, httpMethod);
+        }
+    }
+
+    private class SalesforceClientHttpRequest extends AbstractClientHttpRequest {
+        private final URI uri;
+        private final HttpMethod method;
+        private final ByteArrayOutputStream body = new ByteArrayOutputStream(1024);
+
+        SalesforceClientHttpRequest(URI uri, HttpMethod method) {
+            this.uri = uri;
+            this.method = method;
+        }
+
+        @Override
+        public String getMethodValue() {
+            return method.name();
+        }
+
+        @Override
+        public URI getURI() {
+            return uri;
+        }
+
+        @Override
+        protected OutputStream getBodyInternal(HttpHeaders headers) {
+            return body;
+        }
+
+        @Override
+        protected ClientHttpResponse executeInternal(HttpHeaders headers) throws IOException {
+            HttpRequest.Builder requestBuilder = newRequestBuilder(uri)
+                    .method(method.name(), body.size() > 0
+                            ? HttpRequest.BodyPublishers.ofByteArray(body.toByteArray())
+                            : HttpRequest.BodyPublishers.noBody());
+            for (Map.Entry<String, List<String>> header : headers.entrySet()) {
+                if (RESTRICTED_HEADERS.contains(header.getKey().toLowerCase())) {
+                    continue;
+                }
+                for (String value : header.getValue()) {
+                    requestBuilder.header(header.getKey(), value);
+                }
+            }
+
+            try {
+                return new SalesforceClientHttpResponse(getHttpClient(uri).send(requestBuilder.build(),
+                                                                                HttpResponse.BodyHandlers.ofByteArray()));
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted waiting on response from " + uri);
+            }
+        }
+    }
+
+    private static class SalesforceClientHttpResponse extends AbstractClientHttpResponse {
+        private final HttpResponse<byte[]> response;
+        private final HttpHeaders headers = new HttpHeaders();
+
+        SalesforceClientHttpResponse(HttpResponse<byte[]> response) {
+            this.response = response;
+            response.headers().map().forEach(headers::addAll);
+        }
+
+        @Override
+        public int getRawStatusCode() {
+            return response.statusCode();
+        }
+
+        @Override
+        public String getStatusText() {
+            HttpStatus status = HttpStatus.resolve(response.statusCode());
+            return status != null ? status.getReasonPhrase() : "";
+        }
+
+        @Override
+        public HttpHeaders getHeaders() {
+            return headers;
+        }
+
+        @Override
+        public InputStream getBody() {
+            return new ByteArrayInputStream(response.body() != null ? response.body() : new byte[0]);
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
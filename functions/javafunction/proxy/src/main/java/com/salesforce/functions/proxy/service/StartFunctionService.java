@@ -1,25 +1,64 @@
 package com.salesforce.functions.proxy.service;
 
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.salesforce.functions.proxy.config.ProxyConfig;
+import com.salesforce.functions.proxy.model.FunctionWorker;
+import com.salesforce.functions.proxy.util.SingleFlight;
 import com.salesforce.functions.proxy.util.Utils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
 import org.springframework.beans.factory.InitializingBean;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
+import org.springframework.web.util.UriComponentsBuilder;
 
 import java.io.*;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.net.ServerSocket;
+import java.net.URL;
+import java.net.URLClassLoader;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.jar.Attributes;
+import java.util.jar.JarFile;
+import java.util.jar.Manifest;
 
 /**
  * Start and restart co-located function.
+ *
+ * Function processes are supervised: an exited process is restarted right away, then w/ exponential backoff while
+ * it keeps exiting shortly after starting.  Until a restarted worker is ready, invocations skip it, failing fast if
+ * no other worker is available.  If a warm standby process is enabled, a worker whose process exits fails over to the
+ * standby's process right away, and the standby is replaced instead.
+ *
+ * On redeploy, each worker is replaced, in turn, by a worker running the updated function code on a new port.  Once
+ * the new worker is ready, new invocations go to it and the old worker's process is stopped after its in-flight
+ * invocations complete.
+ *
+ * By default, the function runtime is started in separate JVMs, one per function worker.  In embedded mode, the
+ * runtime is loaded in an isolated classloader and run in the proxy's JVM, so that only one JVM's heap and overhead
+ * is paid for.
  */
 @Component
-public class StartFunctionService implements InitializingBean {
+public class StartFunctionService implements InitializingBean, DisposableBean {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(StartFunctionService.class);
 
+    static final long INITIAL_RESTART_BACKOFF_MS = 500;
+    // Process that exits after running this long is restarted w/o backoff
+    static final long STABLE_UPTIME_MS = 60000;
+
     @Autowired
     private ProxyConfig proxyConfig;
 
@@ -29,53 +68,435 @@ public class StartFunctionService implements InitializingBean {
     @Autowired
     private Utils utils;
 
+    @Autowired
+    private FunctionWorkerPoolService functionWorkerPoolService;
+
+    @Autowired
+    private FunctionReadinessService functionReadinessService;
+
+    private URLClassLoader embeddedClassLoader;
+
+    private final SingleFlight<Integer, FunctionWorker> workerStarts = new SingleFlight<>();
+    private ScheduledExecutorService supervisorExecutorService;
+    private ExecutorService redeployExecutorService;
+    private final AtomicBoolean redeploying = new AtomicBoolean();
+    private volatile boolean stopping;
+
     @Override
     public void afterPropertiesSet() throws Exception {
+        // Thread per process, as restarts block while waiting for readiness
+        int processes = functionWorkerPoolService.getWorkers().size() +
+                (functionWorkerPoolService.getStandby() != null ? 1 : 0);
+        supervisorExecutorService = Executors.newScheduledThreadPool(processes,
+                new ThreadFactoryBuilder().setNameFormat("FunctionSupervisor-%d").setDaemon(true).build());
+        redeployExecutorService = Executors.newSingleThreadExecutor(
+                new ThreadFactoryBuilder().setNameFormat("FunctionRedeployer-%d").setDaemon(true).build());
         start();
+
+        // Standby is started and warmed in the background
+        FunctionWorker standby = functionWorkerPoolService.getStandby();
+        if (standby != null) {
+            standby.setRestarting(true);
+            supervisorExecutorService.execute(() -> restart(standby));
+        }
     }
 
+    @Override
+    public void destroy() {
+        // Processes exiting w/ the proxy aren't restarted
+        stopping = true;
+        if (supervisorExecutorService != null) {
+            supervisorExecutorService.shutdownNow();
+        }
+        if (redeployExecutorService != null) {
+            redeployExecutorService.shutdownNow();
+        }
+    }
+
+    /**
+     * Start function workers that are not running.
+     *
+     * @throws Exception
+     */
     public void start() throws Exception {
-        List<String> functionStartCmd = assembleFunctionStartCommand();
-        LOGGER.info("Starting function w/ args: " + String.join(" ", functionStartCmd));
-        ProcessHandle functionProcessHandle = null;
+        if (proxyConfig.isEmbeddedFunctionEnabled()) {
+            start(functionWorkerPoolService.getWorkers().get(0));
+            return;
+        }
+
+        for (FunctionWorker worker : functionWorkerPoolService.getWorkers()) {
+            if (!worker.isAlive()) {
+                start(worker);
+            }
+        }
+    }
+
+    /**
+     * Wait for function workers to respond to health checks, eg after start().
+     *
+     * @throws RuntimeException if a worker's process exits or a worker isn't ready by the startup deadline
+     * @throws InterruptedException
+     */
+    public void awaitReady() throws InterruptedException {
+        functionReadinessService.awaitReady(functionWorkerPoolService.getWorkers());
+    }
+
+    /**
+     * Start given function worker's process, if not running.
+     *
+     * Concurrent starts of a worker, eg by the supervisor and a failed /healthcheck, share one start so that only one
+     * process is started on the worker's port.
+     *
+     * @param worker
+     * @throws Exception
+     */
+    public void start(FunctionWorker worker) throws Exception {
+        workerStarts.execute(worker.getIndex(), () -> {
+            if (!worker.isAlive()) {
+                if (proxyConfig.isEmbeddedFunctionEnabled()) {
+                    startEmbedded(worker);
+                } else {
+                    startProcess(worker);
+                }
+            }
+            return worker;
+        });
+    }
+
+    private void startProcess(FunctionWorker worker) throws Exception {
+        List<String> functionStartCmd = assembleFunctionStartCommand(worker);
+        LOGGER.info("Starting function worker " + worker.getIndex() + " w/ args: " + String.join(" ", functionStartCmd));
+        Process functionProcess = null;
         try {
             ProcessBuilder processBuilder = new ProcessBuilder(functionStartCmd);
             // REVIEWME: Why needed?
             processBuilder.environment().put("JAVA_HOME", proxyConfig.getJavaHome());
-            functionProcessHandle = processStartService.start(processBuilder);
+            functionProcess = processStartService.start(processBuilder);
         } catch (Exception ex) {
             throw new RuntimeException("Unable to start function: " + ex.getMessage());
         }
 
-        if (!functionProcessHandle.isAlive()) {
-            throw new RuntimeException("Function process died");
+        if (!functionProcess.isAlive()) {
+            throw new RuntimeException("Function process died w/ exit code " + functionProcess.exitValue());
+        }
+
+        worker.setProcess(functionProcess);
+        Process startedProcess = functionProcess;
+        functionProcess.onExit().thenRun(() -> onExit(startedProcess));
+        LOGGER.info("Started function worker " + worker.getIndex() + " on port " + worker.getPort() + ", process pid " + functionProcess.pid());
+    }
+
+    synchronized void onExit(Process exitedProcess) {
+        // Ignore exits on shutdown and of replaced processes
+        FunctionWorker worker = findWorker(exitedProcess);
+        if (stopping || worker == null) {
+            return;
+        }
+
+        LOGGER.warn("Function worker " + worker.getIndex() + " process pid " + exitedProcess.pid() +
+                " exited w/ exit code " + exitedProcess.exitValue());
+        FunctionWorker standby = functionWorkerPoolService.getStandby();
+        if (standby != null && worker != standby && standby.isAlive() && !standby.isRestarting() && !standby.isWarming()) {
+            // Fail over to the standby's process, and replace the standby on the exited process' port
+            worker.swapProcess(standby);
+            LOGGER.warn("Failed over function worker " + worker.getIndex() + " to standby process pid " +
+                    worker.getProcessHandle().pid() + " on port " + worker.getPort());
+            worker = standby;
+        }
+
+        worker.setRestarting(true);
+        if (System.currentTimeMillis() - worker.getStartedMs() >= STABLE_UPTIME_MS) {
+            worker.resetRestartAttempts();
+        }
+        scheduleRestart(worker);
+    }
+
+    synchronized void onEmbeddedExit(Thread exitedThread) {
+        // Ignore exits on shutdown
+        FunctionWorker worker = functionWorkerPoolService.getWorkers().get(0);
+        if (stopping || worker.getThread() != exitedThread) {
+            return;
+        }
+
+        LOGGER.warn("Embedded function exited");
+        worker.setRestarting(true);
+        if (System.currentTimeMillis() - worker.getStartedMs() >= STABLE_UPTIME_MS) {
+            worker.resetRestartAttempts();
+        }
+        // Runtime exited, though its thread is still finishing
+        worker.setThread(null);
+        scheduleRestart(worker);
+    }
+
+    private FunctionWorker findWorker(Process process) {
+        for (FunctionWorker worker : functionWorkerPoolService.getWorkers()) {
+            if (worker.getProcess() == process) {
+                return worker;
+            }
+        }
+
+        FunctionWorker standby = functionWorkerPoolService.getStandby();
+        return standby != null && standby.getProcess() == process ? standby : null;
+    }
+
+    private void scheduleRestart(FunctionWorker worker) {
+        if (stopping) {
+            return;
+        }
+
+        long delayMs = getRestartBackoffMs(worker.incrementRestartAttempts());
+        LOGGER.info("Restarting function worker " + worker.getIndex() + " in " + delayMs + "ms...");
+        supervisorExecutorService.schedule(() -> restart(worker), delayMs, TimeUnit.MILLISECONDS);
+    }
+
+    long getRestartBackoffMs(int attempt) {
+        if (attempt <= 1) {
+            return 0;
+        }
+
+        long backoffMs = INITIAL_RESTART_BACKOFF_MS << Math.min(attempt - 2, 16);
+        return Math.min(backoffMs, proxyConfig.getFunctionRestartMaxBackoffMs());
+    }
+
+    private void restart(FunctionWorker worker) {
+        // Replaced workers aren't restarted
+        if (stopping || !isPooled(worker)) {
+            return;
+        }
+
+        Process previousProcess = worker.getProcess();
+        Thread previousThread = worker.getThread();
+        // Standby isn't failed over to until warmed
+        boolean standby = worker == functionWorkerPoolService.getStandby();
+        if (standby) {
+            worker.setWarming(true);
+        }
+        try {
+            start(worker);
+            if (!isPooled(worker)) {
+                // Replaced while starting, eg by a redeploy, which doesn't stop a process it didn't see
+                LOGGER.info("Function worker " + worker.getIndex() + " replaced while restarting; stopping it");
+                stop(worker);
+                return;
+            }
+            functionReadinessService.awaitReady(ImmutableList.of(worker));
+            LOGGER.info("Restarted function worker " + worker.getIndex());
+            if (standby) {
+                functionReadinessService.warmUp(worker, proxyConfig.getFunctionStandbyWarmupRequests());
+                worker.setWarming(false);
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        } catch (Exception ex) {
+            LOGGER.error("Unable to restart function worker " + worker.getIndex() + ": " + ex.getMessage());
+            if (worker.getProcess() == previousProcess && worker.getThread() == previousThread) {
+                // Process wasn't started
+                scheduleRestart(worker);
+            } else if (worker.getThread() != null) {
+                // Embedded runtime can't be stopped; wait for it again
+                scheduleRestart(worker);
+            } else if (worker.isAlive()) {
+                // Process started, but isn't ready; restarted when it exits
+                worker.getProcessHandle().destroyForcibly();
+            }
+        }
+    }
+
+    private boolean isPooled(FunctionWorker worker) {
+        return functionWorkerPoolService.getWorkers().contains(worker) || worker == functionWorkerPoolService.getStandby();
+    }
+
+    /**
+     * Replace function workers, and the standby if enabled, w/ processes running the function code in the function
+     * directory, eg after the function is updated.  Invocations in flight on replaced workers complete.
+     *
+     * @return completed once all workers are replaced; fails if a redeploy is in progress or a new worker isn't ready
+     */
+    public CompletableFuture<Void> redeploy() {
+        if (proxyConfig.isEmbeddedFunctionEnabled()) {
+            return CompletableFuture.failedFuture(
+                    new UnsupportedOperationException("Redeploy not supported for embedded function"));
+        }
+        if (!redeploying.compareAndSet(false, true)) {
+            return CompletableFuture.failedFuture(new IllegalStateException("Redeploy in progress"));
+        }
+
+        return CompletableFuture.runAsync(() -> {
+            try {
+                for (FunctionWorker worker : functionWorkerPoolService.getWorkers()) {
+                    redeploy(worker);
+                }
+
+                // Standby is replaced by the supervisor
+                FunctionWorker standby = functionWorkerPoolService.getStandby();
+                if (standby != null && standby.isAlive()) {
+                    standby.getProcessHandle().destroy();
+                }
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException("Unable to redeploy function: interrupted");
+            } catch (Exception ex) {
+                throw new RuntimeException("Unable to redeploy function: " + ex.getMessage());
+            } finally {
+                redeploying.set(false);
+            }
+        }, redeployExecutorService);
+    }
+
+    private void redeploy(FunctionWorker worker) throws Exception {
+        int port;
+        try (ServerSocket serverSocket = new ServerSocket(0)) {
+            port = serverSocket.getLocalPort();
+        }
+        FunctionWorker replacement = new FunctionWorker(worker.getIndex(), port,
+                UriComponentsBuilder.fromHttpUrl(worker.getUrl()).port(port).toUriString());
+        startProcess(replacement);
+        try {
+            functionReadinessService.awaitReady(ImmutableList.of(replacement));
+            functionWorkerPoolService.replaceWorker(worker, replacement);
+        } catch (Exception ex) {
+            stop(replacement);
+            throw ex;
+        }
+        LOGGER.info("Moved function worker " + worker.getIndex() + " from port " + worker.getPort() + " to port " +
+                port + "; draining " + worker.getOutstandingRequests() + " in-flight request(s)...");
+
+        long deadlineMs = System.currentTimeMillis() + proxyConfig.getFunctionDrainTimeoutMs();
+        while (worker.getOutstandingRequests() > 0 && System.currentTimeMillis() < deadlineMs) {
+            Thread.sleep(50);
+        }
+        if (worker.getOutstandingRequests() > 0) {
+            LOGGER.warn("Stopping function worker " + worker.getIndex() + " on port " + worker.getPort() + " w/ " +
+                    worker.getOutstandingRequests() + " in-flight request(s) after " +
+                    proxyConfig.getFunctionDrainTimeoutMs() + "ms");
+        }
+        stop(worker);
+    }
+
+    private void stop(FunctionWorker worker) throws InterruptedException {
+        ProcessHandle processHandle = worker.getProcessHandle();
+        if (processHandle == null || !processHandle.isAlive()) {
+            return;
         }
 
-        LOGGER.info("Started function started on port " + proxyConfig.getFunctionPort() + ", process pid " + functionProcessHandle.pid());
+        processHandle.destroy();
+        try {
+            processHandle.onExit().get(10, TimeUnit.SECONDS);
+        } catch (TimeoutException | ExecutionException ex) {
+            processHandle.destroyForcibly();
+        }
+        LOGGER.info("Stopped function process pid " + processHandle.pid() + " on port " + worker.getPort());
     }
 
     List<String> assembleFunctionStartCommand() throws IOException {
+        return assembleFunctionStartCommand(proxyConfig.getFunctionPort(), true, null);
+    }
+
+    List<String> assembleFunctionStartCommand(FunctionWorker worker) throws IOException {
+        // Only the first worker is debuggable, as processes can't share the debug port.  When running more than one
+        // process, each process' heap is bounded so that processes don't each size their heap from the dyno's memory.
+        int processes = functionWorkerPoolService.getWorkers().size() +
+                (functionWorkerPoolService.getStandby() != null ? 1 : 0);
+        String maxHeap = processes > 1 ? "-Xmx" + (proxyConfig.getFunctionWorkerMemoryMb() * 3 / 4) + "m" : null;
+        // Replacements aren't debuggable, as the debug port is in use by the worker being replaced
+        boolean debuggable = !functionWorkerPoolService.getWorkers().isEmpty()
+                && functionWorkerPoolService.getWorkers().get(0) == worker;
+        return assembleFunctionStartCommand(String.valueOf(worker.getPort()), debuggable, maxHeap);
+    }
+
+    private List<String> assembleFunctionStartCommand(String port, boolean debuggable, String maxHeap) throws IOException {
         List<String> functionStartCmd = Lists.newArrayList();
         String javaFilePath = getJavaCmd().getAbsolutePath();
         functionStartCmd.add(javaFilePath);
-        if (!utils.isBlank(proxyConfig.getDebugPort())) {
+        if (debuggable && !utils.isBlank(proxyConfig.getDebugPort())) {
             functionStartCmd.add("-agentlib:jdwp=transport=dt_socket,server=y,suspend=n,address=" + proxyConfig.getDebugPort());
         }
         if (!utils.isBlank(proxyConfig.getFunctionJavaToolOptions())) {
             String[] javaToolOptionParts = proxyConfig.getFunctionJavaToolOptions().split(" ");
             functionStartCmd.addAll(Lists.newArrayList(javaToolOptionParts));
         }
+        if (maxHeap != null) {
+            // Overrides any max heap in JAVA_TOOL_OPTIONS
+            functionStartCmd.add(maxHeap);
+        }
         functionStartCmd.add("-jar");
         functionStartCmd.add(proxyConfig.getSfFxRuntimeJarFilePath());
-        functionStartCmd.add("serve");
-        functionStartCmd.add(proxyConfig.getFunctionDir());
-        functionStartCmd.add("-h");
-        functionStartCmd.add(proxyConfig.getFunctionHost());
-        functionStartCmd.add("-p");
-        functionStartCmd.add(String.valueOf(proxyConfig.getFunctionPort()));
+        functionStartCmd.addAll(assembleRuntimeArgs(port));
         return functionStartCmd;
     }
 
+    List<String> assembleRuntimeArgs(String port) {
+        List<String> runtimeArgs = Lists.newArrayList();
+        runtimeArgs.add("serve");
+        runtimeArgs.add(proxyConfig.getFunctionDir());
+        runtimeArgs.add("-h");
+        runtimeArgs.add(proxyConfig.getFunctionHost());
+        runtimeArgs.add("-p");
+        runtimeArgs.add(port);
+        return runtimeArgs;
+    }
+
+    /**
+     * Run the function runtime's main class in an isolated classloader.  The classloader's parent is the platform
+     * classloader so that the runtime's and function's dependencies don't conflict w/ the proxy's.
+     *
+     * If the runtime is still running, eg on restart after a failed /healthcheck, it's left running.
+     *
+     * @throws Exception
+     */
+    synchronized void startEmbedded(FunctionWorker worker) throws Exception {
+        if (worker.isAlive()) {
+            LOGGER.info("Embedded function already running on port " + proxyConfig.getFunctionPort());
+            return;
+        }
+
+        if (embeddedClassLoader != null) {
+            embeddedClassLoader.close();
+        }
+
+        File runtimeJar = new File(proxyConfig.getSfFxRuntimeJarFilePath());
+        String mainClassName;
+        try (JarFile jarFile = new JarFile(runtimeJar)) {
+            Manifest manifest = jarFile.getManifest();
+            mainClassName = manifest != null ? manifest.getMainAttributes().getValue(Attributes.Name.MAIN_CLASS) : null;
+        } catch (IOException ex) {
+            throw new RuntimeException("Unable to start function: " + ex.getMessage());
+        }
+        if (utils.isBlank(mainClassName)) {
+            throw new RuntimeException("Unable to start function: Main-Class not found in " + runtimeJar);
+        }
+
+        List<String> runtimeArgs = assembleRuntimeArgs(proxyConfig.getFunctionPort());
+        LOGGER.info("Starting embedded function w/ " + mainClassName + " args: " + String.join(" ", runtimeArgs));
+        embeddedClassLoader = new URLClassLoader("sf-fx-runtime",
+                                                 new URL[] { runtimeJar.toURI().toURL() },
+                                                 ClassLoader.getPlatformClassLoader());
+        Method main;
+        try {
+            main = embeddedClassLoader.loadClass(mainClassName).getMethod("main", String[].class);
+        } catch (ReflectiveOperationException ex) {
+            throw new RuntimeException("Unable to start function: " + ex.getMessage());
+        }
+
+        Thread embeddedThread = new Thread(() -> {
+            try {
+                main.invoke(null, (Object) runtimeArgs.toArray(new String[0]));
+            } catch (InvocationTargetException ex) {
+                LOGGER.error("Embedded function exited: " + ex.getCause().getMessage(), ex.getCause());
+            } catch (Exception ex) {
+                LOGGER.error("Embedded function exited: " + ex.getMessage(), ex);
+            } finally {
+                onEmbeddedExit(Thread.currentThread());
+            }
+        }, "EmbeddedFunction");
+        embeddedThread.setContextClassLoader(embeddedClassLoader);
+        embeddedThread.setDaemon(true);
+        worker.setThread(embeddedThread);
+        embeddedThread.start();
+
+        LOGGER.info("Started embedded function on port " + proxyConfig.getFunctionPort());
+    }
+
     public File getJavaCmd() throws IOException {
         String javaHome = proxyConfig.getJavaHome();
         File javaCmd;
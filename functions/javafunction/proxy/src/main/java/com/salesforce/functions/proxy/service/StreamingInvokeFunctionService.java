@@ -0,0 +1,235 @@
+package com.salesforce.functions.proxy.service;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.salesforce.functions.proxy.config.ProxyConfig;
+import com.salesforce.functions.proxy.model.FunctionRequestContext;
+import com.salesforce.functions.proxy.model.FunctionWorker;
+import com.salesforce.functions.proxy.util.BufferPool;
+import com.salesforce.functions.proxy.util.Utils;
+import com.salesforce.functions.proxy.util.VirtualThreads;
+import org.apache.http.Header;
+import org.apache.http.HttpEntity;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.RequestBuilder;
+import org.apache.http.entity.AbstractHttpEntity;
+import org.apache.http.util.EntityUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Service;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static com.salesforce.functions.proxy.service.InvokeFunctionService.RESTRICTED_HEADERS;
+
+/**
+ * Service to invoke co-located function in servlet mode w/o buffering request and response bodies.
+ *
+ * The client's request body is streamed to the function, and the function's response body back to the client,
+ * through fixed-size pooled buffers over the pooled function client.  Streaming threads block on I/O w/ the
+ * client and function, not request threads.
+ */
+@Service
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+@ConditionalOnProperty(prefix = "proxy", name = "syncStreamingEnabled", havingValue = "true")
+public class StreamingInvokeFunctionService implements InitializingBean, DisposableBean {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(StreamingInvokeFunctionService.class);
+
+    @Autowired
+    ProxyConfig proxyConfig;
+
+    @Autowired
+    FunctionHttpClientService functionHttpClientService;
+
+    @Autowired
+    FunctionWorkerPoolService functionWorkerPoolService;
+
+    @Autowired
+    Utils utils;
+
+    BufferPool bufferPool;
+    private ExecutorService executorService;
+
+    @Override
+    public void afterPropertiesSet() {
+        bufferPool = new BufferPool(proxyConfig.getStreamingBufferSize(), proxyConfig.getStreamingBufferPoolSize());
+        executorService = VirtualThreads.isEnabled(proxyConfig)
+                ? VirtualThreads.newThreadPerTaskExecutor("FunctionStreamer-")
+                : Executors.newCachedThreadPool(
+                        new ThreadFactoryBuilder().setNameFormat("FunctionStreamer-%d").setDaemon(true).build());
+        LOGGER.info("Streaming /sync request and response bodies w/ " + proxyConfig.getStreamingBufferSize() +
+                " byte buffers");
+    }
+
+    @Override
+    public void destroy() {
+        if (executorService != null) {
+            executorService.shutdownNow();
+        }
+    }
+
+    /**
+     * Invoke function synchronously, streaming given body to the function.
+     *
+     * The returned future completes once the function's response status and headers are received; the function's
+     * response body is streamed as the returned body is written.  As w/ InvokeFunctionService, the function's 4xx
+     * responses are returned and 5xx responses complete the returned future exceptionally w/
+     * HttpServerErrorException.
+     *
+     * @param functionRequestContext
+     * @param body request body, or null if none
+     * @return
+     */
+    public CompletableFuture<ResponseEntity<StreamingResponseBody>> invokeFunction(FunctionRequestContext functionRequestContext,
+                                                                                   InputStream body) {
+        return CompletableFuture.supplyAsync(() -> doInvokeFunction(functionRequestContext, body), executorService);
+    }
+
+    private ResponseEntity<StreamingResponseBody> doInvokeFunction(FunctionRequestContext functionRequestContext,
+                                                                   InputStream body) {
+        String requestId = functionRequestContext.getRequestId();
+        FunctionWorker worker = functionWorkerPoolService.acquire();
+        String functionUrl = worker.getUrl();
+        utils.info(LOGGER, requestId,"Invoking sync function " + functionUrl + "...");
+        long startMs = System.currentTimeMillis();
+
+        HttpHeaders headers = functionRequestContext.getHeaders();
+        RequestBuilder requestBuilder = RequestBuilder.create(functionRequestContext.getMethod().name())
+                .setUri(functionUrl);
+        for (Map.Entry<String, List<String>> header : headers.entrySet()) {
+            if (RESTRICTED_HEADERS.contains(header.getKey().toLowerCase())) {
+                continue;
+            }
+            for (String value : header.getValue()) {
+                requestBuilder.addHeader(header.getKey(), value);
+            }
+        }
+        if (body != null) {
+            requestBuilder.setEntity(new PooledInputStreamEntity(body, headers.getContentLength()));
+        }
+
+        // Worker is released once the response body is streamed, so that it's counted as outstanding, eg by
+        // balancing and redeploy's drain, until then
+        AtomicBoolean released = new AtomicBoolean();
+        Runnable release = () -> {
+            if (released.compareAndSet(false, true)) {
+                functionWorkerPoolService.release(worker);
+                utils.info(LOGGER, requestId,"Invoked function " + functionUrl + " in " +
+                        (System.currentTimeMillis() - startMs) + "ms");
+            }
+        };
+
+        CloseableHttpResponse response;
+        try {
+            response = functionHttpClientService.getHttpClient().execute(requestBuilder.build());
+        } catch (IOException ex) {
+            release.run();
+            throw new ResourceAccessException("I/O error on " + functionRequestContext.getMethod() +
+                    " request for \"" + functionUrl + "\": " + ex.getMessage(), ex);
+        } catch (RuntimeException ex) {
+            release.run();
+            throw ex;
+        }
+
+        HttpHeaders responseHeaders = new HttpHeaders();
+        for (Header header : response.getAllHeaders()) {
+            if (!RESTRICTED_HEADERS.contains(header.getName().toLowerCase())) {
+                responseHeaders.add(header.getName(), header.getValue());
+            }
+        }
+        HttpEntity entity = response.getEntity();
+        if (entity != null && entity.getContentLength() >= 0) {
+            responseHeaders.setContentLength(entity.getContentLength());
+        }
+
+        int statusCode = response.getStatusLine().getStatusCode();
+        HttpStatus status = HttpStatus.resolve(statusCode);
+        if (status != null && status.is5xxServerError()) {
+            byte[] responseBody;
+            try (response) {
+                responseBody = entity != null ? EntityUtils.toByteArray(entity) : new byte[0];
+            } catch (IOException ex) {
+                responseBody = new byte[0];
+            } finally {
+                release.run();
+            }
+            throw HttpServerErrorException.create(status,
+                                                  status.getReasonPhrase(),
+                                                  responseHeaders,
+                                                  responseBody,
+                                                  StandardCharsets.UTF_8);
+        }
+
+        return ResponseEntity
+                .status(statusCode)
+                .headers(responseHeaders)
+                .body(out -> {
+                    try (response) {
+                        if (entity != null) {
+                            try (InputStream in = entity.getContent()) {
+                                bufferPool.copy(in, out);
+                            }
+                        }
+                    } finally {
+                        release.run();
+                    }
+                });
+    }
+
+    // Writes request body w/ a pooled buffer, rather than allocating a buffer per request
+    private class PooledInputStreamEntity extends AbstractHttpEntity {
+        private final InputStream content;
+        private final long contentLength;
+
+        PooledInputStreamEntity(InputStream content, long contentLength) {
+            this.content = content;
+            this.contentLength = contentLength;
+            setChunked(contentLength < 0);
+        }
+
+        @Override
+        public boolean isRepeatable() {
+            return false;
+        }
+
+        @Override
+        public long getContentLength() {
+            return contentLength;
+        }
+
+        @Override
+        public InputStream getContent() {
+            return content;
+        }
+
+        @Override
+        public void writeTo(OutputStream outStream) throws IOException {
+            bufferPool.copy(content, outStream);
+        }
+
+        @Override
+        public boolean isStreaming() {
+            return true;
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.salesforce.functions.proxy.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Pool of fixed-size byte buffers used to copy streams w/o allocating a buffer per copy.
+ *
+ * Buffers are allocated on demand when the pool is empty.  At most the configured number of idle buffers are
+ * retained; others are left to be collected.
+ */
+public class BufferPool {
+
+    private final int bufferSize;
+    private final BlockingQueue<byte[]> buffers;
+
+    public BufferPool(int bufferSize, int maxPooledBuffers) {
+        this.bufferSize = bufferSize;
+        this.buffers = new ArrayBlockingQueue<>(maxPooledBuffers);
+    }
+
+    public int getBufferSize() {
+        return bufferSize;
+    }
+
+    /**
+     * @return number of idle, pooled buffers
+     */
+    public int size() {
+        return buffers.size();
+    }
+
+    /**
+     * @return pooled buffer, or a new buffer if none are idle
+     */
+    public byte[] acquire() {
+        byte[] buffer = buffers.poll();
+        return buffer != null ? buffer : new byte[bufferSize];
+    }
+
+    /**
+     * @param buffer buffer, acquired from this pool, that is no longer in use
+     */
+    public void release(byte[] buffer) {
+        buffers.offer(buffer);
+    }
+
+    /**
+     * Copy given input to given output w/ a pooled buffer, flushing output once copied.
+     *
+     * @param in
+     * @param out
+     * @return number of bytes copied
+     * @throws IOException
+     */
+    public long copy(InputStream in, OutputStream out) throws IOException {
+        byte[] buffer = acquire();
+        try {
+            long count = 0;
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+                count += read;
+            }
+            out.flush();
+            return count;
+        } finally {
+            release(buffer);
+        }
+    }
+}
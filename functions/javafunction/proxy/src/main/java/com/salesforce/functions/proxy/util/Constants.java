@@ -11,11 +11,16 @@ public class Constants {
     public static final String HEADER_EXTRA_INFO = "x-extra-info";
     public static final String HEADER_ORG_ID_18 = "x-org-id-18";
     public static final String HEADER_HEALTH_CHECK = "x-health-check";
+    public static final String HEADER_REQUEST_ASSERTION = "x-request-assertion";
     
     // Function
     public static final String FUNCTION_INVOCATION_TYPE_SYNC = "com.salesforce.function.invoke.sync";
     public static final String FUNCTION_INVOCATION_TYPE_ASYNC = "com.salesforce.function.invoke.async";
 
+    // Caller validation
+    public static final String CALLER_VALIDATION_MODE_USERINFO = "userinfo";
+    public static final String CALLER_VALIDATION_MODE_SIGNATURE = "signature";
+
     // Oauth
     public static final String SANDBOX_AUDIENCE_URL = "https://test.salesforce.com";
     public static final String PROD_AUDIENCE_URL = "https://login.salesforce.com";
@@ -29,6 +29,10 @@ public class Utils {
         return defaultMapper.readValue(json, clazz);
     }
 
+    public <T> T fromJson(String json, TypeReference<T> typeReference) throws JsonProcessingException {
+        return defaultMapper.readValue(json, typeReference);
+    }
+
     public <T> T fromEncodedJson(String encoded, Class<T> clazz) throws JsonProcessingException {
         final byte[] decoded = Base64.getDecoder().decode(encoded);
         return fromJson(new String(decoded), clazz);
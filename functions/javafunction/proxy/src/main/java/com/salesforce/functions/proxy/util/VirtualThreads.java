@@ -0,0 +1,92 @@
+package com.salesforce.functions.proxy.util;
+
+import com.salesforce.functions.proxy.config.ProxyConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Creates virtual thread executors when running on Java 21+.
+ *
+ * The proxy is built for Java 11, so virtual threads are created reflectively.  When virtual threads are enabled
+ * but not supported by the running JVM, callers fall back to their platform thread pools.
+ */
+public final class VirtualThreads {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(VirtualThreads.class);
+
+    private static final AtomicBoolean UNSUPPORTED_LOGGED = new AtomicBoolean(false);
+
+    private VirtualThreads() {
+    }
+
+    /**
+     * @return true if the running JVM supports virtual threads
+     */
+    public static boolean isSupported() {
+        try {
+            Thread.class.getMethod("ofVirtual");
+            return true;
+        } catch (NoSuchMethodException ex) {
+            return false;
+        }
+    }
+
+    /**
+     * @param proxyConfig
+     * @return true if virtual threads are enabled and supported by the running JVM
+     */
+    public static boolean isEnabled(ProxyConfig proxyConfig) {
+        if (!proxyConfig.isVirtualThreadsEnabled()) {
+            return false;
+        }
+
+        if (!isSupported()) {
+            if (UNSUPPORTED_LOGGED.compareAndSet(false, true)) {
+                LOGGER.warn("Virtual threads enabled, but not supported by Java " +
+                        System.getProperty("java.specification.version") + "; using platform threads");
+            }
+            return false;
+        }
+
+        return true;
+    }
+
+    /**
+     * Create executor that starts a new, named virtual thread for each task.
+     *
+     * @param namePrefix thread name prefix, suffixed w/ a counter
+     * @return executor
+     * @throws UnsupportedOperationException if virtual threads are not supported
+     */
+    public static ExecutorService newThreadPerTaskExecutor(String namePrefix) {
+        ThreadFactory threadFactory = newThreadFactory(namePrefix);
+        try {
+            Method newThreadPerTaskExecutor = Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class);
+            return (ExecutorService) newThreadPerTaskExecutor.invoke(null, threadFactory);
+        } catch (ReflectiveOperationException ex) {
+            throw new UnsupportedOperationException("Unable to create virtual thread executor: " + ex.getMessage(), ex);
+        }
+    }
+
+    /**
+     * @param namePrefix thread name prefix, suffixed w/ a counter
+     * @return factory of named virtual threads
+     * @throws UnsupportedOperationException if virtual threads are not supported
+     */
+    public static ThreadFactory newThreadFactory(String namePrefix) {
+        try {
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+            builder = builderClass.getMethod("name", String.class, long.class).invoke(builder, namePrefix, 0L);
+            return (ThreadFactory) builderClass.getMethod("factory").invoke(builder);
+        } catch (ReflectiveOperationException ex) {
+            throw new UnsupportedOperationException("Unable to create virtual thread factory: " + ex.getMessage(), ex);
+        }
+    }
+}
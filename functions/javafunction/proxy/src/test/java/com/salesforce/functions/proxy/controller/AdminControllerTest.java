@@ -0,0 +1,143 @@
+package com.salesforce.functions.proxy.controller;
+
+import com.salesforce.functions.proxy.config.ProxyConfig;
+import com.salesforce.functions.proxy.service.AsyncResponseRetryService;
+import com.salesforce.functions.proxy.service.StartFunctionService;
+import com.salesforce.functions.proxy.util.Utils;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class AdminControllerTest {
+
+    private static final String ADMIN_TOKEN = "s3cr3t";
+
+    @Mock
+    private ProxyConfig mockProxyConfig;
+
+    @Mock
+    private Utils mockUtils;
+
+    @Mock
+    StartFunctionService mockStartFunctionService;
+
+    @Mock
+    AsyncResponseRetryService mockAsyncResponseRetryService;
+
+    @InjectMocks
+    AdminController adminController = new AdminController();
+
+    @Test
+    public void redeployFunction_happyPath() {
+        when(mockUtils.isBlank(any())).thenCallRealMethod();
+        when(mockProxyConfig.getAdminToken()).thenReturn(ADMIN_TOKEN);
+        when(mockStartFunctionService.redeploy()).thenReturn(CompletableFuture.completedFuture(null));
+
+        ResponseEntity<String> responseEntity = adminController.redeployFunction(bearer(ADMIN_TOKEN)).join();
+        assertThat(responseEntity.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(responseEntity.getBody()).startsWith("Redeployed function in ");
+    }
+
+    @Test
+    public void redeployFunction_disabled() {
+        when(mockUtils.isBlank(any())).thenCallRealMethod();
+
+        ResponseEntity<String> responseEntity = adminController.redeployFunction(bearer("")).join();
+        assertThat(responseEntity.getStatusCode()).isEqualTo(HttpStatus.NOT_FOUND);
+        verify(mockStartFunctionService, never()).redeploy();
+    }
+
+    @Test
+    public void redeployFunction_unauthorized() {
+        when(mockUtils.isBlank(any())).thenCallRealMethod();
+        when(mockProxyConfig.getAdminToken()).thenReturn(ADMIN_TOKEN);
+
+        assertThat(adminController.redeployFunction(bearer("wrong")).join().getStatusCode())
+                .isEqualTo(HttpStatus.UNAUTHORIZED);
+        assertThat(adminController.redeployFunction(new HttpHeaders()).join().getStatusCode())
+                .isEqualTo(HttpStatus.UNAUTHORIZED);
+        verify(mockStartFunctionService, never()).redeploy();
+    }
+
+    @Test
+    public void redeployFunction_inProgress() {
+        when(mockUtils.isBlank(any())).thenCallRealMethod();
+        when(mockProxyConfig.getAdminToken()).thenReturn(ADMIN_TOKEN);
+        when(mockStartFunctionService.redeploy())
+                .thenReturn(CompletableFuture.failedFuture(new IllegalStateException("Redeploy in progress")));
+
+        ResponseEntity<String> responseEntity = adminController.redeployFunction(bearer(ADMIN_TOKEN)).join();
+        assertThat(responseEntity.getStatusCode()).isEqualTo(HttpStatus.CONFLICT);
+        assertThat(responseEntity.getBody()).isEqualTo("Redeploy in progress");
+    }
+
+    @Test
+    public void redeployFunction_failed() {
+        when(mockUtils.isBlank(any())).thenCallRealMethod();
+        when(mockProxyConfig.getAdminToken()).thenReturn(ADMIN_TOKEN);
+        when(mockStartFunctionService.redeploy()).thenReturn(CompletableFuture.supplyAsync(() -> {
+            throw new RuntimeException("Unable to redeploy function: Function worker 0 exited w/ exit code 1 before ready");
+        }));
+
+        ResponseEntity<String> responseEntity = adminController.redeployFunction(bearer(ADMIN_TOKEN)).join();
+        assertThat(responseEntity.getStatusCode()).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE);
+        assertThat(responseEntity.getBody()).contains("exit code 1");
+    }
+
+    @Test
+    public void replayDeadLetters_happyPath() {
+        when(mockUtils.isBlank(any())).thenCallRealMethod();
+        when(mockProxyConfig.getAdminToken()).thenReturn(ADMIN_TOKEN);
+        AsyncResponseRetryService.ReplayResult result = mock(AsyncResponseRetryService.ReplayResult.class);
+        when(result.getReplayed()).thenReturn(3);
+        when(result.getSaved()).thenReturn(2);
+        when(mockAsyncResponseRetryService.replayDeadLetters()).thenReturn(CompletableFuture.completedFuture(result));
+
+        ResponseEntity<String> responseEntity = adminController.replayDeadLetters(bearer(ADMIN_TOKEN)).join();
+        assertThat(responseEntity.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(responseEntity.getBody()).isEqualTo("Replayed 3 dead-lettered function response(s): 2 saved, 1 failed");
+    }
+
+    @Test
+    public void replayDeadLetters_unauthorized() {
+        when(mockUtils.isBlank(any())).thenCallRealMethod();
+        when(mockProxyConfig.getAdminToken()).thenReturn(ADMIN_TOKEN);
+
+        assertThat(adminController.replayDeadLetters(bearer("wrong")).join().getStatusCode())
+                .isEqualTo(HttpStatus.UNAUTHORIZED);
+        verify(mockAsyncResponseRetryService, never()).replayDeadLetters();
+    }
+
+    @Test
+    public void replayDeadLetters_notConfigured() {
+        when(mockUtils.isBlank(any())).thenCallRealMethod();
+        when(mockProxyConfig.getAdminToken()).thenReturn(ADMIN_TOKEN);
+        when(mockAsyncResponseRetryService.replayDeadLetters())
+                .thenThrow(new UnsupportedOperationException("Async write-back dead-letter file not configured"));
+
+        ResponseEntity<String> responseEntity = adminController.replayDeadLetters(bearer(ADMIN_TOKEN)).join();
+        assertThat(responseEntity.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+        assertThat(responseEntity.getBody()).isEqualTo("Async write-back dead-letter file not configured");
+    }
+
+    private HttpHeaders bearer(String token) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setBearerAuth(token);
+        return headers;
+    }
+}
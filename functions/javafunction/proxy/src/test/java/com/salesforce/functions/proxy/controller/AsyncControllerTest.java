@@ -1,8 +1,10 @@
 package com.salesforce.functions.proxy.controller;
 
 import com.google.common.collect.ImmutableList;
+import com.salesforce.functions.proxy.config.ProxyConfig;
 import com.salesforce.functions.proxy.handler.request.RequestHandler;
-import com.salesforce.functions.proxy.service.InvokeFunctionService;
+import com.salesforce.functions.proxy.handler.request.RequestHandlerPipeline;
+import com.salesforce.functions.proxy.service.AsyncInvocationQueueService;
 import com.salesforce.functions.proxy.util.Utils;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -28,17 +30,38 @@ public class AsyncControllerTest {
     private Utils mockUtils;
 
     @Mock
-    InvokeFunctionService mockInvokeFunctionService;
+    private ProxyConfig mockProxyConfig;
+
+    @Mock
+    AsyncInvocationQueueService mockAsyncInvocationQueueService;
 
     @InjectMocks
     AsyncController asyncController = new AsyncController();
 
     @Test
     public void handleRequest_happyPath() {
-        asyncController.handlers = ImmutableList.<RequestHandler>of(new NoOpRequestHandler());
+        RequestHandlerPipeline requestHandlerPipeline =
+                new RequestHandlerPipeline(ImmutableList.<RequestHandler>of(new NoOpRequestHandler()), new ProxyConfig(), mockUtils);
+        requestHandlerPipeline.afterPropertiesSet();
+        asyncController.requestHandlerPipeline = requestHandlerPipeline;
+        when(mockAsyncInvocationQueueService.offer(any(), eq(""), any())).thenReturn(true);
         HttpHeaders headers = new HttpHeaders();
-        ResponseEntity responseEntity = asyncController.handleRequest("", headers, HttpMethod.POST);
+        ResponseEntity responseEntity = asyncController.handleRequest("", headers, HttpMethod.POST).join();
         assertThat(responseEntity).isNotNull();
         assertThat(responseEntity.getStatusCode()).isEqualTo(HttpStatus.CREATED);
     }
+
+    @Test
+    public void handleRequest_queueFull() {
+        RequestHandlerPipeline requestHandlerPipeline =
+                new RequestHandlerPipeline(ImmutableList.<RequestHandler>of(new NoOpRequestHandler()), new ProxyConfig(), mockUtils);
+        requestHandlerPipeline.afterPropertiesSet();
+        asyncController.requestHandlerPipeline = requestHandlerPipeline;
+        when(mockAsyncInvocationQueueService.offer(any(), any(), any())).thenReturn(false);
+        when(mockProxyConfig.getAsyncRetryAfterSeconds()).thenReturn(5);
+        HttpHeaders headers = new HttpHeaders();
+        ResponseEntity responseEntity = asyncController.handleRequest("", headers, HttpMethod.POST).join();
+        assertThat(responseEntity.getStatusCode()).isEqualTo(HttpStatus.TOO_MANY_REQUESTS);
+        assertThat(responseEntity.getHeaders().getFirst(HttpHeaders.RETRY_AFTER)).isEqualTo("5");
+    }
 }
@@ -7,6 +7,7 @@ import com.salesforce.functions.proxy.service.StartFunctionService;
 import com.salesforce.functions.proxy.util.Utils;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
@@ -14,6 +15,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.client.ResourceAccessException;
 
 import java.util.List;
 
@@ -21,6 +23,8 @@ import static com.salesforce.functions.proxy.util.Constants.HEADER_ORG_ID_18;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.inOrder;
 import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
@@ -54,4 +58,37 @@ public class HealthCheckControllerTest {
         assertThat(responseEntity).isNotNull();
         assertThat(responseEntity.getStatusCode()).isEqualTo(HttpStatus.OK);
     }
+
+    @Test
+    public void handleRequest_restart() throws Exception {
+        String orgId = "ORGID";
+        when(mockProxyConfig.getOrgId18()).thenReturn(orgId);
+        when(mockInvokeFunctionService.invokeFunction(eq("healthcheck"), any(), any()))
+                .thenThrow(new ResourceAccessException("Connection refused"))
+                .thenReturn(new ResponseEntity("OK", HttpStatus.OK));
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.add(HEADER_ORG_ID_18, orgId);
+        ResponseEntity<String> responseEntity = healthCheckController.handleRequest("", headers);
+        assertThat(responseEntity.getStatusCode()).isEqualTo(HttpStatus.OK);
+        InOrder inOrder = inOrder(mockStartFunctionService);
+        inOrder.verify(mockStartFunctionService).start();
+        inOrder.verify(mockStartFunctionService).awaitReady();
+    }
+
+    @Test
+    public void handleRequest_restartNotReady() throws Exception {
+        String orgId = "ORGID";
+        when(mockProxyConfig.getOrgId18()).thenReturn(orgId);
+        when(mockInvokeFunctionService.invokeFunction(eq("healthcheck"), any(), any()))
+                .thenThrow(new ResourceAccessException("Connection refused"));
+        doThrow(new RuntimeException("Function worker 0 exited w/ exit code 1 before ready"))
+                .when(mockStartFunctionService).awaitReady();
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.add(HEADER_ORG_ID_18, orgId);
+        ResponseEntity<String> responseEntity = healthCheckController.handleRequest("", headers);
+        assertThat(responseEntity.getStatusCode()).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE);
+        assertThat(responseEntity.getBody()).contains("exit code 1");
+    }
 }
@@ -0,0 +1,69 @@
+package com.salesforce.functions.proxy.controller;
+
+import com.google.common.collect.ImmutableList;
+import com.salesforce.functions.proxy.config.ProxyConfig;
+import com.salesforce.functions.proxy.handler.request.RequestHandler;
+import com.salesforce.functions.proxy.handler.request.RequestHandlerPipeline;
+import com.salesforce.functions.proxy.service.AsyncInvocationQueueService;
+import com.salesforce.functions.proxy.util.Utils;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class ReactiveAsyncControllerTest {
+
+    @Mock
+    private Utils mockUtils;
+
+    @Mock
+    private ProxyConfig mockProxyConfig;
+
+    @Mock
+    AsyncInvocationQueueService mockAsyncInvocationQueueService;
+
+    @InjectMocks
+    ReactiveAsyncController reactiveAsyncController = new ReactiveAsyncController();
+
+    @Test
+    public void handleRequest_happyPath() {
+        RequestHandlerPipeline requestHandlerPipeline =
+                new RequestHandlerPipeline(ImmutableList.<RequestHandler>of(new NoOpRequestHandler()), new ProxyConfig(), mockUtils);
+        requestHandlerPipeline.afterPropertiesSet();
+        reactiveAsyncController.requestHandlerPipeline = requestHandlerPipeline;
+        when(mockAsyncInvocationQueueService.offer(any(), eq("{}"), any())).thenReturn(true);
+
+        ResponseEntity<String> responseEntity =
+                reactiveAsyncController.handleRequest(MockServerHttpRequest.post("/async").body("{}")).block();
+        assertThat(responseEntity).isNotNull();
+        assertThat(responseEntity.getStatusCode()).isEqualTo(HttpStatus.CREATED);
+        verify(mockAsyncInvocationQueueService).offer(any(), eq("{}"), any());
+    }
+
+    @Test
+    public void handleRequest_queueFull() {
+        RequestHandlerPipeline requestHandlerPipeline =
+                new RequestHandlerPipeline(ImmutableList.<RequestHandler>of(new NoOpRequestHandler()), new ProxyConfig(), mockUtils);
+        requestHandlerPipeline.afterPropertiesSet();
+        reactiveAsyncController.requestHandlerPipeline = requestHandlerPipeline;
+        when(mockAsyncInvocationQueueService.offer(any(), any(), any())).thenReturn(false);
+        when(mockProxyConfig.getAsyncRetryAfterSeconds()).thenReturn(5);
+
+        ResponseEntity<String> responseEntity =
+                reactiveAsyncController.handleRequest(MockServerHttpRequest.post("/async").body("{}")).block();
+        assertThat(responseEntity.getStatusCode()).isEqualTo(HttpStatus.TOO_MANY_REQUESTS);
+        assertThat(responseEntity.getHeaders().getFirst(HttpHeaders.RETRY_AFTER)).isEqualTo("5");
+    }
+}
@@ -0,0 +1,75 @@
+package com.salesforce.functions.proxy.controller;
+
+import com.salesforce.functions.proxy.config.ProxyConfig;
+import com.salesforce.functions.proxy.service.ReactiveInvokeFunctionService;
+import com.salesforce.functions.proxy.service.StartFunctionService;
+import com.salesforce.functions.proxy.util.Utils;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+
+import static com.salesforce.functions.proxy.util.Constants.HEADER_ORG_ID_18;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class ReactiveHealthCheckControllerTest {
+
+    @Mock
+    private ProxyConfig mockProxyConfig;
+
+    @Mock
+    private Utils mockUtils;
+
+    @Mock
+    StartFunctionService mockStartFunctionService;
+
+    @Mock
+    ReactiveInvokeFunctionService mockReactiveInvokeFunctionService;
+
+    @InjectMocks
+    ReactiveHealthCheckController reactiveHealthCheckController = new ReactiveHealthCheckController();
+
+    @Test
+    public void handleRequest_happyPath() throws Exception {
+        String orgId = "ORGID";
+        when(mockProxyConfig.getOrgId18()).thenReturn(orgId);
+        when(mockReactiveInvokeFunctionService.invokeFunction(eq("healthcheck"), any(), any()))
+                .thenReturn(Mono.just(new ResponseEntity<>(
+                        Flux.<DataBuffer>just(DefaultDataBufferFactory.sharedInstance.wrap("OK".getBytes(StandardCharsets.UTF_8))),
+                        HttpStatus.OK)));
+
+        ResponseEntity<String> responseEntity = reactiveHealthCheckController
+                .handleRequest(MockServerHttpRequest.post("/healthcheck").header(HEADER_ORG_ID_18, orgId).build())
+                .block();
+        assertThat(responseEntity).isNotNull();
+        assertThat(responseEntity.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(responseEntity.getBody()).isEqualTo("OK");
+        verify(mockStartFunctionService, never()).start();
+    }
+
+    @Test
+    public void handleRequest_unauthorized() {
+        when(mockProxyConfig.getOrgId18()).thenReturn("ORGID");
+
+        ResponseEntity<String> responseEntity = reactiveHealthCheckController
+                .handleRequest(MockServerHttpRequest.post("/healthcheck").header(HEADER_ORG_ID_18, "OTHER").build())
+                .block();
+        assertThat(responseEntity.getStatusCodeValue()).isEqualTo(410);
+    }
+}
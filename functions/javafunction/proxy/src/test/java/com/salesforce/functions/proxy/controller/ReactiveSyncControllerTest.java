@@ -0,0 +1,96 @@
+package com.salesforce.functions.proxy.controller;
+
+import com.google.common.collect.ImmutableList;
+import com.salesforce.functions.proxy.config.ProxyConfig;
+import com.salesforce.functions.proxy.handler.request.RequestHandler;
+import com.salesforce.functions.proxy.handler.request.RequestHandlerPipeline;
+import com.salesforce.functions.proxy.service.ReactiveInvokeFunctionService;
+import com.salesforce.functions.proxy.util.InvalidRequestException;
+import com.salesforce.functions.proxy.util.Utils;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class ReactiveSyncControllerTest {
+
+    @Mock
+    private Utils mockUtils;
+
+    @Mock
+    ReactiveInvokeFunctionService mockReactiveInvokeFunctionService;
+
+    @InjectMocks
+    ReactiveSyncController reactiveSyncController = new ReactiveSyncController();
+
+    @BeforeEach
+    public void init() {
+        reactiveSyncController.requestTimeout = Duration.ofSeconds(5);
+    }
+
+    @Test
+    public void handleRequest_happyPath() {
+        when(mockReactiveInvokeFunctionService.invokeFunction(eq("sync"), any(), any()))
+                .thenReturn(Mono.just(new ResponseEntity<>(Flux.<DataBuffer>empty(), HttpStatus.OK)));
+        reactiveSyncController.requestHandlerPipeline = createPipeline(new NoOpRequestHandler());
+
+        ResponseEntity<Flux<DataBuffer>> responseEntity =
+                reactiveSyncController.handleRequest(MockServerHttpRequest.post("/sync").body("{}")).block();
+        assertThat(responseEntity).isNotNull();
+        assertThat(responseEntity.getStatusCode()).isEqualTo(HttpStatus.OK);
+    }
+
+    @Test
+    public void handleRequest_invalidRequest() {
+        reactiveSyncController.requestHandlerPipeline = createPipeline(functionRequestContext -> {
+            throw new InvalidRequestException("test", "Unauthorized request", 401);
+        });
+
+        ResponseEntity<Flux<DataBuffer>> responseEntity =
+                reactiveSyncController.handleRequest(MockServerHttpRequest.post("/sync").body("{}")).block();
+        assertThat(responseEntity.getStatusCodeValue()).isEqualTo(401);
+        verify(mockReactiveInvokeFunctionService, never()).invokeFunction(any(), any(), any());
+    }
+
+    @Test
+    public void handleRequest_handlersOffSubscribingThread() {
+        when(mockReactiveInvokeFunctionService.invokeFunction(eq("sync"), any(), any()))
+                .thenReturn(Mono.just(new ResponseEntity<>(Flux.<DataBuffer>empty(), HttpStatus.OK)));
+        AtomicReference<Thread> handlerThread = new AtomicReference<>();
+        reactiveSyncController.requestHandlerPipeline =
+                createPipeline(functionRequestContext -> handlerThread.set(Thread.currentThread()));
+
+        // Handlers run sequentially by default, so would otherwise block the subscribing (event loop) thread
+        ResponseEntity<Flux<DataBuffer>> responseEntity =
+                reactiveSyncController.handleRequest(MockServerHttpRequest.post("/sync").body("{}")).block();
+        assertThat(responseEntity.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(handlerThread.get()).isNotEqualTo(Thread.currentThread());
+        assertThat(handlerThread.get().getName()).startsWith("boundedElastic");
+    }
+
+    private RequestHandlerPipeline createPipeline(RequestHandler handler) {
+        RequestHandlerPipeline requestHandlerPipeline =
+                new RequestHandlerPipeline(ImmutableList.of(handler), new ProxyConfig(), mockUtils);
+        requestHandlerPipeline.afterPropertiesSet();
+        return requestHandlerPipeline;
+    }
+}
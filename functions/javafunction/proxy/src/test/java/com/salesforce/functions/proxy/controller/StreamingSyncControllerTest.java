@@ -0,0 +1,87 @@
+package com.salesforce.functions.proxy.controller;
+
+import com.google.common.collect.ImmutableList;
+import com.salesforce.functions.proxy.config.ProxyConfig;
+import com.salesforce.functions.proxy.handler.request.RequestHandler;
+import com.salesforce.functions.proxy.handler.request.RequestHandlerPipeline;
+import com.salesforce.functions.proxy.model.FunctionRequestContext;
+import com.salesforce.functions.proxy.service.StreamingInvokeFunctionService;
+import com.salesforce.functions.proxy.util.InvalidRequestException;
+import com.salesforce.functions.proxy.util.Utils;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class StreamingSyncControllerTest {
+
+    @Mock
+    private Utils mockUtils;
+
+    @Mock
+    StreamingInvokeFunctionService mockStreamingInvokeFunctionService;
+
+    @InjectMocks
+    StreamingSyncController streamingSyncController = new StreamingSyncController();
+
+    @Test
+    public void handleRequest_happyPath() {
+        InputStream body = new ByteArrayInputStream("body".getBytes());
+        StreamingResponseBody responseBody = out -> out.write("OK".getBytes());
+        when(mockStreamingInvokeFunctionService.invokeFunction(any(), eq(body)))
+                .thenReturn(CompletableFuture.completedFuture(new ResponseEntity<>(responseBody, HttpStatus.OK)));
+
+        createPipeline(new NoOpRequestHandler());
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentLength(4);
+        ResponseEntity<StreamingResponseBody> responseEntity =
+                streamingSyncController.handleRequest(body, headers, HttpMethod.POST).join();
+        assertThat(responseEntity.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(responseEntity.getBody()).isSameAs(responseBody);
+    }
+
+    @Test
+    public void handleRequest_invalidRequest() throws Exception {
+        createPipeline(new NoOpRequestHandler() {
+            @Override
+            public void handle(FunctionRequestContext functionRequestContext) throws InvalidRequestException {
+                throw new InvalidRequestException("test", "Unauthorized request", 401);
+            }
+        });
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentLength(4);
+        ResponseEntity<StreamingResponseBody> responseEntity = streamingSyncController.handleRequest(
+                new ByteArrayInputStream("body".getBytes()), headers, HttpMethod.POST).join();
+        assertThat(responseEntity.getStatusCode()).isEqualTo(HttpStatus.UNAUTHORIZED);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        responseEntity.getBody().writeTo(out);
+        assertThat(out.toString()).contains("Unauthorized request");
+        verify(mockStreamingInvokeFunctionService, never()).invokeFunction(any(), any());
+    }
+
+    private void createPipeline(RequestHandler requestHandler) {
+        RequestHandlerPipeline requestHandlerPipeline =
+                new RequestHandlerPipeline(ImmutableList.of(requestHandler), new ProxyConfig(), mockUtils);
+        requestHandlerPipeline.afterPropertiesSet();
+        streamingSyncController.requestHandlerPipeline = requestHandlerPipeline;
+    }
+}
@@ -1,7 +1,9 @@
 package com.salesforce.functions.proxy.controller;
 
 import com.google.common.collect.ImmutableList;
+import com.salesforce.functions.proxy.config.ProxyConfig;
 import com.salesforce.functions.proxy.handler.request.RequestHandler;
+import com.salesforce.functions.proxy.handler.request.RequestHandlerPipeline;
 import com.salesforce.functions.proxy.model.FunctionRequestContext;
 import com.salesforce.functions.proxy.service.InvokeFunctionService;
 import com.salesforce.functions.proxy.util.InvalidRequestException;
@@ -17,6 +19,7 @@ import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 import static com.salesforce.functions.proxy.util.Constants.HEADER_ORG_ID_18;
 import static org.assertj.core.api.Assertions.assertThat;
@@ -38,12 +41,15 @@ public class SyncControllerTest {
 
     @Test
     public void handleRequest_happyPath() {
-        when(mockInvokeFunctionService.syncInvokeFunction(any(), any()))
-                .thenReturn(new ResponseEntity("OK", HttpStatus.OK));
+        when(mockInvokeFunctionService.syncInvokeFunctionAsync(any(), any()))
+                .thenReturn(CompletableFuture.completedFuture(new ResponseEntity<>("OK", HttpStatus.OK)));
 
-        syncController.handlers = ImmutableList.<RequestHandler>of(new NoOpRequestHandler());
+        RequestHandlerPipeline requestHandlerPipeline =
+                new RequestHandlerPipeline(ImmutableList.<RequestHandler>of(new NoOpRequestHandler()), new ProxyConfig(), mockUtils);
+        requestHandlerPipeline.afterPropertiesSet();
+        syncController.requestHandlerPipeline = requestHandlerPipeline;
         HttpHeaders headers = new HttpHeaders();
-        ResponseEntity<String> responseEntity = syncController.handleRequest("", headers, HttpMethod.POST);
+        ResponseEntity<String> responseEntity = syncController.handleRequest("", headers, HttpMethod.POST).join();
         assertThat(responseEntity).isNotNull();
         assertThat(responseEntity.getStatusCode()).isEqualTo(HttpStatus.OK);
     }
@@ -5,6 +5,7 @@ import com.salesforce.functions.proxy.model.ActionResponse;
 import com.salesforce.functions.proxy.model.FunctionRequestContext;
 import com.salesforce.functions.proxy.model.SfContext;
 import com.salesforce.functions.proxy.model.SfFnContext;
+import com.salesforce.functions.proxy.service.PermissionSetActivationCacheService;
 import com.salesforce.functions.proxy.util.InvalidRequestException;
 import com.salesforce.functions.proxy.util.Utils;
 import org.junit.jupiter.api.BeforeEach;
@@ -20,9 +21,12 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.web.client.RestTemplate;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
@@ -34,6 +38,8 @@ public class ActivatePermissionSetsHandlerTest {
     private RestTemplate mockRestTemplate;
     @Mock
     private Utils mockUtils;
+    @Mock
+    private PermissionSetActivationCacheService mockPermissionSetActivationCacheService;
     private SfFnContext mockSfFnContext;
     private SfContext mockSfContext;
     private SfContext.UserContext mockUserContext;
@@ -84,4 +90,26 @@ public class ActivatePermissionSetsHandlerTest {
         // Test
         activatePermissionSetsHandler.handle(functionRequestContext);
     }
+
+    @Test
+    public void handle_alreadyActivated() throws InvalidRequestException {
+        String testName = this.getClass().getName();
+
+        // Mocks
+        mockSfFnContext.setAccessToken(testName);
+        List<String> permSets = new ArrayList<>();
+        permSets.add(testName);
+        mockSfFnContext.setPermissionSetS(permSets);
+        when(mockUtils.isBlank(any())).thenCallRealMethod();
+        when(mockPermissionSetActivationCacheService.isEnabled()).thenReturn(true);
+        when(mockPermissionSetActivationCacheService.getInactive(testName, permSets)).thenReturn(Collections.emptyList());
+        FunctionRequestContext functionRequestContext = new FunctionRequestContext(new HttpHeaders(), HttpMethod.POST);
+        functionRequestContext.setRequestId(testName);
+        functionRequestContext.setSfFnContext(mockSfFnContext);
+        functionRequestContext.setSfContext(mockSfContext);
+
+        // Test
+        activatePermissionSetsHandler.handle(functionRequestContext);
+        verify(mockRestTemplate, never()).postForEntity(anyString(), any(Object.class), eq(ActionResponse[].class));
+    }
 }
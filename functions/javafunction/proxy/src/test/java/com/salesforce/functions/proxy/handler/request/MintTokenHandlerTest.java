@@ -5,6 +5,8 @@ import com.salesforce.functions.proxy.model.FunctionRequestContext;
 import com.salesforce.functions.proxy.model.OauthExchangeResponse;
 import com.salesforce.functions.proxy.model.SfContext;
 import com.salesforce.functions.proxy.model.SfFnContext;
+import com.salesforce.functions.proxy.service.FunctionTokenCacheService;
+import com.salesforce.functions.proxy.service.JwtSigningService;
 import com.salesforce.functions.proxy.util.InvalidRequestException;
 import com.salesforce.functions.proxy.util.Utils;
 import org.junit.jupiter.api.BeforeEach;
@@ -28,7 +30,10 @@ import java.util.Base64;
 import java.util.stream.Collectors;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
@@ -40,6 +45,8 @@ public class MintTokenHandlerTest {
     private RestTemplate mockRestTemplate;
     @Mock
     private Utils mockUtils;
+    @Mock
+    private FunctionTokenCacheService mockFunctionTokenCacheService;
     private SfFnContext mockSfFnContext;
     private SfContext mockSfContext;
     private SfContext.UserContext mockUserContext;
@@ -74,12 +81,7 @@ public class MintTokenHandlerTest {
         mockSfContext.setApiVersion(apiVersion);
         when(mockProxyConfig.getOauth2TokenUri()).thenReturn(apiUri);
         when(mockProxyConfig.getConsumerKey()).thenReturn("3MVG9SemV5D8");
-        java.security.Security.addProvider(new org.bouncycastle.jce.provider.BouncyCastleProvider());
-        Path path = Paths.get("src/test/resources/fakePrivateKey.key");
-        String privateKey = Files.readAllLines(path)
-                .stream()
-                .collect(Collectors.joining(System.lineSeparator()));
-        when(mockProxyConfig.getEncodedPrivateKey()).thenReturn(Base64.getEncoder().encodeToString(privateKey.getBytes(StandardCharsets.UTF_8)));
+        mintTokenHandler.jwtSigningService = createJwtSigningService();
         when(mockUtils.isBlank(any())).thenCallRealMethod();
         // FIXME: eq(apiUrl)
         when(mockRestTemplate.postForEntity(anyString(), any(), eq(OauthExchangeResponse.class)))
@@ -94,5 +96,142 @@ public class MintTokenHandlerTest {
         mintTokenHandler.handle(functionRequestContext);
         assertThat(functionRequestContext.getSfFnContext().getAccessToken()).isNotNull();
         assertThat(functionRequestContext.getSfFnContext().getAccessToken()).isEqualTo(testName);
+        assertThat(functionRequestContext.isFunctionAccessTokenMinted()).isTrue();
+        verify(mockFunctionTokenCacheService, never()).recordCoalescedMint();
+    }
+
+    @Test
+    public void handle_concurrentlyMintedToken() throws InvalidRequestException {
+        String testName = this.getClass().getName();
+
+        // Mock values
+        String orgDomainUrl = "http://localhost";
+        String mintedAccessToken = testName + "-minted";
+
+        // Mocks: a concurrent request minted and cached a token after this request's cache miss
+        mockUserContext.setOrgDomainUrl(orgDomainUrl);
+        mockUserContext.setOrgId("00D");
+        mockUserContext.setUsername(testName);
+        when(mockProxyConfig.getConsumerKey()).thenReturn("3MVG9SemV5D8");
+        when(mockUtils.isBlank(any())).thenCallRealMethod();
+        when(mockFunctionTokenCacheService.isEnabled()).thenReturn(true);
+        when(mockFunctionTokenCacheService.peek(any()))
+                .thenReturn(new FunctionTokenCacheService.CachedToken(
+                        mintedAccessToken, orgDomainUrl, System.currentTimeMillis(), Long.MAX_VALUE));
+        FunctionRequestContext functionRequestContext = new FunctionRequestContext(new HttpHeaders(), HttpMethod.POST);
+        functionRequestContext.setRequestId(testName);
+        functionRequestContext.setSfFnContext(mockSfFnContext);
+        functionRequestContext.setSfContext(mockSfContext);
+
+        // Test: shared token isn't marked minted, so isn't discarded if this request fails
+        mintTokenHandler.handle(functionRequestContext);
+        assertThat(functionRequestContext.getSfFnContext().getAccessToken()).isEqualTo(mintedAccessToken);
+        assertThat(functionRequestContext.isFunctionAccessTokenMinted()).isFalse();
+        verify(mockRestTemplate, never()).postForEntity(anyString(), any(), eq(OauthExchangeResponse.class));
+        verify(mockFunctionTokenCacheService).recordCoalescedMint();
+    }
+
+    @Test
+    public void handle_mintError() throws Exception {
+        String testName = this.getClass().getName();
+
+        // Mocks
+        mockUserContext.setOrgDomainUrl("http://localhost");
+        mockUserContext.setUsername(testName);
+        when(mockProxyConfig.getOauth2TokenUri()).thenReturn("/" + testName);
+        when(mockProxyConfig.getConsumerKey()).thenReturn("3MVG9SemV5D8");
+        mintTokenHandler.jwtSigningService = createJwtSigningService();
+        when(mockUtils.isBlank(any())).thenCallRealMethod();
+        when(mockRestTemplate.postForEntity(anyString(), any(), eq(OauthExchangeResponse.class)))
+                .thenReturn(new ResponseEntity<OauthExchangeResponse>(HttpStatus.UNAUTHORIZED));
+        FunctionRequestContext functionRequestContext = new FunctionRequestContext(new HttpHeaders(), HttpMethod.POST);
+        functionRequestContext.setRequestId(testName);
+        functionRequestContext.setSfFnContext(mockSfFnContext);
+        functionRequestContext.setSfContext(mockSfContext);
+
+        // Test: failed mints aren't counted as coalesced
+        assertThatThrownBy(() -> mintTokenHandler.handle(functionRequestContext))
+                .isInstanceOf(InvalidRequestException.class);
+        assertThat(functionRequestContext.isFunctionAccessTokenMinted()).isFalse();
+        verify(mockFunctionTokenCacheService, never()).recordCoalescedMint();
+    }
+
+    @Test
+    public void handle_cachedToken() throws InvalidRequestException {
+        String testName = this.getClass().getName();
+
+        // Mock values
+        String orgDomainUrl = "http://localhost";
+        String cachedAccessToken = testName + "-cached";
+
+        // Mocks
+        mockUserContext.setOrgDomainUrl(orgDomainUrl);
+        mockUserContext.setOrgId("00D");
+        mockUserContext.setUsername(testName);
+        when(mockProxyConfig.getConsumerKey()).thenReturn("3MVG9SemV5D8");
+        when(mockUtils.isBlank(any())).thenCallRealMethod();
+        when(mockFunctionTokenCacheService.isEnabled()).thenReturn(true);
+        when(mockFunctionTokenCacheService.get(any()))
+                .thenReturn(new FunctionTokenCacheService.CachedToken(
+                        cachedAccessToken, orgDomainUrl, System.currentTimeMillis(), Long.MAX_VALUE));
+        FunctionRequestContext functionRequestContext = new FunctionRequestContext(new HttpHeaders(), HttpMethod.POST);
+        functionRequestContext.setRequestId(testName);
+        functionRequestContext.setSfFnContext(mockSfFnContext);
+        functionRequestContext.setSfContext(mockSfContext);
+
+        // Test
+        mintTokenHandler.handle(functionRequestContext);
+        assertThat(functionRequestContext.getSfFnContext().getAccessToken()).isEqualTo(cachedAccessToken);
+        verify(mockRestTemplate, never()).postForEntity(anyString(), any(), eq(OauthExchangeResponse.class));
+    }
+
+    @Test
+    public void discard_mintedToken() {
+        String testName = this.getClass().getName();
+
+        // Mocks
+        mockSfFnContext.setAccessToken(testName);
+        mockUserContext.setOrgDomainUrl("http://localhost");
+        mockUserContext.setOrgId("00D");
+        mockUserContext.setUsername(testName);
+        when(mockProxyConfig.getConsumerKey()).thenReturn("3MVG9SemV5D8");
+        when(mockUtils.isBlank(any())).thenCallRealMethod();
+        when(mockFunctionTokenCacheService.isEnabled()).thenReturn(true);
+        FunctionTokenCacheService.CachedToken cachedToken = new FunctionTokenCacheService.CachedToken(
+                testName, "http://localhost", System.currentTimeMillis(), Long.MAX_VALUE);
+        when(mockFunctionTokenCacheService.peek(any())).thenReturn(cachedToken);
+        FunctionRequestContext functionRequestContext = new FunctionRequestContext(new HttpHeaders(), HttpMethod.POST);
+        functionRequestContext.setRequestId(testName);
+        functionRequestContext.setSfFnContext(mockSfFnContext);
+        functionRequestContext.setSfContext(mockSfContext);
+        functionRequestContext.setFunctionAccessTokenMinted(true);
+
+        // Test
+        mintTokenHandler.discard(functionRequestContext);
+        verify(mockFunctionTokenCacheService).invalidate(any(), eq(cachedToken));
+    }
+
+    @Test
+    public void discard_cachedToken() {
+        FunctionRequestContext functionRequestContext = new FunctionRequestContext(new HttpHeaders(), HttpMethod.POST);
+        functionRequestContext.setSfFnContext(mockSfFnContext);
+        functionRequestContext.setSfContext(mockSfContext);
+
+        // Test
+        mintTokenHandler.discard(functionRequestContext);
+        verify(mockFunctionTokenCacheService, never()).invalidate(any(), any());
+    }
+
+    public static JwtSigningService createJwtSigningService() throws IOException {
+        java.security.Security.addProvider(new org.bouncycastle.jce.provider.BouncyCastleProvider());
+        Path path = Paths.get("src/test/resources/fakePrivateKey.key");
+        String privateKey = Files.readAllLines(path)
+                .stream()
+                .collect(Collectors.joining(System.lineSeparator()));
+        ProxyConfig proxyConfig = new ProxyConfig();
+        proxyConfig.setEncodedPrivateKey(Base64.getEncoder().encodeToString(privateKey.getBytes(StandardCharsets.UTF_8)));
+        JwtSigningService jwtSigningService = new JwtSigningService(proxyConfig, new Utils());
+        jwtSigningService.afterPropertiesSet();
+        return jwtSigningService;
     }
 }
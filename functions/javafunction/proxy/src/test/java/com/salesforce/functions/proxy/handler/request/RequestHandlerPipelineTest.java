@@ -0,0 +1,212 @@
+package com.salesforce.functions.proxy.handler.request;
+
+import com.google.common.collect.ImmutableList;
+import com.salesforce.functions.proxy.config.ProxyConfig;
+import com.salesforce.functions.proxy.model.FunctionRequestContext;
+import com.salesforce.functions.proxy.util.InvalidRequestException;
+import com.salesforce.functions.proxy.util.Utils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class RequestHandlerPipelineTest {
+
+    private ProxyConfig proxyConfig;
+    private RequestHandlerPipeline requestHandlerPipeline;
+    private FunctionRequestContext functionRequestContext;
+    private List<String> invoked;
+    private List<String> discarded;
+
+    @BeforeEach
+    public void init() {
+        proxyConfig = new ProxyConfig();
+        proxyConfig.setRequestHandlerParallelEnabled(true);
+        proxyConfig.setRequestHandlerPoolSize(4);
+        functionRequestContext = new FunctionRequestContext(new HttpHeaders(), HttpMethod.POST);
+        functionRequestContext.setRequestId(this.getClass().getName());
+        invoked = new CopyOnWriteArrayList<>();
+        discarded = new CopyOnWriteArrayList<>();
+    }
+
+    @AfterEach
+    public void destroy() {
+        if (requestHandlerPipeline != null) {
+            requestHandlerPipeline.destroy();
+        }
+    }
+
+    @Test
+    public void handle_happyPath() throws Exception {
+        CountDownLatch bothStarted = new CountDownLatch(2);
+        Step awaitConcurrent = () -> {
+            bothStarted.countDown();
+            if (!bothStarted.await(5, TimeUnit.SECONDS)) {
+                throw new InvalidRequestException("test", "Independent handlers did not run concurrently", 500);
+            }
+        };
+        createPipeline(new TestHandler("contexts",
+                                       EnumSet.noneOf(RequestHandler.Artifact.class),
+                                       EnumSet.of(RequestHandler.Artifact.CONTEXTS),
+                                       null),
+                       new TestHandler("caller",
+                                       EnumSet.of(RequestHandler.Artifact.CONTEXTS),
+                                       EnumSet.of(RequestHandler.Artifact.VALIDATED_CALLER),
+                                       awaitConcurrent),
+                       new TestHandler("token",
+                                       EnumSet.of(RequestHandler.Artifact.CONTEXTS),
+                                       EnumSet.of(RequestHandler.Artifact.FUNCTION_TOKEN),
+                                       awaitConcurrent),
+                       new TestHandler("request",
+                                       EnumSet.of(RequestHandler.Artifact.VALIDATED_CALLER, RequestHandler.Artifact.FUNCTION_TOKEN),
+                                       EnumSet.of(RequestHandler.Artifact.FUNCTION_REQUEST),
+                                       null));
+
+        requestHandlerPipeline.handle(functionRequestContext);
+        assertThat(invoked).hasSize(4);
+        assertThat(invoked.get(0)).isEqualTo("contexts");
+        assertThat(invoked.get(3)).isEqualTo("request");
+        assertThat(discarded).isEmpty();
+    }
+
+    @Test
+    public void handle_failedCallerDiscardsToken() {
+        CountDownLatch tokenMinted = new CountDownLatch(1);
+        createPipeline(new TestHandler("contexts",
+                                       EnumSet.noneOf(RequestHandler.Artifact.class),
+                                       EnumSet.of(RequestHandler.Artifact.CONTEXTS),
+                                       null),
+                       new TestHandler("caller",
+                                       EnumSet.of(RequestHandler.Artifact.CONTEXTS),
+                                       EnumSet.of(RequestHandler.Artifact.VALIDATED_CALLER),
+                                       () -> {
+                                           // Fail once the token is minted so that the token must be discarded
+                                           tokenMinted.await(5, TimeUnit.SECONDS);
+                                           throw new InvalidRequestException("test", "Unauthorized request", 401);
+                                       }),
+                       new TestHandler("token",
+                                       EnumSet.of(RequestHandler.Artifact.CONTEXTS),
+                                       EnumSet.of(RequestHandler.Artifact.FUNCTION_TOKEN),
+                                       tokenMinted::countDown),
+                       new TestHandler("request",
+                                       EnumSet.of(RequestHandler.Artifact.VALIDATED_CALLER, RequestHandler.Artifact.FUNCTION_TOKEN),
+                                       EnumSet.of(RequestHandler.Artifact.FUNCTION_REQUEST),
+                                       null));
+
+        assertThatThrownBy(() -> requestHandlerPipeline.handle(functionRequestContext))
+                .isInstanceOf(InvalidRequestException.class)
+                .hasMessageContaining("Unauthorized request")
+                .extracting(ex -> ((InvalidRequestException) ex).getStatusCode())
+                .isEqualTo(401);
+        assertThat(invoked).containsExactlyInAnyOrder("contexts", "caller", "token");
+        assertThat(discarded).containsExactly("token", "contexts");
+    }
+
+    @Test
+    public void handle_barrier() throws Exception {
+        createPipeline(new TestHandler("contexts",
+                                       EnumSet.noneOf(RequestHandler.Artifact.class),
+                                       EnumSet.of(RequestHandler.Artifact.CONTEXTS),
+                                       null),
+                       new TestHandler("barrier",
+                                       EnumSet.noneOf(RequestHandler.Artifact.class),
+                                       EnumSet.noneOf(RequestHandler.Artifact.class),
+                                       () -> Thread.sleep(50)),
+                       new TestHandler("token",
+                                       EnumSet.of(RequestHandler.Artifact.CONTEXTS),
+                                       EnumSet.of(RequestHandler.Artifact.FUNCTION_TOKEN),
+                                       null));
+
+        requestHandlerPipeline.handle(functionRequestContext);
+        assertThat(invoked).containsExactly("contexts", "barrier", "token");
+    }
+
+    @Test
+    public void handle_sequential() {
+        proxyConfig.setRequestHandlerParallelEnabled(false);
+        createPipeline(new TestHandler("contexts",
+                                       EnumSet.noneOf(RequestHandler.Artifact.class),
+                                       EnumSet.of(RequestHandler.Artifact.CONTEXTS),
+                                       null),
+                       new TestHandler("caller",
+                                       EnumSet.of(RequestHandler.Artifact.CONTEXTS),
+                                       EnumSet.of(RequestHandler.Artifact.VALIDATED_CALLER),
+                                       () -> {
+                                           throw new InvalidRequestException("test", "Unauthorized request", 401);
+                                       }),
+                       new TestHandler("token",
+                                       EnumSet.of(RequestHandler.Artifact.CONTEXTS),
+                                       EnumSet.of(RequestHandler.Artifact.FUNCTION_TOKEN),
+                                       null));
+
+        assertThatThrownBy(() -> requestHandlerPipeline.handle(functionRequestContext))
+                .isInstanceOf(InvalidRequestException.class);
+        assertThat(invoked).containsExactly("contexts", "caller");
+    }
+
+    private void createPipeline(RequestHandler... handlers) {
+        requestHandlerPipeline = new RequestHandlerPipeline(ImmutableList.copyOf(handlers), proxyConfig, new Utils());
+        requestHandlerPipeline.afterPropertiesSet();
+    }
+
+    private interface Step {
+        void run() throws Exception;
+    }
+
+    private class TestHandler implements RequestHandler {
+        private final String name;
+        private final Set<Artifact> requires;
+        private final Set<Artifact> provides;
+        private final Step step;
+
+        TestHandler(String name, Set<Artifact> requires, Set<Artifact> provides, Step step) {
+            this.name = name;
+            this.requires = Collections.unmodifiableSet(requires);
+            this.provides = Collections.unmodifiableSet(provides);
+            this.step = step;
+        }
+
+        @Override
+        public void handle(FunctionRequestContext functionRequestContext) throws InvalidRequestException {
+            invoked.add(name);
+            if (step == null) {
+                return;
+            }
+
+            try {
+                step.run();
+            } catch (InvalidRequestException ex) {
+                throw ex;
+            } catch (Exception ex) {
+                throw new RuntimeException(ex);
+            }
+        }
+
+        @Override
+        public Set<Artifact> requires() {
+            return requires;
+        }
+
+        @Override
+        public Set<Artifact> provides() {
+            return provides;
+        }
+
+        @Override
+        public void discard(FunctionRequestContext functionRequestContext) {
+            discarded.add(name);
+        }
+    }
+}
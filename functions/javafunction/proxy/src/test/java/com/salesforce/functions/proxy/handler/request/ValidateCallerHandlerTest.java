@@ -5,6 +5,8 @@ import com.salesforce.functions.proxy.model.FunctionRequestContext;
 import com.salesforce.functions.proxy.model.SfContext;
 import com.salesforce.functions.proxy.model.SfFnContext;
 import com.salesforce.functions.proxy.model.UserInfoResponse;
+import com.salesforce.functions.proxy.service.CallerValidationCacheService;
+import com.salesforce.functions.proxy.service.RequestAssertionService;
 import com.salesforce.functions.proxy.util.InvalidRequestException;
 import com.salesforce.functions.proxy.util.Utils;
 import org.junit.jupiter.api.BeforeEach;
@@ -19,8 +21,13 @@ import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.client.RestTemplate;
 
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static com.salesforce.functions.proxy.util.Constants.HEADER_REQUEST_ASSERTION;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
@@ -32,6 +39,10 @@ public class ValidateCallerHandlerTest {
     private RestTemplate mockRestTemplate;
     @Mock
     private Utils mockUtils;
+    @Mock
+    private CallerValidationCacheService mockCallerValidationCacheService;
+    @Mock
+    private RequestAssertionService mockRequestAssertionService;
     private SfFnContext mockSfFnContext;
     private SfContext mockSfContext;
     private SfContext.UserContext mockUserContext;
@@ -79,4 +90,69 @@ public class ValidateCallerHandlerTest {
         // Test
         validateCallerHandler.handle(functionRequestContext);
     }
+
+    @Test
+    public void handle_cachedValidation() throws InvalidRequestException {
+        String testName = this.getClass().getName();
+
+        // Mocks
+        mockUserContext.setOrgDomainUrl("http://localhost");
+        when(mockCallerValidationCacheService.isEnabled()).thenReturn(true);
+        when(mockCallerValidationCacheService.toKey(any(), any())).thenReturn(testName);
+        when(mockCallerValidationCacheService.get(testName))
+                .thenReturn(new CallerValidationCacheService.CachedValidation(true, null, 200, Long.MAX_VALUE));
+        FunctionRequestContext functionRequestContext = new FunctionRequestContext(new HttpHeaders(), HttpMethod.POST);
+        functionRequestContext.setRequestId(testName);
+        functionRequestContext.setSfContext(mockSfContext);
+
+        // Test
+        validateCallerHandler.handle(functionRequestContext);
+        verify(mockRestTemplate, never()).exchange(any(), any(), any(), eq(UserInfoResponse.class));
+    }
+
+    @Test
+    public void handle_unexpectedOrgCached() {
+        String testName = this.getClass().getName();
+        UserInfoResponse userInfoResponse = new UserInfoResponse();
+        userInfoResponse.setOrganization_id("00Dother");
+
+        // Mocks
+        mockUserContext.setOrgDomainUrl("http://localhost");
+        when(mockProxyConfig.getUserInfoUri()).thenReturn("/services/oauth2/userinfo");
+        when(mockProxyConfig.getOrgId18()).thenReturn("00D");
+        when(mockUtils.isBlank(any())).thenCallRealMethod();
+        when(mockCallerValidationCacheService.isEnabled()).thenReturn(true);
+        when(mockCallerValidationCacheService.toKey(any(), any())).thenReturn(testName);
+        when(mockRestTemplate.exchange(any(), any(), any(), eq(UserInfoResponse.class)))
+                .thenReturn(new ResponseEntity(userInfoResponse, HttpStatus.OK));
+        FunctionRequestContext functionRequestContext = new FunctionRequestContext(new HttpHeaders(), HttpMethod.POST);
+        functionRequestContext.setRequestId(testName);
+        functionRequestContext.setSfContext(mockSfContext);
+
+        // Test
+        InvalidRequestException ex = assertThrows(InvalidRequestException.class,
+                () -> validateCallerHandler.handle(functionRequestContext));
+        assertThat(ex.getStatusCode()).isEqualTo(401);
+        verify(mockCallerValidationCacheService).putRejected(testName, "Unauthorized request", 401);
+        verify(mockCallerValidationCacheService, never()).putValid(any());
+    }
+
+    @Test
+    public void handle_requestAssertion() throws InvalidRequestException {
+        String testName = this.getClass().getName();
+
+        // Mocks
+        mockUserContext.setUsername(testName);
+        when(mockRequestAssertionService.isEnabled()).thenReturn(true);
+        HttpHeaders headers = new HttpHeaders();
+        headers.add(HEADER_REQUEST_ASSERTION, "assertion");
+        FunctionRequestContext functionRequestContext = new FunctionRequestContext(headers, HttpMethod.POST);
+        functionRequestContext.setRequestId(testName);
+        functionRequestContext.setSfContext(mockSfContext);
+
+        // Test
+        validateCallerHandler.handle(functionRequestContext);
+        verify(mockRequestAssertionService).validate(testName, "assertion", testName);
+        verify(mockRestTemplate, never()).exchange(any(), any(), any(), eq(UserInfoResponse.class));
+    }
 }
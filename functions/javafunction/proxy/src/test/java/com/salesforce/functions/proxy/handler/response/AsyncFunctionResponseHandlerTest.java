@@ -1,12 +1,17 @@
 package com.salesforce.functions.proxy.handler.response;
 
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.salesforce.functions.proxy.model.AsyncResponseWriteBack;
 import com.salesforce.functions.proxy.model.FunctionRequestContext;
 import com.salesforce.functions.proxy.model.SfContext;
 import com.salesforce.functions.proxy.model.SfFnContext;
+import com.salesforce.functions.proxy.service.AsyncResponseRetryService;
 import com.salesforce.functions.proxy.util.Utils;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.ArgumentMatchers;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
@@ -15,21 +20,26 @@ import org.springframework.http.HttpMethod;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.client.HttpClientErrorException;
-import org.springframework.web.client.RestTemplate;
 
 import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 import static com.salesforce.functions.proxy.util.Constants.HEADER_EXTRA_INFO;
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
 public class AsyncFunctionResponseHandlerTest {
 
-    @Mock
-    private RestTemplate mockRestTemplate;
     @Mock
     private Utils mockUtils;
+    @Mock
+    private AsyncResponseRetryService mockAsyncResponseRetryService;
     private SfFnContext mockSfFnContext;
     private SfContext mockSfContext;
     private SfContext.UserContext mockUserContext;
@@ -46,25 +56,18 @@ public class AsyncFunctionResponseHandlerTest {
     }
 
     @Test
-    public void handleError_happyPath() {
+    public void handleError_happyPath() throws Exception {
         String testName = this.getClass().getName();
 
-        // Mock values
-        String orgDomainUrl = "http://localhost";
-        String apiVersion = "57.0";
-        String apiUri = testName + "__" + "__AsyncFunctionInvocationRequest__c";
-        String apiUrl = utils.assembleSalesforceAPIUrl(orgDomainUrl, apiVersion, apiUri);
-
         // Mocks
         mockSfFnContext.setAccessToken(testName);
-        mockSfContext.setApiVersion(apiVersion);
+        mockSfFnContext.setFunctionInvocationId("a001");
+        mockSfContext.setApiVersion("57.0");
         mockUserContext.setNamespace(testName);
-        mockUserContext.setOrgDomainUrl(orgDomainUrl);
-        when(mockUtils.assembleSalesforceAPIUrl(anyString(), anyString(), anyString())).thenCallRealMethod();
-        when(mockUtils.assembleSalesforceAPIHeaders(any())).thenCallRealMethod();
-        when(mockUtils.isBlank(any())).thenCallRealMethod();
-        when(mockRestTemplate.postForEntity(eq(apiUrl), any(Object.class), eq(String.class)))
-          .thenReturn(new ResponseEntity("", HttpStatus.OK));
+        mockUserContext.setOrgDomainUrl("http://localhost");
+        mockJson();
+        when(mockAsyncResponseRetryService.save(any()))
+                .thenReturn(CompletableFuture.completedFuture(AsyncResponseRetryService.SaveOutcome.SAVED));
         FunctionRequestContext functionRequestContext = new FunctionRequestContext(new HttpHeaders(), HttpMethod.POST);
         functionRequestContext.setRequestId(testName);
         functionRequestContext.setSfFnContext(mockSfFnContext);
@@ -77,40 +80,142 @@ public class AsyncFunctionResponseHandlerTest {
                                                                    "".getBytes(),
                                                                    StandardCharsets.UTF_8);
 
-        // Test
+        // Test: saved w/ retries
         asyncFunctionResponseHandler.handleError(functionRequestContext, ex);
         asyncFunctionResponseHandler.handleError(functionRequestContext, new Exception());
+        ArgumentCaptor<AsyncResponseWriteBack> writeBackCaptor = ArgumentCaptor.forClass(AsyncResponseWriteBack.class);
+        verify(mockAsyncResponseRetryService, times(2)).save(writeBackCaptor.capture());
+        assertThat(writeBackCaptor.getAllValues()).extracting(writeBack -> writeBack.getFields().get(testName + "__StatusCode__c"))
+                .containsExactly(502, 503);
     }
 
     @Test
-    public void handleResponse_happyPath() {
+    public void handleResponse_happyPath() throws Exception {
         String testName = this.getClass().getName();
 
-        // Mock values
-        String orgDomainUrl = "http://localhost";
-        String apiVersion = "57.0";
-        String apiUri = testName + "__" + "__AsyncFunctionInvocationRequest__c";
-        String apiUrl = utils.assembleSalesforceAPIUrl(orgDomainUrl, apiVersion, apiUri);
-
         // Mocks
         mockSfFnContext.setAccessToken(testName);
-        mockSfContext.setApiVersion(apiVersion);
+        mockSfFnContext.setFunctionInvocationId("a001");
+        mockSfContext.setApiVersion("57.0");
         mockUserContext.setNamespace(testName);
-        mockUserContext.setOrgDomainUrl(orgDomainUrl);
-        when(mockUtils.assembleSalesforceAPIUrl(anyString(), anyString(), anyString())).thenCallRealMethod();
-        when(mockUtils.assembleSalesforceAPIHeaders(any())).thenCallRealMethod();
-        when(mockUtils.isBlank(any())).thenCallRealMethod();
-        when(mockRestTemplate.postForEntity(eq(apiUrl), any(Object.class), eq(String.class)))
-                .thenReturn(new ResponseEntity("", HttpStatus.OK));
+        mockUserContext.setOrgDomainUrl("http://localhost");
+        mockJson();
+        when(mockAsyncResponseRetryService.save(any()))
+                .thenReturn(CompletableFuture.failedFuture(new RuntimeException("Session expired or invalid")));
         FunctionRequestContext functionRequestContext = new FunctionRequestContext(new HttpHeaders(), HttpMethod.POST);
         functionRequestContext.setRequestId(testName);
         functionRequestContext.setSfFnContext(mockSfFnContext);
         functionRequestContext.setSfContext(mockSfContext);
         HttpHeaders headers = new HttpHeaders();
         headers.add(HEADER_EXTRA_INFO, testName);
-        ResponseEntity functionResponseEntity = new ResponseEntity(headers, HttpStatus.OK);
+        ResponseEntity<String> functionResponseEntity = new ResponseEntity<>(headers, HttpStatus.OK);
 
-        // Test
+        // Test: save errors are logged, not thrown
         asyncFunctionResponseHandler.handleResponse(functionRequestContext, functionResponseEntity);
+        verify(mockAsyncResponseRetryService).save(any());
+    }
+
+    @Test
+    public void handleResponseAsync_saveError() throws Exception {
+        String testName = this.getClass().getName();
+
+        // Mocks
+        mockSfFnContext.setAccessToken(testName);
+        mockSfFnContext.setFunctionInvocationId("a001");
+        mockSfContext.setApiVersion("57.0");
+        mockUserContext.setNamespace(testName);
+        mockUserContext.setOrgDomainUrl("http://localhost");
+        mockJson();
+        when(mockAsyncResponseRetryService.save(any()))
+                .thenReturn(CompletableFuture.failedFuture(new RuntimeException("The requested resource does not exist")));
+        FunctionRequestContext functionRequestContext = new FunctionRequestContext(new HttpHeaders(), HttpMethod.POST);
+        functionRequestContext.setRequestId(testName);
+        functionRequestContext.setSfFnContext(mockSfFnContext);
+        functionRequestContext.setSfContext(mockSfContext);
+        HttpHeaders headers = new HttpHeaders();
+        headers.add(HEADER_EXTRA_INFO, testName);
+        ResponseEntity<String> functionResponseEntity = new ResponseEntity<>("{}", headers, HttpStatus.OK);
+
+        // Test: responses neither saved nor dead-lettered are propagated, so that the invocation isn't marked complete
+        CompletableFuture<Void> handled =
+                asyncFunctionResponseHandler.handleResponseAsync(functionRequestContext, functionResponseEntity);
+        assertThat(handled).isCompletedExceptionally();
+        ArgumentCaptor<AsyncResponseWriteBack> writeBackCaptor = ArgumentCaptor.forClass(AsyncResponseWriteBack.class);
+        verify(mockAsyncResponseRetryService).save(writeBackCaptor.capture());
+        AsyncResponseWriteBack writeBack = writeBackCaptor.getValue();
+        assertThat(writeBack.getRequestId()).isEqualTo(testName);
+        assertThat(writeBack.getOrgDomainUrl()).isEqualTo("http://localhost");
+        assertThat(writeBack.getApiVersion()).isEqualTo("57.0");
+        assertThat(writeBack.getAccessToken()).isEqualTo(testName);
+        assertThat(writeBack.getSobjectType()).isEqualTo(testName + "__AsyncFunctionInvocationRequest__c");
+        assertThat(writeBack.getRecordId()).isEqualTo("a001");
+        assertThat(writeBack.getFields()).isEqualTo(Map.of(testName + "__Response__c", "{}",
+                                                           testName + "__Status__c", "SUCCESS",
+                                                           testName + "__StatusCode__c", 200,
+                                                           testName + "__ExtraInfo__c", testName));
+    }
+
+    @Test
+    public void handleResponseAsync_deadLettered() throws Exception {
+        String testName = this.getClass().getName();
+
+        // Mocks
+        mockSfFnContext.setAccessToken(testName);
+        mockSfFnContext.setFunctionInvocationId("a001");
+        mockSfContext.setApiVersion("57.0");
+        mockUserContext.setOrgDomainUrl("http://localhost");
+        mockJson();
+        when(mockAsyncResponseRetryService.save(any()))
+                .thenReturn(CompletableFuture.completedFuture(AsyncResponseRetryService.SaveOutcome.DEAD_LETTERED));
+        FunctionRequestContext functionRequestContext = new FunctionRequestContext(new HttpHeaders(), HttpMethod.POST);
+        functionRequestContext.setRequestId(testName);
+        functionRequestContext.setSfFnContext(mockSfFnContext);
+        functionRequestContext.setSfContext(mockSfContext);
+        ResponseEntity<String> functionResponseEntity = new ResponseEntity<>("{}", new HttpHeaders(), HttpStatus.OK);
+
+        // Test: dead-lettered responses aren't lost, so the invocation is complete
+        CompletableFuture<Void> handled =
+                asyncFunctionResponseHandler.handleResponseAsync(functionRequestContext, functionResponseEntity);
+        assertThat(handled).isCompleted().isNotCompletedExceptionally();
+    }
+
+    @Test
+    public void handleErrorAsync_noToken() throws Exception {
+        String testName = this.getClass().getName();
+
+        // Mocks
+        mockSfFnContext.setFunctionInvocationId("a001");
+        mockSfContext.setApiVersion("57.0");
+        mockUserContext.setOrgDomainUrl("http://localhost");
+        mockUserContext.setUsername("user@example.com");
+        mockJson();
+        when(mockAsyncResponseRetryService.deadLetter(any(), any())).thenReturn(true).thenReturn(false);
+        FunctionRequestContext functionRequestContext = new FunctionRequestContext(new HttpHeaders(), HttpMethod.POST);
+        functionRequestContext.setRequestId(testName);
+        functionRequestContext.setSfFnContext(mockSfFnContext);
+        functionRequestContext.setSfContext(mockSfContext);
+
+        // Test: token not provided, so dead-lettered to be replayed w/ a newly minted token
+        CompletableFuture<Void> handled = asyncFunctionResponseHandler.handleErrorAsync(functionRequestContext,
+                                                                                        new Exception(testName));
+        assertThat(handled).isCompleted().isNotCompletedExceptionally();
+        verify(mockAsyncResponseRetryService, never()).save(any());
+        ArgumentCaptor<AsyncResponseWriteBack> writeBackCaptor = ArgumentCaptor.forClass(AsyncResponseWriteBack.class);
+        verify(mockAsyncResponseRetryService).deadLetter(writeBackCaptor.capture(), any());
+        assertThat(writeBackCaptor.getValue().getAccessToken()).isNull();
+        assertThat(writeBackCaptor.getValue().getUsername()).isEqualTo("user@example.com");
+        assertThat(writeBackCaptor.getValue().getRecordId()).isEqualTo("a001");
+
+        // Test: neither saved nor dead-lettered
+        handled = asyncFunctionResponseHandler.handleErrorAsync(functionRequestContext, new Exception(testName));
+        assertThat(handled).isCompletedExceptionally();
+    }
+
+    private void mockJson() throws Exception {
+        when(mockUtils.isBlank(any())).thenCallRealMethod();
+        when(mockUtils.toJson(any())).thenAnswer(invocation -> utils.toJson(invocation.getArgument(0)));
+        when(mockUtils.fromJson(anyString(), ArgumentMatchers.<TypeReference<Map<String, Object>>>any()))
+                .thenAnswer(invocation -> utils.fromJson(invocation.getArgument(0),
+                                                         invocation.<TypeReference<Map<String, Object>>>getArgument(1)));
     }
 }
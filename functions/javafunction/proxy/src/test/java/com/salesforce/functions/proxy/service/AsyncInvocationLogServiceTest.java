@@ -0,0 +1,211 @@
+package com.salesforce.functions.proxy.service;
+
+import com.google.common.base.Strings;
+import com.salesforce.functions.proxy.config.ProxyConfig;
+import com.salesforce.functions.proxy.model.AsyncInvocationLogEntry;
+import com.salesforce.functions.proxy.model.FunctionRequestContext;
+import com.salesforce.functions.proxy.model.SfFnContext;
+import com.salesforce.functions.proxy.util.Utils;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class AsyncInvocationLogServiceTest {
+
+    @TempDir
+    Path walDir;
+
+    private SimpleMeterRegistry meterRegistry;
+    private AsyncInvocationLogService asyncInvocationLogService;
+
+    @BeforeEach
+    public void init() throws Exception {
+        asyncInvocationLogService = start();
+    }
+
+    @AfterEach
+    public void destroy() {
+        asyncInvocationLogService.destroy();
+    }
+
+    @Test
+    public void append_recovered() throws Exception {
+        long first = asyncInvocationLogService.append(createContext("first"), "{\"first\":true}");
+        long second = asyncInvocationLogService.append(createContext("second"), "{\"second\":true}");
+        long third = asyncInvocationLogService.append(createContext("third"), "{\"third\":true}");
+        asyncInvocationLogService.complete(second);
+
+        // Restart w/o a clean shutdown
+        asyncInvocationLogService = start();
+        List<AsyncInvocationLogEntry> recovered = asyncInvocationLogService.getRecovered();
+        assertThat(recovered).extracting(AsyncInvocationLogEntry::getId).containsExactly(first, third);
+
+        FunctionRequestContext functionRequestContext = recovered.get(0).toFunctionRequestContext();
+        assertThat(functionRequestContext.getRequestId()).isEqualTo("first");
+        assertThat(functionRequestContext.getMethod()).isEqualTo(HttpMethod.POST);
+        assertThat(functionRequestContext.getHeaders().getFirst("x-request-id")).isEqualTo("first");
+        assertThat(functionRequestContext.getSfFnContext().getFunctionInvocationId()).isEqualTo("a00first");
+        assertThat(recovered.get(0).getBody()).isEqualTo("{\"first\":true}");
+
+        // Recovered invocations are moved to a new segment
+        assertThat(listSegments()).hasSize(1);
+
+        // New invocations don't reuse recovered ids
+        long fourth = asyncInvocationLogService.append(createContext("fourth"), "{}");
+        assertThat(fourth).isGreaterThan(third);
+
+        asyncInvocationLogService.complete(first);
+        asyncInvocationLogService = start();
+        assertThat(asyncInvocationLogService.getRecovered()).extracting(AsyncInvocationLogEntry::getId)
+                .containsExactly(third, fourth);
+    }
+
+    @Test
+    public void append_groupCommit() throws Exception {
+        ExecutorService executorService = Executors.newFixedThreadPool(16);
+        try {
+            List<CompletableFuture<Long>> appends = IntStream.range(0, 200)
+                    .mapToObj(i -> CompletableFuture.supplyAsync(() ->
+                            asyncInvocationLogService.append(createContext("request-" + i), "{}"), executorService))
+                    .collect(Collectors.toList());
+            CompletableFuture.allOf(appends.toArray(new CompletableFuture[0])).join();
+        } finally {
+            executorService.shutdownNow();
+        }
+
+        // Each append is durable, but concurrent appends share syncs
+        assertThat(meterRegistry.get("proxy.async.wal.sync").timer().count()).isBetween(1L, 199L);
+        asyncInvocationLogService = start();
+        assertThat(asyncInvocationLogService.getRecovered()).hasSize(200);
+    }
+
+    @Test
+    public void append_tornRecord() throws Exception {
+        long first = asyncInvocationLogService.append(createContext("first"), "{}");
+        asyncInvocationLogService.append(createContext("second"), "{}");
+
+        // Corrupt the second record's payload, as if the proxy crashed mid-write
+        Path segment = listSegments().get(0);
+        try (RandomAccessFile file = new RandomAccessFile(segment.toFile(), "rw")) {
+            byte[] bytes = new byte[(int) Math.min(Files.size(segment), 64 * 1024)];
+            file.readFully(bytes);
+            int lastNonZero = bytes.length - 1;
+            while (bytes[lastNonZero] == 0) {
+                lastNonZero--;
+            }
+            file.seek(lastNonZero);
+            file.write(bytes[lastNonZero] + 1);
+        }
+
+        asyncInvocationLogService = start();
+        assertThat(asyncInvocationLogService.getRecovered()).extracting(AsyncInvocationLogEntry::getId)
+                .containsExactly(first);
+    }
+
+    @Test
+    public void complete_deletesCompletedSegments() throws Exception {
+        // 1MB segments hold 3 ~300KB invocations
+        String body = Strings.repeat("x", 300 * 1024);
+        long first = asyncInvocationLogService.append(createContext("first"), body);
+        long second = asyncInvocationLogService.append(createContext("second"), body);
+        long third = asyncInvocationLogService.append(createContext("third"), body);
+        long fourth = asyncInvocationLogService.append(createContext("fourth"), body);
+        assertThat(listSegments()).hasSize(2);
+
+        asyncInvocationLogService.complete(first);
+        asyncInvocationLogService.complete(second);
+        assertThat(listSegments()).hasSize(2);
+        asyncInvocationLogService.complete(third);
+        assertThat(listSegments()).hasSize(1);
+
+        asyncInvocationLogService = start();
+        assertThat(asyncInvocationLogService.getRecovered()).extracting(AsyncInvocationLogEntry::getId)
+                .containsExactly(fourth);
+    }
+
+    @Test
+    public void complete_deletesSegmentsInOrder() throws Exception {
+        // 1MB segments hold 3 ~300KB invocations
+        String body = Strings.repeat("x", 300 * 1024);
+        long first = asyncInvocationLogService.append(createContext("first"), body);
+        long second = asyncInvocationLogService.append(createContext("second"), body);
+        long third = asyncInvocationLogService.append(createContext("third"), body);
+        long fourth = asyncInvocationLogService.append(createContext("fourth"), body);
+        // First's completion is logged in the second segment
+        asyncInvocationLogService.complete(first);
+        long fifth = asyncInvocationLogService.append(createContext("fifth"), body);
+        long sixth = asyncInvocationLogService.append(createContext("sixth"), body);
+        long seventh = asyncInvocationLogService.append(createContext("seventh"), body);
+        assertThat(listSegments()).hasSize(3);
+
+        // Second segment's invocations complete, but it's kept until the first segment's invocations complete
+        asyncInvocationLogService.complete(fourth);
+        asyncInvocationLogService.complete(fifth);
+        asyncInvocationLogService.complete(sixth);
+        assertThat(listSegments()).hasSize(3);
+
+        asyncInvocationLogService = start();
+        assertThat(asyncInvocationLogService.getRecovered()).extracting(AsyncInvocationLogEntry::getId)
+                .containsExactly(second, third, seventh);
+    }
+
+    @Test
+    public void isEnabled_disabled() throws Exception {
+        ProxyConfig proxyConfig = new ProxyConfig();
+        AsyncInvocationLogService disabled = new AsyncInvocationLogService();
+        disabled.proxyConfig = proxyConfig;
+        disabled.meterRegistry = new SimpleMeterRegistry();
+        disabled.utils = new Utils();
+        disabled.afterPropertiesSet();
+        assertThat(disabled.isEnabled()).isFalse();
+        assertThat(disabled.getRecovered()).isEmpty();
+    }
+
+    private AsyncInvocationLogService start() throws Exception {
+        ProxyConfig proxyConfig = new ProxyConfig();
+        proxyConfig.setAsyncWalDir(walDir.toString());
+        proxyConfig.setAsyncWalSegmentSizeMb(1);
+        meterRegistry = new SimpleMeterRegistry();
+
+        AsyncInvocationLogService asyncInvocationLogService = new AsyncInvocationLogService();
+        asyncInvocationLogService.proxyConfig = proxyConfig;
+        asyncInvocationLogService.meterRegistry = meterRegistry;
+        asyncInvocationLogService.utils = new Utils();
+        asyncInvocationLogService.afterPropertiesSet();
+        return asyncInvocationLogService;
+    }
+
+    private FunctionRequestContext createContext(String requestId) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.add("x-request-id", requestId);
+        FunctionRequestContext functionRequestContext = new FunctionRequestContext(headers, HttpMethod.POST);
+        functionRequestContext.setRequestId(requestId);
+        SfFnContext sfFnContext = new SfFnContext();
+        sfFnContext.setFunctionInvocationId("a00" + requestId);
+        functionRequestContext.setSfFnContext(sfFnContext);
+        return functionRequestContext;
+    }
+
+    private List<Path> listSegments() throws Exception {
+        try (Stream<Path> paths = Files.list(walDir)) {
+            return paths.sorted().collect(Collectors.toList());
+        }
+    }
+}
@@ -0,0 +1,258 @@
+package com.salesforce.functions.proxy.service;
+
+import com.salesforce.functions.proxy.config.ProxyConfig;
+import com.salesforce.functions.proxy.handler.request.ActivatePermissionSetsHandler;
+import com.salesforce.functions.proxy.handler.request.MintTokenHandler;
+import com.salesforce.functions.proxy.handler.request.PrepareFunctionRequestHandler;
+import com.salesforce.functions.proxy.handler.response.AsyncFunctionResponseHandler;
+import com.salesforce.functions.proxy.handler.response.ResponseHandler;
+import com.salesforce.functions.proxy.model.AsyncInvocationLogEntry;
+import com.salesforce.functions.proxy.model.FunctionRequestContext;
+import com.salesforce.functions.proxy.util.InvalidRequestException;
+import com.salesforce.functions.proxy.util.Utils;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.awaitility.Duration;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.awaitility.Awaitility.await;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class AsyncInvocationQueueServiceTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private InvokeFunctionService mockInvokeFunctionService;
+    private AsyncInvocationLogService mockAsyncInvocationLogService;
+    private List<CompletableFuture<Void>> invocations;
+    private AsyncInvocationQueueService asyncInvocationQueueService;
+
+    @BeforeEach
+    public void init() {
+        ProxyConfig proxyConfig = new ProxyConfig();
+        proxyConfig.setAsyncQueueCapacity(2);
+        proxyConfig.setAsyncMaxConcurrentInvocations(2);
+        meterRegistry = new SimpleMeterRegistry();
+
+        // Invocations complete when the test completes them
+        invocations = new CopyOnWriteArrayList<>();
+        mockInvokeFunctionService = mock(InvokeFunctionService.class);
+        when(mockInvokeFunctionService.asyncInvokeFunction(any(), anyString(), any())).thenAnswer(invocation -> {
+            CompletableFuture<Void> future = new CompletableFuture<>();
+            invocations.add(future);
+            return future;
+        });
+
+        asyncInvocationQueueService = new AsyncInvocationQueueService();
+        asyncInvocationQueueService.proxyConfig = proxyConfig;
+        asyncInvocationQueueService.invokeFunctionService = mockInvokeFunctionService;
+        asyncInvocationQueueService.meterRegistry = meterRegistry;
+        asyncInvocationQueueService.utils = mock(Utils.class);
+        mockAsyncInvocationLogService = mock(AsyncInvocationLogService.class);
+        asyncInvocationQueueService.asyncInvocationLogService = mockAsyncInvocationLogService;
+        asyncInvocationQueueService.startFunctionService = mock(StartFunctionService.class);
+        asyncInvocationQueueService.asyncFunctionResponseHandler = mock(AsyncFunctionResponseHandler.class);
+        asyncInvocationQueueService.mintTokenHandler = mock(MintTokenHandler.class);
+        asyncInvocationQueueService.activatePermissionSetsHandler = mock(ActivatePermissionSetsHandler.class);
+        asyncInvocationQueueService.prepareFunctionRequestHandler = mock(PrepareFunctionRequestHandler.class);
+    }
+
+    @Test
+    public void offer_happyPath() {
+        asyncInvocationQueueService.afterPropertiesSet();
+
+        assertThat(offer()).isTrue();
+        assertThat(offer()).isTrue();
+        verify(mockInvokeFunctionService, times(2)).asyncInvokeFunction(any(), anyString(), any());
+        assertThat(asyncInvocationQueueService.getInFlight()).isEqualTo(2);
+        assertThat(asyncInvocationQueueService.getQueueDepth()).isEqualTo(0);
+
+        invocations.get(0).complete(null);
+        invocations.get(1).complete(null);
+        assertThat(asyncInvocationQueueService.getInFlight()).isEqualTo(0);
+        assertThat(meterRegistry.get("proxy.async.queue.wait").timer().count()).isEqualTo(2);
+    }
+
+    @Test
+    public void offer_queued() {
+        asyncInvocationQueueService.afterPropertiesSet();
+
+        // Invocations beyond max concurrent invocations wait in the queue
+        for (int i = 0; i < 4; i++) {
+            assertThat(offer()).isTrue();
+        }
+        verify(mockInvokeFunctionService, times(2)).asyncInvokeFunction(any(), anyString(), any());
+        assertThat(meterRegistry.get("proxy.async.queue.depth").gauge().value()).isEqualTo(2);
+
+        // Queued invocations are dispatched as in-flight invocations complete, including those that fail
+        invocations.get(0).complete(null);
+        invocations.get(1).completeExceptionally(new RuntimeException("Function failed"));
+        verify(mockInvokeFunctionService, times(4)).asyncInvokeFunction(any(), anyString(), any());
+        assertThat(asyncInvocationQueueService.getQueueDepth()).isEqualTo(0);
+        assertThat(meterRegistry.get("proxy.async.invocations.inflight").gauge().value()).isEqualTo(2);
+    }
+
+    @Test
+    public void offer_queueFull() {
+        asyncInvocationQueueService.afterPropertiesSet();
+
+        for (int i = 0; i < 4; i++) {
+            assertThat(offer()).isTrue();
+        }
+
+        assertThat(offer()).isFalse();
+        assertThat(meterRegistry.get("proxy.async.rejected").counter().count()).isEqualTo(1);
+        verify(mockInvokeFunctionService, times(2)).asyncInvokeFunction(any(), anyString(), any());
+
+        // Accepted again once there's capacity
+        invocations.get(0).complete(null);
+        assertThat(offer()).isTrue();
+    }
+
+    @Test
+    public void offer_logged() {
+        when(mockAsyncInvocationLogService.isEnabled()).thenReturn(true);
+        when(mockAsyncInvocationLogService.append(any(), anyString())).thenReturn(7L);
+        asyncInvocationQueueService.afterPropertiesSet();
+
+        // Logged before being accepted, completed once the response is saved
+        assertThat(offer()).isTrue();
+        verify(mockAsyncInvocationLogService).append(any(), eq("{}"));
+        verify(mockAsyncInvocationLogService, never()).complete(anyLong());
+        invocations.get(0).complete(null);
+        verify(mockAsyncInvocationLogService).complete(7L);
+
+        // Responses that fail to save but are dead-lettered aren't lost, so are also completed rather than replayed
+        assertThat(offer()).isTrue();
+        invocations.get(1).complete(null);
+        verify(mockAsyncInvocationLogService, times(2)).complete(7L);
+
+        // Responses neither saved nor dead-lettered, eg w/o a dead-letter file, are replayed
+        assertThat(offer()).isTrue();
+        invocations.get(2).completeExceptionally(new RuntimeException("Unable to save function response: 401"));
+        verify(mockAsyncInvocationLogService, times(2)).complete(anyLong());
+        assertThat(asyncInvocationQueueService.getInFlight()).isEqualTo(0);
+    }
+
+    @Test
+    public void offer_logFailed() {
+        when(mockAsyncInvocationLogService.isEnabled()).thenReturn(true);
+        when(mockAsyncInvocationLogService.append(any(), anyString()))
+                .thenThrow(new RuntimeException("Unable to log async invocation: No space left on device"));
+        asyncInvocationQueueService.afterPropertiesSet();
+
+        assertThatThrownBy(this::offer).hasMessageContaining("No space left on device");
+        verify(mockInvokeFunctionService, never()).asyncInvokeFunction(any(), anyString(), any());
+        assertThat(asyncInvocationQueueService.getQueueDepth()).isEqualTo(0);
+    }
+
+    @Test
+    public void afterPropertiesSet_replay() throws Exception {
+        FunctionRequestContext functionRequestContext = new FunctionRequestContext(new HttpHeaders(), HttpMethod.POST);
+        functionRequestContext.setRequestId("recovered");
+        List<AsyncInvocationLogEntry> recovered = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            AsyncInvocationLogEntry entry = new AsyncInvocationLogEntry(functionRequestContext, "{}");
+            entry.setId(i);
+            recovered.add(entry);
+        }
+        when(mockAsyncInvocationLogService.isEnabled()).thenReturn(true);
+        when(mockAsyncInvocationLogService.getRecovered()).thenReturn(recovered);
+
+        // Recovered invocations are replayed once the function is ready, regardless of queue capacity
+        asyncInvocationQueueService.afterPropertiesSet();
+        await().atMost(Duration.FIVE_SECONDS).untilAsserted(() ->
+                verify(mockInvokeFunctionService, times(2)).asyncInvokeFunction(any(), eq("{}"),
+                        eq(asyncInvocationQueueService.asyncFunctionResponseHandler)));
+        verify(asyncInvocationQueueService.startFunctionService).awaitReady();
+        assertThat(asyncInvocationQueueService.getQueueDepth()).isEqualTo(1);
+
+        // Function's token is re-minted, as the logged token has likely expired
+        verify(asyncInvocationQueueService.mintTokenHandler, times(3)).handle(any());
+        verify(asyncInvocationQueueService.activatePermissionSetsHandler, times(3)).handle(any());
+        verify(asyncInvocationQueueService.prepareFunctionRequestHandler, times(3)).handle(any());
+
+        invocations.get(0).complete(null);
+        verify(mockAsyncInvocationLogService).complete(0L);
+        verify(mockInvokeFunctionService, times(3)).asyncInvokeFunction(any(), anyString(), any());
+    }
+
+    @Test
+    public void afterPropertiesSet_replayMintFailed() throws Exception {
+        FunctionRequestContext functionRequestContext = new FunctionRequestContext(new HttpHeaders(), HttpMethod.POST);
+        functionRequestContext.setRequestId("recovered");
+        AsyncInvocationLogEntry entry = new AsyncInvocationLogEntry(functionRequestContext, "{}");
+        entry.setId(7);
+        when(mockAsyncInvocationLogService.isEnabled()).thenReturn(true);
+        when(mockAsyncInvocationLogService.getRecovered()).thenReturn(List.of(entry));
+        doThrow(new InvalidRequestException("recovered", "Unable to mint function token", 503))
+                .doThrow(new InvalidRequestException("recovered", "Unable to mint function token", 503))
+                .doNothing()
+                .when(asyncInvocationQueueService.mintTokenHandler).handle(any());
+        asyncInvocationQueueService.replayMintRetryDelayMs = 10;
+
+        // Mint is retried w/ backoff, rather than the invocation dropped or invoked w/ an expired token
+        asyncInvocationQueueService.afterPropertiesSet();
+        await().atMost(Duration.FIVE_SECONDS).untilAsserted(() ->
+                verify(mockInvokeFunctionService).asyncInvokeFunction(any(), eq("{}"), any()));
+        verify(asyncInvocationQueueService.mintTokenHandler, times(3)).handle(any());
+        verify(mockAsyncInvocationLogService, never()).complete(anyLong());
+
+        // Completed once the response is saved
+        invocations.get(0).complete(null);
+        verify(mockAsyncInvocationLogService).complete(7L);
+    }
+
+    @Test
+    public void afterPropertiesSet_replayMintMaxAttempts() throws Exception {
+        FunctionRequestContext functionRequestContext = new FunctionRequestContext(new HttpHeaders(), HttpMethod.POST);
+        functionRequestContext.setRequestId("recovered");
+        List<AsyncInvocationLogEntry> recovered = new ArrayList<>();
+        for (int i = 0; i < 2; i++) {
+            AsyncInvocationLogEntry entry = new AsyncInvocationLogEntry(functionRequestContext, "{}");
+            entry.setId(i);
+            recovered.add(entry);
+        }
+        when(mockAsyncInvocationLogService.isEnabled()).thenReturn(true);
+        when(mockAsyncInvocationLogService.getRecovered()).thenReturn(recovered);
+        doThrow(new InvalidRequestException("recovered", "Unable to mint function token", 401))
+                .when(asyncInvocationQueueService.mintTokenHandler).handle(any());
+        when(asyncInvocationQueueService.asyncFunctionResponseHandler.handleErrorAsync(any(), any()))
+                .thenReturn(CompletableFuture.completedFuture(null))
+                .thenReturn(CompletableFuture.failedFuture(new RuntimeException("Unable to save function response")));
+        asyncInvocationQueueService.replayMintMaxAttempts = 2;
+        asyncInvocationQueueService.replayMintRetryDelayMs = 10;
+
+        // Once attempts are exhausted, the error is saved or dead-lettered as the function's response; invocations
+        // whose error is neither remain in the log
+        asyncInvocationQueueService.afterPropertiesSet();
+        await().atMost(Duration.FIVE_SECONDS).untilAsserted(() ->
+                verify(asyncInvocationQueueService.asyncFunctionResponseHandler, times(2)).handleErrorAsync(any(), any()));
+        verify(asyncInvocationQueueService.mintTokenHandler, times(4)).handle(any());
+        verify(mockAsyncInvocationLogService).complete(0L);
+        verify(mockAsyncInvocationLogService, never()).complete(1L);
+        verify(mockInvokeFunctionService, never()).asyncInvokeFunction(any(), anyString(), any());
+    }
+
+    private boolean offer() {
+        FunctionRequestContext functionRequestContext = new FunctionRequestContext(new HttpHeaders(), HttpMethod.POST);
+        return asyncInvocationQueueService.offer(functionRequestContext, "{}", mock(ResponseHandler.class));
+    }
+}
@@ -0,0 +1,228 @@
+package com.salesforce.functions.proxy.service;
+
+import com.salesforce.functions.proxy.config.ProxyConfig;
+import com.salesforce.functions.proxy.util.Utils;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.RestTemplate;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class AsyncResponseBatchServiceTest {
+
+    private static final String ORG_URL = "http://localhost";
+    private static final String API_VERSION = "57.0";
+    private static final String AFIR = "AsyncFunctionInvocationRequest__c";
+    private static final String BATCH_URL = ORG_URL + "/services/data/v57.0/composite/sobjects?_HttpMethod=PATCH";
+
+    private ProxyConfig proxyConfig;
+    private SimpleMeterRegistry meterRegistry;
+    private RestTemplate mockRestTemplate;
+    private Utils utils = new Utils();
+    private AsyncResponseBatchService asyncResponseBatchService;
+
+    @BeforeEach
+    public void init() {
+        proxyConfig = new ProxyConfig();
+        proxyConfig.setAsyncWriteBackBatchSize(3);
+        proxyConfig.setAsyncWriteBackBatchDelayMs(60000);
+        meterRegistry = new SimpleMeterRegistry();
+        mockRestTemplate = mock(RestTemplate.class);
+
+        asyncResponseBatchService = new AsyncResponseBatchService();
+        asyncResponseBatchService.proxyConfig = proxyConfig;
+        asyncResponseBatchService.restTemplate = mockRestTemplate;
+        asyncResponseBatchService.writeBackExecutor = Runnable::run;
+        asyncResponseBatchService.meterRegistry = meterRegistry;
+        asyncResponseBatchService.utils = utils;
+    }
+
+    @AfterEach
+    public void destroy() {
+        asyncResponseBatchService.destroy();
+    }
+
+    @Test
+    public void isEnabled_batchSize() {
+        assertThat(asyncResponseBatchService.isEnabled()).isTrue();
+        proxyConfig.setAsyncWriteBackBatchSize(1);
+        assertThat(asyncResponseBatchService.isEnabled()).isFalse();
+
+        // Capped at the sObject Collections API limit
+        proxyConfig.setAsyncWriteBackBatchSize(1000);
+        assertThat(asyncResponseBatchService.getBatchSize()).isEqualTo(AsyncResponseBatchService.MAX_BATCH_SIZE);
+    }
+
+    @Test
+    public void update_flushesWhenFull() throws Exception {
+        asyncResponseBatchService.afterPropertiesSet();
+        when(mockRestTemplate.postForEntity(eq(BATCH_URL), any(HttpEntity.class), eq(String.class)))
+                .thenReturn(new ResponseEntity<>(results("a001", "a002", "a003"), HttpStatus.OK));
+
+        CompletableFuture<Void> first = update("token", "a001");
+        CompletableFuture<Void> second = update("token", "a002");
+        assertThat(first).isNotDone();
+        verify(mockRestTemplate, never()).postForEntity(anyString(), any(), any());
+
+        CompletableFuture<Void> third = update("token", "a003");
+        CompletableFuture.allOf(first, second, third).get(5, TimeUnit.SECONDS);
+
+        ArgumentCaptor<HttpEntity> entityCaptor = ArgumentCaptor.forClass(HttpEntity.class);
+        verify(mockRestTemplate, times(1)).postForEntity(eq(BATCH_URL), entityCaptor.capture(), eq(String.class));
+        HttpEntity<String> entity = entityCaptor.getValue();
+        assertThat(entity.getHeaders().getFirst(HttpHeaders.AUTHORIZATION)).isEqualTo("Bearer token");
+        Map<String, Object> request = utils.fromJson(entity.getBody(), Map.class);
+        assertThat(request.get("allOrNone")).isEqualTo(false);
+        List<Map<String, Object>> records = (List<Map<String, Object>>) request.get("records");
+        assertThat(records).extracting(record -> record.get("id")).containsExactly("a001", "a002", "a003");
+        assertThat(records.get(0).get("attributes")).isEqualTo(Map.of("type", AFIR));
+        assertThat(records.get(0).get("Status__c")).isEqualTo("SUCCESS");
+        assertThat(meterRegistry.get("proxy.async.writeback.batch.size").summary().totalAmount()).isEqualTo(3);
+    }
+
+    @Test
+    public void update_flushRejected() {
+        asyncResponseBatchService.writeBackExecutor = runnable -> {
+            throw new RejectedExecutionException("Write-back executor saturated");
+        };
+        asyncResponseBatchService.afterPropertiesSet();
+
+        // Not flushed on the updating thread; records fail so that their saves are retried
+        CompletableFuture<Void> first = update("token", "a001");
+        update("token", "a002");
+        update("token", "a003");
+        assertThatThrownBy(() -> first.get(5, TimeUnit.SECONDS))
+                .isInstanceOf(ExecutionException.class)
+                .hasCauseInstanceOf(RejectedExecutionException.class);
+        verify(mockRestTemplate, never()).postForEntity(anyString(), any(), any());
+    }
+
+    @Test
+    public void update_flushesAfterDelay() throws Exception {
+        proxyConfig.setAsyncWriteBackBatchDelayMs(50);
+        asyncResponseBatchService.afterPropertiesSet();
+        when(mockRestTemplate.postForEntity(eq(BATCH_URL), any(HttpEntity.class), eq(String.class)))
+                .thenReturn(new ResponseEntity<>(results("a001"), HttpStatus.OK));
+
+        update("token", "a001").get(5, TimeUnit.SECONDS);
+        verify(mockRestTemplate, times(1)).postForEntity(eq(BATCH_URL), any(HttpEntity.class), eq(String.class));
+    }
+
+    @Test
+    public void update_unbatched() throws Exception {
+        proxyConfig.setAsyncWriteBackBatchSize(1);
+        asyncResponseBatchService.afterPropertiesSet();
+        when(mockRestTemplate.postForEntity(eq(BATCH_URL), any(HttpEntity.class), eq(String.class)))
+                .thenReturn(new ResponseEntity<>(results("a001"), HttpStatus.OK));
+
+        // Saved w/o waiting for the batch delay
+        update("token", "a001").get(5, TimeUnit.SECONDS);
+        update("token", "a002").get(5, TimeUnit.SECONDS);
+        verify(mockRestTemplate, times(2)).postForEntity(eq(BATCH_URL), any(HttpEntity.class), eq(String.class));
+    }
+
+    @Test
+    public void update_groupsByToken() throws Exception {
+        proxyConfig.setAsyncWriteBackBatchSize(2);
+        asyncResponseBatchService.afterPropertiesSet();
+        when(mockRestTemplate.postForEntity(eq(BATCH_URL), any(HttpEntity.class), eq(String.class)))
+                .thenReturn(new ResponseEntity<>(results("a001", "a002"), HttpStatus.OK));
+
+        CompletableFuture<Void> first = update("token1", "a001");
+        CompletableFuture<Void> other = update("token2", "b001");
+        CompletableFuture<Void> second = update("token1", "a002");
+        CompletableFuture.allOf(first, second).get(5, TimeUnit.SECONDS);
+        assertThat(other).isNotDone();
+
+        // Pending batches are saved on shutdown
+        asyncResponseBatchService.destroy();
+        assertThat(other).isDone();
+        ArgumentCaptor<HttpEntity> entityCaptor = ArgumentCaptor.forClass(HttpEntity.class);
+        verify(mockRestTemplate, times(2)).postForEntity(eq(BATCH_URL), entityCaptor.capture(), eq(String.class));
+        assertThat(entityCaptor.getAllValues()).extracting(entity -> entity.getHeaders().getFirst(HttpHeaders.AUTHORIZATION))
+                .containsExactly("Bearer token1", "Bearer token2");
+    }
+
+    @Test
+    public void update_recordError() throws Exception {
+        asyncResponseBatchService.afterPropertiesSet();
+        String results = "[{\"id\":\"a001\",\"success\":true,\"errors\":[]}," +
+                "{\"success\":false,\"errors\":[{\"statusCode\":\"INSUFFICIENT_ACCESS_OR_READONLY\"," +
+                "\"message\":\"insufficient access rights on object id\",\"fields\":[]}]}," +
+                "{\"id\":\"a003\",\"success\":true,\"errors\":[]}]";
+        when(mockRestTemplate.postForEntity(eq(BATCH_URL), any(HttpEntity.class), eq(String.class)))
+                .thenReturn(new ResponseEntity<>(results, HttpStatus.OK));
+
+        CompletableFuture<Void> first = update("token", "a001");
+        CompletableFuture<Void> second = update("token", "a002");
+        CompletableFuture<Void> third = update("token", "a003");
+
+        // Only the failed record fails
+        first.get(5, TimeUnit.SECONDS);
+        third.get(5, TimeUnit.SECONDS);
+        assertThatThrownBy(() -> second.get(5, TimeUnit.SECONDS))
+                .isInstanceOf(ExecutionException.class)
+                .hasMessageContaining("INSUFFICIENT_ACCESS_OR_READONLY: insufficient access rights on object id");
+    }
+
+    @Test
+    public void update_requestError() {
+        asyncResponseBatchService.afterPropertiesSet();
+        when(mockRestTemplate.postForEntity(eq(BATCH_URL), any(HttpEntity.class), eq(String.class)))
+                .thenThrow(new HttpClientErrorException(HttpStatus.UNAUTHORIZED, "Session expired or invalid"));
+
+        List<CompletableFuture<Void>> futures = List.of(update("token", "a001"),
+                                                        update("token", "a002"),
+                                                        update("token", "a003"));
+        for (CompletableFuture<Void> future : futures) {
+            assertThatThrownBy(() -> future.get(5, TimeUnit.SECONDS))
+                    .isInstanceOf(ExecutionException.class)
+                    .hasMessageContaining("Session expired or invalid");
+        }
+    }
+
+    private CompletableFuture<Void> update(String accessToken, String recordId) {
+        return asyncResponseBatchService.update("requestId-" + recordId,
+                                                ORG_URL,
+                                                API_VERSION,
+                                                accessToken,
+                                                AFIR,
+                                                recordId,
+                                                Map.of("Status__c", "SUCCESS", "StatusCode__c", 200));
+    }
+
+    private String results(String... recordIds) {
+        StringBuilder sb = new StringBuilder("[");
+        for (String recordId : recordIds) {
+            if (sb.length() > 1) {
+                sb.append(",");
+            }
+            sb.append("{\"id\":\"").append(recordId).append("\",\"success\":true,\"errors\":[]}");
+        }
+        return sb.append("]").toString();
+    }
+}
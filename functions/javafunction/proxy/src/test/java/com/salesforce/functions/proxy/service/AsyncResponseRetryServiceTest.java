@@ -0,0 +1,334 @@
+package com.salesforce.functions.proxy.service;
+
+import com.salesforce.functions.proxy.config.ProxyConfig;
+import com.salesforce.functions.proxy.handler.request.ActivatePermissionSetsHandler;
+import com.salesforce.functions.proxy.handler.request.MintTokenHandler;
+import com.salesforce.functions.proxy.model.AsyncResponseWriteBack;
+import com.salesforce.functions.proxy.model.FunctionRequestContext;
+import com.salesforce.functions.proxy.model.SfContext;
+import com.salesforce.functions.proxy.util.InvalidRequestException;
+import com.salesforce.functions.proxy.util.Utils;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.ResourceAccessException;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class AsyncResponseRetryServiceTest {
+
+    @TempDir
+    Path tempDir;
+
+    private ProxyConfig proxyConfig;
+    private SimpleMeterRegistry meterRegistry;
+    private AsyncResponseBatchService mockAsyncResponseBatchService;
+    private MintTokenHandler mockMintTokenHandler;
+    private Utils utils = new Utils();
+    private AsyncResponseRetryService asyncResponseRetryService;
+
+    @BeforeEach
+    public void init() {
+        proxyConfig = new ProxyConfig();
+        proxyConfig.setAsyncWriteBackMaxAttempts(3);
+        proxyConfig.setAsyncWriteBackRetryBaseDelayMs(1);
+        proxyConfig.setAsyncWriteBackRetryMaxDelayMs(10);
+        proxyConfig.setAsyncWriteBackRetryBudgetPerMinute(100);
+        proxyConfig.setAsyncWriteBackDeadLetterFile(tempDir.resolve("deadletters.jsonl").toString());
+        meterRegistry = new SimpleMeterRegistry();
+        mockAsyncResponseBatchService = mock(AsyncResponseBatchService.class);
+
+        asyncResponseRetryService = new AsyncResponseRetryService();
+        asyncResponseRetryService.proxyConfig = proxyConfig;
+        asyncResponseRetryService.asyncResponseBatchService = mockAsyncResponseBatchService;
+        asyncResponseRetryService.meterRegistry = meterRegistry;
+        asyncResponseRetryService.utils = utils;
+        mockMintTokenHandler = mock(MintTokenHandler.class);
+        asyncResponseRetryService.mintTokenHandler = mockMintTokenHandler;
+        asyncResponseRetryService.activatePermissionSetsHandler = mock(ActivatePermissionSetsHandler.class);
+    }
+
+    @AfterEach
+    public void destroy() {
+        asyncResponseRetryService.destroy();
+    }
+
+    @Test
+    public void save_retriesTransientErrors() throws Exception {
+        asyncResponseRetryService.afterPropertiesSet();
+        when(mockAsyncResponseBatchService.update(anyString(), anyString(), anyString(), anyString(), anyString(),
+                                                  anyString(), any()))
+                .thenReturn(CompletableFuture.failedFuture(new HttpServerErrorException(HttpStatus.SERVICE_UNAVAILABLE)))
+                .thenReturn(CompletableFuture.failedFuture(
+                        new RuntimeException("UNABLE_TO_LOCK_ROW: unable to obtain exclusive access to this record")))
+                .thenReturn(CompletableFuture.completedFuture(null));
+
+        assertThat(asyncResponseRetryService.save(writeBack("a001")).get(5, TimeUnit.SECONDS))
+                .isEqualTo(AsyncResponseRetryService.SaveOutcome.SAVED);
+        verify(mockAsyncResponseBatchService, times(3)).update(anyString(), anyString(), anyString(), anyString(),
+                                                               anyString(), anyString(), any());
+        assertThat(meterRegistry.get("proxy.async.writeback.retries").counter().count()).isEqualTo(2);
+        assertThat(deadLetters()).isEmpty();
+    }
+
+    @Test
+    public void save_maxAttempts() throws Exception {
+        asyncResponseRetryService.afterPropertiesSet();
+        when(mockAsyncResponseBatchService.update(anyString(), anyString(), anyString(), anyString(), anyString(),
+                                                  anyString(), any()))
+                .thenAnswer(invocation -> CompletableFuture.failedFuture(new ResourceAccessException("Read timed out")));
+
+        assertThat(asyncResponseRetryService.save(writeBack("a001")).get(5, TimeUnit.SECONDS))
+                .isEqualTo(AsyncResponseRetryService.SaveOutcome.DEAD_LETTERED);
+        verify(mockAsyncResponseBatchService, times(3)).update(anyString(), anyString(), anyString(), anyString(),
+                                                               anyString(), anyString(), any());
+
+        // Dead-lettered w/ what's needed to replay
+        List<AsyncResponseWriteBack> deadLetters = deadLetters();
+        assertThat(deadLetters).hasSize(1);
+        AsyncResponseWriteBack deadLetter = deadLetters.get(0);
+        assertThat(deadLetter.getRecordId()).isEqualTo("a001");
+        assertThat(deadLetter.getAccessToken()).isNull();
+        assertThat(deadLetter.getOrgId()).isEqualTo("00Dxx0000000001");
+        assertThat(deadLetter.getUsername()).isEqualTo("user@example.com");
+        assertThat(deadLetter.getPermissionSets()).containsExactly("MyPermSet");
+        assertThat(deadLetter.getFields()).isEqualTo(Map.of("Status__c", "SUCCESS"));
+        assertThat(deadLetter.getError()).isEqualTo("Read timed out");
+        assertThat(deadLetter.getFailedAtMs()).isPositive();
+        assertThat(meterRegistry.get("proxy.async.writeback.deadlettered").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    public void save_notRetryable() throws Exception {
+        asyncResponseRetryService.afterPropertiesSet();
+        when(mockAsyncResponseBatchService.update(anyString(), anyString(), anyString(), anyString(), anyString(),
+                                                  anyString(), any()))
+                .thenReturn(CompletableFuture.failedFuture(new HttpClientErrorException(HttpStatus.UNAUTHORIZED)));
+
+        assertThat(asyncResponseRetryService.save(writeBack("a001")).get(5, TimeUnit.SECONDS))
+                .isEqualTo(AsyncResponseRetryService.SaveOutcome.DEAD_LETTERED);
+        verify(mockAsyncResponseBatchService, times(1)).update(anyString(), anyString(), anyString(), anyString(),
+                                                               anyString(), anyString(), any());
+        assertThat(deadLetters()).hasSize(1);
+    }
+
+    @Test
+    public void save_deadLetterNotConfigured() {
+        proxyConfig.setAsyncWriteBackDeadLetterFile("");
+        asyncResponseRetryService.afterPropertiesSet();
+        when(mockAsyncResponseBatchService.update(anyString(), anyString(), anyString(), anyString(), anyString(),
+                                                  anyString(), any()))
+                .thenReturn(CompletableFuture.failedFuture(new HttpClientErrorException(HttpStatus.UNAUTHORIZED)));
+
+        // Neither saved nor dead-lettered
+        assertThatThrownBy(() -> asyncResponseRetryService.save(writeBack("a001")).get(5, TimeUnit.SECONDS))
+                .isInstanceOf(ExecutionException.class)
+                .hasMessageContaining("401");
+        assertThat(meterRegistry.get("proxy.async.writeback.deadlettered").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    public void save_retryBudget() throws Exception {
+        proxyConfig.setAsyncWriteBackMaxAttempts(10);
+        proxyConfig.setAsyncWriteBackRetryBudgetPerMinute(2);
+        asyncResponseRetryService.afterPropertiesSet();
+        when(mockAsyncResponseBatchService.update(anyString(), anyString(), anyString(), anyString(), anyString(),
+                                                  anyString(), any()))
+                .thenAnswer(invocation -> CompletableFuture.failedFuture(
+                        new HttpServerErrorException(HttpStatus.INTERNAL_SERVER_ERROR)));
+
+        // Org's budget is spent after 2 retries
+        assertThat(asyncResponseRetryService.save(writeBack("a001")).get(5, TimeUnit.SECONDS))
+                .isEqualTo(AsyncResponseRetryService.SaveOutcome.DEAD_LETTERED);
+        assertThat(asyncResponseRetryService.save(writeBack("a002")).get(5, TimeUnit.SECONDS))
+                .isEqualTo(AsyncResponseRetryService.SaveOutcome.DEAD_LETTERED);
+        verify(mockAsyncResponseBatchService, times(4)).update(anyString(), anyString(), anyString(), anyString(),
+                                                               anyString(), anyString(), any());
+        assertThat(deadLetters()).extracting(AsyncResponseWriteBack::getRecordId).containsExactly("a001", "a002");
+    }
+
+    @Test
+    public void destroy_deadLettersPendingRetries() throws Exception {
+        proxyConfig.setAsyncWriteBackRetryBaseDelayMs(60000);
+        proxyConfig.setAsyncWriteBackRetryMaxDelayMs(60000);
+        asyncResponseRetryService.afterPropertiesSet();
+        when(mockAsyncResponseBatchService.update(anyString(), anyString(), anyString(), anyString(), anyString(),
+                                                  anyString(), any()))
+                .thenReturn(CompletableFuture.failedFuture(new HttpServerErrorException(HttpStatus.SERVICE_UNAVAILABLE)));
+
+        CompletableFuture<AsyncResponseRetryService.SaveOutcome> saved =
+                asyncResponseRetryService.save(writeBack("a001"));
+        assertThat(saved).isNotDone();
+        asyncResponseRetryService.destroy();
+        assertThat(saved.get(5, TimeUnit.SECONDS)).isEqualTo(AsyncResponseRetryService.SaveOutcome.DEAD_LETTERED);
+        assertThat(deadLetters()).extracting(AsyncResponseWriteBack::getError)
+                .containsExactly("Proxy stopped before retrying save");
+    }
+
+    @Test
+    public void getBackoffMs_jittered() {
+        proxyConfig.setAsyncWriteBackRetryBaseDelayMs(100);
+        proxyConfig.setAsyncWriteBackRetryMaxDelayMs(1000);
+
+        for (int i = 0; i < 20; i++) {
+            assertThat(asyncResponseRetryService.getBackoffMs(1)).isBetween(50L, 100L);
+            assertThat(asyncResponseRetryService.getBackoffMs(3)).isBetween(200L, 400L);
+            assertThat(asyncResponseRetryService.getBackoffMs(30)).isBetween(500L, 1000L);
+        }
+    }
+
+    @Test
+    public void isRetryable_errors() {
+        assertThat(asyncResponseRetryService.isRetryable(new HttpServerErrorException(HttpStatus.BAD_GATEWAY))).isTrue();
+        assertThat(asyncResponseRetryService.isRetryable(new ResourceAccessException("Connection reset"))).isTrue();
+        assertThat(asyncResponseRetryService.isRetryable(new HttpClientErrorException(HttpStatus.CONFLICT))).isTrue();
+        assertThat(asyncResponseRetryService.isRetryable(new RuntimeException("UNABLE_TO_LOCK_ROW: locked"))).isTrue();
+        assertThat(asyncResponseRetryService.isRetryable(new HttpClientErrorException(HttpStatus.NOT_FOUND))).isFalse();
+        assertThat(asyncResponseRetryService.isRetryable(new RuntimeException("INSUFFICIENT_ACCESS_OR_READONLY: no")))
+                .isFalse();
+    }
+
+    @Test
+    public void replayDeadLetters_happyPath() throws Exception {
+        asyncResponseRetryService.afterPropertiesSet();
+        when(mockAsyncResponseBatchService.update(anyString(), anyString(), anyString(), anyString(), anyString(),
+                                                  anyString(), any()))
+                .thenReturn(CompletableFuture.failedFuture(new HttpClientErrorException(HttpStatus.NOT_FOUND)))
+                .thenReturn(CompletableFuture.failedFuture(new HttpClientErrorException(HttpStatus.NOT_FOUND)))
+                .thenReturn(CompletableFuture.completedFuture(null))
+                .thenReturn(CompletableFuture.failedFuture(new HttpClientErrorException(HttpStatus.NOT_FOUND)));
+        asyncResponseRetryService.save(writeBack("a001")).get(5, TimeUnit.SECONDS);
+        asyncResponseRetryService.save(writeBack("a002")).get(5, TimeUnit.SECONDS);
+        assertThat(deadLetters()).hasSize(2);
+        // Function's token isn't dead-lettered, its identity is
+        assertThat(deadLetters()).extracting(AsyncResponseWriteBack::getAccessToken).containsOnlyNulls();
+        assertThat(deadLetters()).extracting(AsyncResponseWriteBack::getUsername).containsOnly("user@example.com");
+        mockMintToken("minted");
+
+        // Responses that fail again are dead-lettered again
+        AsyncResponseRetryService.ReplayResult result =
+                asyncResponseRetryService.replayDeadLetters().get(5, TimeUnit.SECONDS);
+        assertThat(result.getReplayed()).isEqualTo(2);
+        assertThat(result.getSaved()).isEqualTo(1);
+        assertThat(deadLetters()).extracting(AsyncResponseWriteBack::getRecordId).containsExactly("a002");
+        assertThat(tempDir.resolve("deadletters.jsonl.replay")).doesNotExist();
+
+        // Replayed w/ a newly minted token for the dead-lettered identity
+        ArgumentCaptor<FunctionRequestContext> contextCaptor = ArgumentCaptor.forClass(FunctionRequestContext.class);
+        verify(mockMintTokenHandler, times(2)).handle(contextCaptor.capture());
+        SfContext.UserContext userContext = contextCaptor.getValue().getSfContext().getUserContext();
+        assertThat(userContext.getOrgId()).isEqualTo("00Dxx0000000001");
+        assertThat(userContext.getUsername()).isEqualTo("user@example.com");
+        assertThat(contextCaptor.getValue().getSfFnContext().getPermissionSets()).containsExactly("MyPermSet");
+        verify(mockAsyncResponseBatchService, times(2)).update(anyString(), anyString(), anyString(), eq("minted"),
+                                                               anyString(), anyString(), any());
+    }
+
+    @Test
+    public void replayDeadLetters_mintError() throws Exception {
+        asyncResponseRetryService.afterPropertiesSet();
+        Files.write(tempDir.resolve("deadletters.jsonl"),
+                    (utils.toJson(writeBack("a001")) + "\n").getBytes(StandardCharsets.UTF_8));
+        doThrow(new InvalidRequestException("requestId-a001", "Unable to mint function token", 401))
+                .when(mockMintTokenHandler).handle(any());
+
+        // Not saved w/o a token, so dead-lettered again
+        AsyncResponseRetryService.ReplayResult result =
+                asyncResponseRetryService.replayDeadLetters().get(5, TimeUnit.SECONDS);
+        assertThat(result.getReplayed()).isEqualTo(1);
+        assertThat(result.getSaved()).isEqualTo(0);
+        verify(mockAsyncResponseBatchService, never()).update(anyString(), anyString(), anyString(), anyString(),
+                                                              anyString(), anyString(), any());
+        assertThat(deadLetters()).extracting(AsyncResponseWriteBack::getError)
+                .containsExactly("[requestId-a001] Unable to mint function token");
+    }
+
+    @Test
+    public void replayDeadLetters_resumesInterruptedReplay() throws Exception {
+        asyncResponseRetryService.afterPropertiesSet();
+        Files.write(tempDir.resolve("deadletters.jsonl.replay"),
+                    (utils.toJson(writeBack("a001")) + "\n").getBytes(StandardCharsets.UTF_8));
+        mockMintToken("minted");
+        when(mockAsyncResponseBatchService.update(anyString(), anyString(), anyString(), anyString(), anyString(),
+                                                  anyString(), any()))
+                .thenReturn(CompletableFuture.completedFuture(null));
+
+        AsyncResponseRetryService.ReplayResult result =
+                asyncResponseRetryService.replayDeadLetters().get(5, TimeUnit.SECONDS);
+        assertThat(result.getReplayed()).isEqualTo(1);
+        assertThat(result.getSaved()).isEqualTo(1);
+        assertThat(tempDir.resolve("deadletters.jsonl.replay")).doesNotExist();
+    }
+
+    @Test
+    public void replayDeadLetters_notConfigured() {
+        proxyConfig.setAsyncWriteBackDeadLetterFile("");
+        asyncResponseRetryService.afterPropertiesSet();
+
+        assertThatThrownBy(() -> asyncResponseRetryService.replayDeadLetters())
+                .isInstanceOf(UnsupportedOperationException.class);
+    }
+
+    private AsyncResponseWriteBack writeBack(String recordId) {
+        return new AsyncResponseWriteBack("requestId-" + recordId,
+                                          "http://localhost",
+                                          "57.0",
+                                          "00Dxx0000000001",
+                                          "user@example.com",
+                                          List.of("MyPermSet"),
+                                          "token",
+                                          "AsyncFunctionInvocationRequest__c",
+                                          recordId,
+                                          Map.of("Status__c", "SUCCESS"));
+    }
+
+    private void mockMintToken(String accessToken) throws Exception {
+        doAnswer(invocation -> {
+            invocation.<FunctionRequestContext>getArgument(0).getSfFnContext().setAccessToken(accessToken);
+            return null;
+        }).when(mockMintTokenHandler).handle(any());
+    }
+
+    private List<AsyncResponseWriteBack> deadLetters() {
+        Path deadLetterFile = tempDir.resolve("deadletters.jsonl");
+        try {
+            if (!Files.exists(deadLetterFile)) {
+                return List.of();
+            }
+            List<AsyncResponseWriteBack> deadLetters = new ArrayList<>();
+            for (String line : Files.readAllLines(deadLetterFile, StandardCharsets.UTF_8)) {
+                deadLetters.add(utils.fromJson(line, AsyncResponseWriteBack.class));
+            }
+            return deadLetters;
+        } catch (Exception ex) {
+            throw new RuntimeException(ex);
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package com.salesforce.functions.proxy.service;
+
+import com.salesforce.functions.proxy.config.ProxyConfig;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class CallerValidationCacheServiceTest {
+
+    private CallerValidationCacheService callerValidationCacheService;
+
+    @BeforeEach
+    public void init() {
+        ProxyConfig proxyConfig = new ProxyConfig();
+        proxyConfig.setCallerValidationCacheEnabled(true);
+        proxyConfig.setCallerValidationCacheMaxSize(2);
+        proxyConfig.setCallerValidationCacheTtlSeconds(60);
+        proxyConfig.setCallerValidationCacheNegativeTtlSeconds(0);
+        callerValidationCacheService = new CallerValidationCacheService();
+        callerValidationCacheService.proxyConfig = proxyConfig;
+        callerValidationCacheService.meterRegistry = new SimpleMeterRegistry();
+        callerValidationCacheService.afterPropertiesSet();
+    }
+
+    @Test
+    public void get_happyPath() {
+        String testName = this.getClass().getName();
+        String key = callerValidationCacheService.toKey("https://login.salesforce.com", testName);
+
+        assertThat(callerValidationCacheService.get(key)).isNull();
+        callerValidationCacheService.putValid(key);
+        assertThat(callerValidationCacheService.get(key)).isNotNull();
+        assertThat(callerValidationCacheService.get(key).isValid()).isTrue();
+    }
+
+    @Test
+    public void toKey_hashed() {
+        String testName = this.getClass().getName();
+        String key = callerValidationCacheService.toKey("https://login.salesforce.com", testName);
+        assertThat(key).doesNotContain(testName).hasSize(64);
+        assertThat(callerValidationCacheService.toKey("https://login.salesforce.com", testName)).isEqualTo(key);
+        assertThat(callerValidationCacheService.toKey("https://test.salesforce.com", testName)).isNotEqualTo(key);
+    }
+
+    @Test
+    public void putRejected_expired() {
+        String testName = this.getClass().getName();
+        String key = callerValidationCacheService.toKey("https://login.salesforce.com", testName);
+
+        // Negative TTL of 0s
+        callerValidationCacheService.putRejected(key, "Unauthorized request", 401);
+        assertThat(callerValidationCacheService.get(key)).isNull();
+        assertThat(callerValidationCacheService.size()).isEqualTo(0);
+    }
+}
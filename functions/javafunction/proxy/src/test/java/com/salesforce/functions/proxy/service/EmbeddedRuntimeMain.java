@@ -0,0 +1,19 @@
+package com.salesforce.functions.proxy.service;
+
+/**
+ * Stands in for the function runtime's main class in embedded mode tests.  As w/ the runtime, runs until stopped,
+ * here by setting system property EmbeddedRuntimeMain.exit.
+ */
+public class EmbeddedRuntimeMain {
+    public static void main(String[] args) throws InterruptedException {
+        String name = EmbeddedRuntimeMain.class.getName();
+        System.setProperty(name + ".args", String.join(" ", args));
+        System.setProperty(name + ".classLoader", EmbeddedRuntimeMain.class.getClassLoader().getName());
+        System.setProperty(name + ".starts", String.valueOf(Integer.getInteger(name + ".starts", 0) + 1));
+
+        while (System.getProperty(name + ".exit") == null) {
+            Thread.sleep(10);
+        }
+        System.clearProperty(name + ".exit");
+    }
+}
@@ -0,0 +1,142 @@
+package com.salesforce.functions.proxy.service;
+
+import com.salesforce.functions.proxy.config.ProxyConfig;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.entity.StringEntity;
+import org.apache.http.util.EntityUtils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.client.ResourceAccessException;
+
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class FunctionHttpClientServiceTest {
+
+    private HttpServer server;
+    private Set<Integer> clientPorts;
+    private SimpleMeterRegistry meterRegistry;
+    private FunctionHttpClientService functionHttpClientService;
+
+    @BeforeEach
+    public void init() throws Exception {
+        clientPorts = ConcurrentHashMap.newKeySet();
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/", exchange -> {
+            clientPorts.add(exchange.getRemoteAddress().getPort());
+            if (exchange.getRequestURI().getPath().equals("/slow")) {
+                try {
+                    // Longer than the non-blocking client's 1s timeout check interval
+                    Thread.sleep(2500);
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            exchange.getRequestBody().readAllBytes();
+            byte[] response = "OK".getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(200, response.length);
+            try (OutputStream os = exchange.getResponseBody()) {
+                os.write(response);
+            }
+        });
+        server.start();
+
+        ProxyConfig proxyConfig = new ProxyConfig();
+        proxyConfig.setFunctionUrl(getUrl("/"));
+        proxyConfig.setFunctionClientMaxConnections(10);
+        proxyConfig.setFunctionClientConnectTimeoutMs(1000);
+        proxyConfig.setFunctionClientReadTimeoutMs(200);
+        proxyConfig.setFunctionClientIdleTimeoutSeconds(30);
+
+        meterRegistry = new SimpleMeterRegistry();
+        functionHttpClientService = new FunctionHttpClientService();
+        functionHttpClientService.proxyConfig = proxyConfig;
+        functionHttpClientService.meterRegistry = meterRegistry;
+        functionHttpClientService.afterPropertiesSet();
+    }
+
+    @AfterEach
+    public void destroy() {
+        functionHttpClientService.destroy();
+        server.stop(0);
+    }
+
+    @Test
+    public void getRestTemplate_happyPath() {
+        HttpHeaders headers = new HttpHeaders();
+        headers.add(HttpHeaders.CONTENT_TYPE, "text/plain");
+        for (int i = 0; i < 3; i++) {
+            ResponseEntity<String> responseEntity = functionHttpClientService.getRestTemplate()
+                    .exchange(getUrl("/"), HttpMethod.POST, new HttpEntity<>("body" + i, headers), String.class);
+            assertThat(responseEntity.getBody()).isEqualTo("OK");
+        }
+
+        // Connection is kept alive and reused
+        assertThat(clientPorts).hasSize(1);
+        assertThat(getConnections("blocking", "idle")).isEqualTo(1);
+        assertThat(getConnections("blocking", "leased")).isEqualTo(0);
+        assertThat(meterRegistry.get("proxy.function.client.max").tag("client", "blocking").gauge().value())
+                .isEqualTo(10);
+    }
+
+    @Test
+    public void getAsyncHttpClient_happyPath() throws Exception {
+        for (int i = 0; i < 3; i++) {
+            HttpPost request = new HttpPost(getUrl("/"));
+            request.setEntity(new StringEntity("body" + i));
+            HttpResponse response = functionHttpClientService.getAsyncHttpClient().execute(request, null).get();
+            assertThat(EntityUtils.toString(response.getEntity())).isEqualTo("OK");
+        }
+
+        // Connection is kept alive and reused
+        assertThat(clientPorts).hasSize(1);
+        assertThat(getConnections("nonblocking", "idle")).isEqualTo(1);
+        assertThat(getConnections("nonblocking", "leased")).isEqualTo(0);
+        assertThat(meterRegistry.get("proxy.function.client.max").tag("client", "nonblocking").gauge().value())
+                .isEqualTo(10);
+    }
+
+    @Test
+    public void getAsyncHttpClient_readTimeout() {
+        assertThatThrownBy(() -> functionHttpClientService.getAsyncHttpClient()
+                .execute(new HttpPost(getUrl("/slow")), null).get())
+                .isInstanceOf(ExecutionException.class)
+                .hasCauseInstanceOf(SocketTimeoutException.class);
+    }
+
+    @Test
+    public void getRestTemplate_readTimeout() {
+        assertThatThrownBy(() -> functionHttpClientService.getRestTemplate()
+                .exchange(getUrl("/slow"), HttpMethod.POST, new HttpEntity<>("body"), String.class))
+                .isInstanceOf(ResourceAccessException.class)
+                .hasMessageContaining("Read timed out");
+    }
+
+    private double getConnections(String client, String state) {
+        return meterRegistry.get("proxy.function.client.connections")
+                .tag("client", client)
+                .tag("state", state)
+                .gauge()
+                .value();
+    }
+
+    private String getUrl(String path) {
+        return "http://localhost:" + server.getAddress().getPort() + path;
+    }
+}
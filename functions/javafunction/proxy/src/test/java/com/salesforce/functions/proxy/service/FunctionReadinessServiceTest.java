@@ -0,0 +1,182 @@
+package com.salesforce.functions.proxy.service;
+
+import com.google.common.collect.ImmutableList;
+import com.salesforce.functions.proxy.config.ProxyConfig;
+import com.salesforce.functions.proxy.model.FunctionWorker;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.salesforce.functions.proxy.util.Constants.HEADER_HEALTH_CHECK;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class FunctionReadinessServiceTest {
+
+    private HttpServer server;
+    private AtomicInteger healthChecks;
+    private SimpleMeterRegistry meterRegistry;
+    private FunctionReadinessService functionReadinessService;
+
+    @BeforeEach
+    public void init() throws Exception {
+        // Ready after 3 health checks
+        healthChecks = new AtomicInteger();
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/", exchange -> {
+            boolean healthCheck = "true".equals(exchange.getRequestHeaders().getFirst(HEADER_HEALTH_CHECK));
+            int status = healthCheck && healthChecks.incrementAndGet() >= 3 ? 200 : 503;
+            exchange.sendResponseHeaders(status, -1);
+            exchange.close();
+        });
+        server.start();
+
+        ProxyConfig proxyConfig = new ProxyConfig();
+        proxyConfig.setFunctionStartupTimeoutMs(5000);
+        meterRegistry = new SimpleMeterRegistry();
+
+        functionReadinessService = new FunctionReadinessService();
+        functionReadinessService.proxyConfig = proxyConfig;
+        functionReadinessService.meterRegistry = meterRegistry;
+        functionReadinessService.afterPropertiesSet();
+    }
+
+    @AfterEach
+    public void destroy() {
+        server.stop(0);
+    }
+
+    @Test
+    public void awaitReady_happyPath() throws Exception {
+        FunctionWorker worker = createWorker(server.getAddress().getPort(), runningProcess());
+        worker.setRestarting(true);
+
+        functionReadinessService.awaitReady(ImmutableList.of(worker));
+        assertThat(healthChecks.get()).isEqualTo(3);
+        assertThat(worker.isRestarting()).isFalse();
+        assertThat(meterRegistry.get("proxy.function.startup").timer().count()).isEqualTo(1);
+        // Readiness is detected w/in backoff of the function being ready, not after a fixed delay
+        assertThat(meterRegistry.get("proxy.function.startup").timer().totalTime(TimeUnit.MILLISECONDS))
+                .isLessThan(1000);
+    }
+
+    @Test
+    public void awaitReady_processExited() {
+        Process process = mock(Process.class);
+        when(process.toHandle()).thenReturn(ProcessHandle.current());
+        when(process.isAlive()).thenReturn(false);
+        when(process.exitValue()).thenReturn(137);
+        FunctionWorker worker = createWorker(server.getAddress().getPort(), process);
+
+        long startMs = System.currentTimeMillis();
+        assertThatThrownBy(() -> functionReadinessService.awaitReady(ImmutableList.of(worker)))
+                .isInstanceOf(RuntimeException.class)
+                .hasMessageContaining("exit code 137");
+        assertThat(System.currentTimeMillis() - startMs).isLessThan(1000);
+        assertThat(healthChecks.get()).isEqualTo(0);
+    }
+
+    @Test
+    public void awaitReady_deadline() throws Exception {
+        functionReadinessService.proxyConfig.setFunctionStartupTimeoutMs(300);
+        int unusedPort;
+        try (ServerSocket serverSocket = new ServerSocket(0)) {
+            unusedPort = serverSocket.getLocalPort();
+        }
+        FunctionWorker worker = createWorker(unusedPort, runningProcess());
+
+        assertThatThrownBy(() -> functionReadinessService.awaitReady(ImmutableList.of(worker)))
+                .isInstanceOf(RuntimeException.class)
+                .hasMessageContaining("not ready after 300ms");
+    }
+
+    @Test
+    public void warmUp_happyPath() throws Exception {
+        FunctionWorker worker = createWorker(server.getAddress().getPort(), runningProcess());
+
+        functionReadinessService.warmUp(worker, 10);
+        assertThat(healthChecks.get()).isEqualTo(10);
+    }
+
+    @Test
+    public void warmUp_retriesDroppedConnections() throws Exception {
+        // Drop the first 2 connections w/o responding, eg as a function closing kept-alive connections
+        try (ServerSocket serverSocket = new ServerSocket(0)) {
+            AtomicInteger received = new AtomicInteger();
+            startDroppingServer(serverSocket, received, 2);
+            FunctionWorker worker = createWorker(serverSocket.getLocalPort(), runningProcess());
+
+            functionReadinessService.warmUp(worker, 5);
+            assertThat(received.get()).isEqualTo(7);
+        }
+    }
+
+    @Test
+    public void warmUp_processExited() throws Exception {
+        try (ServerSocket serverSocket = new ServerSocket(0)) {
+            AtomicInteger received = new AtomicInteger();
+            startDroppingServer(serverSocket, received, Integer.MAX_VALUE);
+            Process process = mock(Process.class);
+            ProcessHandle processHandle = mock(ProcessHandle.class);
+            when(process.toHandle()).thenReturn(processHandle);
+            FunctionWorker worker = createWorker(serverSocket.getLocalPort(), process);
+
+            // Not retried once the function's gone
+            functionReadinessService.warmUp(worker, 5);
+            assertThat(received.get()).isEqualTo(1);
+        }
+    }
+
+    private void startDroppingServer(ServerSocket serverSocket, AtomicInteger received, int dropped) {
+        Thread thread = new Thread(() -> {
+            while (!serverSocket.isClosed()) {
+                try (Socket socket = serverSocket.accept()) {
+                    BufferedReader reader = new BufferedReader(
+                            new InputStreamReader(socket.getInputStream(), StandardCharsets.US_ASCII));
+                    String line;
+                    while ((line = reader.readLine()) != null && !line.isEmpty()) {
+                        // Read request headers
+                    }
+                    if (received.incrementAndGet() > dropped) {
+                        OutputStream out = socket.getOutputStream();
+                        out.write("HTTP/1.1 200 OK\r\nContent-Length: 0\r\nConnection: close\r\n\r\n"
+                                          .getBytes(StandardCharsets.US_ASCII));
+                        out.flush();
+                    }
+                } catch (IOException ex) {
+                    // Closed
+                }
+            }
+        });
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private FunctionWorker createWorker(int port, Process process) {
+        FunctionWorker worker = new FunctionWorker(0, port, "http://localhost:" + port);
+        worker.setProcess(process);
+        return worker;
+    }
+
+    private Process runningProcess() {
+        Process process = mock(Process.class);
+        when(process.toHandle()).thenReturn(ProcessHandle.current());
+        when(process.isAlive()).thenReturn(true);
+        return process;
+    }
+}
@@ -0,0 +1,66 @@
+package com.salesforce.functions.proxy.service;
+
+import com.google.common.collect.Lists;
+import com.salesforce.functions.proxy.config.ProxyConfig;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class FunctionTokenCacheServiceTest {
+
+    private FunctionTokenCacheService functionTokenCacheService;
+
+    @BeforeEach
+    public void init() {
+        ProxyConfig proxyConfig = new ProxyConfig();
+        proxyConfig.setTokenCacheEnabled(true);
+        proxyConfig.setTokenCacheMaxSize(2);
+        proxyConfig.setTokenCacheTtlSeconds(900);
+        proxyConfig.setTokenCacheExpirySkewSeconds(60);
+        functionTokenCacheService = new FunctionTokenCacheService();
+        functionTokenCacheService.proxyConfig = proxyConfig;
+        functionTokenCacheService.meterRegistry = new SimpleMeterRegistry();
+        functionTokenCacheService.afterPropertiesSet();
+    }
+
+    @Test
+    public void get_happyPath() {
+        String testName = this.getClass().getName();
+        FunctionTokenCacheService.Key key = new FunctionTokenCacheService.Key(
+                "00D", testName, "3MVG9", "https://login.salesforce.com", Lists.newArrayList("B", "A"));
+        FunctionTokenCacheService.Key sameKey = new FunctionTokenCacheService.Key(
+                "00D", testName, "3MVG9", "https://login.salesforce.com", Lists.newArrayList("A", "B"));
+
+        assertThat(functionTokenCacheService.get(key)).isNull();
+        functionTokenCacheService.put(key, testName, "https://login.salesforce.com",
+                functionTokenCacheService.computeExpiresAtMs(System.currentTimeMillis()));
+        assertThat(functionTokenCacheService.get(sameKey)).isNotNull();
+        assertThat(functionTokenCacheService.get(sameKey).getAccessToken()).isEqualTo(testName);
+        assertThat(functionTokenCacheService.getHitCount()).isEqualTo(2);
+        assertThat(functionTokenCacheService.getMissCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void get_expired() {
+        String testName = this.getClass().getName();
+        FunctionTokenCacheService.Key key = new FunctionTokenCacheService.Key(
+                "00D", testName, "3MVG9", "https://login.salesforce.com", null);
+
+        functionTokenCacheService.put(key, testName, "https://login.salesforce.com", System.currentTimeMillis() - 1);
+        assertThat(functionTokenCacheService.get(key)).isNull();
+        assertThat(functionTokenCacheService.size()).isEqualTo(0);
+    }
+
+    @Test
+    public void put_boundedSize() {
+        long expiresAtMs = functionTokenCacheService.computeExpiresAtMs(System.currentTimeMillis());
+        for (int i = 0; i < 5; i++) {
+            FunctionTokenCacheService.Key key = new FunctionTokenCacheService.Key(
+                    "00D", "user" + i, "3MVG9", "https://login.salesforce.com", null);
+            functionTokenCacheService.put(key, "token" + i, "https://login.salesforce.com", expiresAtMs);
+        }
+        assertThat(functionTokenCacheService.size()).isLessThanOrEqualTo(2);
+    }
+}
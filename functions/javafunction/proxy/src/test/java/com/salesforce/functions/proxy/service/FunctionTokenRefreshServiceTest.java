@@ -0,0 +1,107 @@
+package com.salesforce.functions.proxy.service;
+
+import com.salesforce.functions.proxy.config.ProxyConfig;
+import com.salesforce.functions.proxy.handler.request.MintTokenHandler;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.awaitility.Duration;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+public class FunctionTokenRefreshServiceTest {
+
+    private static final String ORG_DOMAIN_URL = "https://login.salesforce.com";
+
+    private FunctionTokenCacheService functionTokenCacheService;
+    private FunctionTokenRefreshService functionTokenRefreshService;
+    private MintTokenHandler mockMintTokenHandler;
+
+    @BeforeEach
+    public void init() {
+        ProxyConfig proxyConfig = new ProxyConfig();
+        proxyConfig.setTokenCacheEnabled(true);
+        proxyConfig.setTokenCacheMaxSize(10);
+        proxyConfig.setTokenCacheTtlSeconds(900);
+        proxyConfig.setTokenCacheExpirySkewSeconds(60);
+        proxyConfig.setTokenRefreshEnabled(true);
+        proxyConfig.setTokenRefreshLifetimeFraction(0.75);
+        proxyConfig.setTokenRefreshIntervalSeconds(3600);
+        proxyConfig.setTokenRefreshIdleSeconds(600);
+        proxyConfig.setTokenRefreshPoolSize(1);
+
+        functionTokenCacheService = new FunctionTokenCacheService();
+        functionTokenCacheService.proxyConfig = proxyConfig;
+        functionTokenCacheService.meterRegistry = new SimpleMeterRegistry();
+        functionTokenCacheService.afterPropertiesSet();
+
+        mockMintTokenHandler = mock(MintTokenHandler.class);
+        functionTokenRefreshService = new FunctionTokenRefreshService();
+        functionTokenRefreshService.proxyConfig = proxyConfig;
+        functionTokenRefreshService.functionTokenCacheService = functionTokenCacheService;
+        functionTokenRefreshService.mintTokenHandler = mockMintTokenHandler;
+        functionTokenRefreshService.meterRegistry = new SimpleMeterRegistry();
+        functionTokenRefreshService.afterPropertiesSet();
+    }
+
+    @AfterEach
+    public void destroy() {
+        functionTokenRefreshService.destroy();
+    }
+
+    @Test
+    public void refreshTokens_happyPath() throws Exception {
+        String testName = this.getClass().getName();
+        FunctionTokenCacheService.Key key = new FunctionTokenCacheService.Key(
+                "00D", testName, "3MVG9", ORG_DOMAIN_URL, null);
+        long nowMs = System.currentTimeMillis();
+
+        // Minted 80% through its lifetime, accessed now
+        FunctionTokenCacheService.CachedToken cachedToken = new FunctionTokenCacheService.CachedToken(
+                testName, ORG_DOMAIN_URL, nowMs - 80_000, nowMs + 20_000);
+        functionTokenCacheService.asMap().put(key, cachedToken);
+        functionTokenCacheService.get(key);
+
+        // Test
+        functionTokenRefreshService.refreshTokens();
+        await().atMost(Duration.FIVE_SECONDS).untilAsserted(() ->
+                verify(mockMintTokenHandler, times(1)).refreshToken(anyString(), eq(key), eq(ORG_DOMAIN_URL)));
+    }
+
+    @Test
+    public void refreshTokens_notDue() throws Exception {
+        String testName = this.getClass().getName();
+        FunctionTokenCacheService.Key key = new FunctionTokenCacheService.Key(
+                "00D", testName, "3MVG9", ORG_DOMAIN_URL, null);
+        functionTokenCacheService.put(key, testName, ORG_DOMAIN_URL,
+                functionTokenCacheService.computeExpiresAtMs(System.currentTimeMillis()));
+
+        // Test
+        functionTokenRefreshService.refreshTokens();
+        Thread.sleep(100);
+        verify(mockMintTokenHandler, never()).refreshToken(anyString(), any(), anyString());
+        assertThat(functionTokenCacheService.size()).isEqualTo(1);
+    }
+
+    @Test
+    public void refreshTokens_idle() throws Exception {
+        String testName = this.getClass().getName();
+        FunctionTokenCacheService.Key key = new FunctionTokenCacheService.Key(
+                "00D", testName, "3MVG9", ORG_DOMAIN_URL, null);
+        long nowMs = System.currentTimeMillis();
+
+        // Minted, and last accessed, beyond idle threshold
+        functionTokenCacheService.asMap().put(key, new FunctionTokenCacheService.CachedToken(
+                testName, ORG_DOMAIN_URL, nowMs - 700_000, nowMs + 100_000));
+
+        // Test
+        functionTokenRefreshService.refreshTokens();
+        verify(mockMintTokenHandler, never()).refreshToken(anyString(), any(), anyString());
+        assertThat(functionTokenCacheService.size()).isEqualTo(0);
+    }
+}
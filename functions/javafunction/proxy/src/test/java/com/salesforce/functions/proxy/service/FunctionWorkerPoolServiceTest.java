@@ -0,0 +1,175 @@
+package com.salesforce.functions.proxy.service;
+
+import com.salesforce.functions.proxy.config.ProxyConfig;
+import com.salesforce.functions.proxy.model.FunctionWorker;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class FunctionWorkerPoolServiceTest {
+
+    private ProxyConfig proxyConfig;
+    private SimpleMeterRegistry meterRegistry;
+    private FunctionWorkerPoolService functionWorkerPoolService;
+
+    @BeforeEach
+    public void init() {
+        proxyConfig = new ProxyConfig();
+        proxyConfig.setFunctionUrl("http://localhost:8080");
+        proxyConfig.setFunctionPort("8080");
+        proxyConfig.setFunctionWorkers(3);
+        proxyConfig.setFunctionWorkerMemoryMb(512);
+        meterRegistry = new SimpleMeterRegistry();
+
+        functionWorkerPoolService = new FunctionWorkerPoolService();
+        functionWorkerPoolService.proxyConfig = proxyConfig;
+        functionWorkerPoolService.meterRegistry = meterRegistry;
+    }
+
+    @Test
+    public void afterPropertiesSet_happyPath() {
+        functionWorkerPoolService.afterPropertiesSet();
+
+        List<FunctionWorker> workers = functionWorkerPoolService.getWorkers();
+        assertThat(workers).extracting(FunctionWorker::getPort).containsExactly(8080, 8081, 8082);
+        assertThat(workers).extracting(FunctionWorker::getUrl)
+                .containsExactly("http://localhost:8080", "http://localhost:8081", "http://localhost:8082");
+        assertThat(meterRegistry.get("proxy.function.worker.outstanding").gauges()).hasSize(3);
+        assertThat(meterRegistry.get("proxy.function.workers.alive").gauge().value()).isEqualTo(0);
+    }
+
+    @Test
+    public void afterPropertiesSet_standby() {
+        proxyConfig.setFunctionStandbyEnabled(true);
+        functionWorkerPoolService.afterPropertiesSet();
+
+        FunctionWorker standby = functionWorkerPoolService.getStandby();
+        assertThat(standby.getPort()).isEqualTo(8083);
+        assertThat(standby.getUrl()).isEqualTo("http://localhost:8083");
+        assertThat(functionWorkerPoolService.getWorkers()).doesNotContain(standby);
+
+        // Standby isn't invoked
+        standby.setProcessHandle(aliveProcessHandle(true));
+        assertThat(functionWorkerPoolService.acquire()).isNotSameAs(standby);
+    }
+
+    @Test
+    public void acquire_leastOutstandingRequests() {
+        functionWorkerPoolService.afterPropertiesSet();
+        List<FunctionWorker> workers = functionWorkerPoolService.getWorkers();
+        workers.forEach(worker -> worker.setProcessHandle(aliveProcessHandle(true)));
+
+        // Idle workers are selected in turn
+        FunctionWorker first = functionWorkerPoolService.acquire();
+        FunctionWorker second = functionWorkerPoolService.acquire();
+        FunctionWorker third = functionWorkerPoolService.acquire();
+        assertThat(List.of(first, second, third)).containsExactlyInAnyOrderElementsOf(workers);
+
+        // Least busy worker is selected
+        functionWorkerPoolService.release(second);
+        assertThat(functionWorkerPoolService.acquire()).isSameAs(second);
+        FunctionWorker fourth = functionWorkerPoolService.acquire();
+        assertThat(fourth.getOutstandingRequests()).isEqualTo(2);
+        assertThat(workers).extracting(FunctionWorker::getOutstandingRequests).containsExactlyInAnyOrder(1, 1, 2);
+    }
+
+    @Test
+    public void acquire_skipsDeadWorkers() {
+        functionWorkerPoolService.afterPropertiesSet();
+        List<FunctionWorker> workers = functionWorkerPoolService.getWorkers();
+        workers.get(0).setProcessHandle(aliveProcessHandle(false));
+        workers.get(1).setProcessHandle(aliveProcessHandle(true));
+
+        for (int i = 0; i < 5; i++) {
+            assertThat(functionWorkerPoolService.acquire()).isSameAs(workers.get(1));
+        }
+        assertThat(workers.get(1).getOutstandingRequests()).isEqualTo(5);
+        assertThat(meterRegistry.get("proxy.function.workers.alive").gauge().value()).isEqualTo(1);
+    }
+
+    @Test
+    public void acquire_restarting() {
+        functionWorkerPoolService.afterPropertiesSet();
+        List<FunctionWorker> workers = functionWorkerPoolService.getWorkers();
+        workers.forEach(worker -> worker.setProcessHandle(aliveProcessHandle(true)));
+        workers.get(0).setRestarting(true);
+        workers.get(1).setRestarting(true);
+
+        // Restarting workers are skipped until ready
+        for (int i = 0; i < 5; i++) {
+            assertThat(functionWorkerPoolService.acquire()).isSameAs(workers.get(2));
+        }
+
+        // Fail fast when all workers are restarting
+        workers.get(2).setRestarting(true);
+        assertThatThrownBy(() -> functionWorkerPoolService.acquire())
+                .isInstanceOf(ResponseStatusException.class)
+                .extracting(ex -> ((ResponseStatusException) ex).getStatus())
+                .isEqualTo(HttpStatus.SERVICE_UNAVAILABLE);
+    }
+
+    @Test
+    public void acquire_noLiveWorkers() {
+        functionWorkerPoolService.afterPropertiesSet();
+
+        FunctionWorker worker = functionWorkerPoolService.acquire();
+        assertThat(worker).isNotNull();
+        assertThat(worker.getOutstandingRequests()).isEqualTo(1);
+        functionWorkerPoolService.release(worker);
+        assertThat(worker.getOutstandingRequests()).isEqualTo(0);
+    }
+
+    @Test
+    public void replaceWorker_happyPath() {
+        functionWorkerPoolService.afterPropertiesSet();
+        List<FunctionWorker> workers = functionWorkerPoolService.getWorkers();
+        workers.forEach(worker -> worker.setProcessHandle(aliveProcessHandle(true)));
+        FunctionWorker replaced = workers.get(1);
+        FunctionWorker replacement = new FunctionWorker(1, 9090, "http://localhost:9090");
+        replacement.setProcessHandle(aliveProcessHandle(true));
+
+        functionWorkerPoolService.replaceWorker(replaced, replacement);
+        assertThat(functionWorkerPoolService.getWorkers()).containsExactly(workers.get(0), replacement, workers.get(2));
+
+        // New requests go to the replacement, in-flight requests are released on the replaced worker
+        replaced.incrementOutstandingRequests();
+        for (int i = 0; i < 6; i++) {
+            assertThat(functionWorkerPoolService.acquire()).isNotSameAs(replaced);
+        }
+        assertThat(replacement.getOutstandingRequests()).isEqualTo(2);
+        assertThat(meterRegistry.get("proxy.function.worker.outstanding").tag("worker", "1").gauge().value())
+                .isEqualTo(2);
+
+        // Worker is replaced once
+        assertThatThrownBy(() -> functionWorkerPoolService.replaceWorker(replaced, replacement))
+                .isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    public void sizeWorkers_embedded() {
+        proxyConfig.setEmbeddedFunctionEnabled(true);
+        assertThat(functionWorkerPoolService.sizeWorkers()).isEqualTo(1);
+    }
+
+    @Test
+    public void sizeWorkers_auto() {
+        proxyConfig.setFunctionWorkers(0);
+        assertThat(functionWorkerPoolService.sizeWorkers())
+                .isBetween(1, Runtime.getRuntime().availableProcessors());
+    }
+
+    private ProcessHandle aliveProcessHandle(boolean alive) {
+        ProcessHandle processHandle = mock(ProcessHandle.class);
+        when(processHandle.isAlive()).thenReturn(alive);
+        return processHandle;
+    }
+}
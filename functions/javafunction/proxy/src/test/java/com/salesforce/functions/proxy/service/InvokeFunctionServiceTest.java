@@ -3,22 +3,40 @@ package com.salesforce.functions.proxy.service;
 import com.salesforce.functions.proxy.config.ProxyConfig;
 import com.salesforce.functions.proxy.handler.response.ResponseHandler;
 import com.salesforce.functions.proxy.model.FunctionRequestContext;
+import com.salesforce.functions.proxy.model.FunctionWorker;
 import com.salesforce.functions.proxy.util.Utils;
-import org.awaitility.Duration;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpEntity;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
 import org.springframework.web.client.RestTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
 
 import static org.assertj.core.api.Assertions.assertThat;
-import static org.awaitility.Awaitility.await;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
@@ -32,11 +50,29 @@ public class InvokeFunctionServiceTest {
     private RestTemplate mockRestTemplate;
     @Mock
     private Utils mockUtils;
+    @Mock
+    private FunctionWorkerPoolService mockFunctionWorkerPoolService;
     @InjectMocks
     private InvokeFunctionService invokeFunctionService = new InvokeFunctionService();
+    private FunctionHttpClientService functionHttpClientService;
 
     @BeforeEach
     public void init() {
+        ProxyConfig proxyConfig = new ProxyConfig();
+        proxyConfig.setFunctionClientMaxConnections(100);
+        proxyConfig.setFunctionClientConnectTimeoutMs(1000);
+        proxyConfig.setFunctionClientReadTimeoutMs(5000);
+        proxyConfig.setFunctionClientIdleTimeoutSeconds(30);
+        functionHttpClientService = new FunctionHttpClientService();
+        functionHttpClientService.proxyConfig = proxyConfig;
+        functionHttpClientService.meterRegistry = new SimpleMeterRegistry();
+        functionHttpClientService.afterPropertiesSet();
+        invokeFunctionService.functionHttpClientService = functionHttpClientService;
+    }
+
+    @AfterEach
+    public void destroy() {
+        functionHttpClientService.destroy();
     }
 
     @Test
@@ -47,7 +83,7 @@ public class InvokeFunctionServiceTest {
         String apiUrl = "http://localhost";
 
         // Mocks
-        when(mockProxyConfig.getFunctionUrl()).thenReturn(apiUrl);
+        when(mockFunctionWorkerPoolService.acquire()).thenReturn(new FunctionWorker(0, 8080, apiUrl));
         when(mockRestTemplate.exchange(any(String.class), any(), any(), eq(String.class)))
                 .thenReturn(new ResponseEntity("", HttpStatus.OK));
         HttpHeaders headers = new HttpHeaders();
@@ -58,48 +94,236 @@ public class InvokeFunctionServiceTest {
         ResponseEntity responseEntity = invokeFunctionService.invokeFunction("healthcheck", functionRequestContext, "");
         assertThat(responseEntity).isNotNull();
         assertThat(responseEntity.getStatusCode()).isEqualTo(HttpStatus.OK);
+        verify(mockFunctionWorkerPoolService).release(any());
     }
 
     @Test
-    public void syncInvokeFunction_happyPath() {
+    public void invokeFunction_restrictedHeaders() {
         String testName = this.getClass().getName();
 
         // Mock values
         String apiUrl = "http://localhost";
 
         // Mocks
-        when(mockProxyConfig.getFunctionUrl()).thenReturn(apiUrl);
-        when(mockRestTemplate.exchange(any(String.class), any(), any(), eq(String.class)))
+        when(mockFunctionWorkerPoolService.acquire()).thenReturn(new FunctionWorker(0, 8080, apiUrl));
+        ArgumentCaptor<HttpEntity<String>> entityCaptor = ArgumentCaptor.forClass(HttpEntity.class);
+        when(mockRestTemplate.exchange(any(String.class), any(), entityCaptor.capture(), eq(String.class)))
                 .thenReturn(new ResponseEntity("", HttpStatus.OK));
         HttpHeaders headers = new HttpHeaders();
+        headers.add(HttpHeaders.CONNECTION, "close");
+        headers.add(HttpHeaders.CONTENT_LENGTH, "0");
+        headers.add("x-request-id", testName);
         FunctionRequestContext functionRequestContext = new FunctionRequestContext(headers, HttpMethod.POST);
         functionRequestContext.setRequestId(testName);
 
         // Test
-        ResponseEntity responseEntity = invokeFunctionService.syncInvokeFunction(functionRequestContext, "");
-        assertThat(responseEntity).isNotNull();
-        assertThat(responseEntity.getStatusCode()).isEqualTo(HttpStatus.OK);
+        invokeFunctionService.invokeFunction("healthcheck", functionRequestContext, "");
+        HttpHeaders functionHeaders = entityCaptor.getValue().getHeaders();
+        assertThat(functionHeaders.containsKey(HttpHeaders.CONNECTION)).isFalse();
+        assertThat(functionHeaders.containsKey(HttpHeaders.CONTENT_LENGTH)).isFalse();
+        assertThat(functionHeaders.getFirst("x-request-id")).isEqualTo(testName);
     }
 
     @Test
-    public void asyncInvokeFunction_happyPath() {
+    public void asyncInvokeFunction_happyPath() throws IOException {
         String testName = this.getClass().getName();
 
-        // Mock values
-        String apiUrl = "http://localhost";
+        HttpServer functionServer = startFunctionServer(200, "{\"echo\":true}");
+        try {
+            // Mocks
+            int port = functionServer.getAddress().getPort();
+            when(mockFunctionWorkerPoolService.acquire())
+                    .thenReturn(new FunctionWorker(0, port, "http://localhost:" + port + "/"));
+            FunctionRequestContext functionRequestContext = new FunctionRequestContext(new HttpHeaders(), HttpMethod.POST);
+            functionRequestContext.setRequestId(testName);
+            ResponseHandler mockResponseHandler = mock(ResponseHandler.class, CALLS_REAL_METHODS);
+            invokeFunctionService.asyncExecutor = Executors.newSingleThreadExecutor();
+
+            // Test
+            invokeFunctionService.asyncInvokeFunction(functionRequestContext, "{}", mockResponseHandler).join();
+            ArgumentCaptor<ResponseEntity<String>> responseCaptor = ArgumentCaptor.forClass(ResponseEntity.class);
+            verify(mockResponseHandler, times(1)).handleResponse(any(), responseCaptor.capture());
+            assertThat(responseCaptor.getValue().getBody()).isEqualTo("{\"echo\":true}");
+            verify(mockResponseHandler, never()).handleError(any(), any());
+            verify(mockFunctionWorkerPoolService).release(any());
+        } finally {
+            functionServer.stop(0);
+        }
+    }
+
+    @Test
+    public void asyncInvokeFunction_clientError() throws IOException {
+        String testName = this.getClass().getName();
+
+        HttpServer functionServer = startFunctionServer(400, "Bad payload");
+        try {
+            // Mocks
+            int port = functionServer.getAddress().getPort();
+            when(mockFunctionWorkerPoolService.acquire())
+                    .thenReturn(new FunctionWorker(0, port, "http://localhost:" + port + "/"));
+            FunctionRequestContext functionRequestContext = new FunctionRequestContext(new HttpHeaders(), HttpMethod.POST);
+            functionRequestContext.setRequestId(testName);
+            ResponseHandler mockResponseHandler = mock(ResponseHandler.class, CALLS_REAL_METHODS);
+            invokeFunctionService.asyncExecutor = Executors.newSingleThreadExecutor();
+
+            // Test
+            invokeFunctionService.asyncInvokeFunction(functionRequestContext, "{}", mockResponseHandler).join();
+            ArgumentCaptor<Exception> exceptionCaptor = ArgumentCaptor.forClass(Exception.class);
+            verify(mockResponseHandler, times(1)).handleError(any(), exceptionCaptor.capture());
+            assertThat(exceptionCaptor.getValue()).isInstanceOf(HttpClientErrorException.class);
+            assertThat(((HttpClientErrorException) exceptionCaptor.getValue()).getResponseBodyAsString())
+                    .isEqualTo("Bad payload");
+            verify(mockResponseHandler, never()).handleResponse(any(), any());
+        } finally {
+            functionServer.stop(0);
+        }
+    }
+
+    @Test
+    public void asyncInvokeFunction_unavailable() {
+        String testName = this.getClass().getName();
 
         // Mocks
-        when(mockProxyConfig.getFunctionUrl()).thenReturn(apiUrl);
-        when(mockRestTemplate.exchange(any(String.class), any(), any(), eq(String.class)))
-                .thenReturn(new ResponseEntity("", HttpStatus.OK));
-        HttpHeaders headers = new HttpHeaders();
-        FunctionRequestContext functionRequestContext = new FunctionRequestContext(headers, HttpMethod.POST);
+        when(mockFunctionWorkerPoolService.acquire())
+                .thenThrow(new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Function is restarting"));
+        FunctionRequestContext functionRequestContext = new FunctionRequestContext(new HttpHeaders(), HttpMethod.POST);
         functionRequestContext.setRequestId(testName);
-        ResponseHandler mockResponseHandler = mock(ResponseHandler.class);
+        ResponseHandler mockResponseHandler = mock(ResponseHandler.class, CALLS_REAL_METHODS);
+        invokeFunctionService.asyncExecutor = Runnable::run;
 
         // Test
-        invokeFunctionService.asyncInvokeFunction(functionRequestContext, "", mockResponseHandler);
-        await().atMost(Duration.FIVE_SECONDS).untilAsserted(() ->
-                verify(mockResponseHandler, times(1)).handleResponse(any(), any()));
+        invokeFunctionService.asyncInvokeFunction(functionRequestContext, "{}", mockResponseHandler).join();
+        verify(mockResponseHandler, times(1)).handleError(any(), any(ResponseStatusException.class));
+    }
+
+    @Test
+    public void asyncInvokeFunction_rejected() {
+        String testName = this.getClass().getName();
+
+        // Mocks
+        when(mockFunctionWorkerPoolService.acquire())
+                .thenThrow(new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Function is restarting"));
+        FunctionRequestContext functionRequestContext = new FunctionRequestContext(new HttpHeaders(), HttpMethod.POST);
+        functionRequestContext.setRequestId(testName);
+        ResponseHandler mockResponseHandler = mock(ResponseHandler.class, CALLS_REAL_METHODS);
+        invokeFunctionService.asyncExecutor = runnable -> {
+            throw new RejectedExecutionException("Async executor saturated");
+        };
+
+        // Test: invocation fails, rather than the response being handled on the responding thread
+        CompletableFuture<Void> handled =
+                invokeFunctionService.asyncInvokeFunction(functionRequestContext, "{}", mockResponseHandler);
+        assertThat(handled).isCompletedExceptionally();
+        verify(mockResponseHandler, never()).handleError(any(), any());
+    }
+
+    @Test
+    public void asyncInvokeFunction_nonBlocking() throws IOException {
+        String testName = this.getClass().getName();
+
+        // Long-running function
+        HttpServer functionServer = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        functionServer.createContext("/", exchange -> {
+            try {
+                Thread.sleep(500);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+            exchange.sendResponseHeaders(200, -1);
+            exchange.close();
+        });
+        ExecutorService functionServerExecutor = Executors.newCachedThreadPool();
+        functionServer.setExecutor(functionServerExecutor);
+        functionServer.start();
+        try {
+            // Mocks
+            int port = functionServer.getAddress().getPort();
+            when(mockFunctionWorkerPoolService.acquire())
+                    .thenReturn(new FunctionWorker(0, port, "http://localhost:" + port + "/"));
+            FunctionRequestContext functionRequestContext = new FunctionRequestContext(new HttpHeaders(), HttpMethod.POST);
+            functionRequestContext.setRequestId(testName);
+            ResponseHandler mockResponseHandler = mock(ResponseHandler.class, CALLS_REAL_METHODS);
+            invokeFunctionService.asyncExecutor = Executors.newSingleThreadExecutor();
+
+            // Test: a single executor thread handles concurrent invocations in about the time of one
+            long startMs = System.currentTimeMillis();
+            CompletableFuture<?>[] invocations = new CompletableFuture<?>[50];
+            for (int i = 0; i < invocations.length; i++) {
+                invocations[i] = invokeFunctionService.asyncInvokeFunction(functionRequestContext, "{}", mockResponseHandler);
+            }
+            CompletableFuture.allOf(invocations).join();
+            assertThat(System.currentTimeMillis() - startMs).isLessThan(5000);
+            verify(mockResponseHandler, times(50)).handleResponse(any(), any());
+        } finally {
+            functionServer.stop(0);
+            functionServerExecutor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void syncInvokeFunctionAsync_happyPath() throws IOException {
+        String testName = this.getClass().getName();
+
+        HttpServer functionServer = startFunctionServer(200, "{\"echo\":true}");
+        try {
+            // Mocks
+            int port = functionServer.getAddress().getPort();
+            when(mockFunctionWorkerPoolService.acquire())
+                    .thenReturn(new FunctionWorker(0, port, "http://localhost:" + port + "/"));
+            HttpHeaders headers = new HttpHeaders();
+            headers.add(HttpHeaders.HOST, "localhost");
+            headers.add(HttpHeaders.CONTENT_TYPE, "application/json");
+            headers.add("ce-id", testName);
+            FunctionRequestContext functionRequestContext = new FunctionRequestContext(headers, HttpMethod.POST);
+            functionRequestContext.setRequestId(testName);
+
+            // Test
+            ResponseEntity<String> responseEntity =
+                    invokeFunctionService.syncInvokeFunctionAsync(functionRequestContext, "{}").join();
+            assertThat(responseEntity.getStatusCode()).isEqualTo(HttpStatus.OK);
+            assertThat(responseEntity.getBody()).isEqualTo("{\"echo\":true}");
+            assertThat(responseEntity.getHeaders().getFirst("X-Received-Ce-Id")).isEqualTo(testName);
+        } finally {
+            functionServer.stop(0);
+        }
+    }
+
+    @Test
+    public void syncInvokeFunctionAsync_serverError() throws IOException {
+        String testName = this.getClass().getName();
+
+        HttpServer functionServer = startFunctionServer(500, "Function failed");
+        try {
+            // Mocks
+            int port = functionServer.getAddress().getPort();
+            when(mockFunctionWorkerPoolService.acquire())
+                    .thenReturn(new FunctionWorker(0, port, "http://localhost:" + port + "/"));
+            FunctionRequestContext functionRequestContext = new FunctionRequestContext(new HttpHeaders(), HttpMethod.POST);
+            functionRequestContext.setRequestId(testName);
+
+            // Test
+            assertThatThrownBy(() -> invokeFunctionService.syncInvokeFunctionAsync(functionRequestContext, "{}").join())
+                    .isInstanceOf(CompletionException.class)
+                    .hasCauseInstanceOf(HttpServerErrorException.class);
+        } finally {
+            functionServer.stop(0);
+        }
+    }
+
+    private HttpServer startFunctionServer(int statusCode, String responseBody) throws IOException {
+        HttpServer functionServer = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        functionServer.createContext("/", exchange -> {
+            byte[] response = responseBody.getBytes(StandardCharsets.UTF_8);
+            String ceId = exchange.getRequestHeaders().getFirst("ce-id");
+            if (ceId != null) {
+                exchange.getResponseHeaders().add("X-Received-Ce-Id", ceId);
+            }
+            exchange.sendResponseHeaders(statusCode, response.length);
+            try (OutputStream outputStream = exchange.getResponseBody()) {
+                outputStream.write(response);
+            }
+        });
+        functionServer.start();
+        return functionServer;
     }
 }
@@ -0,0 +1,97 @@
+package com.salesforce.functions.proxy.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.salesforce.functions.proxy.config.ProxyConfig;
+import com.salesforce.functions.proxy.util.Utils;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.security.KeyFactory;
+import java.security.PublicKey;
+import java.security.Signature;
+import java.security.interfaces.RSAPrivateCrtKey;
+import java.security.spec.PKCS8EncodedKeySpec;
+import java.security.spec.RSAPublicKeySpec;
+import java.util.Base64;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class JwtSigningServiceTest {
+
+    private String privateKey;
+    private ProxyConfig proxyConfig;
+    private JwtSigningService jwtSigningService;
+
+    @BeforeEach
+    public void init() throws Exception {
+        java.security.Security.addProvider(new org.bouncycastle.jce.provider.BouncyCastleProvider());
+        privateKey = new String(Files.readAllBytes(Paths.get("src/test/resources/fakePrivateKey.key")), StandardCharsets.UTF_8);
+        proxyConfig = new ProxyConfig();
+        proxyConfig.setEncodedPrivateKey(Base64.getEncoder().encodeToString(privateKey.getBytes(StandardCharsets.UTF_8)));
+        jwtSigningService = new JwtSigningService(proxyConfig, new Utils());
+        jwtSigningService.afterPropertiesSet();
+    }
+
+    @Test
+    public void getAssertion_happyPath() throws Exception {
+        String testName = this.getClass().getName();
+        long nowSeconds = System.currentTimeMillis() / 1000;
+
+        String jwt = jwtSigningService.getAssertion("3MVG9SemV5D8", testName, "https://login.salesforce.com");
+        String[] parts = jwt.split("\\.");
+        assertThat(parts).hasSize(3);
+
+        JsonNode header = new ObjectMapper().readTree(Base64.getUrlDecoder().decode(parts[0]));
+        assertThat(header.get("alg").asText()).isEqualTo("RS256");
+        JsonNode claims = new ObjectMapper().readTree(Base64.getUrlDecoder().decode(parts[1]));
+        assertThat(claims.get("iss").asText()).isEqualTo("3MVG9SemV5D8");
+        assertThat(claims.get("sub").asText()).isEqualTo(testName);
+        assertThat(claims.get("aud").asText()).isEqualTo("https://login.salesforce.com");
+        assertThat(claims.get("exp").asLong())
+                .isBetween(nowSeconds + 60, nowSeconds + JwtSigningService.ASSERTION_EXPIRY_SECONDS + 1);
+
+        Signature signature = Signature.getInstance("SHA256withRSA");
+        signature.initVerify(getPublicKey());
+        signature.update((parts[0] + "." + parts[1]).getBytes(StandardCharsets.UTF_8));
+        assertThat(signature.verify(Base64.getUrlDecoder().decode(parts[2]))).isTrue();
+    }
+
+    @Test
+    public void getAssertion_reused() {
+        String testName = this.getClass().getName();
+        String jwt = jwtSigningService.getAssertion("3MVG9SemV5D8", testName, "https://login.salesforce.com");
+        assertThat(jwtSigningService.getAssertion("3MVG9SemV5D8", testName, "https://login.salesforce.com"))
+                .isEqualTo(jwt);
+        assertThat(jwtSigningService.getAssertion("3MVG9SemV5D8", testName + "2", "https://login.salesforce.com"))
+                .isNotEqualTo(jwt);
+        assertThat(jwtSigningService.getAssertion("3MVG9SemV5D8", testName, "https://test.salesforce.com"))
+                .isNotEqualTo(jwt);
+    }
+
+    @Test
+    public void afterPropertiesSet_invalidKey() {
+        proxyConfig.setEncodedPrivateKey(Base64.getEncoder().encodeToString("invalid".getBytes(StandardCharsets.UTF_8)));
+        RuntimeException ex = assertThrows(RuntimeException.class,
+                () -> new JwtSigningService(proxyConfig, new Utils()).afterPropertiesSet());
+        assertThat(ex.getMessage()).startsWith("Unable to load private key");
+    }
+
+    @Test
+    public void afterPropertiesSet_missingKey() {
+        proxyConfig.setEncodedPrivateKey("");
+        assertThrows(RuntimeException.class, () -> new JwtSigningService(proxyConfig, new Utils()).afterPropertiesSet());
+    }
+
+    private PublicKey getPublicKey() throws Exception {
+        String base64Key = privateKey.replaceAll("-----(BEGIN|END)[\\w\\s]*-----", "").replaceAll("\\s", "");
+        KeyFactory keyFactory = KeyFactory.getInstance("RSA");
+        RSAPrivateCrtKey rsaPrivateKey = (RSAPrivateCrtKey) keyFactory.generatePrivate(
+                new PKCS8EncodedKeySpec(Base64.getDecoder().decode(base64Key)));
+        return keyFactory.generatePublic(new RSAPublicKeySpec(rsaPrivateKey.getModulus(), rsaPrivateKey.getPublicExponent()));
+    }
+}
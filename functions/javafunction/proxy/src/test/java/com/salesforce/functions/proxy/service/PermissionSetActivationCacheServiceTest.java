@@ -0,0 +1,52 @@
+package com.salesforce.functions.proxy.service;
+
+import com.google.common.collect.Lists;
+import com.salesforce.functions.proxy.config.ProxyConfig;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class PermissionSetActivationCacheServiceTest {
+
+    private PermissionSetActivationCacheService permissionSetActivationCacheService;
+
+    @BeforeEach
+    public void init() {
+        ProxyConfig proxyConfig = new ProxyConfig();
+        proxyConfig.setPermSetActivationCacheEnabled(true);
+        proxyConfig.setTokenCacheMaxSize(10);
+        proxyConfig.setTokenCacheTtlSeconds(900);
+        permissionSetActivationCacheService = new PermissionSetActivationCacheService();
+        permissionSetActivationCacheService.proxyConfig = proxyConfig;
+        permissionSetActivationCacheService.meterRegistry = new SimpleMeterRegistry();
+        permissionSetActivationCacheService.afterPropertiesSet();
+    }
+
+    @Test
+    public void getInactive_happyPath() {
+        String testName = this.getClass().getName();
+
+        assertThat(permissionSetActivationCacheService.getInactive(testName, Lists.newArrayList("A", "B")))
+                .containsExactly("A", "B");
+        permissionSetActivationCacheService.putActivated(testName, System.currentTimeMillis() + 60_000, Lists.newArrayList("A"));
+        assertThat(permissionSetActivationCacheService.getInactive(testName, Lists.newArrayList("A", "B")))
+                .containsExactly("B");
+        permissionSetActivationCacheService.putActivated(testName, System.currentTimeMillis() + 60_000, Lists.newArrayList("B"));
+        assertThat(permissionSetActivationCacheService.getInactive(testName, Lists.newArrayList("A", "B"))).isEmpty();
+
+        // Other token
+        assertThat(permissionSetActivationCacheService.getInactive(testName + "2", Lists.newArrayList("A")))
+                .containsExactly("A");
+    }
+
+    @Test
+    public void getInactive_tokenExpired() {
+        String testName = this.getClass().getName();
+
+        permissionSetActivationCacheService.putActivated(testName, System.currentTimeMillis() - 1, Lists.newArrayList("A"));
+        assertThat(permissionSetActivationCacheService.getInactive(testName, Lists.newArrayList("A"))).containsExactly("A");
+        assertThat(permissionSetActivationCacheService.size()).isEqualTo(0);
+    }
+}
@@ -0,0 +1,148 @@
+package com.salesforce.functions.proxy.service;
+
+import com.salesforce.functions.proxy.config.ProxyConfig;
+import com.salesforce.functions.proxy.model.FunctionRequestContext;
+import com.salesforce.functions.proxy.model.FunctionWorker;
+import com.salesforce.functions.proxy.util.Utils;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Flux;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class ReactiveInvokeFunctionServiceTest {
+
+    private HttpServer functionServer;
+    private ReactiveInvokeFunctionService reactiveInvokeFunctionService;
+
+    @BeforeEach
+    public void init() throws IOException {
+        // Echoes request body w/ status code given by path, eg /404
+        functionServer = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        functionServer.createContext("/", exchange -> {
+            byte[] response;
+            try (InputStream inputStream = exchange.getRequestBody()) {
+                response = inputStream.readAllBytes();
+            }
+            String path = exchange.getRequestURI().getPath();
+            int statusCode = path.length() > 1 ? Integer.parseInt(path.substring(1)) : 200;
+            exchange.getResponseHeaders().add(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE);
+            exchange.sendResponseHeaders(statusCode, response.length);
+            try (OutputStream outputStream = exchange.getResponseBody()) {
+                outputStream.write(response);
+            }
+        });
+        functionServer.start();
+
+        reactiveInvokeFunctionService = new ReactiveInvokeFunctionService();
+        reactiveInvokeFunctionService.proxyConfig = new ProxyConfig();
+        reactiveInvokeFunctionService.proxyConfig.setFunctionWorkers(1);
+        reactiveInvokeFunctionService.utils = new Utils();
+        reactiveInvokeFunctionService.webClientBuilder = WebClient.builder();
+        reactiveInvokeFunctionService.afterPropertiesSet();
+    }
+
+    @AfterEach
+    public void destroy() {
+        functionServer.stop(0);
+    }
+
+    @Test
+    public void invokeFunction_happyPath() {
+        String testName = this.getClass().getName();
+        reactiveInvokeFunctionService.proxyConfig.setFunctionUrl(getFunctionUrl("/"));
+        createFunctionWorkerPool();
+
+        ResponseEntity<Flux<DataBuffer>> responseEntity = reactiveInvokeFunctionService
+                .invokeFunction("sync", createFunctionRequestContext(testName), toBody("{\"hello\":", "\"world\"}"))
+                .block();
+        assertThat(responseEntity.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(responseEntity.getHeaders().getContentType()).isEqualTo(MediaType.APPLICATION_JSON);
+        // Worker is outstanding until the body is streamed
+        FunctionWorker worker = reactiveInvokeFunctionService.functionWorkerPoolService.getWorkers().get(0);
+        assertThat(worker.getOutstandingRequests()).isEqualTo(1);
+        assertThat(toString(responseEntity.getBody())).isEqualTo("{\"hello\":\"world\"}");
+        assertThat(worker.getOutstandingRequests()).isEqualTo(0);
+    }
+
+    @Test
+    public void invokeFunction_clientError() {
+        String testName = this.getClass().getName();
+        reactiveInvokeFunctionService.proxyConfig.setFunctionUrl(getFunctionUrl("/404"));
+        createFunctionWorkerPool();
+
+        ResponseEntity<Flux<DataBuffer>> responseEntity = reactiveInvokeFunctionService
+                .invokeFunction("sync", createFunctionRequestContext(testName), toBody("Not found"))
+                .block();
+        assertThat(responseEntity.getStatusCode()).isEqualTo(HttpStatus.NOT_FOUND);
+        assertThat(toString(responseEntity.getBody())).isEqualTo("Not found");
+        assertThat(reactiveInvokeFunctionService.functionWorkerPoolService.getWorkers().get(0).getOutstandingRequests())
+                .isEqualTo(0);
+    }
+
+    @Test
+    public void invokeFunction_serverError() {
+        String testName = this.getClass().getName();
+        reactiveInvokeFunctionService.proxyConfig.setFunctionUrl(getFunctionUrl("/500"));
+        createFunctionWorkerPool();
+
+        assertThatThrownBy(() -> reactiveInvokeFunctionService
+                .invokeFunction("sync", createFunctionRequestContext(testName), toBody("Function failed"))
+                .block())
+                .isInstanceOf(WebClientResponseException.InternalServerError.class);
+        assertThat(reactiveInvokeFunctionService.functionWorkerPoolService.getWorkers().get(0).getOutstandingRequests())
+                .isEqualTo(0);
+    }
+
+    private void createFunctionWorkerPool() {
+        FunctionWorkerPoolService functionWorkerPoolService = new FunctionWorkerPoolService();
+        functionWorkerPoolService.proxyConfig = reactiveInvokeFunctionService.proxyConfig;
+        functionWorkerPoolService.meterRegistry = new SimpleMeterRegistry();
+        functionWorkerPoolService.afterPropertiesSet();
+        reactiveInvokeFunctionService.functionWorkerPoolService = functionWorkerPoolService;
+    }
+
+    private String getFunctionUrl(String path) {
+        return "http://localhost:" + functionServer.getAddress().getPort() + path;
+    }
+
+    private FunctionRequestContext createFunctionRequestContext(String requestId) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.add(HttpHeaders.HOST, "proxy");
+        headers.add(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE);
+        FunctionRequestContext functionRequestContext = new FunctionRequestContext(headers, HttpMethod.POST);
+        functionRequestContext.setRequestId(requestId);
+        return functionRequestContext;
+    }
+
+    private Flux<DataBuffer> toBody(String... chunks) {
+        return Flux.fromArray(chunks)
+                .map(chunk -> DefaultDataBufferFactory.sharedInstance.wrap(chunk.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private String toString(Flux<DataBuffer> body) {
+        return DataBufferUtils.join(body)
+                .map(dataBuffer -> dataBuffer.toString(StandardCharsets.UTF_8))
+                .block();
+    }
+}
@@ -0,0 +1,124 @@
+package com.salesforce.functions.proxy.service;
+
+import com.salesforce.functions.proxy.config.ProxyConfig;
+import com.salesforce.functions.proxy.util.InvalidRequestException;
+import com.salesforce.functions.proxy.util.Utils;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.security.KeyFactory;
+import java.security.PrivateKey;
+import java.security.PublicKey;
+import java.security.interfaces.RSAPrivateCrtKey;
+import java.security.spec.PKCS8EncodedKeySpec;
+import java.security.spec.RSAPublicKeySpec;
+import java.util.Base64;
+import java.util.Date;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class RequestAssertionServiceTest {
+
+    private static final String ORG_ID_18 = "00Dxx0000006IYJEA2";
+
+    private PrivateKey privateKey;
+    private RequestAssertionService requestAssertionService;
+
+    @BeforeEach
+    public void init() throws Exception {
+        java.security.Security.addProvider(new org.bouncycastle.jce.provider.BouncyCastleProvider());
+        String pem = new String(Files.readAllBytes(Paths.get("src/test/resources/fakePrivateKey.key")), StandardCharsets.UTF_8);
+        KeyFactory keyFactory = KeyFactory.getInstance("RSA");
+        privateKey = keyFactory.generatePrivate(new PKCS8EncodedKeySpec(Base64.getDecoder().decode(
+                pem.replaceAll("-----(BEGIN|END)[\\w\\s]*-----", "").replaceAll("\\s", ""))));
+        RSAPrivateCrtKey rsaPrivateKey = (RSAPrivateCrtKey) privateKey;
+        PublicKey publicKey = keyFactory.generatePublic(
+                new RSAPublicKeySpec(rsaPrivateKey.getModulus(), rsaPrivateKey.getPublicExponent()));
+        String publicKeyPem = "-----BEGIN PUBLIC KEY-----\n" +
+                Base64.getMimeEncoder().encodeToString(publicKey.getEncoded()) + "\n-----END PUBLIC KEY-----\n";
+
+        ProxyConfig proxyConfig = new ProxyConfig();
+        proxyConfig.setOrgId18(ORG_ID_18);
+        proxyConfig.setCallerValidationMode("signature");
+        proxyConfig.setEncodedCallerCertificate(
+                Base64.getEncoder().encodeToString(publicKeyPem.getBytes(StandardCharsets.UTF_8)));
+        proxyConfig.setRequestAssertionMaxAgeSeconds(120);
+        proxyConfig.setRequestAssertionReplayCacheMaxSize(10);
+        requestAssertionService = new RequestAssertionService();
+        requestAssertionService.proxyConfig = proxyConfig;
+        requestAssertionService.utils = new Utils();
+        requestAssertionService.meterRegistry = new SimpleMeterRegistry();
+        requestAssertionService.afterPropertiesSet();
+    }
+
+    @Test
+    public void validate_happyPath() throws InvalidRequestException {
+        String testName = this.getClass().getName();
+        requestAssertionService.validate(testName,
+                                         generateAssertion(ORG_ID_18, testName, testName, System.currentTimeMillis()),
+                                         testName);
+    }
+
+    @Test
+    public void validate_replayed() throws InvalidRequestException {
+        String testName = this.getClass().getName();
+        String assertion = generateAssertion(ORG_ID_18, testName, testName, System.currentTimeMillis());
+        requestAssertionService.validate(testName, assertion, testName);
+
+        InvalidRequestException ex = assertThrows(InvalidRequestException.class,
+                () -> requestAssertionService.validate(testName, assertion, testName));
+        assertThat(ex.getMessage()).contains("Replayed");
+    }
+
+    @Test
+    public void validate_unexpectedOrg() {
+        String testName = this.getClass().getName();
+        String assertion = generateAssertion("00Dxx0000006OTHER", testName, testName, System.currentTimeMillis());
+        InvalidRequestException ex = assertThrows(InvalidRequestException.class,
+                () -> requestAssertionService.validate(testName, assertion, testName));
+        assertThat(ex.getStatusCode()).isEqualTo(401);
+    }
+
+    @Test
+    public void validate_otherRequest() {
+        String testName = this.getClass().getName();
+        String assertion = generateAssertion(ORG_ID_18, testName, "other", System.currentTimeMillis());
+        assertThrows(InvalidRequestException.class, () -> requestAssertionService.validate(testName, assertion, testName));
+    }
+
+    @Test
+    public void validate_expired() {
+        String testName = this.getClass().getName();
+        String assertion = generateAssertion(ORG_ID_18, testName, testName, System.currentTimeMillis() - 300_000);
+        InvalidRequestException ex = assertThrows(InvalidRequestException.class,
+                () -> requestAssertionService.validate(testName, assertion, testName));
+        assertThat(ex.getMessage()).contains("expired");
+    }
+
+    @Test
+    public void validate_tampered() {
+        String testName = this.getClass().getName();
+        String[] parts = generateAssertion(ORG_ID_18, testName, testName, System.currentTimeMillis()).split("\\.");
+        String otherClaims = generateAssertion(ORG_ID_18, "other", testName, System.currentTimeMillis()).split("\\.")[1];
+        String assertion = parts[0] + "." + otherClaims + "." + parts[2];
+        assertThrows(InvalidRequestException.class, () -> requestAssertionService.validate(testName, assertion, testName));
+    }
+
+    private String generateAssertion(String orgId, String username, String requestId, long timestamp) {
+        return Jwts.builder()
+                .setIssuer(orgId)
+                .setSubject(username)
+                .setExpiration(new Date(timestamp + 60_000))
+                .claim(RequestAssertionService.CLAIM_REQUEST_ID, requestId)
+                .claim(RequestAssertionService.CLAIM_TIMESTAMP, timestamp)
+                .signWith(privateKey, SignatureAlgorithm.RS256)
+                .compact();
+    }
+}
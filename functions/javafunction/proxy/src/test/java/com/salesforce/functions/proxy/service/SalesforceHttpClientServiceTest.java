@@ -0,0 +1,119 @@
+package com.salesforce.functions.proxy.service;
+
+import com.salesforce.functions.proxy.config.ProxyConfig;
+import com.sun.net.httpserver.HttpServer;
+import org.awaitility.Duration;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.client.HttpClientErrorException;
+
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.awaitility.Awaitility.await;
+
+public class SalesforceHttpClientServiceTest {
+
+    private HttpServer server;
+    private List<String> requests;
+    private ProxyConfig proxyConfig;
+    private SalesforceHttpClientService salesforceHttpClientService;
+
+    @BeforeEach
+    public void init() throws Exception {
+        requests = new CopyOnWriteArrayList<>();
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/", exchange -> {
+            String body = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+            requests.add(exchange.getRequestMethod() + " " + exchange.getRequestURI().getPath() + " " +
+                    exchange.getRequestHeaders().getFirst(HttpHeaders.AUTHORIZATION) + " " + body);
+            byte[] response = "{\"ok\":true}".getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE);
+            int status = exchange.getRequestURI().getPath().equals("/unauthorized") ? 401 : 200;
+            if (HttpMethod.HEAD.name().equals(exchange.getRequestMethod())) {
+                exchange.sendResponseHeaders(status, -1);
+                exchange.close();
+                return;
+            }
+            exchange.sendResponseHeaders(status, response.length);
+            try (OutputStream os = exchange.getResponseBody()) {
+                os.write(response);
+            }
+        });
+        server.start();
+
+        proxyConfig = new ProxyConfig();
+        proxyConfig.setSalesforceClientHttp2Enabled(true);
+        proxyConfig.setSalesforceClientConnectTimeoutMs(1000);
+        proxyConfig.setSalesforceClientReadTimeoutMs(5000);
+
+        salesforceHttpClientService = new SalesforceHttpClientService();
+        salesforceHttpClientService.proxyConfig = proxyConfig;
+    }
+
+    @AfterEach
+    public void destroy() {
+        server.stop(0);
+    }
+
+    @Test
+    public void getRestTemplate_happyPath() {
+        salesforceHttpClientService.afterPropertiesSet();
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.setBearerAuth("token");
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        ResponseEntity<String> responseEntity = salesforceHttpClientService.getRestTemplate()
+                .postForEntity(getUrl("/services/oauth2/token"), new HttpEntity<>("{}", headers), String.class);
+
+        assertThat(responseEntity.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(responseEntity.getHeaders().getContentType()).isEqualTo(MediaType.APPLICATION_JSON);
+        assertThat(responseEntity.getBody()).isEqualTo("{\"ok\":true}");
+        assertThat(requests).containsExactly("POST /services/oauth2/token Bearer token {}");
+    }
+
+    @Test
+    public void getRestTemplate_clientError() {
+        salesforceHttpClientService.afterPropertiesSet();
+
+        assertThatThrownBy(() -> salesforceHttpClientService.getRestTemplate()
+                .exchange(getUrl("/unauthorized"), HttpMethod.GET, HttpEntity.EMPTY, String.class))
+                .isInstanceOf(HttpClientErrorException.Unauthorized.class);
+    }
+
+    @Test
+    public void getHttpClient_perOrgDomain() {
+        salesforceHttpClientService.afterPropertiesSet();
+
+        assertThat(salesforceHttpClientService.getHttpClient(URI.create("https://a.my.salesforce.com/services/oauth2/token")))
+                .isSameAs(salesforceHttpClientService.getHttpClient(URI.create("https://a.my.salesforce.com/services/oauth2/userinfo")));
+        assertThat(salesforceHttpClientService.getHttpClient(URI.create("https://a.my.salesforce.com")))
+                .isNotSameAs(salesforceHttpClientService.getHttpClient(URI.create("https://b.my.salesforce.com")));
+    }
+
+    @Test
+    public void afterPropertiesSet_warmUp() {
+        proxyConfig.setOrgDomainUrl(getUrl("/"));
+        salesforceHttpClientService.afterPropertiesSet();
+
+        await().atMost(Duration.FIVE_SECONDS).until(() -> requests.size() == 1);
+        assertThat(requests.get(0)).startsWith("HEAD /");
+    }
+
+    private String getUrl(String path) {
+        return "http://localhost:" + server.getAddress().getPort() + path;
+    }
+}
@@ -1,32 +1,67 @@
 package com.salesforce.functions.proxy.service;
 
+import com.google.common.collect.ImmutableList;
 import com.salesforce.functions.proxy.config.ProxyConfig;
+import com.salesforce.functions.proxy.model.FunctionWorker;
 import com.salesforce.functions.proxy.util.Utils;
+import org.awaitility.Duration;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.jar.Attributes;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.awaitility.Awaitility.await;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
 public class StartFunctionServiceTest {
 
+    private static final String EMBEDDED_MAIN = EmbeddedRuntimeMain.class.getName();
+
     @Mock
     private ProxyConfig mockProxyConfig;
     @Mock
-    private ProcessHandle mockProcessHandle;
+    private Process mockProcess;
     @Mock
     private ProcessStartService mockProcessStartService;
     @Mock
     private Utils mockUtils;
+    @Mock
+    private FunctionWorkerPoolService mockFunctionWorkerPoolService;
+    @Mock
+    private FunctionReadinessService mockFunctionReadinessService;
     @InjectMocks
     private StartFunctionService startFunctionService = new StartFunctionService();
 
@@ -39,11 +74,384 @@ public class StartFunctionServiceTest {
         // Mocks
         when(mockUtils.isBlank(any())).thenCallRealMethod();
         when(mockProxyConfig.getJavaHome()).thenCallRealMethod();
-        when(mockProcessHandle.isAlive()).thenReturn(true);
-        when(mockProcessStartService.start(any())).thenReturn(mockProcessHandle);
+        when(mockProcess.isAlive()).thenReturn(true);
+        when(mockProcess.toHandle()).thenReturn(ProcessHandle.current());
+        when(mockProcess.onExit()).thenReturn(new CompletableFuture<>());
+        when(mockProcessStartService.start(any())).thenReturn(mockProcess);
+        FunctionWorker worker = new FunctionWorker(0, 8080, "http://localhost:8080");
+        when(mockFunctionWorkerPoolService.getWorkers()).thenReturn(ImmutableList.of(worker));
+
+        // Test
+        startFunctionService.start();
+        assertThat(worker.getProcessHandle()).isSameAs(ProcessHandle.current());
+        assertThat(worker.getExitCode()).isNull();
+    }
+
+    @Test
+    public void start_processDied() throws Exception {
+        // Mocks
+        when(mockUtils.isBlank(any())).thenCallRealMethod();
+        when(mockProxyConfig.getJavaHome()).thenCallRealMethod();
+        when(mockProcess.isAlive()).thenReturn(false);
+        when(mockProcess.exitValue()).thenReturn(1);
+        when(mockProcessStartService.start(any())).thenReturn(mockProcess);
+        FunctionWorker worker = new FunctionWorker(0, 8080, "http://localhost:8080");
+        when(mockFunctionWorkerPoolService.getWorkers()).thenReturn(ImmutableList.of(worker));
+
+        // Test
+        assertThatThrownBy(() -> startFunctionService.start())
+                .isInstanceOf(RuntimeException.class)
+                .hasMessageContaining("exit code 1");
+        assertThat(worker.isAlive()).isFalse();
+    }
+
+    @Test
+    public void start_workers() throws Exception {
+        // Mocks
+        when(mockUtils.isBlank(any())).thenCallRealMethod();
+        when(mockProxyConfig.getJavaHome()).thenCallRealMethod();
+        when(mockProxyConfig.getFunctionWorkerMemoryMb()).thenReturn(512);
+        when(mockProcess.isAlive()).thenReturn(true);
+        when(mockProcess.toHandle()).thenReturn(ProcessHandle.current());
+        when(mockProcess.onExit()).thenReturn(new CompletableFuture<>());
+        when(mockProcessStartService.start(any())).thenReturn(mockProcess);
+        FunctionWorker worker0 = new FunctionWorker(0, 8080, "http://localhost:8080");
+        FunctionWorker worker1 = new FunctionWorker(1, 8081, "http://localhost:8081");
+        when(mockFunctionWorkerPoolService.getWorkers()).thenReturn(ImmutableList.of(worker0, worker1));
 
         // Test
         startFunctionService.start();
+        verify(mockProcessStartService, times(2)).start(any());
+        assertThat(worker0.isAlive()).isTrue();
+        assertThat(worker1.isAlive()).isTrue();
+
+        // Running workers are left running
+        startFunctionService.start();
+        verify(mockProcessStartService, times(2)).start(any());
+    }
+
+    @Test
+    public void assembleFunctionStartCommand_worker() throws Exception {
+        // Mocks
+        when(mockUtils.isBlank(any())).thenCallRealMethod();
+        when(mockProxyConfig.getJavaHome()).thenCallRealMethod();
+        lenient().when(mockProxyConfig.getDebugPort()).thenReturn("8000");
+        when(mockProxyConfig.getFunctionWorkerMemoryMb()).thenReturn(512);
+        when(mockProxyConfig.getSfFxRuntimeJarFilePath()).thenReturn("sf-fx-runtime.jar");
+        when(mockProxyConfig.getFunctionDir()).thenReturn("/workspace");
+        when(mockProxyConfig.getFunctionHost()).thenReturn("localhost");
+        FunctionWorker worker = new FunctionWorker(1, 8081, "http://localhost:8081");
+        when(mockFunctionWorkerPoolService.getWorkers())
+                .thenReturn(ImmutableList.of(new FunctionWorker(0, 8080, "http://localhost:8080"), worker));
+
+        // Test
+        List<String> cmd = startFunctionService.assembleFunctionStartCommand(worker);
+        assertThat(cmd).contains("-Xmx384m");
+        assertThat(cmd).noneMatch(arg -> arg.startsWith("-agentlib:jdwp"));
+        assertThat(cmd.subList(cmd.size() - 2, cmd.size())).containsExactly("-p", "8081");
+    }
+
+    @Test
+    public void start_singleFlight() throws Exception {
+        // Mocks
+        when(mockUtils.isBlank(any())).thenCallRealMethod();
+        when(mockProxyConfig.getJavaHome()).thenCallRealMethod();
+        when(mockProcess.isAlive()).thenReturn(true);
+        when(mockProcess.toHandle()).thenReturn(ProcessHandle.current());
+        when(mockProcess.onExit()).thenReturn(new CompletableFuture<>());
+        when(mockProcessStartService.start(any())).thenAnswer(invocation -> {
+            Thread.sleep(200);
+            return mockProcess;
+        });
+        FunctionWorker worker = new FunctionWorker(0, 8080, "http://localhost:8080");
+
+        // Test
+        CompletableFuture<Void> start1 = CompletableFuture.runAsync(() -> startQuietly(worker));
+        CompletableFuture<Void> start2 = CompletableFuture.runAsync(() -> startQuietly(worker));
+        CompletableFuture.allOf(start1, start2).join();
+        verify(mockProcessStartService, times(1)).start(any());
+        assertThat(worker.isAlive()).isTrue();
+    }
+
+    @Test
+    public void onExit_restart() throws Exception {
+        // Mocks
+        when(mockUtils.isBlank(any())).thenCallRealMethod();
+        when(mockProxyConfig.getJavaHome()).thenCallRealMethod();
+        ProcessHandle exitedProcessHandle = mock(ProcessHandle.class);
+        when(exitedProcessHandle.isAlive()).thenReturn(false);
+        CompletableFuture<Process> onExit = new CompletableFuture<>();
+        Process exitedProcess = mock(Process.class);
+        when(exitedProcess.isAlive()).thenReturn(true);
+        when(exitedProcess.toHandle()).thenReturn(exitedProcessHandle);
+        when(exitedProcess.onExit()).thenReturn(onExit);
+        when(exitedProcess.exitValue()).thenReturn(1);
+        when(mockProcess.isAlive()).thenReturn(true);
+        when(mockProcess.toHandle()).thenReturn(ProcessHandle.current());
+        when(mockProcess.onExit()).thenReturn(new CompletableFuture<>());
+        when(mockProcessStartService.start(any())).thenReturn(exitedProcess, mockProcess);
+        FunctionWorker worker = new FunctionWorker(0, 8080, "http://localhost:8080");
+        when(mockFunctionWorkerPoolService.getWorkers()).thenReturn(ImmutableList.of(worker));
+
+        // Test
+        startFunctionService.afterPropertiesSet();
+        try {
+            assertThat(worker.getProcess()).isSameAs(exitedProcess);
+            onExit.complete(exitedProcess);
+            await().atMost(Duration.FIVE_SECONDS).until(() -> worker.getProcess() == mockProcess);
+            assertThat(worker.isAlive()).isTrue();
+            verify(mockFunctionReadinessService).awaitReady(ImmutableList.of(worker));
+        } finally {
+            startFunctionService.destroy();
+        }
+    }
+
+    @Test
+    public void onExit_replacedWhileRestarting() throws Exception {
+        // Mocks
+        when(mockUtils.isBlank(any())).thenCallRealMethod();
+        when(mockProxyConfig.getJavaHome()).thenCallRealMethod();
+        ProcessHandle exitedProcessHandle = mock(ProcessHandle.class);
+        when(exitedProcessHandle.isAlive()).thenReturn(false);
+        CompletableFuture<Process> onExit = new CompletableFuture<>();
+        Process exitedProcess = mock(Process.class);
+        when(exitedProcess.isAlive()).thenReturn(true);
+        when(exitedProcess.toHandle()).thenReturn(exitedProcessHandle);
+        when(exitedProcess.onExit()).thenReturn(onExit);
+        when(exitedProcess.exitValue()).thenReturn(1);
+        ProcessHandle orphanProcessHandle = mock(ProcessHandle.class);
+        AtomicBoolean stopped = new AtomicBoolean();
+        when(orphanProcessHandle.isAlive()).thenAnswer(invocation -> !stopped.get());
+        doAnswer(invocation -> {
+            stopped.set(true);
+            return true;
+        }).when(orphanProcessHandle).destroy();
+        when(orphanProcessHandle.onExit()).thenReturn(CompletableFuture.completedFuture(orphanProcessHandle));
+        when(mockProcess.isAlive()).thenReturn(true);
+        when(mockProcess.toHandle()).thenReturn(orphanProcessHandle);
+        when(mockProcess.onExit()).thenReturn(new CompletableFuture<>());
+        FunctionWorker worker = new FunctionWorker(0, 8080, "http://localhost:8080");
+        FunctionWorker replacement = new FunctionWorker(0, 8081, "http://localhost:8081");
+        AtomicReference<List<FunctionWorker>> workers = new AtomicReference<>(ImmutableList.of(worker));
+        when(mockFunctionWorkerPoolService.getWorkers()).thenAnswer(invocation -> workers.get());
+        // Worker is replaced while its process is restarting
+        when(mockProcessStartService.start(any())).thenReturn(exitedProcess).thenAnswer(invocation -> {
+            workers.set(ImmutableList.of(replacement));
+            return mockProcess;
+        });
+
+        // Test
+        startFunctionService.afterPropertiesSet();
+        try {
+            onExit.complete(exitedProcess);
+
+            // Restarted process is stopped rather than left running on the replaced worker's port
+            await().atMost(Duration.FIVE_SECONDS).untilTrue(stopped);
+            verify(mockFunctionReadinessService, never()).awaitReady(ImmutableList.of(worker));
+        } finally {
+            startFunctionService.destroy();
+        }
+    }
+
+    @Test
+    public void onExit_failover() throws Exception {
+        // Mocks
+        when(mockUtils.isBlank(any())).thenCallRealMethod();
+        when(mockProxyConfig.getJavaHome()).thenCallRealMethod();
+        AtomicBoolean exited = new AtomicBoolean();
+        ProcessHandle exitedProcessHandle = mock(ProcessHandle.class);
+        when(exitedProcessHandle.isAlive()).thenAnswer(invocation -> !exited.get());
+        Process exitedProcess = mock(Process.class);
+        when(exitedProcess.toHandle()).thenReturn(exitedProcessHandle);
+        Process standbyProcess = mock(Process.class);
+        when(standbyProcess.toHandle()).thenReturn(ProcessHandle.current());
+        when(mockProcess.isAlive()).thenReturn(true);
+        when(mockProcess.toHandle()).thenReturn(ProcessHandle.current());
+        when(mockProcess.onExit()).thenReturn(new CompletableFuture<>());
+        when(mockProcessStartService.start(any())).thenReturn(mockProcess);
+        FunctionWorker worker = new FunctionWorker(0, 8080, "http://localhost:8080");
+        worker.setProcess(exitedProcess);
+        FunctionWorker standby = new FunctionWorker(1, 8081, "http://localhost:8081");
+        standby.setProcess(standbyProcess);
+        when(mockFunctionWorkerPoolService.getWorkers()).thenReturn(ImmutableList.of(worker));
+        when(mockFunctionWorkerPoolService.getStandby()).thenReturn(standby);
+        doAnswer(invocation -> {
+            standby.setRestarting(false);
+            return null;
+        }).when(mockFunctionReadinessService).awaitReady(ImmutableList.of(standby));
+
+        // Test
+        startFunctionService.afterPropertiesSet();
+        try {
+            await().atMost(Duration.FIVE_SECONDS).until(() -> !standby.isRestarting() && !standby.isWarming());
+            exited.set(true);
+            startFunctionService.onExit(exitedProcess);
+
+            // Worker takes over standby's process w/o restarting
+            assertThat(worker.getProcess()).isSameAs(standbyProcess);
+            assertThat(worker.getUrl()).isEqualTo("http://localhost:8081");
+            assertThat(worker.isRestarting()).isFalse();
+
+            // Standby is replaced on exited process' port
+            await().atMost(Duration.FIVE_SECONDS).until(() -> standby.getProcess() == mockProcess);
+            assertThat(standby.getPort()).isEqualTo(8080);
+            verify(mockProcessStartService, times(1)).start(any());
+            verify(mockFunctionReadinessService, times(2)).warmUp(eq(standby), anyInt());
+        } finally {
+            startFunctionService.destroy();
+        }
+    }
+
+    @Test
+    public void onExit_standbyWarming() throws Exception {
+        // Mocks
+        lenient().when(mockUtils.isBlank(any())).thenCallRealMethod();
+        lenient().when(mockProxyConfig.getJavaHome()).thenCallRealMethod();
+        lenient().when(mockProcess.isAlive()).thenReturn(true);
+        lenient().when(mockProcess.toHandle()).thenReturn(ProcessHandle.current());
+        lenient().when(mockProcess.onExit()).thenReturn(new CompletableFuture<>());
+        lenient().when(mockProcessStartService.start(any())).thenReturn(mockProcess);
+        AtomicBoolean exited = new AtomicBoolean();
+        ProcessHandle exitedProcessHandle = mock(ProcessHandle.class);
+        when(exitedProcessHandle.isAlive()).thenAnswer(invocation -> !exited.get());
+        Process exitedProcess = mock(Process.class);
+        when(exitedProcess.toHandle()).thenReturn(exitedProcessHandle);
+        Process standbyProcess = mock(Process.class);
+        when(standbyProcess.toHandle()).thenReturn(ProcessHandle.current());
+        FunctionWorker worker = new FunctionWorker(0, 8080, "http://localhost:8080");
+        worker.setProcess(exitedProcess);
+        FunctionWorker standby = new FunctionWorker(1, 8081, "http://localhost:8081");
+        standby.setProcess(standbyProcess);
+        when(mockFunctionWorkerPoolService.getWorkers()).thenReturn(ImmutableList.of(worker));
+        when(mockFunctionWorkerPoolService.getStandby()).thenReturn(standby);
+        doAnswer(invocation -> {
+            standby.setRestarting(false);
+            return null;
+        }).when(mockFunctionReadinessService).awaitReady(ImmutableList.of(standby));
+        CountDownLatch warmed = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            warmed.await();
+            return null;
+        }).when(mockFunctionReadinessService).warmUp(eq(standby), anyInt());
+
+        // Test
+        startFunctionService.afterPropertiesSet();
+        try {
+            await().atMost(Duration.FIVE_SECONDS).until(() -> !standby.isRestarting() && standby.isWarming());
+            exited.set(true);
+            startFunctionService.onExit(exitedProcess);
+
+            // Ready but not yet warmed standby isn't failed over to
+            assertThat(standby.getProcess()).isSameAs(standbyProcess);
+            assertThat(worker.getUrl()).isEqualTo("http://localhost:8080");
+        } finally {
+            warmed.countDown();
+            startFunctionService.destroy();
+        }
+    }
+
+    @Test
+    public void redeploy_happyPath() throws Exception {
+        // Mocks
+        when(mockUtils.isBlank(any())).thenCallRealMethod();
+        when(mockProxyConfig.getJavaHome()).thenCallRealMethod();
+        when(mockProxyConfig.getFunctionDrainTimeoutMs()).thenReturn(5000);
+        ProcessHandle oldProcessHandle = mock(ProcessHandle.class);
+        AtomicBoolean stopped = new AtomicBoolean();
+        when(oldProcessHandle.isAlive()).thenAnswer(invocation -> !stopped.get());
+        doAnswer(invocation -> {
+            stopped.set(true);
+            return true;
+        }).when(oldProcessHandle).destroy();
+        when(oldProcessHandle.onExit()).thenReturn(CompletableFuture.completedFuture(oldProcessHandle));
+        Process oldProcess = mock(Process.class);
+        when(oldProcess.toHandle()).thenReturn(oldProcessHandle);
+        when(mockProcess.isAlive()).thenReturn(true);
+        when(mockProcess.toHandle()).thenReturn(ProcessHandle.current());
+        when(mockProcess.onExit()).thenReturn(new CompletableFuture<>());
+        when(mockProcessStartService.start(any())).thenReturn(mockProcess);
+        FunctionWorker worker = new FunctionWorker(0, 8080, "http://localhost:8080");
+        worker.setProcess(oldProcess);
+        worker.incrementOutstandingRequests();
+        when(mockFunctionWorkerPoolService.getWorkers()).thenReturn(ImmutableList.of(worker));
+
+        // Test
+        startFunctionService.afterPropertiesSet();
+        try {
+            CompletableFuture<Void> redeploy = startFunctionService.redeploy();
+
+            // New process is started on another port and takes new requests once ready
+            await().atMost(Duration.FIVE_SECONDS).untilAsserted(() -> verify(mockFunctionWorkerPoolService)
+                    .replaceWorker(eq(worker), argThat(replacement -> replacement.getProcess() == mockProcess)));
+            verify(mockFunctionReadinessService).awaitReady(any());
+            assertThat(startFunctionService.redeploy())
+                    .failsWithin(java.time.Duration.ofSeconds(1))
+                    .withThrowableOfType(ExecutionException.class)
+                    .withCauseInstanceOf(IllegalStateException.class);
+
+            // Old process is stopped once in-flight requests complete
+            Thread.sleep(200);
+            verify(oldProcessHandle, never()).destroy();
+            worker.decrementOutstandingRequests();
+            redeploy.get(5, TimeUnit.SECONDS);
+            verify(oldProcessHandle).destroy();
+            verify(oldProcessHandle, never()).destroyForcibly();
+        } finally {
+            startFunctionService.destroy();
+        }
+    }
+
+    @Test
+    public void redeploy_notReady() throws Exception {
+        // Mocks
+        when(mockUtils.isBlank(any())).thenCallRealMethod();
+        when(mockProxyConfig.getJavaHome()).thenCallRealMethod();
+        ProcessHandle replacementProcessHandle = mock(ProcessHandle.class);
+        when(replacementProcessHandle.isAlive()).thenReturn(true);
+        when(replacementProcessHandle.onExit()).thenReturn(CompletableFuture.completedFuture(replacementProcessHandle));
+        when(mockProcess.isAlive()).thenReturn(true);
+        when(mockProcess.toHandle()).thenReturn(replacementProcessHandle);
+        when(mockProcess.onExit()).thenReturn(new CompletableFuture<>());
+        when(mockProcessStartService.start(any())).thenReturn(mockProcess);
+        FunctionWorker worker = new FunctionWorker(0, 8080, "http://localhost:8080");
+        worker.setProcessHandle(ProcessHandle.current());
+        when(mockFunctionWorkerPoolService.getWorkers()).thenReturn(ImmutableList.of(worker));
+        doThrow(new RuntimeException("Function worker 0 not ready after 60000ms"))
+                .when(mockFunctionReadinessService).awaitReady(any());
+
+        // Test
+        startFunctionService.afterPropertiesSet();
+        try {
+            assertThatThrownBy(() -> startFunctionService.redeploy().get(5, TimeUnit.SECONDS))
+                    .hasCauseInstanceOf(RuntimeException.class)
+                    .hasMessageContaining("Unable to redeploy function: Function worker 0 not ready");
+
+            // Old worker keeps taking requests, new process is stopped
+            verify(mockFunctionWorkerPoolService, never()).replaceWorker(any(), any());
+            verify(replacementProcessHandle).destroy();
+            assertThat(worker.getProcessHandle()).isSameAs(ProcessHandle.current());
+        } finally {
+            startFunctionService.destroy();
+        }
+    }
+
+    @Test
+    public void redeploy_embedded() throws Exception {
+        when(mockProxyConfig.isEmbeddedFunctionEnabled()).thenReturn(true);
+
+        assertThat(startFunctionService.redeploy())
+                .isCompletedExceptionally();
+        verify(mockProcessStartService, never()).start(any());
+    }
+
+    @Test
+    public void getRestartBackoffMs_happyPath() {
+        when(mockProxyConfig.getFunctionRestartMaxBackoffMs()).thenReturn(30000);
+
+        assertThat(startFunctionService.getRestartBackoffMs(1)).isEqualTo(0);
+        assertThat(startFunctionService.getRestartBackoffMs(2)).isEqualTo(500);
+        assertThat(startFunctionService.getRestartBackoffMs(3)).isEqualTo(1000);
+        assertThat(startFunctionService.getRestartBackoffMs(100)).isEqualTo(30000);
     }
 
     @Test
@@ -61,4 +469,86 @@ public class StartFunctionServiceTest {
         assertNotNull(cmd);
         assertThat(cmd.size()).isEqualTo(12);
     }
+
+    @Test
+    public void start_embedded(@TempDir Path tempDir) throws Exception {
+        FunctionWorker worker = mockEmbedded(tempDir);
+
+        // Test
+        try {
+            startFunctionService.start();
+            await().atMost(Duration.FIVE_SECONDS).until(() -> System.getProperty(EMBEDDED_MAIN + ".args") != null);
+            assertThat(System.getProperty(EMBEDDED_MAIN + ".args")).isEqualTo("serve " + tempDir + " -h localhost -p 8080");
+            assertThat(System.getProperty(EMBEDDED_MAIN + ".classLoader")).isEqualTo("sf-fx-runtime");
+            verify(mockProcessStartService, never()).start(any());
+            assertThat(worker.isAlive()).isTrue();
+            assertThat(worker.getProcessHandle()).isNull();
+
+            // Already running
+            startFunctionService.start();
+            assertThat(Integer.getInteger(EMBEDDED_MAIN + ".starts")).isEqualTo(1);
+        } finally {
+            startFunctionService.destroy();
+            System.setProperty(EMBEDDED_MAIN + ".exit", "true");
+        }
+    }
+
+    @Test
+    public void onEmbeddedExit_restart(@TempDir Path tempDir) throws Exception {
+        FunctionWorker worker = mockEmbedded(tempDir);
+
+        try {
+            startFunctionService.afterPropertiesSet();
+            await().atMost(Duration.FIVE_SECONDS).until(() -> Integer.getInteger(EMBEDDED_MAIN + ".starts", 0) == 1);
+            Thread firstThread = worker.getThread();
+
+            // Test: runtime exits and is restarted by the supervisor
+            System.setProperty(EMBEDDED_MAIN + ".exit", "true");
+            await().atMost(Duration.FIVE_SECONDS).until(() -> Integer.getInteger(EMBEDDED_MAIN + ".starts", 0) == 2);
+            await().atMost(Duration.FIVE_SECONDS).until(() -> !firstThread.isAlive());
+            assertThat(worker.isAlive()).isTrue();
+            assertThat(worker.getThread()).isNotSameAs(firstThread);
+            verify(mockFunctionReadinessService).awaitReady(ImmutableList.of(worker));
+        } finally {
+            startFunctionService.destroy();
+            System.setProperty(EMBEDDED_MAIN + ".exit", "true");
+        }
+    }
+
+    private FunctionWorker mockEmbedded(Path tempDir) throws Exception {
+        System.clearProperty(EMBEDDED_MAIN + ".args");
+        System.clearProperty(EMBEDDED_MAIN + ".starts");
+        System.clearProperty(EMBEDDED_MAIN + ".exit");
+
+        // Runtime jar w/ stand-in main class
+        String mainClassEntry = EMBEDDED_MAIN.replace('.', '/') + ".class";
+        Manifest manifest = new Manifest();
+        manifest.getMainAttributes().put(Attributes.Name.MANIFEST_VERSION, "1.0");
+        manifest.getMainAttributes().put(Attributes.Name.MAIN_CLASS, EMBEDDED_MAIN);
+        Path runtimeJar = tempDir.resolve("runtime.jar");
+        try (JarOutputStream jar = new JarOutputStream(Files.newOutputStream(runtimeJar), manifest);
+             InputStream mainClass = getClass().getClassLoader().getResourceAsStream(mainClassEntry)) {
+            jar.putNextEntry(new JarEntry(mainClassEntry));
+            mainClass.transferTo(jar);
+            jar.closeEntry();
+        }
+
+        when(mockUtils.isBlank(any())).thenCallRealMethod();
+        when(mockProxyConfig.isEmbeddedFunctionEnabled()).thenReturn(true);
+        when(mockProxyConfig.getSfFxRuntimeJarFilePath()).thenReturn(runtimeJar.toString());
+        when(mockProxyConfig.getFunctionDir()).thenReturn(tempDir.toString());
+        when(mockProxyConfig.getFunctionHost()).thenReturn("localhost");
+        when(mockProxyConfig.getFunctionPort()).thenReturn("8080");
+        FunctionWorker worker = new FunctionWorker(0, 8080, "http://localhost:8080");
+        when(mockFunctionWorkerPoolService.getWorkers()).thenReturn(ImmutableList.of(worker));
+        return worker;
+    }
+
+    private void startQuietly(FunctionWorker worker) {
+        try {
+            startFunctionService.start(worker);
+        } catch (Exception ex) {
+            throw new RuntimeException(ex);
+        }
+    }
 }
@@ -0,0 +1,161 @@
+package com.salesforce.functions.proxy.service;
+
+import com.salesforce.functions.proxy.config.ProxyConfig;
+import com.salesforce.functions.proxy.model.FunctionRequestContext;
+import com.salesforce.functions.proxy.model.FunctionWorker;
+import com.salesforce.functions.proxy.util.Utils;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.Random;
+import java.util.concurrent.CompletionException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class StreamingInvokeFunctionServiceTest {
+
+    private HttpServer server;
+    private ProxyConfig proxyConfig;
+    private FunctionHttpClientService functionHttpClientService;
+    private FunctionWorkerPoolService functionWorkerPoolService;
+    private StreamingInvokeFunctionService streamingInvokeFunctionService;
+
+    @BeforeEach
+    public void init() throws Exception {
+        // Echoes request body, failing w/ given status
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/", exchange -> {
+            byte[] body = exchange.getRequestBody().readAllBytes();
+            String status = exchange.getRequestHeaders().getFirst("x-status");
+            if (exchange.getRequestHeaders().containsKey("x-request-id")) {
+                exchange.getResponseHeaders().add("x-request-id", exchange.getRequestHeaders().getFirst("x-request-id"));
+            }
+            exchange.sendResponseHeaders(status != null ? Integer.parseInt(status) : 200, body.length);
+            try (OutputStream os = exchange.getResponseBody()) {
+                os.write(body);
+            }
+        });
+        server.start();
+
+        proxyConfig = new ProxyConfig();
+        proxyConfig.setFunctionUrl("http://localhost:" + server.getAddress().getPort());
+        proxyConfig.setFunctionClientMaxConnections(10);
+        proxyConfig.setFunctionClientConnectTimeoutMs(1000);
+        proxyConfig.setFunctionClientReadTimeoutMs(5000);
+        proxyConfig.setFunctionClientIdleTimeoutSeconds(30);
+        proxyConfig.setStreamingBufferSize(4096);
+        proxyConfig.setStreamingBufferPoolSize(4);
+        proxyConfig.setFunctionWorkers(1);
+
+        functionHttpClientService = new FunctionHttpClientService();
+        functionHttpClientService.proxyConfig = proxyConfig;
+        functionHttpClientService.meterRegistry = new SimpleMeterRegistry();
+        functionHttpClientService.afterPropertiesSet();
+
+        functionWorkerPoolService = new FunctionWorkerPoolService();
+        functionWorkerPoolService.proxyConfig = proxyConfig;
+        functionWorkerPoolService.meterRegistry = new SimpleMeterRegistry();
+        functionWorkerPoolService.afterPropertiesSet();
+
+        streamingInvokeFunctionService = new StreamingInvokeFunctionService();
+        streamingInvokeFunctionService.proxyConfig = proxyConfig;
+        streamingInvokeFunctionService.functionHttpClientService = functionHttpClientService;
+        streamingInvokeFunctionService.functionWorkerPoolService = functionWorkerPoolService;
+        streamingInvokeFunctionService.utils = new Utils();
+        streamingInvokeFunctionService.afterPropertiesSet();
+    }
+
+    @AfterEach
+    public void destroy() {
+        streamingInvokeFunctionService.destroy();
+        functionHttpClientService.destroy();
+        server.stop(0);
+    }
+
+    @Test
+    public void invokeFunction_happyPath() throws Exception {
+        String testName = this.getClass().getName();
+        byte[] body = new byte[1024 * 1024 + 1];
+        new Random().nextBytes(body);
+        HttpHeaders headers = new HttpHeaders();
+        headers.add("x-request-id", testName);
+        headers.setContentLength(body.length);
+        FunctionRequestContext functionRequestContext = new FunctionRequestContext(headers, HttpMethod.POST);
+        functionRequestContext.setRequestId(testName);
+
+        ResponseEntity<StreamingResponseBody> responseEntity =
+                streamingInvokeFunctionService.invokeFunction(functionRequestContext, new ByteArrayInputStream(body)).join();
+        assertThat(responseEntity.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(responseEntity.getHeaders().getFirst("x-request-id")).isEqualTo(testName);
+        assertThat(responseEntity.getHeaders().getContentLength()).isEqualTo(body.length);
+        // Worker is outstanding until the body is streamed
+        FunctionWorker worker = functionWorkerPoolService.getWorkers().get(0);
+        assertThat(worker.getOutstandingRequests()).isEqualTo(1);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        responseEntity.getBody().writeTo(out);
+        assertThat(out.toByteArray()).isEqualTo(body);
+        assertThat(worker.getOutstandingRequests()).isEqualTo(0);
+        // Request and response buffers are returned to the pool
+        assertThat(streamingInvokeFunctionService.bufferPool.size()).isBetween(1, 2);
+    }
+
+    @Test
+    public void invokeFunction_chunked() throws Exception {
+        String testName = this.getClass().getName();
+        byte[] body = "chunked".getBytes();
+        FunctionRequestContext functionRequestContext = new FunctionRequestContext(new HttpHeaders(), HttpMethod.POST);
+        functionRequestContext.setRequestId(testName);
+
+        ResponseEntity<StreamingResponseBody> responseEntity =
+                streamingInvokeFunctionService.invokeFunction(functionRequestContext, new ByteArrayInputStream(body)).join();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        responseEntity.getBody().writeTo(out);
+        assertThat(out.toByteArray()).isEqualTo(body);
+    }
+
+    @Test
+    public void invokeFunction_clientError() throws Exception {
+        String testName = this.getClass().getName();
+        HttpHeaders headers = new HttpHeaders();
+        headers.add("x-status", "404");
+        FunctionRequestContext functionRequestContext = new FunctionRequestContext(headers, HttpMethod.POST);
+        functionRequestContext.setRequestId(testName);
+
+        ResponseEntity<StreamingResponseBody> responseEntity =
+                streamingInvokeFunctionService.invokeFunction(functionRequestContext, null).join();
+        assertThat(responseEntity.getStatusCode()).isEqualTo(HttpStatus.NOT_FOUND);
+        responseEntity.getBody().writeTo(new ByteArrayOutputStream());
+    }
+
+    @Test
+    public void invokeFunction_serverError() {
+        String testName = this.getClass().getName();
+        HttpHeaders headers = new HttpHeaders();
+        headers.add("x-status", "500");
+        headers.setContentLength(5);
+        FunctionRequestContext functionRequestContext = new FunctionRequestContext(headers, HttpMethod.POST);
+        functionRequestContext.setRequestId(testName);
+
+        assertThatThrownBy(() -> streamingInvokeFunctionService.invokeFunction(functionRequestContext,
+                                                                                  new ByteArrayInputStream("error".getBytes())).join())
+                .isInstanceOf(CompletionException.class)
+                .hasCauseInstanceOf(HttpServerErrorException.class)
+                .extracting(ex -> ((HttpServerErrorException) ex.getCause()).getResponseBodyAsString())
+                .isEqualTo("error");
+    }
+}
@@ -0,0 +1,39 @@
+package com.salesforce.functions.proxy.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class BufferPoolTest {
+
+    @Test
+    public void copy_happyPath() throws Exception {
+        BufferPool bufferPool = new BufferPool(1024, 2);
+        byte[] content = new byte[10 * 1024 + 7];
+        new Random().nextBytes(content);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        long copied = bufferPool.copy(new ByteArrayInputStream(content), out);
+        assertThat(copied).isEqualTo(content.length);
+        assertThat(out.toByteArray()).isEqualTo(content);
+        assertThat(bufferPool.size()).isEqualTo(1);
+    }
+
+    @Test
+    public void acquire_reusesReleasedBuffers() {
+        BufferPool bufferPool = new BufferPool(1024, 1);
+        byte[] buffer = bufferPool.acquire();
+        assertThat(buffer).hasSize(1024);
+        bufferPool.release(buffer);
+        assertThat(bufferPool.acquire()).isSameAs(buffer);
+
+        // Only up to max buffers are retained
+        bufferPool.release(new byte[1024]);
+        bufferPool.release(new byte[1024]);
+        assertThat(bufferPool.size()).isEqualTo(1);
+    }
+}
@@ -0,0 +1,60 @@
+package com.salesforce.functions.proxy.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class SingleFlightTest {
+
+    @Test
+    public void execute_coalescesConcurrentCalls() throws Exception {
+        SingleFlight<String, String> singleFlight = new SingleFlight<>();
+        AtomicInteger calls = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        int callers = 10;
+        ExecutorService executorService = Executors.newFixedThreadPool(callers);
+        try {
+            List<Future<String>> futures = new ArrayList<>();
+            for (int i = 0; i < callers; i++) {
+                futures.add(executorService.submit(() -> singleFlight.execute("key", () -> {
+                    calls.incrementAndGet();
+                    release.await(5, TimeUnit.SECONDS);
+                    return "value";
+                })));
+            }
+
+            // Wait for all callers to queue up behind the in-flight call
+            Thread.sleep(200);
+            release.countDown();
+            for (Future<String> future : futures) {
+                assertThat(future.get(5, TimeUnit.SECONDS)).isEqualTo("value");
+            }
+        } finally {
+            executorService.shutdownNow();
+        }
+
+        assertThat(calls.get()).isLessThan(callers);
+        assertThat(singleFlight.isInFlight("key")).isFalse();
+    }
+
+    @Test
+    public void execute_failureDoesNotPoisonKey() throws Exception {
+        SingleFlight<String, String> singleFlight = new SingleFlight<>();
+        assertThrows(InvalidRequestException.class, () -> singleFlight.execute("key", () -> {
+            throw new InvalidRequestException("failed", 401);
+        }));
+
+        assertThat(singleFlight.isInFlight("key")).isFalse();
+        assertThat(singleFlight.execute("key", () -> "value")).isEqualTo("value");
+    }
+}
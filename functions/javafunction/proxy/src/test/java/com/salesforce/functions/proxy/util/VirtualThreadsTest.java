@@ -0,0 +1,53 @@
+package com.salesforce.functions.proxy.util;
+
+import com.salesforce.functions.proxy.config.ProxyConfig;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.junit.jupiter.api.Assumptions.assumeFalse;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+public class VirtualThreadsTest {
+
+    @Test
+    public void isEnabled_disabled() {
+        ProxyConfig proxyConfig = new ProxyConfig();
+        proxyConfig.setVirtualThreadsEnabled(false);
+        assertThat(VirtualThreads.isEnabled(proxyConfig)).isFalse();
+    }
+
+    @Test
+    public void isEnabled_enabled() {
+        ProxyConfig proxyConfig = new ProxyConfig();
+        proxyConfig.setVirtualThreadsEnabled(true);
+        assertThat(VirtualThreads.isEnabled(proxyConfig)).isEqualTo(VirtualThreads.isSupported());
+    }
+
+    @Test
+    public void newThreadPerTaskExecutor_happyPath() throws Exception {
+        assumeTrue(VirtualThreads.isSupported());
+
+        ExecutorService executorService = VirtualThreads.newThreadPerTaskExecutor("test-");
+        try {
+            String threadName = executorService.submit(() -> Thread.currentThread().getName()).get(5, TimeUnit.SECONDS);
+            assertThat(threadName).isEqualTo("test-0");
+            boolean virtual = executorService.submit(() ->
+                    (Boolean) Thread.class.getMethod("isVirtual").invoke(Thread.currentThread())).get(5, TimeUnit.SECONDS);
+            assertThat(virtual).isTrue();
+        } finally {
+            executorService.shutdownNow();
+        }
+    }
+
+    @Test
+    public void newThreadPerTaskExecutor_unsupported() {
+        assumeFalse(VirtualThreads.isSupported());
+
+        assertThatThrownBy(() -> VirtualThreads.newThreadPerTaskExecutor("test-"))
+                .isInstanceOf(UnsupportedOperationException.class);
+    }
+}